@@ -1,9 +1,20 @@
 package tc.oc.api.document;
 
 import java.util.Map;
+import java.util.function.Supplier;
 
 import tc.oc.api.docs.virtual.Document;
+import tc.oc.commons.core.util.ProxyUtils;
 
 public interface DocumentGenerator {
     <T extends Document> T instantiate(DocumentMeta<T> meta, Document base, Map<String, Object> data);
+
+    /**
+     * Return an implementation of the given document interface that forwards every
+     * method call to the document returned by the given {@link Supplier} at the time
+     * of the call.
+     */
+    default <T extends Document> T forwarder(Class<T> type, Supplier<? extends T> target) {
+        return ProxyUtils.newProviderProxy(type, target::get);
+    }
 }
@@ -1,104 +1,225 @@
 package tc.oc.api.document;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.reflect.TypeToken;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
+import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.google.inject.CreationException;
 import com.google.inject.ProvisionException;
 import tc.oc.api.docs.virtual.Document;
-import tc.oc.api.document.DocumentMeta;
-import tc.oc.api.document.DocumentRegistry;
-import tc.oc.api.document.Getter;
 import tc.oc.api.exceptions.SerializationException;
 import tc.oc.commons.core.logging.Loggers;
 
+/**
+ * Creates a streaming {@link TypeAdapter} for each {@link Document} type.
+ *
+ * Each adapter resolves the properties of the document, and the adapters for
+ * their values, the first time it is used, so that reading or writing a document
+ * goes straight to the {@link JsonReader} or {@link JsonWriter}, without building
+ * a tree of {@link com.google.gson.JsonElement}s or resolving any types.
+ *
+ * Gson consults factories before hierarchy adapters, so this factory declines any
+ * document type covered by a hierarchy adapter registered through
+ * {@link tc.oc.api.serialization.GsonBinder}, and leaves it to that adapter.
+ * Exact type adapters are consulted before any factory, so they always win.
+ *
+ * Properties are read through the {@link Getter}s of the {@link DocumentMeta},
+ * which call a {@link java.lang.invoke.MethodHandle} or read a field. Generating
+ * an adapter class per document, as {@link GeneratedDocumentGenerator} does for
+ * the documents themselves, would only replace that one call per property, and
+ * the delegate adapters and the JSON I/O would stay the same. DocumentSerializerBenchmark,
+ * under src/test, compares this adapter with the tree-based serializer it replaced.
+ */
 @Singleton
-public class DocumentSerializer implements JsonSerializer<Document>, JsonDeserializer<Document> {
+public class DocumentSerializer implements TypeAdapterFactory {
 
     protected final Logger logger;
     protected final DocumentRegistry documentRegistry;
+    protected final Set<Class> hierarchyAdapterTypes;
 
-    @Inject DocumentSerializer(Loggers loggers, DocumentRegistry documentRegistry) {
+    // Only the keys are needed, and providers avoid creating the adapters, which may depend on Gson
+    @Inject DocumentSerializer(Loggers loggers, DocumentRegistry documentRegistry, Map<Class, Provider<Object>> hiearchyAdapters) {
         this.logger = loggers.get(getClass());
         this.documentRegistry = documentRegistry;
+        this.hierarchyAdapterTypes = ImmutableSet.copyOf(hiearchyAdapters.keySet());
     }
 
     @Override
-    public JsonElement serialize(Document document, Type documentType, JsonSerializationContext context) {
-        final JsonObject documentJson = new JsonObject();
-        final DocumentMeta<?> documentMeta = documentRegistry.getMeta(document.getClass());
-        final TypeToken documentTypeToken = TypeToken.of(documentType);
+    public <T> TypeAdapter<T> create(Gson gson, com.google.gson.reflect.TypeToken<T> type) {
+        final Class<? super T> rawType = type.getRawType();
+        if(!Document.class.isAssignableFrom(rawType)) return null;
 
-        for(Map.Entry<String, Getter> entry : documentMeta.getters().entrySet()) {
-            final String name = entry.getKey();
-            final Getter getter = entry.getValue();
-            final Type resolvedType = getter.resolvedType(documentTypeToken);
+        for(Class hierarchyType : hierarchyAdapterTypes) {
+            if(hierarchyType.isAssignableFrom(rawType)) return null;
+        }
 
-            final Object value;
-            try {
-                value = getter.get(document);
-            } catch(Exception e) {
-                throw new SerializationException("Exception reading property " + resolvedType + " " + documentType + "." + name, e);
-            }
+        return (TypeAdapter<T>) new Adapter(gson, type.getType());
+    }
 
-            try {
-                documentJson.add(name, context.serialize(value, resolvedType));
-            } catch(Exception e) {
-                throw new SerializationException("Exception serializing property " + resolvedType + " " + documentType + "." + name + " = " + value, e);
-            }
-        }
+    /**
+     * A document property, and the adapter for its type in the context of a particular document type
+     */
+    private static class Property {
+        final String name;
+        final Getter getter;
+        final Type type;
+        final TypeAdapter<Object> adapter;
 
-        return documentJson;
+        Property(Gson gson, TypeToken documentType, String name, Getter getter) {
+            this.name = name;
+            this.getter = getter;
+            this.type = getter.resolvedType(documentType);
+            this.adapter = (TypeAdapter<Object>) gson.getAdapter(com.google.gson.reflect.TypeToken.get(type));
+        }
     }
 
-    @Override
-    public Document deserialize(JsonElement rawJson, Type documentType, JsonDeserializationContext context) throws JsonParseException {
-        final TypeToken documentTypeToken = TypeToken.of(documentType);
-        final DocumentMeta<?> documentMeta = documentRegistry.getMeta(documentTypeToken.getRawType());
-        final Class<? extends Document> instantiableType = documentMeta.type();
+    private class Adapter extends TypeAdapter<Document> {
+
+        final Gson gson;
+        final Type documentType;
+        final TypeToken documentTypeToken;
 
-        if(!(rawJson instanceof JsonObject)) {
-            throw new JsonSyntaxException("Expected JSON object while deserializing " + instantiableType.getName() + ", not " + rawJson.getClass().getSimpleName());
+        // Properties to write for each runtime class of document
+        final ConcurrentMap<Class<?>, Property[]> writeProperties = new ConcurrentHashMap<>();
+
+        // Properties to read, and the meta of the document type to create
+        volatile @Nullable Map<String, Property> readProperties;
+        volatile @Nullable DocumentMeta<?> readMeta;
+
+        Adapter(Gson gson, Type documentType) {
+            this.gson = gson;
+            this.documentType = documentType;
+            this.documentTypeToken = TypeToken.of(documentType);
         }
-        final JsonObject documentJson = (JsonObject) rawJson;
-        final ImmutableMap.Builder<String, Object> builder = ImmutableMap.builder();
 
-        for(Map.Entry<String, Getter> entry : documentMeta.getters().entrySet()) {
-            final String name = entry.getKey();
-            final Getter getter = entry.getValue();
-            final Type resolvedType = getter.resolvedType(documentTypeToken);
-            final JsonElement propertyJson = documentJson.get(name);
+        Property[] writeProperties(Class<?> type) {
+            Property[] properties = writeProperties.get(type);
+            if(properties == null) {
+                final DocumentMeta<?> meta = documentRegistry.getMeta(type.asSubclass(Document.class));
+                properties = meta.getters()
+                                 .entrySet()
+                                 .stream()
+                                 .map(entry -> new Property(gson, documentTypeToken, entry.getKey(), entry.getValue()))
+                                 .toArray(Property[]::new);
+                writeProperties.put(type, properties);
+            }
+            return properties;
+        }
 
-            try {
-                if(propertyJson == null || propertyJson.isJsonNull()) {
-                    if(!getter.isNullable()) {
-                        throw new NullPointerException("Missing value for non-nullable property " + name);
+        Map<String, Property> readProperties() {
+            Map<String, Property> properties = readProperties;
+            if(properties == null) {
+                final DocumentMeta<?> meta = documentRegistry.getMeta(documentTypeToken.getRawType());
+                final ImmutableMap.Builder<String, Property> builder = ImmutableMap.builder();
+                meta.getters().forEach((name, getter) -> builder.put(name, new Property(gson, documentTypeToken, name, getter)));
+                readMeta = meta;
+                readProperties = properties = builder.build();
+            }
+            return properties;
+        }
+
+        @Override
+        public void write(JsonWriter out, Document document) throws IOException {
+            if(document == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            for(Property property : writeProperties(document.getClass())) {
+                final Object value;
+                try {
+                    value = property.getter.get(document);
+                } catch(Exception e) {
+                    throw new SerializationException("Exception reading property " + property.type + " " + documentType + "." + property.name, e);
+                }
+
+                out.name(property.name);
+                try {
+                    if(value == null) {
+                        out.nullValue();
+                    } else {
+                        property.adapter.write(out, value);
                     }
-                } else {
-                    builder.put(name, context.deserialize(propertyJson, resolvedType));
+                } catch(Exception e) {
+                    throw new SerializationException("Exception serializing property " + property.type + " " + documentType + "." + property.name + " = " + value, e);
                 }
-            } catch(Exception e) {
-                throw new SerializationException("Exception deserializing property " + resolvedType + " " + documentType + "." + name + " = " + propertyJson, e);
             }
+            out.endObject();
         }
 
-        try {
-            return documentRegistry.instantiate(documentMeta, builder.build());
-        } catch(ProvisionException | CreationException e) {
-            throw new SerializationException("Exception instantiating document " + instantiableType.getName(), e);
+        @Override
+        public Document read(JsonReader in) throws IOException {
+            final JsonToken token = in.peek();
+            if(token == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            final Map<String, Property> properties = readProperties();
+            final DocumentMeta<?> documentMeta = readMeta;
+            final Class<? extends Document> instantiableType = documentMeta.type();
+
+            if(token != JsonToken.BEGIN_OBJECT) {
+                throw new JsonSyntaxException("Expected JSON object while deserializing " + instantiableType.getName() + ", not " + token);
+            }
+
+            final Map<String, Object> data = new HashMap<>();
+
+            in.beginObject();
+            while(in.hasNext()) {
+                final String name = in.nextName();
+                final Property property = properties.get(name);
+
+                // Unknown properties are ignored, and nulls are the same as missing values
+                if(property == null || in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+
+                final Object value;
+                try {
+                    value = property.adapter.read(in);
+                } catch(Exception e) {
+                    throw new SerializationException("Exception deserializing property " + property.type + " " + documentType + "." + name + " at " + in.getPath(), e);
+                }
+                if(value != null) {
+                    data.put(name, value);
+                }
+            }
+            in.endObject();
+
+            for(Property property : properties.values()) {
+                if(!property.getter.isNullable() && !data.containsKey(property.name)) {
+                    throw new SerializationException("Exception deserializing property " + property.type + " " + documentType + "." + property.name,
+                                                     new NullPointerException("Missing value for non-nullable property " + property.name));
+                }
+            }
+
+            try {
+                return documentRegistry.instantiate(documentMeta, data);
+            } catch(ProvisionException | CreationException e) {
+                throw new SerializationException("Exception instantiating document " + instantiableType.getName(), e);
+            }
         }
     }
 }
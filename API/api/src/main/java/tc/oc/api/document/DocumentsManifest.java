@@ -1,6 +1,5 @@
 package tc.oc.api.document;
 
-import tc.oc.api.docs.virtual.Document;
 import tc.oc.api.serialization.GsonBinder;
 import tc.oc.commons.core.inject.HybridManifest;
 
@@ -10,10 +9,10 @@ public class DocumentsManifest extends HybridManifest {
     protected void configure() {
         bindAndExpose(DocumentSerializer.class);
         bind(DocumentRegistry.class);
-        bind(DocumentGenerator.class).to(ProxyDocumentGenerator.class);
+        bindAndExpose(DocumentGenerator.class).to(GeneratedDocumentGenerator.class);
 
         new GsonBinder(publicBinder())
-            .bindHiearchySerializer(Document.class)
+            .bindFactory()
             .to(DocumentSerializer.class);
     }
 }
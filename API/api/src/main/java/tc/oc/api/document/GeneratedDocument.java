@@ -0,0 +1,87 @@
+package tc.oc.api.document;
+
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import tc.oc.api.docs.virtual.Document;
+import tc.oc.api.docs.virtual.Model;
+import tc.oc.commons.core.inspect.Inspectable;
+import tc.oc.commons.core.inspect.InspectableProperty;
+
+/**
+ * Base class of the document implementations generated by {@link GeneratedDocumentGenerator}.
+ *
+ * Each generated subclass stores the properties of the document in its own fields,
+ * and implements the methods of the document interface that are not handled here.
+ * Equality is delegated to the base document, as it was with proxied documents.
+ */
+public abstract class GeneratedDocument implements Inspectable {
+
+    /**
+     * Marks a property with no value, in the array passed to a generated constructor
+     */
+    public static final Object ABSENT = new Object();
+
+    /**
+     * The properties stored by a generated class, in the order of their fields
+     */
+    public static final class Layout {
+        final DocumentMeta<?> meta;
+        final String[] names;
+
+        Layout(DocumentMeta<?> meta, String[] names) {
+            this.meta = meta;
+            this.names = names;
+        }
+    }
+
+    protected final Layout layout;
+    protected final Document base;
+
+    protected GeneratedDocument(Layout layout, Document base) {
+        this.layout = layout;
+        this.base = base;
+    }
+
+    /**
+     * Return the value of the property with the given index in the {@link Layout},
+     * boxed if necessary, or {@link #ABSENT} if the document has no value for it.
+     */
+    protected abstract Object value(int index);
+
+    @Override
+    public boolean equals(Object obj) {
+        return base.equals(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        return base.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return inspect();
+    }
+
+    @Override
+    public String inspectType() {
+        return layout.meta.type().getSimpleName();
+    }
+
+    @Override
+    public Optional<String> inspectIdentity() {
+        if(this instanceof Model) {
+            return Optional.of(((Model) this)._id());
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Stream<? extends InspectableProperty> inspectableProperties() {
+        return IntStream.range(0, layout.names.length)
+                        .filter(index -> value(index) != ABSENT)
+                        .mapToObj(index -> InspectableProperty.of(layout.names[index], value(index)));
+    }
+}
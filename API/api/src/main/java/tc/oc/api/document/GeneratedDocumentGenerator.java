@@ -0,0 +1,409 @@
+package tc.oc.api.document;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.cache.LoadingCache;
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtMethod;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.Modifier;
+import javassist.NotFoundException;
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.BadBytecode;
+import javassist.bytecode.Bytecode;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.Descriptor;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.Opcode;
+import tc.oc.api.docs.virtual.Document;
+import tc.oc.api.exceptions.SerializationException;
+import tc.oc.commons.core.logging.Loggers;
+import tc.oc.commons.core.reflect.Types;
+import tc.oc.commons.core.util.CacheUtils;
+import tc.oc.commons.core.util.ExceptionUtils;
+import tc.oc.javassist.Javassists;
+
+/**
+ * Implements document interfaces with classes generated at runtime.
+ *
+ * The first time a document interface is instantiated, a final subclass of {@link GeneratedDocument}
+ * is generated for it, with a field for each property, and a getter method that returns the field.
+ * Calling a getter is then an ordinary method call, which the JIT can inline, rather than a trip
+ * through an {@link java.lang.reflect.InvocationHandler}. Missing properties, and methods that are
+ * not properties, are handled with the same rules as {@link ProxyDocumentGenerator}: they are
+ * delegated to the base document if it implements them, otherwise they fall back to the default
+ * method of the interface, or null if the property is nullable.
+ *
+ * The classes returned by {@link #forwarder} are generated in the same way, with each method
+ * calling the same method on the current target document.
+ *
+ * If a class cannot be generated for some document type, a proxy is used for that type instead.
+ */
+@Singleton
+public class GeneratedDocumentGenerator implements DocumentGenerator {
+
+    private static final String ABSENT = GeneratedDocument.class.getName() + ".ABSENT";
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, GeneratedDocument.Layout.class, Document.class, Object[].class);
+    private static final MethodType FORWARDER_CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Supplier.class);
+
+    // Class names must be unique, because each injector has its own generator
+    private static final AtomicInteger nextClassId = new AtomicInteger();
+
+    private final Logger logger;
+    private final ProxyDocumentGenerator fallback = new ProxyDocumentGenerator();
+    private final LoadingCache<DocumentMeta<?>, Optional<Implementation>> implementations = CacheUtils.newCache(this::implement);
+    private final LoadingCache<Class<?>, Optional<MethodHandle>> forwarders = CacheUtils.newCache(this::implementForwarder);
+
+    @Inject GeneratedDocumentGenerator(Loggers loggers) {
+        this.logger = loggers.get(getClass());
+    }
+
+    @Override
+    public <T extends Document> T instantiate(DocumentMeta<T> meta, Document base, Map<String, Object> data) {
+        final Optional<Implementation> implementation = implementations.getUnchecked(meta);
+        if(!implementation.isPresent()) {
+            return fallback.instantiate(meta, base, data);
+        }
+
+        ProxyDocumentGenerator.validate(meta, data);
+        return meta.type().cast(implementation.get().newInstance(base, data));
+    }
+
+    @Override
+    public <T extends Document> T forwarder(Class<T> type, Supplier<? extends T> target) {
+        final Optional<MethodHandle> constructor = forwarders.getUnchecked(type);
+        if(!constructor.isPresent()) {
+            return DocumentGenerator.super.forwarder(type, target);
+        }
+
+        try {
+            final Object forwarder = constructor.get().invokeExact(target);
+            return type.cast(forwarder);
+        } catch(Throwable e) {
+            throw ExceptionUtils.propagate(e);
+        }
+    }
+
+    private static class Implementation {
+        final GeneratedDocument.Layout layout;
+        final MethodHandle constructor;
+
+        Implementation(GeneratedDocument.Layout layout, MethodHandle constructor) {
+            this.layout = layout;
+            this.constructor = constructor;
+        }
+
+        GeneratedDocument newInstance(Document base, Map<String, Object> data) {
+            final String[] names = layout.names;
+            final Object[] values = new Object[names.length];
+            for(int i = 0; i < names.length; i++) {
+                values[i] = data.getOrDefault(names[i], GeneratedDocument.ABSENT);
+            }
+
+            try {
+                final Object document = constructor.invokeExact(layout, base, values);
+                return (GeneratedDocument) document;
+            } catch(Throwable e) {
+                throw ExceptionUtils.propagate(e);
+            }
+        }
+    }
+
+    private Optional<Implementation> implement(DocumentMeta<?> meta) {
+        try {
+            return Optional.of(generate(meta));
+        } catch(Exception e) {
+            logger.log(Level.WARNING, "Failed to generate a class for document " + meta.type().getName() + ", using a proxy instead", e);
+            return Optional.empty();
+        }
+    }
+
+    private Optional<MethodHandle> implementForwarder(Class<?> type) {
+        try {
+            return Optional.of(generateForwarder(type));
+        } catch(Exception e) {
+            logger.log(Level.WARNING, "Failed to generate a forwarder for document " + type.getName() + ", using a proxy instead", e);
+            return Optional.empty();
+        }
+    }
+
+    private Implementation generate(DocumentMeta<?> meta) throws NotFoundException, CannotCompileException, BadBytecode, ReflectiveOperationException {
+        final Class<?> type = meta.type();
+        final Class<?> baseType = meta.baseType();
+        final ClassPool pool = Javassists.getPool(type.getClassLoader());
+
+        final CtClass impl = pool.makeClass(type.getName() + "$$Document" + nextClassId.getAndIncrement(), ctClass(pool, GeneratedDocument.class));
+        impl.setModifiers(Modifier.PUBLIC | Modifier.FINAL);
+        impl.addInterface(ctClass(pool, type));
+        // Required to call default methods with invokespecial
+        impl.getClassFile().setMajorVersion(ClassFile.JAVA_8);
+
+        // Fields for each property, and the code to initialize them from the constructor arguments.
+        // Properties that may be missing also get a flag that is set if they have a value.
+        final List<String> names = new ArrayList<>();
+        final Map<String, Integer> indicesByMethod = new HashMap<>();
+        final StringBuilder constructor = new StringBuilder("{ super($1, $2); ");
+        final StringBuilder value = new StringBuilder("{ ");
+
+        for(Map.Entry<String, Getter> entry : meta.getters().entrySet()) {
+            final Getter<?> getter = entry.getValue();
+            final Member member = getter.member();
+            if(!(member instanceof Method)) {
+                throw new UnsupportedOperationException("Property " + entry.getKey() + " is not a getter method");
+            }
+
+            final int index = names.size();
+            names.add(entry.getKey());
+            indicesByMethod.put(member.getName(), index);
+
+            final Class<?> fieldType = getter.rawType();
+            final CtField field = new CtField(ctClass(pool, fieldType), field(index), impl);
+            field.setModifiers(Modifier.PRIVATE);
+            impl.addField(field);
+
+            final String argument = "$3[" + index + "]";
+            final String assign = "this." + field(index) + " = " + unbox(fieldType, argument) + "; ";
+            final String box = "return " + box(fieldType, "this." + field(index)) + "; ";
+
+            if(getter.hasDefault()) {
+                final CtField present = new CtField(CtClass.booleanType, present(index), impl);
+                present.setModifiers(Modifier.PRIVATE);
+                impl.addField(present);
+
+                constructor.append("this.").append(present(index)).append(" = ").append(argument).append(" != ").append(ABSENT).append("; ")
+                           .append("if(this.").append(present(index)).append(") ").append(assign);
+                value.append("if($1 == ").append(index).append(") { if(!this.").append(present(index)).append(") return ").append(ABSENT).append("; ").append(box).append("} ");
+            } else {
+                constructor.append(assign);
+                value.append("if($1 == ").append(index).append(") ").append(box);
+            }
+        }
+
+        constructor.append("}");
+        value.append("return ").append(ABSENT).append("; }");
+
+        impl.addConstructor(CtNewConstructor.make(
+            ctClasses(pool, GeneratedDocument.Layout.class, Document.class, Object[].class),
+            new CtClass[0],
+            constructor.toString(),
+            impl
+        ));
+        impl.addMethod(CtNewMethod.make(Modifier.PROTECTED, ctClass(pool, Object.class), "value", new CtClass[]{ CtClass.intType }, new CtClass[0], value.toString(), impl));
+
+        // Methods of the document interface
+        int defaults = 0;
+        for(Method method : implementableMethods(type)) {
+            final Integer index = method.getParameterCount() == 0 ? indicesByMethod.get(method.getName()) : null;
+            final String delegate = method.getDeclaringClass().isAssignableFrom(baseType)
+                                    ? "((" + method.getDeclaringClass().getTypeName() + ") this.base)." + method.getName() + "($$)"
+                                    : null;
+
+            final String body;
+            if(index != null) {
+                final Getter<?> getter = meta.getters().get(names.get(index));
+                final String field = "this." + field(index);
+
+                if(!getter.hasDefault()) {
+                    body = "{ return " + field + "; }";
+                } else {
+                    final String missing;
+                    if(delegate != null) {
+                        missing = "return " + delegate + ";";
+                    } else if(method.isDefault()) {
+                        missing = "return this." + addDefaultCaller(pool, impl, method, defaults++) + "();";
+                    } else if(getter.isNullable()) {
+                        missing = "return null;";
+                    } else {
+                        missing = "throw new " + SerializationException.class.getName() + "(\"No implementation for method '" + method.getName() + "'\");";
+                    }
+                    body = "{ if(this." + present(index) + ") return " + field + "; " + missing + " }";
+                }
+            } else if(delegate != null) {
+                body = method.getReturnType() == void.class ? "{ " + delegate + "; }"
+                                                            : "{ return " + delegate + "; }";
+            } else if(method.isDefault()) {
+                // Inherited from the interface
+                continue;
+            } else {
+                throw new UnsupportedOperationException("No implementation for method " + method);
+            }
+
+            impl.addMethod(makeMethod(pool, impl, method, body));
+        }
+
+        final Class<?> cls = toClass(pool, impl, type);
+        final GeneratedDocument.Layout layout = new GeneratedDocument.Layout(meta, names.toArray(new String[names.size()]));
+        final MethodHandle handle = MethodHandles.publicLookup()
+                                                 .findConstructor(cls, CONSTRUCTOR_TYPE.changeReturnType(void.class))
+                                                 .asType(CONSTRUCTOR_TYPE);
+        return new Implementation(layout, handle);
+    }
+
+    private MethodHandle generateForwarder(Class<?> type) throws NotFoundException, CannotCompileException, BadBytecode, ReflectiveOperationException {
+        final ClassPool pool = Javassists.getPool(type.getClassLoader());
+
+        final CtClass impl = pool.makeClass(type.getName() + "$$Forwarder" + nextClassId.getAndIncrement());
+        impl.setModifiers(Modifier.PUBLIC | Modifier.FINAL);
+        impl.addInterface(ctClass(pool, type));
+
+        final CtField target = new CtField(ctClass(pool, Supplier.class), "target", impl);
+        target.setModifiers(Modifier.PRIVATE);
+        impl.addField(target);
+
+        impl.addConstructor(CtNewConstructor.make(ctClasses(pool, Supplier.class), new CtClass[0], "{ super(); this.target = $1; }", impl));
+        impl.addMethod(CtNewMethod.make("public boolean equals(Object obj) { return this.target.get().equals($1); }", impl));
+        impl.addMethod(CtNewMethod.make("public int hashCode() { return this.target.get().hashCode(); }", impl));
+        impl.addMethod(CtNewMethod.make("public String toString() { return this.target.get().toString(); }", impl));
+
+        for(Method method : implementableMethods(type)) {
+            final String call = "((" + method.getDeclaringClass().getTypeName() + ") this.target.get())." + method.getName() + "($$)";
+            impl.addMethod(makeMethod(pool, impl, method, method.getReturnType() == void.class ? "{ " + call + "; }"
+                                                                                                : "{ return " + call + "; }"));
+        }
+
+        final Class<?> cls = toClass(pool, impl, type);
+        return MethodHandles.publicLookup()
+                            .findConstructor(cls, FORWARDER_CONSTRUCTOR_TYPE.changeReturnType(void.class))
+                            .asType(FORWARDER_CONSTRUCTOR_TYPE);
+    }
+
+    /**
+     * Add a private method to the given class that calls the given default method of an interface.
+     * This can't be written in Javassist's source language, so the bytecode is generated directly.
+     */
+    private static String addDefaultCaller(ClassPool pool, CtClass impl, Method method, int number) throws NotFoundException, CannotCompileException {
+        final CtClass declaring = ctClass(pool, method.getDeclaringClass());
+        final CtClass returnType = ctClass(pool, method.getReturnType());
+
+        // invokespecial can only call a default method of a direct superinterface
+        boolean direct = false;
+        for(CtClass iface : impl.getInterfaces()) {
+            direct |= iface.getName().equals(declaring.getName());
+        }
+        if(!direct) {
+            impl.addInterface(declaring);
+        }
+
+        final String name = "default$" + number + "$" + method.getName();
+        final String descriptor = Descriptor.ofMethod(returnType, new CtClass[0]);
+        final ConstPool constPool = impl.getClassFile().getConstPool();
+
+        final Bytecode code = new Bytecode(constPool, 0, 1);
+        code.addAload(0);
+        code.addOpcode(Opcode.INVOKESPECIAL);
+        code.addIndex(constPool.addInterfaceMethodrefInfo(constPool.addClassInfo(declaring), method.getName(), descriptor));
+        code.growStack(Descriptor.dataSize(descriptor) - 1);
+        code.addReturn(returnType);
+
+        final MethodInfo info = new MethodInfo(constPool, name, descriptor);
+        info.setAccessFlags(AccessFlag.PRIVATE);
+        info.setCodeAttribute(code.toCodeAttribute());
+        impl.addMethod(CtMethod.make(info, impl));
+        return name;
+    }
+
+    private static CtMethod makeMethod(ClassPool pool, CtClass impl, Method method, String body) throws NotFoundException, CannotCompileException {
+        return CtNewMethod.make(Modifier.PUBLIC,
+                                ctClass(pool, method.getReturnType()),
+                                method.getName(),
+                                ctClasses(pool, method.getParameterTypes()),
+                                ctClasses(pool, method.getExceptionTypes()),
+                                body,
+                                impl);
+    }
+
+    private static Class<?> toClass(ClassPool pool, CtClass impl, Class<?> type) throws CannotCompileException, BadBytecode {
+        final ClassFile classFile = impl.getClassFile();
+        for(Object info : classFile.getMethods()) {
+            ((MethodInfo) info).rebuildStackMapIf6(pool, classFile);
+        }
+        final Class<?> cls = impl.toClass(type.getClassLoader(), type.getProtectionDomain());
+        impl.detach();
+        return cls;
+    }
+
+    /**
+     * All instance methods of the given interface, excluding those also declared by {@link Object},
+     * with only one method for each signature.
+     */
+    private static List<Method> implementableMethods(Class<?> type) {
+        final List<Method> methods = new ArrayList<>();
+        final Set<List<Object>> signatures = new HashSet<>();
+        for(Method method : type.getMethods()) {
+            if(Modifier.isStatic(method.getModifiers())) continue;
+            if(isObjectMethod(method)) continue;
+
+            final List<Object> signature = new ArrayList<>();
+            signature.add(method.getName());
+            signature.add(method.getReturnType());
+            signature.add(Arrays.asList(method.getParameterTypes()));
+            if(signatures.add(signature)) {
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    private static boolean isObjectMethod(Method method) {
+        try {
+            Object.class.getMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch(NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static String field(int index) {
+        return "value$" + index;
+    }
+
+    private static String present(int index) {
+        return "present$" + index;
+    }
+
+    private static String box(Class<?> type, String expression) {
+        return type.isPrimitive() ? Types.box(type).getName() + ".valueOf(" + expression + ")"
+                                  : expression;
+    }
+
+    private static String unbox(Class<?> type, String expression) {
+        return type.isPrimitive() ? "((" + Types.box(type).getName() + ") " + expression + ")." + type.getName() + "Value()"
+                                  : "(" + type.getTypeName() + ") " + expression;
+    }
+
+    private static CtClass ctClass(ClassPool pool, Class<?> cls) throws NotFoundException {
+        return pool.get(cls.getTypeName());
+    }
+
+    private static CtClass[] ctClasses(ClassPool pool, Class<?>... classes) throws NotFoundException {
+        final CtClass[] ctClasses = new CtClass[classes.length];
+        for(int i = 0; i < classes.length; i++) {
+            ctClasses[i] = ctClass(pool, classes[i]);
+        }
+        return ctClasses;
+    }
+}
@@ -1,6 +1,8 @@
 package tc.oc.api.document;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import javax.annotation.Nullable;
@@ -19,11 +21,19 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class GetterMethod<T> extends BaseAccessor<T> implements Getter<T> {
 
     private final Method method;
+    private final MethodHandle handle;
 
     public GetterMethod(DocumentRegistry registry, Method method) {
         super(registry);
         this.method = checkNotNull(method);
         method.setAccessible(true);
+        try {
+            this.handle = MethodHandles.lookup()
+                                       .unreflect(method)
+                                       .asType(MethodType.methodType(Object.class, Object.class));
+        } catch(IllegalAccessException e) {
+            throw ExceptionUtils.propagate(e);
+        }
     }
 
     @Override
@@ -54,8 +64,9 @@ public class GetterMethod<T> extends BaseAccessor<T> implements Getter<T> {
     @Override
     public T get(Object obj) {
         try {
-            return validate((T) member().invoke(obj));
-        } catch(IllegalAccessException | InvocationTargetException e) {
+            final Object value = handle.invokeExact(obj);
+            return validate((T) value);
+        } catch(Throwable e) {
             throw ExceptionUtils.propagate(e);
         }
     }
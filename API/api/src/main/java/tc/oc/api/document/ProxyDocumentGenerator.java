@@ -24,7 +24,14 @@ public class ProxyDocumentGenerator implements DocumentGenerator {
 
     @Override
     public <T extends Document> T instantiate(DocumentMeta<T> meta, Document base, Map<String, Object> data) {
-        // Validate data before creating the document
+        validate(meta, data);
+        return new Invoker<>(meta, base, data).proxy;
+    }
+
+    /**
+     * Validate data before creating a document
+     */
+    static void validate(DocumentMeta<?> meta, Map<String, Object> data) {
         for(Map.Entry<String, Getter> entry : meta.getters().entrySet()) {
             final String name = entry.getKey();
             final Getter getter = entry.getValue();
@@ -35,8 +42,6 @@ public class ProxyDocumentGenerator implements DocumentGenerator {
                 throw new IllegalArgumentException("Missing value for required property " + name);
             }
         }
-
-        return new Invoker<>(meta, base, data).proxy;
     }
 
     private static final Method Object_toString = Methods.declaredMethod(Object.class, "toString");
@@ -1,10 +1,19 @@
 package tc.oc.api.games;
 
+import java.util.Set;
 import javax.inject.Singleton;
 
 import tc.oc.api.docs.Game;
+import tc.oc.api.docs.virtual.ServerDoc;
+import tc.oc.api.model.ModelIndex;
 import tc.oc.api.model.ModelStore;
 
 @Singleton
 public class GameStore extends ModelStore<Game> {
+
+    private final ModelIndex<ServerDoc.Visibility, Game> byVisibility = index(Game::visibility);
+
+    public Set<Game> byVisibility(ServerDoc.Visibility visibility) {
+        return byVisibility.get(visibility);
+    }
 }
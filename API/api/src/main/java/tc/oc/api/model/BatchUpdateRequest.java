@@ -36,4 +36,11 @@ public class BatchUpdateRequest<T extends PartialModel> implements UpdateMultiRe
     public void addAll(Iterable<? extends T> documents) {
         documents.forEach(this::add);
     }
+
+    /**
+     * Add a document that was already serialized to the given JSON
+     */
+    public void addJson(String json) {
+        documents.add(gson.fromJson(json, JsonObject.class));
+    }
 }
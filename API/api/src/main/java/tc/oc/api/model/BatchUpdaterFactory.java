@@ -1,25 +1,70 @@
 package tc.oc.api.model;
 
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Provider;
 
 import java.time.Duration;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.gson.Gson;
 import tc.oc.api.docs.virtual.PartialModel;
+import tc.oc.api.exceptions.Conflict;
+import tc.oc.api.exceptions.Forbidden;
+import tc.oc.api.exceptions.NotFound;
+import tc.oc.api.exceptions.SerializationException;
+import tc.oc.api.exceptions.UnprocessableEntity;
 import tc.oc.api.message.types.UpdateMultiRequest;
+import tc.oc.commons.core.logging.Loggers;
 import tc.oc.commons.core.scheduler.DebouncedTask;
 import tc.oc.commons.core.scheduler.Scheduler;
 
+/**
+ * Creates {@link BatchUpdater}s that write each document to an {@link UpdateJournal}
+ * as soon as it is added, and send the journal when the batch is flushed.
+ *
+ * Documents are serialized when they are added, so the batch holds no references
+ * to the objects they were created from, and keeps nothing in the heap until it is sent.
+ * Only serialization happens on the calling thread. The JSON is handed to the
+ * {@link UpdateJournals#writer} thread, which does all the journal file operations,
+ * and commits each journal to the storage device once, just before sending it.
+ * A journal is only deleted after the API accepts it. If sending fails, it is retried
+ * with increasing delays, and if the process dies first, the journal is sent by the
+ * first updater created for the same type after restarting.
+ *
+ * If the API rejects the updates themselves, resending them will not help, so the
+ * journal is set aside with a {@link #FAILED_SUFFIX} immediately. The same happens
+ * after {@link #MAX_ATTEMPTS} failures of any kind. Journals that have been set aside
+ * are never recovered, and can be inspected or removed by hand.
+ */
 public class BatchUpdaterFactory<T extends PartialModel> {
 
+    private static final Duration MIN_RETRY_DELAY = Duration.ofSeconds(1);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(5);
+    private static final int MAX_ATTEMPTS = 20;
+    private static final String FAILED_SUFFIX = ".failed";
+
+    private final Logger logger;
     private final UpdateService<T> service;
     private final Provider<BatchUpdateRequest> updateProvider;
     private final Scheduler scheduler;
+    private final UpdateJournals journals;
+    private final Gson gson;
+    private final String journalType;
 
-    @Inject BatchUpdaterFactory(UpdateService<T> service, Provider<BatchUpdateRequest> updateProvider, Scheduler scheduler) {
+    @Inject BatchUpdaterFactory(Loggers loggers, UpdateService<T> service, Provider<BatchUpdateRequest> updateProvider, Scheduler scheduler, UpdateJournals journals, Gson gson) {
+        this.logger = loggers.get(getClass());
         this.service = service;
         this.updateProvider = updateProvider;
         this.scheduler = scheduler;
+        this.journals = journals;
+        this.gson = gson;
+        this.journalType = service.partialType().getRawType().getName();
     }
 
     public BatchUpdater<T> createBatchUpdater() {
@@ -27,13 +72,95 @@ public class BatchUpdaterFactory<T extends PartialModel> {
     }
 
     public BatchUpdater<T> createBatchUpdater(Duration delay) {
+        write(() -> journals.recover(journalType).forEach(journal -> send(journal, 0)));
         return new BatchUpdaterImpl(delay);
     }
 
+    private static Duration retryDelay(int attempt) {
+        final Duration delay = MIN_RETRY_DELAY.multipliedBy(1L << Math.min(attempt, 16));
+        return delay.compareTo(MAX_RETRY_DELAY) < 0 ? delay : MAX_RETRY_DELAY;
+    }
+
+    /**
+     * Did the API reject the request itself, so that sending it again would fail the same way?
+     */
+    private static boolean isRejection(Throwable e) {
+        return e instanceof UnprocessableEntity ||
+               e instanceof Conflict ||
+               e instanceof NotFound ||
+               e instanceof Forbidden ||
+               e instanceof SerializationException;
+    }
+
+    private void write(Runnable task) {
+        try {
+            journals.writer().execute(task);
+        } catch(RejectedExecutionException e) {
+            logger.warning("Update journal writer has shut down, discarding updates");
+        }
+    }
+
+    /**
+     * Called on the writer thread
+     */
+    private void send(UpdateJournal journal, int attempt) {
+        final BatchUpdateRequest<T> request = updateProvider.get();
+        journal.read().forEach(request::addJson);
+
+        Futures.addCallback(service.updateMulti((UpdateMultiRequest) request), new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(@Nullable Object result) {
+                delete(journal);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                if(isRejection(e)) {
+                    logger.log(Level.SEVERE, "API rejected " + journal.count() + " updates from " + journal.file(), e);
+                    setAside(journal);
+                } else if(attempt + 1 >= MAX_ATTEMPTS) {
+                    logger.log(Level.SEVERE, "Failed to send " + journal.count() + " updates from " + journal.file() +
+                                             " after " + MAX_ATTEMPTS + " attempts", e);
+                    setAside(journal);
+                } else {
+                    final Duration delay = retryDelay(attempt);
+                    logger.log(Level.WARNING, "Failed to send " + journal.count() + " updates from " + journal.file() +
+                                              ", retrying in " + delay.getSeconds() + " seconds", e);
+                    scheduler.createDelayedTask(delay, () -> write(() -> send(journal, attempt + 1)));
+                }
+            }
+        }, journals.writer());
+    }
+
+    private void sendUnjournaled(String json) {
+        final BatchUpdateRequest<T> request = updateProvider.get();
+        request.addJson(json);
+        service.updateMulti((UpdateMultiRequest) request);
+    }
+
+    private void delete(UpdateJournal journal) {
+        try {
+            journal.delete();
+        } catch(IOException e) {
+            logger.log(Level.WARNING, "Failed to delete update journal " + journal.file(), e);
+        }
+    }
+
+    private void setAside(UpdateJournal journal) {
+        try {
+            logger.severe("Moved unsent updates to " + journal.setAside(FAILED_SUFFIX));
+        } catch(IOException e) {
+            logger.log(Level.SEVERE, "Failed to set aside update journal " + journal.file() + ", deleting it", e);
+            delete(journal);
+        }
+    }
+
     private class BatchUpdaterImpl implements BatchUpdater<T> {
 
         final DebouncedTask task;
-        @Nullable BatchUpdateRequest<T> batchUpdate;
+
+        // Only accessed on the writer thread
+        @Nullable UpdateJournal journal;
 
         BatchUpdaterImpl(Duration delay) {
             this.task = scheduler.createDebouncedTask(delay, this::flush);
@@ -41,12 +168,8 @@ public class BatchUpdaterFactory<T extends PartialModel> {
 
         @Override
         public void flush() {
-            if(batchUpdate != null) {
-                final BatchUpdateRequest<T> batchUpdate = this.batchUpdate;
-                this.batchUpdate = null;
-                task.cancel();
-                service.updateMulti((UpdateMultiRequest) batchUpdate);
-            }
+            task.cancel();
+            write(this::sendJournal);
         }
 
         @Override
@@ -56,11 +179,49 @@ public class BatchUpdaterFactory<T extends PartialModel> {
 
         @Override
         public void update(T doc) {
-            if(batchUpdate == null) {
-                batchUpdate = updateProvider.get();
-            }
-            batchUpdate.add(doc);
+            final String json = gson.toJson(doc);
+            write(() -> appendJournal(json));
             schedule();
         }
+
+        private void appendJournal(String json) {
+            if(!append(json)) {
+                // Journal is full, send it and start a new one
+                sendJournal();
+                if(!append(json)) {
+                    sendUnjournaled(json);
+                    return;
+                }
+            }
+
+            if(journals.flushSize() > 0 && journal.size() >= journals.flushSize()) {
+                sendJournal();
+            }
+        }
+
+        private void sendJournal() {
+            if(journal != null) {
+                final UpdateJournal journal = this.journal;
+                this.journal = null;
+                if(journal.isEmpty()) {
+                    delete(journal);
+                } else {
+                    journal.commit();
+                    send(journal, 0);
+                }
+            }
+        }
+
+        private boolean append(String json) {
+            if(journal == null) {
+                try {
+                    journal = journals.create(journalType);
+                } catch(IOException e) {
+                    logger.log(Level.SEVERE, "Failed to create update journal", e);
+                    return false;
+                }
+            }
+            return journal.append(json);
+        }
     }
 }
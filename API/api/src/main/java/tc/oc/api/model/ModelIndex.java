@@ -0,0 +1,71 @@
+package tc.oc.api.model;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+import tc.oc.api.docs.virtual.Model;
+
+/**
+ * A secondary index of the documents in a {@link ModelStore}, grouped by the key
+ * returned from a function of each document. Documents with a null key are not indexed.
+ *
+ * Indexes are created with {@link ModelStore#index} and are kept up to date as
+ * documents are created, updated, and deleted. They should only be used from the
+ * {@link ModelSync} thread, like the store itself.
+ */
+public class ModelIndex<K, T extends Model> {
+
+    private final Function<? super T, ? extends K> key;
+    protected final SetMultimap<K, T> byKey;
+
+    ModelIndex(Function<? super T, ? extends K> key) {
+        this(key, HashMultimap.create());
+    }
+
+    ModelIndex(Function<? super T, ? extends K> key, SetMultimap<K, T> byKey) {
+        this.key = key;
+        this.byKey = byKey;
+    }
+
+    /**
+     * Return all stored documents with the given key. The returned set is a live,
+     * unmodifiable view, and is empty if there are no such documents.
+     */
+    public Set<T> get(K key) {
+        return Collections.unmodifiableSet(byKey.get(key));
+    }
+
+    /**
+     * Return any one stored document with the given key, or null if there are none.
+     * This is mainly useful for keys that are unique to a single document.
+     */
+    public @Nullable T one(K key) {
+        final Set<T> docs = byKey.get(key);
+        return docs.isEmpty() ? null : docs.iterator().next();
+    }
+
+    public boolean contains(K key) {
+        return byKey.containsKey(key);
+    }
+
+    /**
+     * Return all keys that currently have at least one document
+     */
+    public Set<K> keys() {
+        return Collections.unmodifiableSet(byKey.keySet());
+    }
+
+    void add(T doc) {
+        final K k = key.apply(doc);
+        if(k != null) byKey.put(k, doc);
+    }
+
+    void remove(T doc) {
+        final K k = key.apply(doc);
+        if(k != null) byKey.remove(k, doc);
+    }
+}
@@ -1,14 +1,17 @@
 package tc.oc.api.model;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -35,7 +38,6 @@ import tc.oc.api.message.types.ModelUpdate;
 import tc.oc.commons.core.concurrent.FutureUtils;
 import tc.oc.commons.core.logging.Loggers;
 import tc.oc.commons.core.util.CacheUtils;
-import tc.oc.commons.core.util.ProxyUtils;
 import tc.oc.minecraft.suspend.Suspendable;
 
 public abstract class ModelStore<T extends Model> implements MessageListener, Connectable, Suspendable {
@@ -45,17 +47,19 @@ public abstract class ModelStore<T extends Model> implements MessageListener, Co
     protected @Inject MessageQueue primaryQueue;
     protected @Inject @ModelSync ExecutorService modelSync;
     protected @Inject ModelDispatcher dispatcher;
+    protected @Inject ModelUpdateCoalescer coalescer;
 
     protected ModelMeta<T, ? super T> meta;
     private LoadingCache<String, T> proxies;
 
     private final Map<String, T> byId = new HashMap<>();
+    private final List<ModelIndex<?, T>> indexes = new ArrayList<>();
 
-    @Inject void init(Loggers loggers, ModelRegistry registry) {
+    @Inject void init(Loggers loggers, ModelRegistry registry, DocumentGenerator generator) {
         this.logger = loggers.get(getClass());
         this.meta = (ModelMeta<T, ? super T>) registry.meta(new TypeToken<T>(getClass()){});
 
-        this.proxies = CacheUtils.newCache(id -> ProxyUtils.newProviderProxy(meta.completeTypeRaw(), () -> byId(id)));
+        this.proxies = CacheUtils.newCache(id -> generator.forwarder(meta.completeTypeRaw(), () -> byId(id)));
     }
 
     @Override
@@ -63,7 +67,9 @@ public abstract class ModelStore<T extends Model> implements MessageListener, Co
         primaryQueue.bind(ModelUpdate.class);
         primaryQueue.bind(ModelDelete.class);
 
-        primaryQueue.subscribe(this, modelSync);
+        // When coalescing, messages are handled on the queue thread,
+        // and the coalescer applies them on the ModelSync executor.
+        primaryQueue.subscribe(this, coalescer.isEnabled() ? null : modelSync);
         refreshAllSync();
     }
 
@@ -85,10 +91,8 @@ public abstract class ModelStore<T extends Model> implements MessageListener, Co
      * The document does not need to actually exist when the proxy is created,
      * but it must exist any time a method is called.
      *
-     * TODO: Avoid double-wrapping. In most cases, this will return a proxy to
-     * another proxy. The inner proxy is from {@link DocumentGenerator} to implement
-     * the document interface, and the outer proxy is the one created here to look
-     * it up in the tracker. Would be nice if these were combined into a single proxy.
+     * The proxy is generated by {@link DocumentGenerator#forwarder}, so each call
+     * is a lookup followed by a direct call on the stored document.
      */
     public T proxy(String id) {
         return proxies.getUnchecked(id);
@@ -137,6 +141,36 @@ public abstract class ModelStore<T extends Model> implements MessageListener, Co
         return min;
     }
 
+    /**
+     * Create a secondary index of the documents in this store, grouped by the given key.
+     * The index is populated from the documents already stored, and then kept up to
+     * date as they change, so lookups by key do not need to scan the whole store e.g.
+     *
+     *     ModelIndex<String, Server> byFamily = servers.index(Server::family);
+     *     byFamily.get("pgm");
+     *
+     * Every call creates a new index, so callers should create it once and keep it.
+     */
+    public <K> ModelIndex<K, T> index(Function<? super T, ? extends K> key) {
+        return addIndex(new ModelIndex<>(key));
+    }
+
+    /**
+     * Create a secondary index like {@link #index}, that keeps the documents for each
+     * key sorted in the given order.
+     *
+     * @see SortedModelIndex
+     */
+    public <K> SortedModelIndex<K, T> sortedIndex(Function<? super T, ? extends K> key, Comparator<? super T> order) {
+        return addIndex(new SortedModelIndex<>(key, order));
+    }
+
+    private <I extends ModelIndex<?, T>> I addIndex(I index) {
+        byId.values().forEach(index::add);
+        indexes.add(index);
+        return index;
+    }
+
     protected void logAction(String verb, T model) {
         if(logger.isLoggable(Level.FINE)) {
             logger.fine(verb + ' ' + meta.name() + ' ' + model._id());
@@ -180,12 +214,27 @@ public abstract class ModelStore<T extends Model> implements MessageListener, Co
 
     @HandleMessage
     public void onUpdate(ModelUpdate<T> message) {
-        handleUpdate(message.document()._id(), message.document());
+        receiveUpdate(message.document()._id(), message.document());
     }
 
     @HandleMessage
     public void onDelete(ModelDelete<T> message) {
-        handleUpdate(message.document_id(), null);
+        receiveUpdate(message.document_id(), null);
+    }
+
+    private void receiveUpdate(String id, @Nullable T after) {
+        if(coalescer.isEnabled()) {
+            coalescer.submit(this, id, after);
+        } else {
+            handleUpdate(id, after);
+        }
+    }
+
+    /**
+     * Called by {@link ModelUpdateCoalescer} on the ModelSync thread
+     */
+    void applyCoalesced(String id, @Nullable Model after) {
+        handleUpdate(id, (T) after);
     }
 
     private boolean exists(@Nullable T doc) {
@@ -204,17 +253,21 @@ public abstract class ModelStore<T extends Model> implements MessageListener, Co
             if(exists(after)) {
                 logAction("Update", after);
                 unindex(before);
+                indexes.forEach(index -> index.remove(before));
                 reindex(after);
+                indexes.forEach(index -> index.add(after));
                 latest = after;
             } else {
                 logAction("Delete", before);
                 unindex(before);
+                indexes.forEach(index -> index.remove(before));
                 remove(before);
                 latest = before;
             }
         } else if(exists(after)) {
             logAction("Create", after);
             reindex(after);
+            indexes.forEach(index -> index.add(after));
             latest = after;
         } else {
             latest = null;
@@ -239,7 +292,8 @@ public abstract class ModelStore<T extends Model> implements MessageListener, Co
      * Called when a document is updated, or deleted. The argument is the state
      * of the document before the change.
      *
-     * Subclasses can override this in order to maintain their own indexes.
+     * Subclasses can override this in order to maintain their own indexes,
+     * though indexes by a single key are simpler to declare with {@link #index}.
      */
     protected void unindex(T doc) {
         byId.remove(doc._id());
@@ -249,7 +303,8 @@ public abstract class ModelStore<T extends Model> implements MessageListener, Co
      * This method is called when a document is created or updated. The argument
      * is the state of the document after the change.
      *
-     * Subclasses can override this in order to maintain their own indexes.
+     * Subclasses can override this in order to maintain their own indexes,
+     * though indexes by a single key are simpler to declare with {@link #index}.
      */
     protected void reindex(T doc) {
         byId.put(doc._id(), doc);
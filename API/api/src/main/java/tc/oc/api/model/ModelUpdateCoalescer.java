@@ -0,0 +1,154 @@
+package tc.oc.api.model;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import tc.oc.api.connectable.Connectable;
+import tc.oc.api.docs.virtual.Model;
+import tc.oc.api.message.types.ModelDelete;
+import tc.oc.api.message.types.ModelUpdate;
+import tc.oc.commons.core.concurrent.ExecutorUtils;
+import tc.oc.commons.core.logging.Loggers;
+import tc.oc.minecraft.api.configuration.Configuration;
+
+/**
+ * Collects the {@link ModelUpdate}s and {@link ModelDelete}s received by all {@link ModelStore}s
+ * within a short window, and then applies only the latest one for each document, on the
+ * {@link ModelSync} executor. This saves the stores, and their listeners, from processing
+ * intermediate states of documents that change many times in quick succession.
+ *
+ * The window is set in milliseconds by {@link #WINDOW_PATH} in the config. If it is zero,
+ * coalescing is disabled, and stores apply every message as it arrives.
+ *
+ * The timer thread is only started once something is submitted, and is stopped when the API
+ * disconnects. Any updates still waiting at that point are dropped, along with any that arrive
+ * afterward, since the stores have stopped listening by then.
+ */
+@Singleton
+public class ModelUpdateCoalescer implements Connectable {
+
+    public static final String SECTION = "model-sync";
+    public static final String WINDOW_PATH = "coalesce-window";
+
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Logger logger;
+    private final Executor modelSync;
+    private final long windowMillis;
+
+    // Latest document for each ID in each store, or null if deleted
+    private final Map<ModelStore<?>, Map<String, Model>> pending = new LinkedHashMap<>();
+
+    // These are all guarded by pending
+    private @Nullable ScheduledExecutorService timer;
+    private boolean flushScheduled;
+    private boolean disconnected;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+
+    @Inject ModelUpdateCoalescer(Loggers loggers, Configuration config, @ModelSync Executor modelSync) {
+        this(loggers.get(ModelUpdateCoalescer.class), modelSync, config.getInt(SECTION + "." + WINDOW_PATH));
+    }
+
+    ModelUpdateCoalescer(Logger logger, Executor modelSync, long windowMillis) {
+        this.logger = logger;
+        this.modelSync = modelSync;
+        this.windowMillis = windowMillis;
+    }
+
+    public boolean isEnabled() {
+        return windowMillis > 0;
+    }
+
+    /**
+     * Total number of updates received by {@link #submit}
+     */
+    public long receivedCount() {
+        return received.get();
+    }
+
+    /**
+     * Total number of updates applied to stores, after coalescing
+     */
+    public long appliedCount() {
+        return applied.get();
+    }
+
+    /**
+     * Queue the given state of a document to be applied to the given store, replacing
+     * any state already queued for it. Can be called from any thread.
+     */
+    <T extends Model> void submit(ModelStore<T> store, String id, @Nullable T document) {
+        received.incrementAndGet();
+
+        synchronized(pending) {
+            if(disconnected) return;
+
+            pending.computeIfAbsent(store, s -> new LinkedHashMap<>()).put(id, document);
+
+            if(!flushScheduled) {
+                flushScheduled = true;
+                timer().schedule(() -> modelSync.execute(this::flush), windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void disconnect() throws IOException {
+        final ScheduledExecutorService timer;
+        synchronized(pending) {
+            disconnected = true;
+            if(!pending.isEmpty()) {
+                logger.fine("Dropping pending updates for " + pending.size() + " stores");
+                pending.clear();
+            }
+            timer = this.timer;
+            this.timer = null;
+        }
+
+        if(timer != null) {
+            ExecutorUtils.shutdownImpatiently(timer, logger, SHUTDOWN_TIMEOUT);
+        }
+    }
+
+    private ScheduledExecutorService timer() {
+        if(timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("Model Update Coalescer").setDaemon(true).build()
+            );
+        }
+        return timer;
+    }
+
+    private void flush() {
+        final Map<ModelStore<?>, Map<String, Model>> batch;
+        synchronized(pending) {
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+            flushScheduled = false;
+        }
+
+        batch.forEach((store, documents) -> documents.forEach((id, document) -> {
+            applied.incrementAndGet();
+            try {
+                store.applyCoalesced(id, document);
+            } catch(RuntimeException e) {
+                logger.log(Level.SEVERE, "Exception applying update to " + id, e);
+            }
+        }));
+    }
+}
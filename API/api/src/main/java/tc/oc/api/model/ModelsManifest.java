@@ -30,6 +30,9 @@ public class ModelsManifest extends HybridManifest implements ModelBinders {
         expose(executorServiceKey);
         expose(listeningExecutorServiceKey);
 
+        bindAndExpose(ModelUpdateCoalescer.class).asEagerSingleton();
+        bindAndExpose(UpdateJournals.class).asEagerSingleton();
+
         new ModelListenerBinder(publicBinder());
     }
 }
@@ -0,0 +1,47 @@
+package tc.oc.api.model;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SortedSetMultimap;
+import tc.oc.api.docs.virtual.Model;
+
+/**
+ * A {@link ModelIndex} that keeps the documents for each key sorted in a given order,
+ * so the best document for a key can be found without scanning the whole store.
+ *
+ * The order must depend only on the state of the documents themselves, since
+ * it is used to locate them again when they are removed. Documents that are
+ * equal in the given order are ordered by ID, so none of them are lost.
+ */
+public class SortedModelIndex<K, T extends Model> extends ModelIndex<K, T> {
+
+    SortedModelIndex(Function<? super T, ? extends K> key, Comparator<? super T> order) {
+        super(key, newMultimap(order));
+    }
+
+    private static <K, T extends Model> SortedSetMultimap<K, T> newMultimap(Comparator<? super T> order) {
+        final Comparator<T> total = ((Comparator<T>) order).thenComparing(Model::_id);
+        return Multimaps.newSortedSetMultimap(new HashMap<>(), () -> new TreeSet<>(total));
+    }
+
+    @Override
+    public SortedSet<T> get(K key) {
+        return Collections.unmodifiableSortedSet(((SortedSetMultimap<K, T>) byKey).get(key));
+    }
+
+    /**
+     * Return the first document with the given key, in the order of this index,
+     * or null if there are none.
+     */
+    public @Nullable T first(K key) {
+        final SortedSet<T> docs = ((SortedSetMultimap<K, T>) byKey).get(key);
+        return docs.isEmpty() ? null : docs.first();
+    }
+}
@@ -0,0 +1,172 @@
+package tc.oc.api.model;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An append-only file of serialized documents waiting to be sent to the API,
+ * mapped into memory so that appending a record is just a copy.
+ *
+ * The file starts with a header containing the offset of the end of the last
+ * complete record. Each record is a length followed by that many bytes of UTF-8 JSON.
+ * The end offset is only advanced after a record is completely written, so if the
+ * process dies, the file can be read back with {@link #open} and will contain every
+ * record that was appended. Records only survive the machine dying once they have
+ * been forced to the storage device by {@link #commit}, which is done once for each
+ * batch rather than for each record.
+ *
+ * A journal is not thread-safe. It should be written by one thread, and then handed
+ * off to be sent once nothing more will be appended.
+ */
+class UpdateJournal {
+
+    private static final int MAGIC = 0x4a524e4c;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int END_OFFSET = 4;
+    private static final int HEADER_SIZE = 8;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int end;
+    private int count;
+
+    private UpdateJournal(Path file, FileChannel channel, MappedByteBuffer buffer, int end, int count) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.end = end;
+        this.count = count;
+    }
+
+    /**
+     * Open the journal in the given file, creating it if it does not exist.
+     * Any records already in the file are kept. The file is extended to the
+     * given capacity if it is smaller.
+     */
+    static UpdateJournal open(Path file, int capacity) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            capacity = (int) Math.max(capacity, Math.min(channel.size(), Integer.MAX_VALUE));
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+            int end = HEADER_SIZE, count = 0;
+            if(buffer.getInt(MAGIC_OFFSET) == MAGIC) {
+                // Existing journal, count the complete records and ignore anything else
+                final int recorded = buffer.getInt(END_OFFSET);
+                while(end + 4 <= recorded) {
+                    final int length = buffer.getInt(end);
+                    if(length < 0 || end + 4 + length > recorded) break;
+                    end += 4 + length;
+                    count++;
+                }
+            } else {
+                buffer.putInt(MAGIC_OFFSET, MAGIC);
+            }
+            buffer.putInt(END_OFFSET, end);
+
+            return new UpdateJournal(file, channel, buffer, end, count);
+        } catch(IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /**
+     * Number of records in the journal
+     */
+    int count() {
+        return count;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Number of bytes used by the records in the journal
+     */
+    int size() {
+        return end - HEADER_SIZE;
+    }
+
+    /**
+     * Append the given JSON to the journal.
+     *
+     * @return false if there is not enough room left for it, in which case nothing is written
+     */
+    boolean append(String json) {
+        final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        if(end + 4 + bytes.length > buffer.capacity()) return false;
+
+        buffer.putInt(end, bytes.length);
+        buffer.position(end + 4);
+        buffer.put(bytes);
+        end += 4 + bytes.length;
+        count++;
+
+        // Commit the record
+        buffer.putInt(END_OFFSET, end);
+        return true;
+    }
+
+    /**
+     * Force all the records appended so far to the storage device. This blocks until
+     * the write completes, so it should not be called from the main thread.
+     */
+    void commit() {
+        buffer.force();
+    }
+
+    /**
+     * Read all the records in the journal
+     */
+    List<String> read() {
+        final List<String> records = new ArrayList<>(count);
+        for(int offset = HEADER_SIZE; offset < end;) {
+            final int length = buffer.getInt(offset);
+            final byte[] bytes = new byte[length];
+            buffer.position(offset + 4);
+            buffer.get(bytes);
+            records.add(new String(bytes, StandardCharsets.UTF_8));
+            offset += 4 + length;
+        }
+        return records;
+    }
+
+    /**
+     * Close and delete the journal, discarding its records
+     */
+    void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Close the journal and rename its file by adding the given suffix, so its records
+     * are kept for inspection, but are not recovered by {@link UpdateJournals}.
+     *
+     * @return the new location of the file
+     */
+    Path setAside(String suffix) throws IOException {
+        channel.close();
+        return Files.move(file, file.resolveSibling(file.getFileName() + suffix), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{file=" + file + ", count=" + count + ", size=" + size() + "}";
+    }
+}
@@ -0,0 +1,134 @@
+package tc.oc.api.model;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import tc.oc.api.connectable.Connectable;
+import tc.oc.commons.core.concurrent.ExecutorUtils;
+import tc.oc.commons.core.logging.Loggers;
+import tc.oc.minecraft.api.configuration.Configuration;
+import tc.oc.minecraft.api.configuration.ConfigurationSection;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Allocates the {@link UpdateJournal} files used by {@link BatchUpdater}s, and finds
+ * any journals left behind by a previous process, so their updates can be sent.
+ *
+ * Journals are named after the type of document they contain, so they are only
+ * recovered by an updater for the same type.
+ *
+ * All journal file operations happen on a single {@link #writer} thread, so that
+ * updaters called from the main thread never wait for the disk. When the API
+ * disconnects, the writer finishes any work already handed to it.
+ */
+@Singleton
+public class UpdateJournals implements Connectable {
+
+    public static final String SECTION = "batch-update";
+    public static final String DIRECTORY_PATH = "journal-directory";
+    public static final String JOURNAL_SIZE_PATH = "journal-size";
+    public static final String FLUSH_SIZE_PATH = "flush-size";
+
+    private static final String SUFFIX = ".journal";
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Logger logger;
+    private final Path directory;
+    private final int journalSize;
+    private final int flushSize;
+    private final ExecutorService writer;
+
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final Set<String> recovered = new HashSet<>();
+
+    @Inject UpdateJournals(Loggers loggers, Configuration config) {
+        this.logger = loggers.get(getClass());
+
+        final ConfigurationSection section = checkNotNull(config.getSection(SECTION));
+        this.directory = Paths.get(section.getString(DIRECTORY_PATH));
+        this.journalSize = section.getInt(JOURNAL_SIZE_PATH);
+        this.flushSize = section.getInt(FLUSH_SIZE_PATH);
+
+        this.writer = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Update Journal Writer").setDaemon(true).build()
+        );
+    }
+
+    @Override
+    public void disconnect() throws IOException {
+        ExecutorUtils.shutdownPatiently(writer, logger, SHUTDOWN_TIMEOUT, SHUTDOWN_TIMEOUT);
+    }
+
+    /**
+     * The thread that all journals are created, written, committed and recovered on
+     */
+    Executor writer() {
+        return writer;
+    }
+
+    /**
+     * Size of the records in a journal, in bytes, at which it should be sent
+     * without waiting for the updater's delay
+     */
+    int flushSize() {
+        return flushSize;
+    }
+
+    /**
+     * Create a new, empty journal for documents of the given type
+     */
+    UpdateJournal create(String type) throws IOException {
+        Files.createDirectories(directory);
+        Path file;
+        do {
+            file = directory.resolve(type + "-" + nextId.incrementAndGet() + SUFFIX);
+        } while(Files.exists(file));
+        return UpdateJournal.open(file, journalSize);
+    }
+
+    /**
+     * Return any journals for the given type that were left behind by a previous process.
+     * Only the first call for each type returns anything.
+     */
+    synchronized List<UpdateJournal> recover(String type) {
+        final List<UpdateJournal> journals = new ArrayList<>();
+        if(!recovered.add(type) || !Files.isDirectory(directory)) return journals;
+
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, type + "-*" + SUFFIX)) {
+            for(Path file : files) {
+                try {
+                    final UpdateJournal journal = UpdateJournal.open(file, journalSize);
+                    if(journal.isEmpty()) {
+                        journal.delete();
+                    } else {
+                        logger.info("Recovered " + journal.count() + " unsent updates from " + file);
+                        journals.add(journal);
+                    }
+                } catch(IOException | RuntimeException e) {
+                    logger.log(Level.SEVERE, "Failed to recover update journal " + file, e);
+                }
+            }
+        } catch(IOException e) {
+            logger.log(Level.SEVERE, "Failed to list update journals in " + directory, e);
+        }
+        return journals;
+    }
+}
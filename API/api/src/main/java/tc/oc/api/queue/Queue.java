@@ -1,23 +1,30 @@
 package tc.oc.api.queue;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
 import com.google.common.reflect.TypeToken;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.gson.Gson;
@@ -36,7 +43,6 @@ import tc.oc.commons.core.exception.ExceptionHandler;
 import tc.oc.commons.core.logging.Loggers;
 import tc.oc.commons.core.reflect.Methods;
 import tc.oc.commons.core.reflect.Types;
-import tc.oc.commons.core.util.CachingTypeMap;
 import tc.oc.minecraft.suspend.Suspendable;
 
 /**
@@ -77,21 +83,131 @@ import tc.oc.minecraft.suspend.Suspendable;
  *     }
  *
  *     MY_QUEUE.subscribe(new MyWorker(), syncExecutor);
+ *
+ * Each delivery is acknowledged after every handler it was dispatched to has returned,
+ * including handlers that run on an {@link Executor}. If {@link QueueClientConfiguration#getPrefetch()}
+ * is set, the broker stops delivering when that many messages are waiting to be handled.
  */
 public class Queue implements MessageQueue, Connectable, Suspendable {
 
     private static class RegisteredHandler<T extends Message> {
+        final TypeToken<T> type;
         final @Nullable MessageListener listener;
         final MessageHandler<T> handler;
         final @Nullable Executor executor;
+        volatile boolean active = true;
 
-        private RegisteredHandler(@Nullable MessageListener listener, MessageHandler<T> handler, @Nullable Executor executor) {
+        private RegisteredHandler(TypeToken<T> type, @Nullable MessageListener listener, MessageHandler<T> handler, @Nullable Executor executor) {
+            this.type = type;
             this.listener = listener;
             this.handler = handler;
             this.executor = executor;
         }
     }
 
+    /**
+     * Immutable snapshot of the registered handlers, which is replaced whenever a handler
+     * subscribes or unsubscribes, so that deliveries can be dispatched without locking.
+     */
+    private static class HandlerIndex {
+        final ImmutableList<RegisteredHandler<?>> handlers;
+        final ConcurrentMap<TypeToken<?>, RegisteredHandler<?>[]> byType = new ConcurrentHashMap<>();
+
+        HandlerIndex(ImmutableList<RegisteredHandler<?>> handlers) {
+            this.handlers = handlers;
+        }
+
+        RegisteredHandler<?>[] handlersFor(TypeToken<? extends Message> type) {
+            return byType.computeIfAbsent(type, t -> handlers.stream()
+                                                             .filter(registered -> registered.type.isAssignableFrom(t))
+                                                             .toArray(RegisteredHandler<?>[]::new));
+        }
+
+        HandlerIndex with(RegisteredHandler<?> handler) {
+            return new HandlerIndex(ImmutableList.<RegisteredHandler<?>>builder().addAll(handlers).add(handler).build());
+        }
+
+        HandlerIndex without(Predicate<RegisteredHandler<?>> filter) {
+            final ImmutableList.Builder<RegisteredHandler<?>> remaining = ImmutableList.builder();
+            for(RegisteredHandler<?> registered : handlers) {
+                if(filter.test(registered)) {
+                    registered.active = false;
+                } else {
+                    remaining.add(registered);
+                }
+            }
+            return new HandlerIndex(remaining.build());
+        }
+    }
+
+    /**
+     * Calls a {@link MessageListener.HandleMessage} method through a {@link MethodHandle}
+     * that takes the message, metadata and delivery, and passes on the ones the method wants.
+     */
+    private static class ListenerMethodHandler implements MessageHandler<Message> {
+        private static final MethodType TYPE = MethodType.methodType(void.class, Message.class, Metadata.class, Delivery.class);
+
+        final MessageListener listener;
+        final Method method;
+        final int protocolVersion;
+        final MethodHandle handle;
+
+        ListenerMethodHandler(MessageListener listener, Method method, Class<?> messageType, int protocolVersion) {
+            this.listener = listener;
+            this.method = method;
+            this.protocolVersion = protocolVersion;
+
+            final Class<?>[] paramTypes = method.getParameterTypes();
+            final Class<?>[] argTypes = new Class<?>[paramTypes.length];
+            final int[] reorder = new int[paramTypes.length];
+            for(int i = 0; i < paramTypes.length; i++) {
+                if(paramTypes[i].isAssignableFrom(messageType)) {
+                    argTypes[i] = Message.class;
+                    reorder[i] = 0;
+                } else if(paramTypes[i].isAssignableFrom(Metadata.class)) {
+                    argTypes[i] = Metadata.class;
+                    reorder[i] = 1;
+                } else if(paramTypes[i].isAssignableFrom(Delivery.class)) {
+                    argTypes[i] = Delivery.class;
+                    reorder[i] = 2;
+                } else {
+                    throw new IllegalStateException("Message handler method " + method.getName() + " has a parameter of unsupported type " + paramTypes[i].getName());
+                }
+            }
+
+            try {
+                this.handle = MethodHandles.permuteArguments(MethodHandles.lookup()
+                                                                          .unreflect(method)
+                                                                          .bindTo(listener)
+                                                                          .asType(MethodType.methodType(void.class, argTypes)),
+                                                             TYPE,
+                                                             reorder);
+            } catch(IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void handleDelivery(Message message, TypeToken<? extends Message> type, Metadata properties, Delivery delivery) {
+            if(protocolVersion != -1 && protocolVersion != properties.protocolVersion()) {
+                return;
+            }
+
+            try {
+                handle.invokeExact(message, properties, delivery);
+            } catch(RuntimeException e) {
+                throw e;
+            } catch(Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return listener + "." + method.getName();
+        }
+    }
+
     protected Logger logger;
     @Inject protected MessageRegistry messageRegistry;
     @Inject protected Gson gson;
@@ -99,14 +215,15 @@ public class Queue implements MessageQueue, Connectable, Suspendable {
     @Inject protected QueueClient client;
     @Inject protected Exchange.Topic topic;
     @Inject protected ExceptionHandler exceptionHandler;
+    @Inject protected QueueClientConfiguration clientConfig;
 
     protected final Consume consume;
 
     @Nullable String consumerTag;
     private MultiDispatcher dispatcher;
 
-    private final Set<RegisteredHandler<?>> handlers = new HashSet<>();
-    private final CachingTypeMap<Message, RegisteredHandler<?>> handlersByType = CachingTypeMap.create();
+    private final Object handlersLock = new Object();
+    private volatile HandlerIndex handlers = new HandlerIndex(ImmutableList.of());
     private volatile boolean suspended;
 
     public Consume consume() { return consume; }
@@ -125,6 +242,10 @@ public class Queue implements MessageQueue, Connectable, Suspendable {
     public void connect() throws IOException {
         logger.fine("Declaring queue");
         client.getChannel().queueDeclare(consume.name(), consume.durable(), consume.exclusive(), consume.autoDelete(), consume.arguments());
+        if(clientConfig.getPrefetch() > 0) {
+            // Applies to consumers created on the channel after this call
+            client.getChannel().basicQos(clientConfig.getPrefetch());
+        }
         dispatcher = new MultiDispatcher();
         consumerTag = client.getChannel().basicConsume(consume.name(), false, "", false, true, Collections.<String, Object>emptyMap(), dispatcher);
     }
@@ -176,11 +297,8 @@ public class Queue implements MessageQueue, Connectable, Suspendable {
 
     private <T extends Message> void subscribe(TypeToken<T> messageType, @Nullable MessageListener listener, MessageHandler<T> handler, @Nullable Executor executor) {
         logger.fine("Subscribing handler " + handler);
-        synchronized(handlers) {
-            final RegisteredHandler<T> registered = new RegisteredHandler<>(listener, handler, executor);
-            handlers.add(registered);
-            handlersByType.put(messageType, registered);
-            handlersByType.invalidate();
+        synchronized(handlersLock) {
+            handlers = handlers.with(new RegisteredHandler<>(messageType, listener, handler, executor));
         }
     }
 
@@ -216,43 +334,7 @@ public class Queue implements MessageQueue, Connectable, Suspendable {
 
                 logger.fine("  dispatching " + messageType.getRawType().getSimpleName() + " to method " + method.getName());
 
-                MessageHandler handler = new MessageHandler() {
-                    @Override
-                    public void handleDelivery(Message message, TypeToken type, Metadata properties, Delivery delivery) {
-                        try {
-                            if(annot.protocolVersion() != -1 && annot.protocolVersion() != properties.protocolVersion()) {
-                                return;
-                            }
-
-                            final Class<?>[] paramTypes = method.getParameterTypes();
-                            Object[] params = new Object[paramTypes.length];
-                            for(int i = 0; i < paramTypes.length; i++) {
-                                if(paramTypes[i].isAssignableFrom(message.getClass())) {
-                                    params[i] = message;
-                                } else if(paramTypes[i].isAssignableFrom(Metadata.class)) {
-                                    params[i] = properties;
-                                } else if(paramTypes[i].isAssignableFrom(Delivery.class)) {
-                                    params[i] = delivery;
-                                }
-                            }
-                            method.invoke(listener, params);
-                        } catch(IllegalAccessException e) {
-                            throw new IllegalStateException(e);
-                        } catch(InvocationTargetException e) {
-                            if(e.getCause() instanceof RuntimeException) {
-                                throw (RuntimeException) e.getCause();
-                            } else {
-                                throw new IllegalStateException(e);
-                            }
-                        }
-                    }
-
-                    @Override
-                    public String toString() {
-                        return listener + "." + method.getName();
-                    }
-                };
-
+                final MessageHandler handler = new ListenerMethodHandler(listener, method, messageType.getRawType(), annot.protocolVersion());
                 subscribe(messageType, listener, handler, executor);
             }
         });
@@ -260,18 +342,16 @@ public class Queue implements MessageQueue, Connectable, Suspendable {
 
     @Override
     public void unsubscribe(MessageHandler<?> handler) {
-        synchronized(handlers) {
-            handlers.removeIf(registered -> registered.handler == handler);
-            handlersByType.entries().removeIf(registered -> registered.getValue().handler == handler);
+        synchronized(handlersLock) {
+            handlers = handlers.without(registered -> registered.handler == handler);
         }
     }
 
     @Override
     public void unsubscribe(MessageListener listener) {
         if(listener == null) return;
-        synchronized(handlers) {
-            handlers.removeIf(registered -> registered.listener == listener);
-            handlersByType.entries().removeIf(registered -> registered.getValue().listener == listener);
+        synchronized(handlersLock) {
+            handlers = handlers.without(registered -> registered.listener == listener);
         }
     }
 
@@ -303,9 +383,8 @@ public class Queue implements MessageQueue, Connectable, Suspendable {
 
         @Override
         public void handleDelivery(String consumerTag, Envelope envelope, final AMQP.BasicProperties amqProperties, byte[] body) throws IOException {
+            final Acknowledgement ack = new Acknowledgement(envelope.getDeliveryTag());
             try {
-                client.getChannel().basicAck(envelope.getDeliveryTag(), false);
-
                 final TypeToken<? extends Message> type;
                 try {
                     type = messageRegistry.resolve(amqProperties.getType(), Metadata.modelName(amqProperties));
@@ -315,19 +394,16 @@ public class Queue implements MessageQueue, Connectable, Suspendable {
                     return;
                 }
 
-                final Collection<RegisteredHandler<?>> matchingHandlers;
-                synchronized(handlers) {
-                    matchingHandlers = handlersByType.allAssignableFrom(type);
-                }
-                if(matchingHandlers.isEmpty()) return;
+                final RegisteredHandler<?>[] matchingHandlers = handlers.handlersFor(type);
+                if(matchingHandlers.length == 0) return;
 
-                final String json = new String(body, Charsets.UTF_8);
-                final Message message = gson.fromJson(json, type.getType());
+                // Parse straight from the raw bytes, without decoding them to a String first
+                final Message message = gson.fromJson(new InputStreamReader(new ByteArrayInputStream(body), Charsets.UTF_8), type.getType());
                 final Metadata properties = new Metadata(amqProperties);
                 final Delivery delivery = new Delivery(client, consumerTag, envelope);
 
                 if(logger.isLoggable(Level.FINE)) {
-                    logger.fine("Received message " + properties.getType() + "\nMetadata: " + properties + "\n" + prettyGson.toJson(json));
+                    logger.fine("Received message " + properties.getType() + "\nMetadata: " + properties + "\n" + prettyGson.toJson(new String(body, Charsets.UTF_8)));
                 }
 
                 for(final RegisteredHandler handler : matchingHandlers) {
@@ -338,21 +414,58 @@ public class Queue implements MessageQueue, Connectable, Suspendable {
                     if(handler.executor == null) {
                         exceptionHandler.run(() -> handler.handler.handleDelivery(message, type, properties, delivery));
                     } else {
-                        handler.executor.execute(() -> {
-                            synchronized(handlers) {
-                                // Double check from the handler's executor that it is still registered.
-                                // This makes it much less likely to dispatch a message to a handler
-                                // after it unsubs. It should work perfectly if the handler unsubs on
-                                // the same thread it handles messages on.
-                                if(!handlers.contains(handler)) return;
-                            }
-                            exceptionHandler.run(() -> handler.handler.handleDelivery(message, type, properties, delivery));
-                        });
+                        ack.retain();
+                        try {
+                            handler.executor.execute(() -> {
+                                try {
+                                    // Double check from the handler's executor that it is still registered.
+                                    // This makes it much less likely to dispatch a message to a handler
+                                    // after it unsubs. It should work perfectly if the handler unsubs on
+                                    // the same thread it handles messages on.
+                                    if(handler.active) {
+                                        exceptionHandler.run(() -> handler.handler.handleDelivery(message, type, properties, delivery));
+                                    }
+                                } finally {
+                                    ack.release();
+                                }
+                            });
+                        } catch(RejectedExecutionException e) {
+                            ack.release();
+                            throw e;
+                        }
                     }
                 }
             } catch(Throwable t) {
                 logger.log(Level.SEVERE, "Exception dispatching AMQP message", t);
                 // Don't let any exceptions through to the AMQP driver or it will close the channel
+            } finally {
+                ack.release();
+            }
+        }
+    }
+
+    /**
+     * Acknowledges a delivery once every handler it was dispatched to has finished with it
+     */
+    private class Acknowledgement {
+        final long deliveryTag;
+        final AtomicInteger pending = new AtomicInteger(1);
+
+        Acknowledgement(long deliveryTag) {
+            this.deliveryTag = deliveryTag;
+        }
+
+        void retain() {
+            pending.incrementAndGet();
+        }
+
+        void release() {
+            if(pending.decrementAndGet() == 0) {
+                try {
+                    client.getChannel().basicAck(deliveryTag, false);
+                } catch(IOException e) {
+                    logger.log(Level.SEVERE, "Failed to ACK delivery " + deliveryTag, e);
+                }
             }
         }
     }
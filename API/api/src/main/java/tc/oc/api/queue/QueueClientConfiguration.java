@@ -39,4 +39,12 @@ public interface QueueClientConfiguration {
     int getNetworkRecoveryInterval();
 
     int getThreads();
+
+    /**
+     * Maximum number of unacknowledged messages delivered to each queue consumer.
+     * Messages are acknowledged after all of their handlers have finished, so
+     * this limits the number of messages waiting in handler executors, leaving
+     * the rest on the broker. Zero means no limit.
+     */
+    int getPrefetch();
 }
@@ -18,6 +18,7 @@ public class QueueClientConfigurationImpl implements QueueClientConfiguration {
     public static final String CONNECTION_TIMEOUT_PATH = "connection-timeout";
     public static final String VIRTUAL_HOST_PATH = "virtual-host";
     public static final String THREADS_PATH = "threads";
+    public static final String PREFETCH_PATH = "prefetch";
     public static final String PASSWORD_PATH = "password";
     public static final String USERNAME_PATH = "username";
     public static final String ADDRESSES_PATH = "addresses";
@@ -62,4 +63,9 @@ public class QueueClientConfigurationImpl implements QueueClientConfiguration {
     public int getThreads() {
         return config.getInt(THREADS_PATH);
     }
+
+    @Override
+    public int getPrefetch() {
+        return config.getInt(PREFETCH_PATH);
+    }
 }
@@ -2,16 +2,16 @@ package tc.oc.api.servers;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 import javax.inject.Singleton;
 
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.SetMultimap;
 import tc.oc.api.docs.Arena;
 import tc.oc.api.docs.Server;
 import tc.oc.api.docs.virtual.ServerDoc;
 import tc.oc.api.message.types.FindRequest;
+import tc.oc.api.model.ModelIndex;
 import tc.oc.api.model.ModelStore;
 import tc.oc.commons.core.util.Nullables;
 
@@ -24,8 +24,9 @@ import static com.google.common.base.Preconditions.checkArgument;
 public class ServerStore extends ModelStore<Server> {
 
     private final Map<String, Server> byBungeeName = new HashMap<>();
-    private final SetMultimap<ServerDoc.Role, Server> byRole = HashMultimap.create();
-    private final SetMultimap<String, Server> byArenaId = HashMultimap.create();
+    private final ModelIndex<ServerDoc.Role, Server> byRole = index(Server::role);
+    private final ModelIndex<String, Server> byArenaId = index(Server::arena_id);
+    private final ModelIndex<String, Server> byFamily = index(Server::family);
 
     @Override
     protected FindRequest<Server> refreshAllRequest() {
@@ -48,6 +49,10 @@ public class ServerStore extends ModelStore<Server> {
         return ImmutableSet.copyOf(byArenaId.get(arena._id()));
     }
 
+    public Set<Server> byFamily(String family) {
+        return byFamily.get(family);
+    }
+
     public int countBukkitPlayers() {
         int playerCount = 0;
         for(Server server : byRole.get(ServerDoc.Role.PGM)) {
@@ -62,16 +67,12 @@ public class ServerStore extends ModelStore<Server> {
     @Override
     protected void unindex(Server doc) {
         super.unindex(doc);
-        byRole.remove(doc.role(), doc);
-        if(doc.arena_id() != null) byArenaId.remove(doc.arena_id(), doc);
         if(doc.bungee_name() != null) byBungeeName.remove(doc.bungee_name());
     }
 
     @Override
     protected void reindex(Server doc) {
         super.reindex(doc);
-        byRole.put(doc.role(), doc);
-        if(doc.arena_id() != null) byArenaId.put(doc.arena_id(), doc);
         if(doc.bungee_name() != null) byBungeeName.put(doc.bungee_name(), doc);
     }
 }
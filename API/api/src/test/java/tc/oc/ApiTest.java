@@ -21,6 +21,7 @@ import tc.oc.api.model.ModelBinders;
 import tc.oc.api.model.ModelSync;
 import tc.oc.api.queue.QueueClient;
 import tc.oc.api.queue.QueueManifest;
+import tc.oc.api.serialization.GsonBinder;
 import tc.oc.api.servers.NullServerService;
 import tc.oc.api.servers.ServerService;
 import tc.oc.api.sessions.NullSessionService;
@@ -55,6 +56,8 @@ public abstract class ApiTest {
             publicBinder().forOptional(SessionService.class).setBinding().to(NullSessionService.class);
             publicBinder().forOptional(MapService.class).setBinding().to(NullMapService.class);
 
+            configureGson(new GsonBinder(publicBinder()));
+
             requestInjection(ApiTest.this);
         }
 
@@ -64,6 +67,11 @@ public abstract class ApiTest {
         }
     }
 
+    /**
+     * Override to register additional Gson adapters for a test
+     */
+    protected void configureGson(GsonBinder gson) {}
+
     protected @Inject Gson gson;
     protected @Inject QueueClient queueClient;
     protected @Inject HttpClient httpClient;
@@ -0,0 +1,141 @@
+package tc.oc.api.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import tc.oc.api.docs.virtual.Model;
+
+import static org.junit.Assert.*;
+
+/**
+ * Submits updates to a {@link ModelUpdateCoalescer} with stub stores, and runs its
+ * ModelSync tasks by hand, so everything submitted before a flush is in that flush.
+ */
+@RunWith(JUnit4.class)
+public class ModelUpdateCoalescerTest {
+
+    private static final String TIMER_THREAD = "Model Update Coalescer";
+
+    class TestStore extends ModelStore<Model> {
+        final String name;
+
+        TestStore(String name) {
+            this.name = name;
+        }
+
+        @Override
+        void applyCoalesced(String id, @Nullable Model after) {
+            applied.add(name + " " + id + "=" + (after == null ? "deleted" : after._id()));
+        }
+    }
+
+    static Model state(String label) {
+        return () -> label;
+    }
+
+    final List<String> applied = new ArrayList<>();
+    final BlockingQueue<Runnable> modelSync = new LinkedBlockingQueue<>();
+    ModelUpdateCoalescer coalescer;
+
+    @Before
+    public void setUp() {
+        coalescer = new ModelUpdateCoalescer(Logger.getLogger(getClass().getName()), modelSync::add, 10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        coalescer.disconnect();
+    }
+
+    private void runFlush() throws InterruptedException {
+        final Runnable flush = modelSync.poll(10, TimeUnit.SECONDS);
+        assertNotNull("Coalescer did not schedule a flush", flush);
+        flush.run();
+    }
+
+    private static List<Thread> timerThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                     .filter(thread -> TIMER_THREAD.equals(thread.getName()))
+                     .collect(Collectors.toList());
+    }
+
+    private static void assertTimerStopped() throws InterruptedException {
+        // The executor can report termination just before its thread actually exits
+        for(Thread thread : timerThreads()) {
+            thread.join(10000);
+            assertFalse(thread.isAlive());
+        }
+    }
+
+    @Test
+    public void testLatestStateWinsInFirstReceivedOrder() throws Exception {
+        final TestStore servers = new TestStore("servers");
+        final TestStore users = new TestStore("users");
+
+        coalescer.submit(servers, "a", state("a1"));
+        coalescer.submit(users, "x", state("x1"));
+        coalescer.submit(servers, "b", state("b1"));
+        coalescer.submit(servers, "a", state("a2"));
+        coalescer.submit(users, "x", null);
+        coalescer.submit(servers, "a", state("a3"));
+        runFlush();
+
+        assertEquals(Arrays.asList("servers a=a3",
+                                   "servers b=b1",
+                                   "users x=deleted"), applied);
+        assertEquals(6, coalescer.receivedCount());
+        assertEquals(3, coalescer.appliedCount());
+    }
+
+    @Test
+    public void testUpdatesAfterFlushAreScheduledAgain() throws Exception {
+        final TestStore store = new TestStore("store");
+
+        coalescer.submit(store, "a", state("a1"));
+        runFlush();
+        assertEquals(Arrays.asList("store a=a1"), applied);
+        applied.clear();
+
+        coalescer.submit(store, "a", null);
+        coalescer.submit(store, "a", state("a2"));
+        runFlush();
+        assertEquals(Arrays.asList("store a=a2"), applied);
+        assertTrue(modelSync.isEmpty());
+    }
+
+    @Test
+    public void testDisconnectStopsTimerAndDropsUpdates() throws Exception {
+        final TestStore store = new TestStore("store");
+
+        coalescer.submit(store, "a", state("a1"));
+        runFlush();
+        assertFalse(timerThreads().isEmpty());
+
+        coalescer.submit(store, "b", state("b1"));
+        coalescer.disconnect();
+        assertTimerStopped();
+
+        coalescer.submit(store, "c", state("c1"));
+        modelSync.forEach(Runnable::run);
+        assertEquals(Arrays.asList("store a=a1"), applied);
+        assertTimerStopped();
+    }
+
+    @Test
+    public void testDisabledWithoutWindow() {
+        assertTrue(coalescer.isEnabled());
+        assertFalse(new ModelUpdateCoalescer(Logger.getLogger(getClass().getName()), modelSync::add, 0).isEnabled());
+    }
+}
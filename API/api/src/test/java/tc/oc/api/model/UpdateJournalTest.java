@@ -0,0 +1,70 @@
+package tc.oc.api.model;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UpdateJournalTest {
+
+    Path dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("update-journal");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.list(dir).forEach(file -> file.toFile().delete());
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testRecordsSurviveReopen() throws Exception {
+        final Path file = dir.resolve("test.journal");
+        final UpdateJournal journal = UpdateJournal.open(file, 1024);
+        assertTrue(journal.isEmpty());
+        assertTrue(journal.append("{\"_id\":\"a\"}"));
+        assertTrue(journal.append("{\"_id\":\"\u00fc\"}"));
+
+        final UpdateJournal reopened = UpdateJournal.open(file, 1024);
+        assertEquals(2, reopened.count());
+        assertEquals(journal.size(), reopened.size());
+        assertEquals(Arrays.asList("{\"_id\":\"a\"}", "{\"_id\":\"\u00fc\"}"), reopened.read());
+    }
+
+    @Test
+    public void testAppendFailsWhenFull() throws Exception {
+        final UpdateJournal journal = UpdateJournal.open(dir.resolve("test.journal"), 32);
+        assertTrue(journal.append("0123456789"));
+        assertFalse(journal.append("0123456789"));
+        assertEquals(Arrays.asList("0123456789"), journal.read());
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        final Path file = dir.resolve("test.journal");
+        final UpdateJournal journal = UpdateJournal.open(file, 64);
+        journal.append("{}");
+        journal.delete();
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void testSetAside() throws Exception {
+        final Path file = dir.resolve("test.journal");
+        final UpdateJournal journal = UpdateJournal.open(file, 64);
+        journal.append("{}");
+
+        final Path aside = journal.setAside(".failed");
+        assertEquals(dir.resolve("test.journal.failed"), aside);
+        assertFalse(Files.exists(file));
+        assertEquals(Arrays.asList("{}"), UpdateJournal.open(aside, 64).read());
+    }
+}
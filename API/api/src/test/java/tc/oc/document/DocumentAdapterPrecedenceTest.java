@@ -0,0 +1,109 @@
+package tc.oc.document;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.junit.Test;
+import tc.oc.ApiTest;
+import tc.oc.api.annotations.Serialize;
+import tc.oc.api.docs.virtual.Document;
+import tc.oc.api.serialization.GsonBinder;
+
+import static org.junit.Assert.*;
+
+@Serialize interface HierarchyDoc extends Document { String name(); }
+@Serialize interface HierarchySubDoc extends HierarchyDoc {}
+@Serialize interface ExactDoc extends Document { String name(); }
+@Serialize interface ContainerDoc extends Document {
+    HierarchyDoc hierarchy();
+    ExactDoc exact();
+    InterfaceDoc plain();
+}
+
+/**
+ * Checks that {@link tc.oc.api.document.DocumentSerializer}, which Gson consults before
+ * any hierarchy adapter, still leaves documents to the hierarchy and exact type adapters
+ * registered for them, and only handles the rest.
+ */
+public class DocumentAdapterPrecedenceTest extends ApiTest {
+
+    /**
+     * Writes a document as its name, and reads it back from one
+     */
+    static class NameAdapter<T extends Document> extends TypeAdapter<T> {
+        final String prefix;
+        final Function<String, T> factory;
+
+        NameAdapter(String prefix, Function<String, T> factory) {
+            this.prefix = prefix;
+            this.factory = factory;
+        }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+            out.value(prefix + (value instanceof HierarchyDoc ? ((HierarchyDoc) value).name() : ((ExactDoc) value).name()));
+        }
+
+        @Override
+        public T read(JsonReader in) throws IOException {
+            return factory.apply(in.nextString().substring(prefix.length()));
+        }
+    }
+
+    static HierarchyDoc hierarchyDoc(String name) {
+        return () -> name;
+    }
+
+    static HierarchySubDoc hierarchySubDoc(String name) {
+        return () -> name;
+    }
+
+    static ExactDoc exactDoc(String name) {
+        return () -> name;
+    }
+
+    @Override
+    protected void configureGson(GsonBinder gson) {
+        gson.bindHiearchyAdapter(HierarchyDoc.class).toInstance(new NameAdapter<>("hierarchy:", DocumentAdapterPrecedenceTest::hierarchyDoc));
+        gson.bindAdapter(ExactDoc.class).toInstance(new NameAdapter<>("exact:", DocumentAdapterPrecedenceTest::exactDoc));
+    }
+
+    @Test
+    public void testHierarchyAdapterTakesPrecedence() throws Exception {
+        assertEquals("\"hierarchy:woot\"", gson.toJson(hierarchyDoc("woot"), HierarchyDoc.class));
+        assertEquals("woot", gson.fromJson("\"hierarchy:woot\"", HierarchyDoc.class).name());
+    }
+
+    @Test
+    public void testHierarchyAdapterCoversSubtypes() throws Exception {
+        assertEquals("\"hierarchy:woot\"", gson.toJson(hierarchySubDoc("woot"), HierarchySubDoc.class));
+    }
+
+    @Test
+    public void testExactAdapterTakesPrecedence() throws Exception {
+        assertEquals("\"exact:woot\"", gson.toJson(exactDoc("woot"), ExactDoc.class));
+        assertEquals("woot", gson.fromJson("\"exact:woot\"", ExactDoc.class).name());
+    }
+
+    @Test
+    public void testPropertiesUseRegisteredAdapters() throws Exception {
+        final ContainerDoc container = new ContainerDoc() {
+            @Override public HierarchyDoc hierarchy() { return hierarchyDoc("h"); }
+            @Override public ExactDoc exact() { return exactDoc("e"); }
+            @Override public InterfaceDoc plain() { return DocumentRoundTripTest.interfaceDoc(123, "abc"); }
+        };
+
+        final String json = gson.toJson(container, ContainerDoc.class);
+        assertTrue(json, json.contains("\"hierarchy\":\"hierarchy:h\""));
+        assertTrue(json, json.contains("\"exact\":\"exact:e\""));
+        assertTrue(json, json.contains("\"number\":123"));
+
+        final ContainerDoc read = gson.fromJson(json, ContainerDoc.class);
+        assertEquals("h", read.hierarchy().name());
+        assertEquals("e", read.exact().name());
+        assertEquals(123, read.plain().number());
+    }
+}
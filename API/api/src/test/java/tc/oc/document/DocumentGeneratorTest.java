@@ -1,6 +1,8 @@
 package tc.oc.document;
 
+import java.lang.reflect.Proxy;
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -117,6 +119,25 @@ public class DocumentGeneratorTest extends ApiTest {
         assertNull(doc.woot());
     }
 
+    @Test
+    public void testGeneratedClass() throws Exception {
+        final RequiredPrimitive doc = registry.instantiate(RequiredPrimitive.class, Collections.singletonMap("woot", 123));
+        assertFalse(Proxy.isProxyClass(doc.getClass()));
+    }
+
+    @Test
+    public void testForwarder() throws Exception {
+        final AtomicReference<RequiredPrimitive> target = new AtomicReference<>(
+            registry.instantiate(RequiredPrimitive.class, Collections.singletonMap("woot", 123))
+        );
+        final RequiredPrimitive forwarder = generator.forwarder(RequiredPrimitive.class, target::get);
+        assertEquals(123, forwarder.woot());
+
+        target.set(registry.instantiate(RequiredPrimitive.class, Collections.singletonMap("woot", 456)));
+        assertEquals(456, forwarder.woot());
+        assertEquals(target.get().hashCode(), forwarder.hashCode());
+    }
+
     @Test
     public void testBaseMethod() throws Exception {
         final BasicDocument base = new BasicDocument();
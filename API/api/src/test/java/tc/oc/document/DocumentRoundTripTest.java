@@ -0,0 +1,114 @@
+package tc.oc.document;
+
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.reflect.TypeToken;
+import org.junit.Test;
+import tc.oc.ApiTest;
+import tc.oc.api.annotations.Serialize;
+import tc.oc.api.docs.virtual.Document;
+import tc.oc.api.exceptions.SerializationException;
+
+import static org.junit.Assert.*;
+
+@Serialize interface NestedDoc extends Document {
+    InterfaceDoc inner();
+    List<InterfaceDoc> inners();
+    @Nullable String comment();
+    Instant time();
+}
+
+/**
+ * Writes documents to JSON text and reads them back, which goes through the
+ * streaming adapters created by {@link tc.oc.api.document.DocumentSerializer}
+ * in both directions, without any JSON tree in between.
+ */
+public class DocumentRoundTripTest extends ApiTest {
+
+    static InterfaceDoc interfaceDoc(int number, String text) {
+        return new InterfaceDoc() {
+            @Override public int number() { return number; }
+            @Override public String text() { return text; }
+        };
+    }
+
+    static NestedDoc nestedDoc(@Nullable String comment) {
+        return new NestedDoc() {
+            @Override public InterfaceDoc inner() { return interfaceDoc(1, "one"); }
+            @Override public List<InterfaceDoc> inners() { return ImmutableList.of(interfaceDoc(2, "two"), interfaceDoc(3, "three")); }
+            @Override public @Nullable String comment() { return comment; }
+            @Override public Instant time() { return INSTANT; }
+        };
+    }
+
+    <T> T roundTrip(T doc, Class<T> type) {
+        return gson.fromJson(gson.toJson(doc, type), type);
+    }
+
+    @Test
+    public void testInterfaceDoc() throws Exception {
+        final InterfaceDoc doc = roundTrip(interfaceDoc(123, "abc"), InterfaceDoc.class);
+        assertEquals(123, doc.number());
+        assertEquals("abc", doc.text());
+    }
+
+    @Test
+    public void testParameterizedDoc() throws Exception {
+        final Type type = new TypeToken<GenericInterfaceDoc<Integer>>(){}.getType();
+        final GenericInterfaceDoc<Integer> doc = gson.fromJson(gson.toJson(new GenericInterfaceDoc<Integer>() {
+            @Override public Integer value() { return 123; }
+            @Override public List<Integer> values() { return ImmutableList.of(1, 2, 3); }
+        }, type), type);
+
+        assertEquals((Integer) 123, doc.value());
+        assertEquals(ImmutableList.of(1, 2, 3), doc.values());
+    }
+
+    @Test
+    public void testNestedDocs() throws Exception {
+        final NestedDoc doc = roundTrip(nestedDoc("hi"), NestedDoc.class);
+        assertEquals(1, doc.inner().number());
+        assertEquals("one", doc.inner().text());
+        assertEquals(2, doc.inners().size());
+        assertEquals(2, doc.inners().get(0).number());
+        assertEquals("three", doc.inners().get(1).text());
+        assertEquals("hi", doc.comment());
+        assertEquals(INSTANT, doc.time());
+    }
+
+    @Test
+    public void testNullProperty() throws Exception {
+        final NestedDoc original = nestedDoc(null);
+        final String json = gson.toJson(original, NestedDoc.class);
+        assertTrue("Null property was not written: " + json, json.contains("\"comment\":null"));
+        assertNull(gson.fromJson(json, NestedDoc.class).comment());
+    }
+
+    @Test
+    public void testStreamingMatchesTree() throws Exception {
+        final NestedDoc doc = nestedDoc("hi");
+        assertEquals(gson.toJson(gson.toJsonTree(doc, NestedDoc.class)), gson.toJson(doc, NestedDoc.class));
+    }
+
+    @Test
+    public void testUnknownPropertiesAndNullsAreSkipped() throws Exception {
+        final InterfaceDoc doc = gson.fromJson("{\"extra\":[1,{\"a\":2}],\"number\":123,\"text\":null,\"more\":\"x\"}", InterfaceDoc.class);
+        assertEquals(123, doc.number());
+        assertNull(doc.text());
+    }
+
+    @Test(expected = SerializationException.class)
+    public void testMissingNonNullableProperty() throws Exception {
+        gson.fromJson("{\"text\":\"abc\"}", InterfaceDoc.class);
+    }
+
+    @Test
+    public void testNullDocument() throws Exception {
+        assertEquals("null", gson.toJson(null, InterfaceDoc.class));
+        assertNull(gson.fromJson("null", InterfaceDoc.class));
+    }
+}
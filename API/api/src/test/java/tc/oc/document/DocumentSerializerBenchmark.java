@@ -0,0 +1,405 @@
+package tc.oc.document;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+import javax.inject.Inject;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.sun.management.ThreadMXBean;
+import net.md_5.bungee.api.ChatColor;
+import tc.oc.ApiTest;
+import tc.oc.api.docs.PlayerId;
+import tc.oc.api.docs.SemanticVersion;
+import tc.oc.api.docs.Server;
+import tc.oc.api.docs.SimplePlayerId;
+import tc.oc.api.docs.User;
+import tc.oc.api.docs.virtual.Document;
+import tc.oc.api.docs.virtual.MapDoc;
+import tc.oc.api.docs.virtual.MatchDoc;
+import tc.oc.api.docs.virtual.ServerDoc;
+import tc.oc.api.docs.virtual.UserDoc;
+import tc.oc.api.document.DocumentMeta;
+import tc.oc.api.document.DocumentRegistry;
+import tc.oc.api.document.Getter;
+import tc.oc.api.serialization.GsonBinder;
+
+/**
+ * Compares writing and reading the documents that make up most API traffic through the
+ * streaming adapters of {@link tc.oc.api.document.DocumentSerializer}, and through
+ * {@link TreeDocumentSerializer}, a copy of the hierarchy serializer it replaced, which builds
+ * a JSON tree and resolves every property's type on every call. The documents are a
+ * {@link MatchDoc} with two teams and six objectives, a {@link User} as received on login,
+ * and a {@link Server} with its current match, filled with data of typical size.
+ *
+ * Reports the time and the heap allocated for each document, measured on the benchmark
+ * thread with {@link ThreadMXBean#getThreadAllocatedBytes}, which HotSpot JVMs support.
+ *
+ * Run the main method with the test classpath. This is not a unit test,
+ * because its results are only meaningful on an otherwise idle machine.
+ */
+public class DocumentSerializerBenchmark {
+
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 10000;
+
+    private static final Instant TIME = Instant.parse("2000-01-01T00:00:00Z");
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * The serializer before it was replaced with streaming adapters
+     */
+    static class TreeDocumentSerializer implements JsonSerializer<Document>, JsonDeserializer<Document> {
+
+        final DocumentRegistry documentRegistry;
+
+        @Inject TreeDocumentSerializer(DocumentRegistry documentRegistry) {
+            this.documentRegistry = documentRegistry;
+        }
+
+        @Override
+        public JsonElement serialize(Document document, Type documentType, JsonSerializationContext context) {
+            final JsonObject documentJson = new JsonObject();
+            final DocumentMeta<?> documentMeta = documentRegistry.getMeta(document.getClass());
+            final TypeToken documentTypeToken = TypeToken.of(documentType);
+
+            for(Map.Entry<String, Getter> entry : documentMeta.getters().entrySet()) {
+                final Type resolvedType = entry.getValue().resolvedType(documentTypeToken);
+                documentJson.add(entry.getKey(), context.serialize(entry.getValue().get(document), resolvedType));
+            }
+            return documentJson;
+        }
+
+        @Override
+        public Document deserialize(JsonElement rawJson, Type documentType, JsonDeserializationContext context) throws JsonParseException {
+            final TypeToken documentTypeToken = TypeToken.of(documentType);
+            final DocumentMeta<?> documentMeta = documentRegistry.getMeta(documentTypeToken.getRawType());
+            final JsonObject documentJson = (JsonObject) rawJson;
+            final ImmutableMap.Builder<String, Object> builder = ImmutableMap.builder();
+
+            for(Map.Entry<String, Getter> entry : documentMeta.getters().entrySet()) {
+                final JsonElement propertyJson = documentJson.get(entry.getKey());
+                if(propertyJson != null && !propertyJson.isJsonNull()) {
+                    builder.put(entry.getKey(), context.deserialize(propertyJson, entry.getValue().resolvedType(documentTypeToken)));
+                }
+            }
+            return documentRegistry.instantiate(documentMeta, builder.build());
+        }
+    }
+
+    static class StreamingApi extends ApiTest {
+        @Inject DocumentRegistry registry;
+
+        Gson gson() { return gson; }
+    }
+
+    static class TreeApi extends ApiTest {
+        @Override
+        protected void configureGson(GsonBinder gson) {
+            gson.bindHiearchySerializer(Document.class).to(TreeDocumentSerializer.class);
+        }
+
+        Gson gson() { return gson; }
+    }
+
+    /**
+     * Builds documents through {@link DocumentRegistry#instantiate}, filling in any property
+     * that is not given with a placeholder, so only the interesting ones need to be listed.
+     */
+    static class Fixtures {
+        final DocumentRegistry registry;
+        int serial;
+
+        Fixtures(DocumentRegistry registry) {
+            this.registry = registry;
+        }
+
+        String id() {
+            return String.format("%024x", ++serial);
+        }
+
+        List<String> ids(int count) {
+            final List<String> ids = new ArrayList<>();
+            for(int i = 0; i < count; i++) ids.add(id());
+            return ids;
+        }
+
+        List<UUID> uuids(int count) {
+            final List<UUID> uuids = new ArrayList<>();
+            for(int i = 0; i < count; i++) uuids.add(new UUID(0x5a5a5a5a, ++serial));
+            return uuids;
+        }
+
+        Map<String, Boolean> permissions(String prefix, int count) {
+            final Map<String, Boolean> permissions = new LinkedHashMap<>();
+            for(int i = 0; i < count; i++) permissions.put(prefix + ".permission" + i, i % 5 != 0);
+            return permissions;
+        }
+
+        <T extends Document> T doc(Class<T> type, Map<String, Object> values) {
+            final DocumentMeta<T> meta = registry.getMeta(type);
+            final Map<String, Object> data = new HashMap<>();
+            for(Map.Entry<String, Getter> entry : meta.getters().entrySet()) {
+                if(values.containsKey(entry.getKey())) {
+                    data.put(entry.getKey(), values.get(entry.getKey()));
+                } else if(!entry.getValue().hasDefault()) {
+                    data.put(entry.getKey(), placeholder(entry.getKey(), entry.getValue()));
+                }
+            }
+            return registry.instantiate(meta, data);
+        }
+
+        Object placeholder(String name, Getter getter) {
+            final Class<?> raw = getter.rawType();
+            if(raw == int.class || raw == Integer.class) return 0;
+            if(raw == long.class || raw == Long.class) return 0L;
+            if(raw == double.class || raw == Double.class) return 0D;
+            if(raw == float.class || raw == Float.class) return 0F;
+            if(raw == boolean.class || raw == Boolean.class) return false;
+            if(raw == String.class) return name.endsWith("_id") ? id() : name;
+            if(raw == Instant.class) return TIME;
+            if(raw == UUID.class) return uuids(1).get(0);
+            if(raw == SemanticVersion.class) return new SemanticVersion(1, 0, 0);
+            if(raw.isEnum()) return raw.getEnumConstants()[0];
+            if(raw == Set.class) return Collections.emptySet();
+            if(raw == List.class || raw == Collection.class) return Collections.emptyList();
+            if(raw == Map.class) return Collections.emptyMap();
+            if(getter.isNullable()) return null;
+            if(Document.class.isAssignableFrom(raw)) return doc(raw.asSubclass(Document.class), Collections.emptyMap());
+            throw new IllegalArgumentException("No placeholder for property " + name + " of type " + getter.type());
+        }
+
+        MapDoc map() {
+            return doc(MapDoc.class, ImmutableMap.<String, Object>builder()
+                .put("slug", "harb")
+                .put("name", "Harb")
+                .put("images", Arrays.asList("map.png", "thumbnail.png"))
+                .put("min_players", 8)
+                .put("max_players", 24)
+                .put("objective", "Capture the enemy wool and place it on your victory monument")
+                .put("gamemode", EnumSet.of(MapDoc.Gamemode.ctw))
+                .put("teams", Arrays.asList(doc(MapDoc.Team.class, team("Red Team", ChatColor.RED)),
+                                            doc(MapDoc.Team.class, team("Blue Team", ChatColor.BLUE))))
+                .put("author_uuids", uuids(2))
+                .put("contributor_uuids", uuids(4))
+                .build());
+        }
+
+        Map<String, Object> team(String name, ChatColor color) {
+            return ImmutableMap.<String, Object>builder()
+                .put("name", name)
+                .put("min_players", 4)
+                .put("max_players", 12)
+                .put("color", color)
+                .build();
+        }
+
+        MatchDoc.Team competitor(String name, ChatColor color) {
+            final Map<String, Object> values = new HashMap<>(team(name, color));
+            values.put("size", 12);
+            return doc(MatchDoc.Team.class, values);
+        }
+
+        MatchDoc.Destroyable objective(int number) {
+            final List<MatchDoc.TouchableGoal.Proximity> proximities = new ArrayList<>();
+            for(int i = 0; i < 2; i++) {
+                proximities.add(doc(MatchDoc.TouchableGoal.Proximity.class, ImmutableMap.of(
+                    "touched", i == 0,
+                    "metric", MatchDoc.TouchableGoal.Proximity.Metric.CLOSEST_PLAYER,
+                    "distance", 12.5 * i
+                )));
+            }
+            return doc(MatchDoc.Destroyable.class, ImmutableMap.<String, Object>builder()
+                .put("type", "Destroyable")
+                .put("name", "Monument " + number)
+                .put("owner_name", number % 2 == 0 ? "Red Team" : "Blue Team")
+                .put("completion", 0.25)
+                .put("proximities", proximities)
+                .put("total_blocks", 40)
+                .put("breaks_required", 30)
+                .put("breaks", 10)
+                .build());
+        }
+
+        MatchDoc match() {
+            final List<MatchDoc.Destroyable> objectives = new ArrayList<>();
+            for(int i = 0; i < 6; i++) objectives.add(objective(i));
+
+            return doc(MatchDoc.class, ImmutableMap.<String, Object>builder()
+                .put("family_id", "public")
+                .put("map", map())
+                .put("competitors", Arrays.asList(competitor("Red Team", ChatColor.RED),
+                                                  competitor("Blue Team", ChatColor.BLUE)))
+                .put("objectives", objectives)
+                .put("start", TIME)
+                .put("join_mid_match", true)
+                .put("player_count", 24)
+                .put("winning_team_ids", ids(1))
+                .put("winning_user_ids", ids(12))
+                .put("mutations", EnumSet.of(MatchDoc.Mutation.BLITZ, MatchDoc.Mutation.NO_FALL))
+                .build());
+        }
+
+        User user() {
+            final List<UserDoc.Flair> flair = new ArrayList<>();
+            for(String realm : Arrays.asList("global", "pgm")) {
+                final UserDoc.Flair each = new UserDoc.Flair();
+                each.realm = realm;
+                each.text = "*";
+                each.priority = flair.size();
+                flair.add(each);
+            }
+
+            final List<UserDoc.License.Kill> kills = new ArrayList<>();
+            for(String victim : ids(5)) {
+                kills.add(doc(UserDoc.License.Kill.class, ImmutableMap.of("victim_id", victim, "friendly", false)));
+            }
+
+            final Set<PlayerId> friends = new LinkedHashSet<>();
+            for(int i = 0; i < 30; i++) {
+                friends.add(new SimplePlayerId(id(), id(), "Friend" + i));
+            }
+
+            final Map<String, String> settings = new LinkedHashMap<>();
+            for(int i = 0; i < 12; i++) settings.put("setting" + i, "value" + i);
+
+            final Map<String, String> classes = new LinkedHashMap<>();
+            for(int i = 0; i < 5; i++) classes.put("map" + i, "class" + i);
+
+            return doc(User.class, ImmutableMap.<String, Object>builder()
+                .put("username", "Player")
+                .put("mc_locale", "en_US")
+                .put("minecraft_flair", flair)
+                .put("trophy_ids", ids(8))
+                .put("tnt_license_kills", kills)
+                .put("requested_tnt_license_at", TIME)
+                .put("granted_tnt_license_at", TIME)
+                .put("raindrops", 12345)
+                .put("mc_last_sign_in_ip", "192.0.2.1")
+                .put("mc_permissions_by_realm", ImmutableMap.of("global", permissions("global", 25),
+                                                                "pgm", permissions("pgm", 10)))
+                .put("mc_settings_by_profile", ImmutableMap.of("default", settings))
+                .put("classes", classes)
+                .put("friends", friends)
+                .put("recent_match_joins_by_family_id", ImmutableMap.of("public", Collections.nCopies(5, TIME)))
+                .put("enemy_kills", 678)
+                .build());
+        }
+
+        Server server() {
+            final Map<String, String> plugins = new LinkedHashMap<>();
+            for(int i = 0; i < 12; i++) plugins.put("Plugin" + i, "1." + i);
+
+            final Map<UUID, String> operators = new LinkedHashMap<>();
+            for(UUID uuid : uuids(5)) operators.put(uuid, "Operator" + operators.size());
+
+            final List<ServerDoc.Banner> banners = new ArrayList<>();
+            for(int i = 0; i < 3; i++) {
+                banners.add(doc(ServerDoc.Banner.class, ImmutableMap.of("rendered", "Banner " + i, "weight", 1.5F)));
+            }
+
+            return doc(Server.class, ImmutableMap.<String, Object>builder()
+                .put("bungee_name", "alpha")
+                .put("datacenter", "US")
+                .put("box", "box01")
+                .put("role", ServerDoc.Role.PGM)
+                .put("family", "public")
+                .put("ip", "192.0.2.2")
+                .put("name", "Alpha")
+                .put("network", ServerDoc.Network.PUBLIC)
+                .put("realms", new LinkedHashSet<>(Arrays.asList("global", "pgm", "public")))
+                .put("visibility", ServerDoc.Visibility.PUBLIC)
+                .put("max_players", 80)
+                .put("num_observing", 10)
+                .put("current_match", match())
+                .put("num_participating", 24)
+                .put("next_map", map())
+                .put("running", true)
+                .put("online", true)
+                .put("num_online", 34)
+                .put("current_port", 25565)
+                .put("plugin_versions", plugins)
+                .put("protocol_versions", new LinkedHashSet<>(Arrays.asList(47, 107, 210)))
+                .put("operators", operators)
+                .put("participant_permissions", permissions("participant", 30))
+                .put("observer_permissions", permissions("observer", 30))
+                .put("mapmaker_permissions", permissions("mapmaker", 10))
+                .put("banners", banners)
+                .build());
+        }
+    }
+
+    public static void main(String[] args) {
+        final StreamingApi streaming = new StreamingApi();
+        streaming.setUp();
+        final TreeApi tree = new TreeApi();
+        tree.setUp();
+
+        final Fixtures fixtures = new Fixtures(streaming.registry);
+        int sink = 0;
+        sink += benchmark(streaming.gson(), tree.gson(), "MatchDoc", MatchDoc.class, fixtures.match());
+        sink += benchmark(streaming.gson(), tree.gson(), "User", User.class, fixtures.user());
+        sink += benchmark(streaming.gson(), tree.gson(), "Server", Server.class, fixtures.server());
+        System.out.println("(" + sink + ")");
+    }
+
+    private static <T extends Document> int benchmark(Gson streaming, Gson tree, String name, Class<T> type, T doc) {
+        final String json = streaming.toJson(doc, type);
+        final JsonParser parser = new JsonParser();
+        if(!parser.parse(json).equals(parser.parse(tree.toJson(doc, type)))) {
+            throw new IllegalStateException("Serializers disagree on " + name);
+        }
+
+        for(int i = 0; i < WARMUP; i++) {
+            streaming.toJson(doc, type);
+            tree.toJson(doc, type);
+            streaming.fromJson(json, type);
+            tree.fromJson(json, type);
+        }
+
+        System.out.println(name + " (" + json.length() + " characters)");
+        int sink = 0;
+        sink += measure("  Streaming write", () -> streaming.toJson(doc, type).length());
+        sink += measure("  Tree write", () -> tree.toJson(doc, type).length());
+        sink += measure("  Streaming read", () -> System.identityHashCode(streaming.fromJson(json, type)));
+        sink += measure("  Tree read", () -> System.identityHashCode(tree.fromJson(json, type)));
+        return sink;
+    }
+
+    private static int measure(String label, IntSupplier operation) {
+        final long thread = Thread.currentThread().getId();
+        int sink = 0;
+
+        final long bytes = THREADS.getThreadAllocatedBytes(thread);
+        final long start = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; i++) sink += operation.getAsInt();
+        final long nanos = System.nanoTime() - start;
+        final long allocated = THREADS.getThreadAllocatedBytes(thread) - bytes;
+
+        System.out.println(String.format("%-18s %8d ns/doc %10d bytes/doc", label, nanos / ITERATIONS, allocated / ITERATIONS));
+        return sink;
+    }
+}
@@ -70,6 +70,7 @@ import tc.oc.commons.bukkit.sessions.SessionListener;
 import tc.oc.commons.bukkit.settings.SettingManifest;
 import tc.oc.commons.bukkit.suspend.SuspendListener;
 import tc.oc.commons.bukkit.tablist.PlayerTabEntry;
+import tc.oc.commons.bukkit.tablist.TabManager;
 import tc.oc.commons.bukkit.tablist.TabRender;
 import tc.oc.commons.bukkit.teleport.NavigatorManifest;
 import tc.oc.commons.bukkit.teleport.PlayerServerChanger;
@@ -199,6 +200,7 @@ public final class CommonsBukkitManifest extends HybridManifest {
         requestStaticInjection(ComponentRenderers.class);
         requestStaticInjection(PlayerTabEntry.class);
         requestStaticInjection(TabRender.class);
+        requestStaticInjection(TabManager.class);
         requestStaticInjection(ServerFormatter.class);
 
         new ListenerBinder(binder())
@@ -19,9 +19,14 @@ public class PlayerComponentRenderer extends BaseComponentRenderer<PlayerCompone
         this.nameRenderer = nameRenderer;
     }
 
+    @Override
+    public boolean tracksViewerInputs() {
+        return true;
+    }
+
     @Override
     public BaseComponent renderContent(ComponentRenderContext context, PlayerComponent original, CommandSender viewer) {
-        return nameRenderer.getComponentName(original.getIdentity(),
-                                             new NameType(original.getStyle(), original.getIdentity(), viewer));
+        final NameType type = context.viewerInput(viewer, v -> new NameType(original.getStyle(), original.getIdentity(), v));
+        return nameRenderer.getComponentName(original.getIdentity(), type);
     }
 }
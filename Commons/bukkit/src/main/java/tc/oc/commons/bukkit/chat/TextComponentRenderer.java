@@ -8,6 +8,10 @@ import org.bukkit.command.CommandSender;
 
 @Singleton
 public class TextComponentRenderer extends BaseComponentRenderer<TextComponent> {
+    @Override public boolean tracksViewerInputs() {
+        return true;
+    }
+
     @Override protected BaseComponent renderContent(ComponentRenderContext context, TextComponent original, CommandSender viewer) {
         return original;
     }
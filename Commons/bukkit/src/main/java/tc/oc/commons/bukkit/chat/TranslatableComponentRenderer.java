@@ -3,11 +3,12 @@ package tc.oc.commons.bukkit.chat;
 import net.md_5.bungee.api.chat.BaseComponent;
 import net.md_5.bungee.api.chat.TranslatableComponent;
 import org.bukkit.command.CommandSender;
+import tc.oc.commons.bukkit.localization.PluginLocales;
 import tc.oc.commons.bukkit.localization.Translator;
 import tc.oc.commons.core.chat.Component;
 import tc.oc.commons.core.chat.Components;
+import tc.oc.commons.core.localization.TranslationFormat;
 
-import java.text.MessageFormat;
 import java.util.List;
 import java.util.Optional;
 import javax.inject.Inject;
@@ -22,10 +23,15 @@ public class TranslatableComponentRenderer extends BaseComponentRenderer<Transla
         this.translations = translations;
     }
 
+    @Override
+    public boolean tracksViewerInputs() {
+        return true;
+    }
+
     @Override
     public BaseComponent renderContent(ComponentRenderContext context, TranslatableComponent original, CommandSender viewer) {
         final List<BaseComponent> with = context.render(original.getWith(), viewer);
-        final Optional<MessageFormat> pattern = translations.pattern(original.getTranslate(), viewer);
+        final Optional<TranslationFormat> pattern = translations.format(original.getTranslate(), context.viewerInput(viewer, PluginLocales::locale));
 
         if(pattern.isPresent()) {
             // Found a TranslatableComponent with one of our keys
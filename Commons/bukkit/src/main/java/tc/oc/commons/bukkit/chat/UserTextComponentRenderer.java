@@ -4,6 +4,11 @@ import net.md_5.bungee.api.chat.BaseComponent;
 import org.bukkit.command.CommandSender;
 
 public class UserTextComponentRenderer implements ComponentRenderer<UserTextComponent> {
+    @Override
+    public boolean tracksViewerInputs() {
+        return true;
+    }
+
     @Override
     public BaseComponent render(ComponentRenderContext context, UserTextComponent original, CommandSender viewer) {
         return original.rendered;
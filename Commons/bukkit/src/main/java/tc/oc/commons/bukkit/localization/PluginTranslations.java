@@ -12,6 +12,7 @@ import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableSet;
 import org.bukkit.command.CommandSender;
 import tc.oc.commons.core.localization.Locales;
+import tc.oc.commons.core.localization.TranslationFormat;
 import tc.oc.commons.core.localization.TranslationSet;
 import tc.oc.commons.core.util.CacheUtils;
 
@@ -65,7 +66,7 @@ public abstract class PluginTranslations implements Translator {
 
     @Override
     public String t(String key, @Nullable CommandSender sender, Object... arguments) {
-        return pattern(key, PluginLocales.locale(sender))
+        return format(key, PluginLocales.locale(sender))
             .map(format -> format.format(arguments))
             .orElseGet(() -> "<translation '" + key + "' missing>");
     }
@@ -78,6 +79,12 @@ public abstract class PluginTranslations implements Translator {
         return format + this.t(key, viewer, arguments);
     }
 
+    @Override
+    public Optional<TranslationFormat> format(String key, Locale locale) {
+        return setsByKey.getUnchecked(key)
+                        .flatMap(set -> set.format(key, locale));
+    }
+
     @Override
     public Optional<MessageFormat> pattern(String key) {
         return pattern(key, Locales.DEFAULT_LOCALE);
@@ -85,8 +92,7 @@ public abstract class PluginTranslations implements Translator {
 
     @Override
     public Optional<MessageFormat> pattern(String key, Locale locale) {
-        return setsByKey.getUnchecked(key)
-                        .flatMap(set -> set.pattern(key, locale));
+        return format(key, locale).map(TranslationFormat::toMessageFormat);
     }
 
     @Override
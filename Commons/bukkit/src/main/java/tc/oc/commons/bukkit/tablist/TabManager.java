@@ -9,13 +9,18 @@ import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerRespawnEvent;
 import org.bukkit.event.player.PlayerSkinPartsChangeEvent;
 import org.bukkit.plugin.Plugin;
+import tc.oc.analytics.Distribution;
+import tc.oc.analytics.MetricFactory;
+import tc.oc.commons.bukkit.chat.ComponentRenderContext;
 import tc.oc.commons.bukkit.nick.PlayerIdentityChangeEvent;
 import tc.oc.commons.core.logging.ClassLogger;
 import tc.oc.commons.core.util.DefaultMapAdapter;
 import tc.oc.commons.core.util.DefaultProvider;
 
 import javax.annotation.Nullable;
+import javax.inject.Inject;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
@@ -42,8 +47,22 @@ import java.util.logging.Logger;
  * render whenever they want, potentially deferring it for efficiency. However, all views must be
  * rendered together. It is not possible to render views individually, because this would make the
  * TabEntry dirty state very difficult to track.
+ *
+ * All views are rendered as a single component broadcast, so entry content that is shared by many views
+ * is only rendered once for each distinct locale/perspective. Each view sends at most one packet for
+ * each PlayerInfo action per render, which includes any entries refreshed since the last render.
  */
 public class TabManager implements Listener {
+
+    @Inject private static ComponentRenderContext componentRenderContext;
+
+    private static Distribution renderTime;
+    private static Distribution renderPackets;
+    @Inject private static void initMetrics(MetricFactory metrics) {
+        renderTime = metrics.distribution("tablist.render_time");
+        renderPackets = metrics.distribution("tablist.render_packets");
+    }
+
     protected final Logger logger;
     protected final Plugin plugin;
     final DefaultMapAdapter<Player, TabView> enabledViews;
@@ -53,6 +72,11 @@ public class TabManager implements Listener {
 
     boolean dirty;
 
+    // Packets sent by all views during the current render
+    int renderedPackets;
+
+    private long lastRenderNanos;
+
     public TabManager(Plugin plugin,
                       @Nullable DefaultProvider<Player, ? extends TabView> viewProvider,
                       @Nullable DefaultProvider<Player, ? extends TabEntry> playerEntryProvider) {
@@ -109,13 +133,29 @@ public class TabManager implements Listener {
         this.dirty = true;
     }
 
+    /**
+     * Time taken by the last render that had anything to do
+     */
+    public long getLastRenderNanos() {
+        return lastRenderNanos;
+    }
+
     public void render() {
         if(this.dirty) {
-            for(TabView view : this.enabledViews.values()) {
-                view.render();
-            }
+            final long start = System.nanoTime();
+            this.renderedPackets = 0;
+
+            componentRenderContext.broadcast(() -> {
+                for(TabView view : this.enabledViews.values()) {
+                    view.render();
+                }
+            });
 
             this.dirty = false;
+
+            this.lastRenderNanos = System.nanoTime() - start;
+            renderTime.sample((double) this.lastRenderNanos / TimeUnit.MILLISECONDS.toNanos(1));
+            renderPackets.sample(this.renderedPackets);
         }
     }
 
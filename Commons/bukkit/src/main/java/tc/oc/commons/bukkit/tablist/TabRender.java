@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import net.md_5.bungee.api.chat.BaseComponent;
@@ -20,54 +21,81 @@ public class TabRender {
 
     private final TabView view;
 
-    private final PacketPlayOutPlayerInfo removePacket;
-    private final PacketPlayOutPlayerInfo addPacket;
-    private final PacketPlayOutPlayerInfo updatePacket;
+    // PlayerInfo packets are created when the first entry is appended to them,
+    // so each one is sent at most once per render, and only if it has any entries.
+    private @Nullable PacketPlayOutPlayerInfo removePacket;
+    private @Nullable PacketPlayOutPlayerInfo addPacket;
+    private @Nullable PacketPlayOutPlayerInfo updatePacket;
     private final List<Packet> deferredPackets;
 
+    private int packetCount;
+
     public TabRender(TabView view) {
         this.view = view;
-        this.removePacket = this.createPlayerInfoPacket(PacketPlayOutPlayerInfo.EnumPlayerInfoAction.REMOVE_PLAYER);
-        this.addPacket    = this.createPlayerInfoPacket(PacketPlayOutPlayerInfo.EnumPlayerInfoAction.ADD_PLAYER);
-        this.updatePacket = this.createPlayerInfoPacket(PacketPlayOutPlayerInfo.EnumPlayerInfoAction.UPDATE_DISPLAY_NAME);
         this.deferredPackets = new ArrayList<>();
     }
 
+    /**
+     * Number of packets sent to the viewer by this render so far
+     */
+    public int getPacketCount() {
+        return packetCount;
+    }
+
     private String teamName(int slot) {
         return "\u0001TabView" + String.format("%03d", slot);
     }
 
     private void send(Packet packet) {
         NMSHacks.sendPacket(this.view.getViewer(), packet);
+        this.packetCount++;
     }
 
     private PacketPlayOutPlayerInfo createPlayerInfoPacket(PacketPlayOutPlayerInfo.EnumPlayerInfoAction action) {
         return new PacketPlayOutPlayerInfo(action);
     }
 
+    private PacketPlayOutPlayerInfo removePacket() {
+        if(this.removePacket == null) this.removePacket = this.createPlayerInfoPacket(PacketPlayOutPlayerInfo.EnumPlayerInfoAction.REMOVE_PLAYER);
+        return this.removePacket;
+    }
+
+    private PacketPlayOutPlayerInfo addPacket() {
+        if(this.addPacket == null) this.addPacket = this.createPlayerInfoPacket(PacketPlayOutPlayerInfo.EnumPlayerInfoAction.ADD_PLAYER);
+        return this.addPacket;
+    }
+
+    private PacketPlayOutPlayerInfo updatePacket() {
+        if(this.updatePacket == null) this.updatePacket = this.createPlayerInfoPacket(PacketPlayOutPlayerInfo.EnumPlayerInfoAction.UPDATE_DISPLAY_NAME);
+        return this.updatePacket;
+    }
+
     private BaseComponent getContent(TabEntry entry, int index) {
         return this.componentRenderContext.render(entry.getContent(this.view), this.view.getViewer());
     }
 
     private void appendAddition(TabEntry entry, int index) {
         BaseComponent displayName = this.getContent(entry, index);
-        this.addPacket.add(NMSHacks.playerListPacketData(this.addPacket,
-                                                         entry.getId(),
-                                                         entry.getName(this.view),
-                                                         displayName,
-                                                         entry.getGamemode(),
-                                                         entry.getPing(),
-                                                         entry.getSkin(this.view)));
+        PacketPlayOutPlayerInfo addPacket = this.addPacket();
+        addPacket.add(NMSHacks.playerListPacketData(addPacket,
+                                                    entry.getId(),
+                                                    entry.getName(this.view),
+                                                    displayName,
+                                                    entry.getGamemode(),
+                                                    entry.getPing(),
+                                                    entry.getSkin(this.view)));
 
         // Due to a client bug, display name is ignored in ADD_PLAYER packets,
         // so we have to send an UPDATE_DISPLAY_NAME afterward.
-        this.updatePacket.add(NMSHacks.playerListPacketData(this.updatePacket, entry.getId(), displayName));
+        PacketPlayOutPlayerInfo updatePacket = this.updatePacket();
+        updatePacket.add(NMSHacks.playerListPacketData(updatePacket, entry.getId(), displayName));
 
         this.updateFakeEntity(entry, true);
     }
 
     private void appendRemoval(TabEntry entry) {
-        this.removePacket.add(NMSHacks.playerListPacketData(this.removePacket, entry.getId()));
+        PacketPlayOutPlayerInfo removePacket = this.removePacket();
+        removePacket.add(NMSHacks.playerListPacketData(removePacket, entry.getId()));
 
         int entityId = entry.getFakeEntityId(this.view);
         if(entityId >= 0) {
@@ -84,9 +112,9 @@ public class TabRender {
     }
 
     public void finish() {
-        if(!this.removePacket.isEmpty()) this.send(this.removePacket);
-        if(!this.addPacket.isEmpty())    this.send(this.addPacket);
-        if(!this.updatePacket.isEmpty()) this.send(this.updatePacket);
+        if(this.removePacket != null) this.send(this.removePacket);
+        if(this.addPacket != null)    this.send(this.addPacket);
+        if(this.updatePacket != null) this.send(this.updatePacket);
 
         for(Packet packet : this.deferredPackets) {
             this.send(packet);
@@ -125,7 +153,8 @@ public class TabRender {
     }
 
     public void updateEntry(TabEntry entry, int index) {
-        this.updatePacket.add(NMSHacks.playerListPacketData(this.updatePacket, entry.getId(), this.getContent(entry, index)));
+        PacketPlayOutPlayerInfo updatePacket = this.updatePacket();
+        updatePacket.add(NMSHacks.playerListPacketData(updatePacket, entry.getId(), this.getContent(entry, index)));
     }
 
     public void setHeaderFooter(TabEntry header, TabEntry footer) {
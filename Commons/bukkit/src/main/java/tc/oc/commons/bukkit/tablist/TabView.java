@@ -1,7 +1,9 @@
 package tc.oc.commons.bukkit.tablist;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.bukkit.entity.Player;
 import org.bukkit.event.player.PlayerChangedWorldEvent;
@@ -42,6 +44,15 @@ public class TabView {
 
     private final TabEntry[] slots, rendered;
 
+    // Entries added, removed, or re-added by the current render, reused between renders
+    private final Map<TabEntry, Integer> removals = new HashMap<>();
+    private final Map<TabEntry, Integer> additions = new HashMap<>();
+    private final Set<TabEntry> refreshed = new HashSet<>();
+
+    // Entries waiting for the next render to be re-added, or have their fake entity updated
+    private final Set<TabEntry> pendingRefreshes = new HashSet<>();
+    private final Set<TabEntry> pendingFakeEntityUpdates = new HashSet<>();
+
     private @Nullable BukkitTask fakeEntityTask;
 
     public TabView(Player viewer) {
@@ -98,6 +109,9 @@ public class TabView {
                 fakeEntityTask = null;
             }
 
+            pendingRefreshes.clear();
+            pendingFakeEntityUpdates.clear();
+
             this.manager.removeView(this);
             this.tearDown();
 
@@ -216,22 +230,27 @@ public class TabView {
 
         TabRender render = new TabRender(this);
         this.renderLayout(render);
+        this.renderRefreshes(render);
         this.renderContent(render);
         this.markSlotsClean();
         this.renderHeaderFooter(render, false);
         render.finish();
+
+        this.additions.clear();
+        this.refreshed.clear();
+        this.manager.renderedPackets += render.getPacketCount();
     }
 
     public void renderLayout(TabRender render) {
         if(this.manager == null) return;
 
+        this.removals.clear();
+        this.additions.clear();
+
         if(this.dirtyLayout) {
             this.dirtyLayout = false;
 
             // First search for entries that have been added, removed, or moved
-            Map<TabEntry, Integer> removals = new HashMap<>();
-            Map<TabEntry, Integer> additions = new HashMap<>();
-
             for(int index = 0; index < this.size; index++) {
                 TabEntry oldEntry = this.rendered[index];
                 TabEntry newEntry = this.rendered[index] = this.slots[index];
@@ -269,9 +288,36 @@ public class TabView {
             for(Map.Entry<TabEntry, Integer> addition : additions.entrySet()) {
                 render.addEntry(addition.getKey(), addition.getValue());
             }
+            removals.clear();
         }
     }
 
+    /**
+     * Re-add entries that were refreshed since the last render, and update their fake entities,
+     * skipping any that were just added to the view, or are no longer part of it.
+     */
+    public void renderRefreshes(TabRender render) {
+        if(this.manager == null) return;
+
+        for(TabEntry entry : this.pendingRefreshes) {
+            int slot = getSlot(entry);
+            if(slot >= this.size) {
+                this.dirtyHeaderFooter = true;
+            } else if(slot >= 0 && !this.additions.containsKey(entry)) {
+                render.refreshEntry(entry, slot);
+                this.refreshed.add(entry);
+            }
+        }
+        this.pendingRefreshes.clear();
+
+        for(TabEntry entry : this.pendingFakeEntityUpdates) {
+            if(getSlot(entry) >= 0 && !this.additions.containsKey(entry) && !this.refreshed.contains(entry)) {
+                render.updateFakeEntity(entry, false);
+            }
+        }
+        this.pendingFakeEntityUpdates.clear();
+    }
+
     public void renderContent(TabRender render) {
         if(this.manager == null) return;
 
@@ -280,7 +326,7 @@ public class TabView {
 
             // Build the update packet from entries with new content that are not being added or removed
             for(int i = 0; i < this.size; i++) {
-                if(this.slots[i].isDirty(this)) {
+                if(this.slots[i].isDirty(this) && !this.additions.containsKey(this.slots[i]) && !this.refreshed.contains(this.slots[i])) {
                     render.updateEntry(this.slots[i], i);
                 }
             }
@@ -340,25 +386,26 @@ public class TabView {
         render.finish();
     }
 
+    /**
+     * Re-add the given entry in the next render, which sends it along with all other changes
+     */
     protected void refreshEntry(TabEntry entry) {
         if(this.manager == null) return;
 
-        TabRender render = new TabRender(this);
-        int slot = getSlot(entry);
-        if(slot < this.size) {
-            render.refreshEntry(entry, slot);
-        } else {
-            this.renderHeaderFooter(render, true);
+        if(this.pendingRefreshes.add(entry)) {
+            this.invalidateManager();
         }
-        render.finish();
     }
 
+    /**
+     * Update the given entry's fake entity in the next render
+     */
     protected void updateFakeEntity(TabEntry entry) {
         if(this.manager == null) return;
 
-        TabRender render = new TabRender(this);
-        render.updateFakeEntity(entry, false);
-        render.finish();
+        if(this.pendingFakeEntityUpdates.add(entry)) {
+            this.invalidateManager();
+        }
     }
 
     private void respawnFakeEntities() {
@@ -12,6 +12,7 @@ import tc.oc.api.docs.Server;
 import tc.oc.api.docs.virtual.ServerDoc;
 import tc.oc.api.model.ModelDispatcher;
 import tc.oc.api.model.ModelListener;
+import tc.oc.api.model.SortedModelIndex;
 import tc.oc.api.servers.ServerStore;
 import tc.oc.commons.core.plugin.PluginFacet;
 
@@ -23,6 +24,7 @@ public class FeaturedServerTracker implements PluginFacet, ModelListener {
     private final Configuration config;
     private final Server localServer;
     private final ServerStore servers;
+    private final SortedModelIndex<String, Server> serversByFamily;
 
     private final Map<String, Server> featuredServersByFamily = new HashMap<>();
 
@@ -38,6 +40,7 @@ public class FeaturedServerTracker implements PluginFacet, ModelListener {
         this.config = config;
         this.localServer = localServer;
         this.servers = servers;
+        this.serversByFamily = servers.sortedIndex(Server::family, featuredServerOrder);
         modelDispatcher.subscribe(this);
     }
 
@@ -86,12 +89,14 @@ public class FeaturedServerTracker implements PluginFacet, ModelListener {
     }
 
     private void refreshFamily(final String family) {
-        final Server server = servers.first(featuredServerOrder, s -> isMappable(s) && family.equals(s.family()));
-        if(server != null) {
-            featuredServersByFamily.put(family, server);
-        } else {
-            featuredServersByFamily.remove(family);
+        // The index is already in featured order, so the first mappable server is the best one
+        for(Server server : serversByFamily.get(family)) {
+            if(isMappable(server)) {
+                featuredServersByFamily.put(family, server);
+                return;
+            }
         }
+        featuredServersByFamily.remove(family);
     }
 
     @HandleModel
@@ -8,7 +8,6 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
-import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import net.md_5.bungee.api.chat.TranslatableComponent;
@@ -106,7 +105,7 @@ public class TicketBooth {
     }
 
     public Set<Game> allGames(CommandSender viewer) {
-        return Sets.filter(games.set(), game -> game.visibility() == ServerDoc.Visibility.PUBLIC);
+        return games.byVisibility(ServerDoc.Visibility.PUBLIC);
     }
 
     public void showGames(CommandSender sender) {
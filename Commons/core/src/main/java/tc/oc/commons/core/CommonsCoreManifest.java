@@ -17,6 +17,7 @@ import tc.oc.commons.core.restart.RestartManager;
 import tc.oc.file.PathWatcherService;
 import tc.oc.file.PathWatcherServiceImpl;
 import tc.oc.minecraft.analytics.MinecraftAnalyticsManifest;
+import tc.oc.minecraft.analytics.ModelSyncReporter;
 import tc.oc.minecraft.server.ServerFilterManifest;
 import tc.oc.minecraft.suspend.SuspendableBinder;
 
@@ -43,6 +44,7 @@ public class CommonsCoreManifest extends HybridManifest {
         facets.register(DebugCommands.class);
         facets.register(RestartManager.class);
         facets.register(PathWatcherServiceImpl.class);
+        facets.register(ModelSyncReporter.class);
     }
 
     class PathsManifest extends Manifest {
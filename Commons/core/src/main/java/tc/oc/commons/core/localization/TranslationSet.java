@@ -6,23 +6,33 @@ import java.util.MissingResourceException;
 import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.annotation.Nullable;
 
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import tc.oc.commons.core.util.CacheUtils;
-import tc.oc.commons.core.util.Pair;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Represents a single message resource file across all languages
+ *
+ * Each key in the default locale is assigned an integer ID, and when a locale is first used,
+ * all of its messages are compiled into {@link TranslationFormat}s in an array indexed by ID.
+ * Keys that only exist in other locales are ignored. A message that fails to compile
+ * is logged and treated as missing, so it does not affect the rest of the locale.
  */
 public class TranslationSet {
 
+    private static final Logger logger = Logger.getLogger(TranslationSet.class.getName());
+
     private final String name;
     private final LoadingCache<Locale, Optional<ResourceBundle>> bundles;
-    private final LoadingCache<Pair<String, Locale>, Optional<MessageFormat>> messages;
+    private final ImmutableMap<String, Integer> ids;
+    private final LoadingCache<Locale, TranslationFormat[]> formats;
 
     public TranslationSet(String name) {
         this.name = checkNotNull(name);
@@ -42,14 +52,30 @@ public class TranslationSet {
         });
         bundles.refresh(Locales.DEFAULT_LOCALE);
 
-        messages = CacheUtils.newCache(key -> {
+        final ImmutableMap.Builder<String, Integer> ids = ImmutableMap.builder();
+        int id = 0;
+        for(String key : getKeys(Locales.DEFAULT_LOCALE)) {
+            ids.put(key.intern(), id++);
+        }
+        this.ids = ids.build();
+
+        formats = CacheUtils.newCache(this::compile);
+        formats.refresh(Locales.DEFAULT_LOCALE);
+    }
+
+    private TranslationFormat[] compile(Locale locale) {
+        final TranslationFormat[] compiled = new TranslationFormat[ids.size()];
+        bundles.getUnchecked(locale).ifPresent(bundle -> ids.forEach((key, id) -> {
             try {
-                return bundles.getUnchecked(key.second)
-                              .map(bundle -> Formats.quotedMessage(bundle.getString(key.first), key.second));
+                compiled[id] = TranslationFormat.compile(Formats.quotedMessage(bundle.getString(key), locale));
             } catch(MissingResourceException e) {
-                return Optional.empty();
+                // Leave it null
+            } catch(IllegalArgumentException e) {
+                // Malformed pattern, leave it null
+                logger.log(Level.SEVERE, "Invalid message " + key + " in " + name + " for locale " + locale, e);
             }
-        });
+        }));
+        return compiled;
     }
 
     @Override
@@ -68,7 +94,7 @@ public class TranslationSet {
     }
 
     public boolean hasKey(Locale locale, String key) {
-        return pattern(key, locale).isPresent();
+        return format(key, locale).isPresent();
     }
 
     public boolean hasKey(String key) {
@@ -85,12 +111,26 @@ public class TranslationSet {
         return getKeys(Locales.DEFAULT_LOCALE);
     }
 
+    /**
+     * Return the compiled message for the given key in the given locale, if it exists.
+     * The result is thread-safe, and can be used to format any number of messages.
+     */
+    public Optional<TranslationFormat> format(String key, Locale locale) {
+        final Integer id = ids.get(key);
+        return id == null ? Optional.empty()
+                          : Optional.ofNullable(formats.getUnchecked(locale)[id]);
+    }
+
+    /**
+     * Return a new {@link MessageFormat} for the given key in the given locale.
+     * Prefer {@link #format}, which does not need to copy anything.
+     */
     public Optional<MessageFormat> pattern(String key, Locale locale) {
-        return messages.getUnchecked(Pair.of(key, locale));
+        return format(key, locale).map(TranslationFormat::toMessageFormat);
     }
 
     public @Nullable String render(String key, Locale locale, Object... arguments) {
-        return pattern(key, locale).map(message -> message.format(arguments))
-                                   .orElse(null);
+        return format(key, locale).map(format -> format.format(arguments))
+                                  .orElse(null);
     }
 }
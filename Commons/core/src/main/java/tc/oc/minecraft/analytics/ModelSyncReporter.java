@@ -0,0 +1,59 @@
+package tc.oc.minecraft.analytics;
+
+import java.time.Duration;
+import javax.inject.Inject;
+
+import tc.oc.analytics.Count;
+import tc.oc.analytics.Gauge;
+import tc.oc.analytics.MetricFactory;
+import tc.oc.api.model.ModelUpdateCoalescer;
+import tc.oc.minecraft.api.scheduler.Tickable;
+
+/**
+ * Reports how many model updates are received, and how many are left after coalescing
+ */
+public class ModelSyncReporter extends AnalyticsFacet implements Tickable {
+
+    private static final Duration PERIOD = Duration.ofSeconds(10);
+
+    private final ModelUpdateCoalescer coalescer;
+    private final Count received;
+    private final Count applied;
+    private final Gauge ratio;
+
+    private long lastReceived, lastApplied;
+
+    @Inject ModelSyncReporter(MetricFactory metrics, ModelUpdateCoalescer coalescer) {
+        this.coalescer = coalescer;
+        this.received = metrics.count("model_sync.updates_received");
+        this.applied = metrics.count("model_sync.updates_applied");
+        this.ratio = metrics.gauge("model_sync.coalescing_ratio");
+    }
+
+    @Override
+    public boolean isActive() {
+        return super.isActive() && coalescer.isEnabled();
+    }
+
+    @Override
+    public Duration tickPeriod() {
+        return PERIOD;
+    }
+
+    @Override
+    public void tick() {
+        final long totalReceived = coalescer.receivedCount();
+        final long totalApplied = coalescer.appliedCount();
+        final long newReceived = totalReceived - lastReceived;
+        final long newApplied = totalApplied - lastApplied;
+        lastReceived = totalReceived;
+        lastApplied = totalApplied;
+
+        received.increment((int) newReceived);
+        applied.increment((int) newApplied);
+        if(newApplied > 0) {
+            // Average number of updates received for each one applied
+            ratio.measure((double) newReceived / newApplied);
+        }
+    }
+}
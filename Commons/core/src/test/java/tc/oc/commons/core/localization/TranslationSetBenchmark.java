@@ -0,0 +1,98 @@
+package tc.oc.commons.core.localization;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Compares formatting every message in the pgm.PGMDeath set in 10 locales with compiled
+ * {@link TranslationFormat}s, with shared {@link MessageFormat}s (fast, but not thread-safe),
+ * and with a new {@link MessageFormat} for each message (thread-safe).
+ *
+ * Run the main method with the test classpath. This is not a unit test,
+ * because its results are only meaningful on an otherwise idle machine.
+ */
+public class TranslationSetBenchmark {
+
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1000;
+
+    private static final List<Locale> LOCALES = new ArrayList<>();
+    static {
+        for(String tag : new String[] { "en-US", "en-GB", "de-DE", "es-ES", "fr-FR", "it-IT", "nl-NL", "pt-BR", "ru-RU", "zh-CN" }) {
+            LOCALES.add(Locale.forLanguageTag(tag));
+        }
+    }
+
+    private static final Object[] ARGUMENTS = { "Victim", "Killer", "a Diamond Sword", "a Zombie", 42 };
+
+    public static void main(String[] args) {
+        final TranslationSet set = new TranslationSet("pgm.PGMDeath");
+        final Set<String> keys = set.getKeys();
+        System.out.println(keys.size() + " keys x " + LOCALES.size() + " locales");
+
+        final List<MessageFormat> shared = new ArrayList<>();
+        final List<String> patterns = new ArrayList<>();
+        for(Locale locale : LOCALES) {
+            for(String key : keys) {
+                final MessageFormat format = set.format(key, locale).get().toMessageFormat();
+                shared.add(format);
+                patterns.add(format.toPattern());
+            }
+        }
+
+        for(int i = 0; i < WARMUP; i++) {
+            compiled(set, keys);
+            shared(shared);
+            parsed(patterns);
+        }
+
+        int length = 0;
+        long start = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; i++) length += compiled(set, keys);
+        final long compiledNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; i++) length += shared(shared);
+        final long sharedNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; i++) length += parsed(patterns);
+        final long parsedNanos = System.nanoTime() - start;
+
+        final long messages = (long) ITERATIONS * shared.size();
+        System.out.println("TranslationFormat (with lookup): " + compiledNanos / messages + " ns/message");
+        System.out.println("Shared MessageFormat:            " + sharedNanos / messages + " ns/message");
+        System.out.println("New MessageFormat:               " + parsedNanos / messages + " ns/message");
+        System.out.println("(" + length + " chars)");
+    }
+
+    private static int compiled(TranslationSet set, Set<String> keys) {
+        int length = 0;
+        for(Locale locale : LOCALES) {
+            for(String key : keys) {
+                length += set.format(key, locale).get().format(ARGUMENTS).length();
+            }
+        }
+        return length;
+    }
+
+    private static int shared(List<MessageFormat> formats) {
+        int length = 0;
+        for(MessageFormat format : formats) {
+            length += format.format(ARGUMENTS).length();
+        }
+        return length;
+    }
+
+    private static int parsed(List<String> patterns) {
+        int length = 0;
+        for(int i = 0; i < patterns.size(); i++) {
+            final Locale locale = LOCALES.get(i / (patterns.size() / LOCALES.size()));
+            length += new MessageFormat(patterns.get(i), locale).format(ARGUMENTS).length();
+        }
+        return length;
+    }
+}
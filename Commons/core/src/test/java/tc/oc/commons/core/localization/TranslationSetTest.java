@@ -0,0 +1,51 @@
+package tc.oc.commons.core.localization;
+
+import java.util.ListResourceBundle;
+import java.util.Locale;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class TranslationSetTest {
+
+    public static class Messages extends ListResourceBundle {
+        @Override
+        protected Object[][] getContents() {
+            return new Object[][] {
+                { "greeting", "Hello {0}" },
+                { "farewell", "Bye {0}" },
+                { "broken", "Fine {0}" },
+            };
+        }
+    }
+
+    public static class Messages_de extends ListResourceBundle {
+        @Override
+        protected Object[][] getContents() {
+            return new Object[][] {
+                { "greeting", "Hallo {0}" },
+                { "broken", "Kaputt {0" },
+            };
+        }
+    }
+
+    final TranslationSet set = new TranslationSet(Messages.class.getName());
+
+    @Test
+    public void testMalformedMessageIsMissing() throws Exception {
+        assertFalse(set.format("broken", Locale.GERMAN).isPresent());
+        assertFalse(set.hasKey(Locale.GERMAN, "broken"));
+        assertNull(set.render("broken", Locale.GERMAN, "A"));
+    }
+
+    @Test
+    public void testMalformedMessageDoesNotAffectLocale() throws Exception {
+        assertEquals("Hallo A", set.render("greeting", Locale.GERMAN, "A"));
+        assertEquals("Bye A", set.render("farewell", Locale.GERMAN, "A"));
+        assertEquals("Fine A", set.render("broken", Locales.DEFAULT_LOCALE, "A"));
+    }
+}
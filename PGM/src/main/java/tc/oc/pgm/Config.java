@@ -150,6 +150,34 @@ public class Config {
         }
     }
 
+    public static class Worlds {
+        public static boolean stageNext() {
+            return getConfiguration().getBoolean("worlds.stage-next", true);
+        }
+
+        public static boolean asyncDestroy() {
+            return getConfiguration().getBoolean("worlds.async-destroy", true);
+        }
+
+        public static boolean reflinkRegions() {
+            return getConfiguration().getBoolean("worlds.reflink-regions", true);
+        }
+
+        public static Duration stageWait() {
+            return ConfigUtils.getDuration(getConfiguration(), "worlds.stage-wait", Duration.ofSeconds(2));
+        }
+    }
+
+    public static class EventRules {
+        public static boolean spatialIndex() {
+            return getConfiguration().getBoolean("event-rules.spatial-index", true);
+        }
+
+        public static boolean compileRegions() {
+            return getConfiguration().getBoolean("event-rules.compile-regions", true);
+        }
+    }
+
     public static class Mutations {
         public static boolean enabled() {
             return getConfiguration().getBoolean("mutations.enabled", true);
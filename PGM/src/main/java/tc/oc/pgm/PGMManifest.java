@@ -79,8 +79,10 @@ public final class PGMManifest extends HybridManifest {
         facets.register(MatchNameInvalidator.class);
         facets.register(MapDevelopmentCommands.class);
         facets.register(MapErrorTracker.class);
+        facets.register(MapLoaderImpl.class);
         facets.register(MatchAnnouncer.class);
         facets.register(MatchCommands.class);
+        facets.register(MatchCommands.Parent.class);
         facets.register(MutationCommands.class);
         facets.register(MutationCommands.Parent.class);
         facets.register(PGMLeakListener.class);
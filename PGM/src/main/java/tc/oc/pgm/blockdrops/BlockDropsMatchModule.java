@@ -32,6 +32,7 @@ import tc.oc.pgm.match.MatchScope;
 import tc.oc.commons.bukkit.event.BlockPunchEvent;
 import tc.oc.commons.bukkit.event.BlockTrampleEvent;
 import tc.oc.pgm.events.BlockTransformEvent;
+import tc.oc.pgm.events.BulkBlockTransformEvent;
 import tc.oc.pgm.events.ListenerScope;
 import tc.oc.pgm.events.ParticipantBlockTransformEvent;
 import tc.oc.pgm.match.MatchModule;
@@ -73,6 +74,27 @@ public class BlockDropsMatchModule extends MatchModule implements Listener {
 
     @EventHandler(priority = EventPriority.LOW)
     public void initializeDrops(BlockTransformEvent event) {
+        if(!event.isBulk()) {
+            initializeDropsFor(event);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOW)
+    public void initializeDrops(BulkBlockTransformEvent event) {
+        if(!causesDrops(event.getCause())) {
+            return;
+        }
+
+        // Only compute drops for the individual blocks if some rule could apply to any of them
+        for(BlockDropsRule rule : this.ruleSet.getRules()) {
+            if(rule.region == null || event.mayAffect(rule.region, 0)) {
+                event.getEvents().forEach(this::initializeDropsFor);
+                return;
+            }
+        }
+    }
+
+    private void initializeDropsFor(BlockTransformEvent event) {
         if(!causesDrops(event.getCause())) {
             return;
         }
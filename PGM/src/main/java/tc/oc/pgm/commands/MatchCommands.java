@@ -1,31 +1,130 @@
 package tc.oc.pgm.commands;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
+import javax.inject.Singleton;
 
 import com.sk89q.minecraft.util.commands.Command;
 import com.sk89q.minecraft.util.commands.CommandContext;
 import com.sk89q.minecraft.util.commands.CommandException;
 import com.sk89q.minecraft.util.commands.CommandPermissions;
+import com.sk89q.minecraft.util.commands.NestedCommand;
+import net.md_5.bungee.api.ChatColor;
 import org.bukkit.command.CommandSender;
+import tc.oc.api.util.Permissions;
+import tc.oc.commons.core.chat.Component;
 import tc.oc.commons.core.commands.Commands;
+import tc.oc.commons.core.commands.NestedCommands;
+import tc.oc.pgm.match.Match;
+import tc.oc.pgm.match.MatchEventRegistry;
 import tc.oc.pgm.match.MatchFormatter;
+import tc.oc.pgm.match.MatchScheduler;
+import tc.oc.pgm.match.MatchScope;
 
-public class MatchCommands implements Commands {
+@Singleton
+public class MatchCommands implements NestedCommands {
+
+    @Singleton
+    public static class Parent implements Commands {
+
+        @Inject MatchCommands matchCommands;
+
+        @Command(
+            aliases = {"matchinfo", "match"},
+            desc = "Shows information about the current match",
+            usage = "[profile|events]",
+            min = 0,
+            max = -1
+        )
+        @NestedCommand(value = MatchCommands.class, executeBody = true)
+        @CommandPermissions("pgm.matchinfo")
+        public void matchinfo(CommandContext args, CommandSender sender) throws CommandException {
+            matchCommands.info(sender);
+        }
+    }
+
+    private static final int PROFILE_RESULTS = 10;
 
     private final MatchFormatter formatter;
+    private final MatchEventRegistry eventRegistry;
 
-    @Inject MatchCommands(MatchFormatter formatter) {
+    @Inject MatchCommands(MatchFormatter formatter, MatchEventRegistry eventRegistry) {
         this.formatter = formatter;
+        this.eventRegistry = eventRegistry;
+    }
+
+    private void info(CommandSender sender) throws CommandException {
+        formatter.sendMatchInfo(sender, CommandUtils.getMatch(sender));
     }
 
     @Command(
-        aliases = {"matchinfo", "match"},
-        desc = "Shows information about the current match",
+        aliases = {"profile"},
+        desc = "Shows the most expensive repeatables over the last few ticks",
+        usage = "[ticks]",
         min = 0,
-        max = 0
+        max = 1
     )
-    @CommandPermissions("pgm.matchinfo")
-    public void matchinfo(CommandContext args, CommandSender sender) throws CommandException {
-        formatter.sendMatchInfo(sender, CommandUtils.getMatch(sender));
+    @CommandPermissions(Permissions.MAPDEV)
+    public void profile(CommandContext args, CommandSender sender) throws CommandException {
+        profile(CommandUtils.getMatch(sender), args.getInteger(0, MatchScheduler.PROFILE_TICKS), sender);
+    }
+
+    @Command(
+        aliases = {"events"},
+        desc = "Shows the most expensive event handlers, or resets their timings",
+        usage = "[reset]",
+        min = 0,
+        max = 1
+    )
+    @CommandPermissions(Permissions.MAPDEV)
+    public void events(CommandContext args, CommandSender sender) throws CommandException {
+        profileEvents("reset".equalsIgnoreCase(args.getString(0, null)), sender);
+    }
+
+    private void profile(Match match, int ticks, CommandSender sender) {
+        ticks = Math.max(1, Math.min(ticks, MatchScheduler.PROFILE_TICKS));
+
+        final List<MatchScheduler.ProfileResult> results = new ArrayList<>();
+        for(MatchScope scope : MatchScope.values()) {
+            results.addAll(match.getScheduler(scope).profile(ticks));
+        }
+        results.sort(Comparator.comparingLong(MatchScheduler.ProfileResult::nanos).reversed());
+
+        sender.sendMessage(new Component("Most expensive repeatables over the last " + ticks + " ticks:", ChatColor.GOLD));
+        for(MatchScheduler.ProfileResult result : results.subList(0, Math.min(PROFILE_RESULTS, results.size()))) {
+            sender.sendMessage(new Component(
+                String.format("%.2fms (%.3fms/tick) %s x%d",
+                              result.nanos() / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                              result.nanos() / (double) TimeUnit.MILLISECONDS.toNanos(1) / ticks,
+                              result.name(),
+                              result.instances()),
+                ChatColor.GOLD
+            ));
+        }
+    }
+
+    private void profileEvents(boolean reset, CommandSender sender) {
+        if(reset) {
+            eventRegistry.resetProfile();
+            sender.sendMessage(new Component("Event handler timings reset", ChatColor.GOLD));
+            return;
+        }
+
+        sender.sendMessage(new Component("Most expensive event handlers:", ChatColor.GOLD));
+        final List<MatchEventRegistry.ProfileResult> results = eventRegistry.profile();
+        for(MatchEventRegistry.ProfileResult result : results.subList(0, Math.min(PROFILE_RESULTS, results.size()))) {
+            sender.sendMessage(new Component(
+                String.format("%.2fms (%d calls, %.1fus/call) %s x%d",
+                              result.nanos() / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                              result.calls(),
+                              result.calls() == 0 ? 0d : result.nanos() / (double) TimeUnit.MICROSECONDS.toNanos(1) / result.calls(),
+                              result.name(),
+                              result.instances()),
+                ChatColor.GOLD
+            ));
+        }
     }
 }
@@ -1,19 +1,17 @@
 package tc.oc.pgm.controlpoint;
 
 import com.google.common.collect.Sets;
-import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.PlayerTeleportEvent;
-import org.bukkit.util.Vector;
 import tc.oc.pgm.events.ListenerScope;
 import tc.oc.pgm.match.Competitor;
 import tc.oc.pgm.match.Match;
 import tc.oc.pgm.match.MatchPlayer;
 import tc.oc.pgm.match.MatchScope;
+import tc.oc.pgm.regions.RegionOccupancyMatchModule;
+import tc.oc.pgm.regions.RegionOccupancyService;
 import tc.oc.pgm.spawns.events.ParticipantDespawnEvent;
-import tc.oc.commons.bukkit.event.CoarsePlayerMoveEvent;
 import tc.oc.pgm.regions.Region;
 import tc.oc.commons.core.util.DefaultMapAdapter;
 import tc.oc.pgm.utils.MatchPlayers;
@@ -26,7 +24,10 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
- * Tracks which players are on a control point and answers some queries about them
+ * Tracks which players are on a control point and answers some queries about them.
+ *
+ * Player movement is resolved by the {@link RegionOccupancyService}, which notifies
+ * the tracker of every movement that ends on the point, and of players leaving it.
  */
 @ListenerScope(MatchScope.LOADED)
 public class ControlPointPlayerTracker implements Listener {
@@ -37,6 +38,10 @@ public class ControlPointPlayerTracker implements Listener {
     public ControlPointPlayerTracker(Match match, Region captureRegion) {
         this.match = match;
         this.captureRegion = captureRegion;
+
+        final RegionOccupancyService occupancy = match.needMatchModule(RegionOccupancyMatchModule.class);
+        occupancy.whileInside(captureRegion, this::handlePlayerInside);
+        occupancy.onLeave(captureRegion, this::handlePlayerLeave);
     }
 
     public Set<MatchPlayer> getPlayersOnPoint() {
@@ -64,27 +69,22 @@ public class ControlPointPlayerTracker implements Listener {
         return new ArrayList<>(this.getPlayerCountsByTeam().entrySet()).stream().sorted((o1, o2) -> Integer.compare(o2.getValue(), o1.getValue())).collect(Collectors.toList());
     }
 
-    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    public void onPlayerMove(final CoarsePlayerMoveEvent event) {
-        this.handlePlayerMove(event.getPlayer(), event.getTo().toVector());
-    }
-
-    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    public void onPlayerTeleport(final PlayerTeleportEvent event) {
-        this.handlePlayerMove(event.getPlayer(), event.getTo().toVector());
-    }
-
-    private void handlePlayerMove(Player bukkit, Vector to) {
-        MatchPlayer player = this.match.getPlayer(bukkit);
+    private void handlePlayerInside(MatchPlayer player) {
         if(!MatchPlayers.canInteract(player)) return;
 
-        if(!player.getBukkit().isDead() && this.captureRegion.contains(to.toBlockVector())) {
+        if(!player.getBukkit().isDead()) {
             this.playersOnPoint.add(player);
         } else {
             this.playersOnPoint.remove(player);
         }
     }
 
+    private void handlePlayerLeave(MatchPlayer player) {
+        if(!MatchPlayers.canInteract(player)) return;
+
+        this.playersOnPoint.remove(player);
+    }
+
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerDespawn(final ParticipantDespawnEvent event) {
         playersOnPoint.remove(event.getPlayer());
@@ -11,6 +11,7 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.PlayerDeathEvent;
+import tc.oc.commons.bukkit.chat.ComponentRenderContext;
 import tc.oc.commons.bukkit.nick.Identity;
 import tc.oc.commons.bukkit.nick.IdentityProvider;
 import tc.oc.commons.bukkit.settings.SettingBinder;
@@ -39,10 +40,12 @@ public class DeathMessageMatchModule extends MatchModule implements Listener {
     }
 
     private final IdentityProvider identityProvider;
+    private final ComponentRenderContext renderer;
 
-    @Inject DeathMessageMatchModule(Match match, IdentityProvider identityProvider) {
+    @Inject DeathMessageMatchModule(Match match, IdentityProvider identityProvider, ComponentRenderContext renderer) {
         super(match);
         this.identityProvider = identityProvider;
+        this.renderer = renderer;
     }
 
     @EventHandler(priority = EventPriority.LOWEST)
@@ -64,18 +67,23 @@ public class DeathMessageMatchModule extends MatchModule implements Listener {
         final Identity victim = identityProvider.currentIdentity(event.getVictim().getBukkit());
         final Identity killer = event.getKiller() == null ? null : event.getKiller().getIdentity();
 
-        for(MatchPlayer viewer : event.getMatch().getPlayers()) {
-            final Player bukkit = viewer.getBukkit();
-            final SettingManager settingManager = PlayerSettings.getManager(bukkit);
-            final DeathMessageSetting.Options dms = settingManager.getValue(DeathMessageSetting.get(), DeathMessageSetting.Options.class);
+        // Send the same instances to everyone, so each is only rendered once per locale and name appearance
+        final Component highlighted = new Component(message, ChatColor.BOLD);
 
-            if(dms.isAllowed(victim.familiarity(bukkit)) || (killer != null && dms.isAllowed(killer.familiarity(bukkit)))) {
-                if(event.isInvolved(viewer) && settingManager.getValue(HighlightDeathMessageSetting.get(), Boolean.class)) {
-                    viewer.sendMessage(new Component(message, ChatColor.BOLD));
-                } else {
-                    viewer.sendMessage(message);
+        renderer.broadcast(() -> {
+            for(MatchPlayer viewer : event.getMatch().getPlayers()) {
+                final Player bukkit = viewer.getBukkit();
+                final SettingManager settingManager = PlayerSettings.getManager(bukkit);
+                final DeathMessageSetting.Options dms = settingManager.getValue(DeathMessageSetting.get(), DeathMessageSetting.Options.class);
+
+                if(dms.isAllowed(victim.familiarity(bukkit)) || (killer != null && dms.isAllowed(killer.familiarity(bukkit)))) {
+                    if(event.isInvolved(viewer) && settingManager.getValue(HighlightDeathMessageSetting.get(), Boolean.class)) {
+                        viewer.sendMessage(highlighted);
+                    } else {
+                        viewer.sendMessage(message);
+                    }
                 }
             }
-        }
+        });
     }
 }
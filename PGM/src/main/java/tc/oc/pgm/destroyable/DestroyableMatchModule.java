@@ -16,6 +16,7 @@ import org.bukkit.event.block.BlockPistonRetractEvent;
 import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.material.MaterialData;
 import tc.oc.pgm.events.BlockTransformEvent;
+import tc.oc.pgm.events.BulkBlockTransformEvent;
 import tc.oc.pgm.events.ListenerScope;
 import tc.oc.pgm.events.ParticipantBlockTransformEvent;
 import tc.oc.pgm.match.Match;
@@ -54,12 +55,40 @@ public class DestroyableMatchModule extends MatchModule implements Listener {
         return false;
     }
 
+    private boolean anyDestroyableAffected(BulkBlockTransformEvent event) {
+        if(this.match.getWorld() != event.getWorld()) return false;
+
+        for(Destroyable destroyable : this.destroyables) {
+            if(!destroyable.isDestroyed() && event.mayAffect(destroyable.getBlockRegion(), 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * This handler only checks to see if the event should be cancelled. It does not change the
      * state of any Destroyables.
      */
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void testBlockChange(BlockTransformEvent event) {
+        if(!event.isBulk()) {
+            testChange(event);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void testBlockChanges(BulkBlockTransformEvent event) {
+        if(!this.anyDestroyableAffected(event)) return;
+
+        for(BlockTransformEvent change : event.getEvents()) {
+            if(!change.isCancelled()) {
+                testChange(change);
+            }
+        }
+    }
+
+    private void testChange(BlockTransformEvent event) {
         if(this.match.getWorld() != event.getWorld() || !this.anyDestroyableAffected(event)) {
             return;
         }
@@ -89,6 +118,23 @@ public class DestroyableMatchModule extends MatchModule implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void handleBlockChange(BlockTransformEvent event) {
+        if(!event.isBulk()) {
+            handleChange(event);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void handleBlockChanges(BulkBlockTransformEvent event) {
+        if(!this.anyDestroyableAffected(event)) return;
+
+        for(BlockTransformEvent change : event.getEvents()) {
+            if(!change.isCancelled()) {
+                handleChange(change);
+            }
+        }
+    }
+
+    private void handleChange(BlockTransformEvent event) {
         if(this.match.getWorld() != event.getWorld() || !this.anyDestroyableAffected(event)) {
             return;
         }
@@ -50,6 +50,7 @@ import tc.oc.commons.core.commands.Commands;
 import tc.oc.commons.core.inspect.Inspection;
 import tc.oc.commons.core.inspect.MultiLineTextInspector;
 import tc.oc.pgm.PGMTranslations;
+import tc.oc.pgm.eventrules.EventRuleMatchModule;
 import tc.oc.pgm.features.Feature;
 import tc.oc.pgm.features.FeatureDefinition;
 import tc.oc.pgm.features.FeatureProxy;
@@ -70,8 +71,11 @@ import tc.oc.pgm.match.MatchState;
 import tc.oc.pgm.physics.AccelerationPlayerFacet;
 import tc.oc.pgm.physics.DebugVelocityPlayerFacet;
 import tc.oc.pgm.physics.PlayerForce;
+import tc.oc.pgm.terrain.WorldStager;
 import tc.oc.pgm.xml.Node;
 
+import static tc.oc.pgm.commands.CommandUtils.getMatchModule;
+
 public class MapDevelopmentCommands implements Commands {
 
     private final MapErrorTracker mapErrorTracker;
@@ -80,14 +84,16 @@ public class MapDevelopmentCommands implements Commands {
     private final MatchManager matchManager;
     private final Audiences audiences;
     private final SyncExecutor syncExecutor;
+    private final WorldStager worldStager;
 
-    @Inject MapDevelopmentCommands(MapErrorTracker mapErrorTracker, MapConfiguration mapConfiguration, MapLibrary mapLibrary, MatchManager matchManager, Audiences audiences, SyncExecutor syncExecutor) {
+    @Inject MapDevelopmentCommands(MapErrorTracker mapErrorTracker, MapConfiguration mapConfiguration, MapLibrary mapLibrary, MatchManager matchManager, Audiences audiences, SyncExecutor syncExecutor, WorldStager worldStager) {
         this.mapErrorTracker = mapErrorTracker;
         this.mapEnvironment = mapConfiguration.environment();
         this.mapLibrary = mapLibrary;
         this.matchManager = matchManager;
         this.audiences = audiences;
         this.syncExecutor = syncExecutor;
+        this.worldStager = worldStager;
     }
 
     @Command(
@@ -501,6 +507,29 @@ public class MapDevelopmentCommands implements Commands {
         }
     }
 
+    @Command(
+        aliases = {"ruleindex"},
+        desc = "Show how many event rule checks were pruned by the spatial index",
+        min = 0,
+        max = 0
+    )
+    @CommandPermissions(Permissions.MAPDEV)
+    public void ruleIndex(CommandContext args, CommandSender sender) throws CommandException {
+        final EventRuleMatchModule rules = getMatchModule(EventRuleMatchModule.class, sender);
+        sender.sendMessage(new Component(rules.describeIndex().orElse("Event rule spatial index is disabled"), ChatColor.GOLD));
+    }
+
+    @Command(
+        aliases = {"worldtimings"},
+        desc = "Show how long each phase of the last world load and unload took",
+        min = 0,
+        max = 0
+    )
+    @CommandPermissions(Permissions.MAPDEV)
+    public void worldTimings(CommandContext args, CommandSender sender) throws CommandException {
+        sender.sendMessage(new Component(worldStager.describeTimings(), ChatColor.GOLD));
+    }
+
     @Command(
         aliases = {"debugvelocity"},
         desc = "Dump debug info about a player's velocity to the console",
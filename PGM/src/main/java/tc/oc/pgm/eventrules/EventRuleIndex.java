@@ -0,0 +1,219 @@
+package tc.oc.pgm.eventrules;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import org.bukkit.geometry.Cuboid;
+import org.bukkit.util.BlockVector;
+
+/**
+ * Index of {@link EventRule}s by the chunk columns that their region bounds overlap.
+ *
+ * Given a pair of block positions, the index returns only the rules whose regions
+ * could possibly contain one of them. The candidates are always returned in the
+ * same relative order as the list the index was built from, so rule priority
+ * is unaffected.
+ *
+ * Rules with regions that have no usable horizontal bounds are returned for every query.
+ *
+ * Candidate lists are immutable and shared. The list for each indexed chunk is built
+ * up front, and the list for each pair of indexed chunks is built the first time a
+ * movement crosses between them, so queries don't allocate anything.
+ */
+class EventRuleIndex {
+
+    // Regions spanning more chunks than this are cheaper to just test every time
+    private static final long MAX_INDEXED_CHUNKS = 4096;
+
+    // Max number of chunk pairs to remember candidates for
+    private static final int MAX_CACHED_PAIRS = 65536;
+
+    private final List<EventRule> rules;
+    private final int[] unindexed;
+    private final TLongObjectMap<int[]> byChunk = new TLongObjectHashMap<>();
+
+    // Candidates for positions in the same chunk, or in chunks with no indexed rules
+    private final List<EventRule> unindexedCandidates;
+    private final TLongObjectMap<List<EventRule>> chunkCandidates = new TLongObjectHashMap<>();
+
+    // Candidates for movements between two different indexed chunks, by from chunk, then to chunk
+    private final TLongObjectMap<TLongObjectMap<List<EventRule>>> pairCandidates = new TLongObjectHashMap<>();
+    private int cachedPairs;
+
+    private long queries, tested, pruned;
+
+    EventRuleIndex(Iterable<EventRule> rules) {
+        this.rules = ImmutableList.copyOf(rules);
+
+        final TIntList unindexed = new TIntArrayList();
+        final TLongObjectMap<TIntList> byChunk = new TLongObjectHashMap<>();
+
+        for(int i = 0; i < this.rules.size(); i++) {
+            final Cuboid bounds = boundsOf(this.rules.get(i));
+            if(bounds == null) {
+                unindexed.add(i);
+                continue;
+            }
+
+            // Pad by one block, so positions on the edge of the bounds are never missed
+            final int minX = ((int) Math.floor(bounds.minimum().getX()) - 1) >> 4,
+                      minZ = ((int) Math.floor(bounds.minimum().getZ()) - 1) >> 4,
+                      maxX = ((int) Math.floor(bounds.maximum().getX()) + 1) >> 4,
+                      maxZ = ((int) Math.floor(bounds.maximum().getZ()) + 1) >> 4;
+
+            if((long) (maxX - minX + 1) * (maxZ - minZ + 1) > MAX_INDEXED_CHUNKS) {
+                unindexed.add(i);
+                continue;
+            }
+
+            for(int x = minX; x <= maxX; x++) {
+                for(int z = minZ; z <= maxZ; z++) {
+                    final long key = chunkKey(x, z);
+                    TIntList list = byChunk.get(key);
+                    if(list == null) {
+                        byChunk.put(key, list = new TIntArrayList());
+                    }
+                    list.add(i);
+                }
+            }
+        }
+
+        this.unindexed = unindexed.toArray();
+        byChunk.forEachEntry((key, list) -> {
+            this.byChunk.put(key, list.toArray());
+            return true;
+        });
+
+        this.unindexedCandidates = merge(this.unindexed, null, null);
+        this.byChunk.forEachEntry((key, list) -> {
+            this.chunkCandidates.put(key, merge(this.unindexed, list, null));
+            return true;
+        });
+    }
+
+    /**
+     * Return the rules that could contain either of the given positions, in their original order
+     */
+    List<EventRule> candidates(BlockVector from, BlockVector to) {
+        final long fromKey = chunkKey(from.getBlockX() >> 4, from.getBlockZ() >> 4),
+                   toKey = chunkKey(to.getBlockX() >> 4, to.getBlockZ() >> 4);
+
+        final List<EventRule> candidates;
+        final List<EventRule> fromCandidates = chunkCandidates.get(fromKey);
+        final List<EventRule> toCandidates = fromKey == toKey ? null : chunkCandidates.get(toKey);
+        if(fromCandidates == null) {
+            candidates = toCandidates != null ? toCandidates : unindexedCandidates;
+        } else if(toCandidates == null) {
+            candidates = fromCandidates;
+        } else {
+            candidates = pairCandidates(fromKey, toKey);
+        }
+
+        queries++;
+        tested += candidates.size();
+        pruned += rules.size() - candidates.size();
+
+        return candidates;
+    }
+
+    long queries() {
+        return queries;
+    }
+
+    long tested() {
+        return tested;
+    }
+
+    long pruned() {
+        return pruned;
+    }
+
+    int size() {
+        return rules.size();
+    }
+
+    int unindexedSize() {
+        return unindexed.length;
+    }
+
+    private List<EventRule> pairCandidates(long fromKey, long toKey) {
+        TLongObjectMap<List<EventRule>> byTo = pairCandidates.get(fromKey);
+        if(byTo == null) {
+            pairCandidates.put(fromKey, byTo = new TLongObjectHashMap<>());
+        }
+
+        List<EventRule> candidates = byTo.get(toKey);
+        if(candidates == null) {
+            candidates = merge(unindexed, byChunk.get(fromKey), byChunk.get(toKey));
+            if(cachedPairs < MAX_CACHED_PAIRS) {
+                byTo.put(toKey, candidates);
+                cachedPairs++;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Merge up to three ascending index arrays, dropping duplicates,
+     * into an unmodifiable list of rules
+     */
+    private List<EventRule> merge(int[] a, int[] b, int[] c) {
+        final int lenA = a == null ? 0 : a.length,
+                  lenB = b == null ? 0 : b.length,
+                  lenC = c == null ? 0 : c.length;
+
+        final List<EventRule> result = new ArrayList<>(lenA + lenB + lenC);
+        int ia = 0, ib = 0, ic = 0;
+        int last = -1;
+
+        for(;;) {
+            int next = Integer.MAX_VALUE;
+            if(ia < lenA) next = Math.min(next, a[ia]);
+            if(ib < lenB) next = Math.min(next, b[ib]);
+            if(ic < lenC) next = Math.min(next, c[ic]);
+            if(next == Integer.MAX_VALUE) break;
+
+            if(ia < lenA && a[ia] == next) ia++;
+            if(ib < lenB && b[ib] == next) ib++;
+            if(ic < lenC && c[ic] == next) ic++;
+
+            if(next != last) {
+                result.add(rules.get(next));
+                last = next;
+            }
+        }
+
+        return Collections.unmodifiableList(result);
+    }
+
+    private static long chunkKey(int x, int z) {
+        return ((long) x << 32) | (z & 0xffffffffL);
+    }
+
+    /**
+     * Return the bounds of the rule's region, or null if they are not finite
+     * in the horizontal plane. Some regions cannot be bounded at all.
+     */
+    private static Cuboid boundsOf(EventRule rule) {
+        final Cuboid bounds;
+        try {
+            bounds = rule.region().getBounds();
+        } catch(UnsupportedOperationException e) {
+            return null;
+        }
+
+        if(bounds.isEmpty() ||
+           !Double.isFinite(bounds.minimum().getX()) || !Double.isFinite(bounds.minimum().getZ()) ||
+           !Double.isFinite(bounds.maximum().getX()) || !Double.isFinite(bounds.maximum().getZ())) {
+            return null;
+        }
+
+        return bounds;
+    }
+}
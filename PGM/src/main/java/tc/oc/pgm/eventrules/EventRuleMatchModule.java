@@ -1,6 +1,13 @@
 package tc.oc.pgm.eventrules;
 
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 
 import org.bukkit.Material;
 import org.bukkit.block.Block;
@@ -33,7 +40,9 @@ import tc.oc.commons.bukkit.event.CoarsePlayerMoveEvent;
 import tc.oc.commons.bukkit.event.GeneralizingEvent;
 import tc.oc.commons.bukkit.util.BlockStateUtils;
 import tc.oc.commons.bukkit.util.BlockUtils;
+import tc.oc.pgm.Config;
 import tc.oc.pgm.events.BlockTransformEvent;
+import tc.oc.pgm.events.BulkBlockTransformEvent;
 import tc.oc.pgm.events.ListenerScope;
 import tc.oc.pgm.events.ParticipantBlockTransformEvent;
 import tc.oc.pgm.filters.Filter.QueryResponse;
@@ -51,6 +60,9 @@ import tc.oc.pgm.match.MatchModule;
 import tc.oc.pgm.match.MatchPlayer;
 import tc.oc.pgm.match.MatchScope;
 import tc.oc.pgm.match.ParticipantState;
+import tc.oc.pgm.regions.CompiledRegion;
+import tc.oc.pgm.regions.Region;
+import tc.oc.pgm.regions.RegionCompiler;
 import tc.oc.pgm.utils.MatchPlayers;
 
 import static tc.oc.pgm.map.ProtoVersions.REGION_PRIORITY_VERSION;
@@ -61,10 +73,78 @@ public class EventRuleMatchModule extends MatchModule implements Listener {
     protected final EventRuleContext ruleContext;
     protected final boolean useRegionPriority;
 
+    // Spatial indexes for movement rules, or null if indexing is disabled
+    private final @Nullable EventRuleIndex enterLeaveIndex, enterIndex, leaveIndex, effectIndex;
+
+    // Compiled regions of movement rules, or empty if compilation is disabled
+    private final Map<Region, CompiledRegion> compiledRegions = new IdentityHashMap<>();
+
     public EventRuleMatchModule(Match match, EventRuleContext ruleContext) {
         super(match);
         this.ruleContext = ruleContext;
         this.useRegionPriority = this.getMatch().getMapInfo().proto.isNoOlderThan(REGION_PRIORITY_VERSION);
+
+        if(Config.EventRules.spatialIndex()) {
+            this.enterLeaveIndex = new EventRuleIndex(Iterables.filter(ruleContext.getAll(), rule -> rule.scope() == EventRuleScope.PLAYER_ENTER ||
+                                                                                                   rule.scope() == EventRuleScope.PLAYER_LEAVE));
+            this.enterIndex = new EventRuleIndex(ruleContext.get(EventRuleScope.PLAYER_ENTER));
+            this.leaveIndex = new EventRuleIndex(ruleContext.get(EventRuleScope.PLAYER_LEAVE));
+            this.effectIndex = new EventRuleIndex(ruleContext.get(EventRuleScope.EFFECT));
+        } else {
+            this.enterLeaveIndex = this.enterIndex = this.leaveIndex = this.effectIndex = null;
+        }
+
+        if(Config.EventRules.compileRegions()) {
+            for(EventRuleScope scope : new EventRuleScope[]{ EventRuleScope.PLAYER_ENTER, EventRuleScope.PLAYER_LEAVE, EventRuleScope.EFFECT }) {
+                for(EventRule rule : ruleContext.get(scope)) {
+                    compiledRegions.computeIfAbsent(rule.region(), RegionCompiler::compile);
+                }
+            }
+        }
+    }
+
+    private boolean enters(EventRule rule, Optional<BlockVector> from, BlockVector to) {
+        final CompiledRegion compiled = compiledRegions.get(rule.region());
+        return compiled != null ? compiled.enters(from, to) : rule.region().enters(from, to);
+    }
+
+    private boolean exits(EventRule rule, Optional<BlockVector> from, BlockVector to) {
+        final CompiledRegion compiled = compiledRegions.get(rule.region());
+        return compiled != null ? compiled.exits(from, to) : rule.region().exits(from, to);
+    }
+
+    /**
+     * Return the rules that can possibly be entered or exited when moving between the given positions,
+     * in priority order. Without a from position, exiting is defined as not being inside the region,
+     * so every rule must be checked.
+     */
+    private Iterable<EventRule> movementCandidates(@Nullable EventRuleIndex index, Iterable<EventRule> rules, Optional<BlockVector> from, BlockVector to) {
+        return index != null && from.isPresent() ? index.candidates(from.get(), to) : rules;
+    }
+
+    /**
+     * Return a description of the effectiveness of the spatial index, for debugging,
+     * or empty if the index is disabled.
+     */
+    public Optional<String> describeIndex() {
+        if(enterLeaveIndex == null) return Optional.empty();
+
+        final List<EventRuleIndex> indexes = useRegionPriority ? ImmutableList.of(enterLeaveIndex, effectIndex)
+                                                               : ImmutableList.of(enterIndex, leaveIndex, effectIndex);
+        long queries = 0, tested = 0, pruned = 0;
+        int indexed = 0, unindexed = 0;
+        for(EventRuleIndex index : indexes) {
+            queries += index.queries();
+            tested += index.tested();
+            pruned += index.pruned();
+            indexed += index.size() - index.unindexedSize();
+            unindexed += index.unindexedSize();
+        }
+
+        final long total = tested + pruned;
+        return Optional.of(String.format("%d indexed rules, %d unindexed rules, %d queries, %d rules tested, %d pruned (%.1f%%)",
+                                         indexed, unindexed, queries, tested, pruned,
+                                         total == 0 ? 0d : 100d * pruned / total));
     }
 
     protected void checkEnterLeave(Event event, MatchPlayer player, Optional<BlockVector> from, BlockVector to) {
@@ -72,9 +152,9 @@ public class EventRuleMatchModule extends MatchModule implements Listener {
 
         if(this.useRegionPriority) {
             // We need to handle both scopes in the same loop, because the priority order can interleave them
-            for(EventRule rule : this.ruleContext.getAll()) {
-                if((rule.scope() == EventRuleScope.PLAYER_ENTER && rule.region().enters(from, to)) ||
-                   (rule.scope() == EventRuleScope.PLAYER_LEAVE && rule.region().exits(from, to))) {
+            for(EventRule rule : movementCandidates(enterLeaveIndex, this.ruleContext.getAll(), from, to)) {
+                if((rule.scope() == EventRuleScope.PLAYER_ENTER && enters(rule, from, to)) ||
+                   (rule.scope() == EventRuleScope.PLAYER_LEAVE && exits(rule, from, to))) {
 
                     if(processQuery(event, rule, player)) {
                         break; // Stop after the first non-abstaining filter
@@ -83,14 +163,14 @@ public class EventRuleMatchModule extends MatchModule implements Listener {
             }
         } else {
             // To preserve legacy behavior exactly, these need to be in seperate loops
-            for(EventRule rule : this.ruleContext.get(EventRuleScope.PLAYER_ENTER)) {
-                if(rule.region().enters(from, to)) {
+            for(EventRule rule : movementCandidates(enterIndex, this.ruleContext.get(EventRuleScope.PLAYER_ENTER), from, to)) {
+                if(enters(rule, from, to)) {
                     processQuery(event, rule, player);
                 }
             }
 
-            for(EventRule rule : this.ruleContext.get(EventRuleScope.PLAYER_LEAVE)) {
-                if(rule.region().exits(from, to)) {
+            for(EventRule rule : movementCandidates(leaveIndex, this.ruleContext.get(EventRuleScope.PLAYER_LEAVE), from, to)) {
+                if(exits(rule, from, to)) {
                     processQuery(event, rule, player);
                 }
             }
@@ -114,12 +194,13 @@ public class EventRuleMatchModule extends MatchModule implements Listener {
 
         final BlockVector from = event.getBlockFrom().toBlockVector();
         final BlockVector to = event.getBlockTo().toBlockVector();
+        final Optional<BlockVector> fromPos = Optional.of(from);
 
-        for(EventRule rule : this.ruleContext.get(EventRuleScope.EFFECT)) {
+        for(EventRule rule : movementCandidates(effectIndex, this.ruleContext.get(EventRuleScope.EFFECT), fromPos, to)) {
             if(rule.velocity() == null && rule.kit() == null) continue;
 
-            boolean enters = rule.region().enters(from, to);
-            boolean exits = rule.region().exits(from, to);
+            boolean enters = enters(rule, fromPos, to);
+            boolean exits = exits(rule, fromPos, to);
             if(!enters && !exits) continue;
 
             if(!player.canInteract() || rule.filter() == null || rule.filter().query(player) != QueryResponse.DENY) {
@@ -143,6 +224,33 @@ public class EventRuleMatchModule extends MatchModule implements Listener {
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void checkBlockTransform(final BlockTransformEvent event) {
+        if(!event.isBulk()) {
+            checkTransform(event);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void checkBulkBlockTransform(final BulkBlockTransformEvent event) {
+        // Only test the individual blocks if some block rule could apply to any of them
+        if(!anyBlockRuleAffected(event)) return;
+
+        for(BlockTransformEvent change : event.getEvents()) {
+            if(!change.isCancelled()) {
+                checkTransform(change);
+            }
+        }
+    }
+
+    private boolean anyBlockRuleAffected(BulkBlockTransformEvent event) {
+        // Bulk changes are never placed against another block, so only break and place rules matter
+        for(EventRule rule : Iterables.concat(this.ruleContext.get(EventRuleScope.BLOCK_BREAK),
+                                              this.ruleContext.get(EventRuleScope.BLOCK_PLACE))) {
+            if(event.mayAffect(rule.region(), 0)) return true;
+        }
+        return false;
+    }
+
+    private void checkTransform(final BlockTransformEvent event) {
         final BlockVector pos = BlockUtils.center(event.getNewState()).toBlockVector();
         final Optional<ParticipantState> actor = getActor(event);
 
@@ -1,5 +1,7 @@
 package tc.oc.pgm.events;
 
+import javax.annotation.Nullable;
+
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
@@ -31,6 +33,7 @@ public class BlockTransformEvent extends GeneralizingEvent {
     protected final BlockState oldState;
     protected final BlockState newState;
     protected BlockDrops drops;
+    @Nullable BulkBlockTransformEvent bulk;
 
     protected BlockTransformEvent(Event cause, Block block, BlockState oldState, BlockState newState) {
         super(checkNotNull(cause));
@@ -106,6 +109,17 @@ public class BlockTransformEvent extends GeneralizingEvent {
         this.drops = drops;
     }
 
+    /**
+     * Return true if this event is part of a {@link BulkBlockTransformEvent}
+     */
+    public boolean isBulk() {
+        return bulk != null;
+    }
+
+    public @Nullable BulkBlockTransformEvent getBulk() {
+        return bulk;
+    }
+
     /**
      * Return true if this is a "place" i.e. there is a non-air block here after the transform.
      * Note that a place can also be a break, if the new block replaced an existing one.
@@ -0,0 +1,171 @@
+package tc.oc.pgm.events;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bukkit.Physical;
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.bukkit.geometry.Cuboid;
+import tc.oc.commons.bukkit.util.MaterialUtils;
+import tc.oc.pgm.blockdrops.BlockDrops;
+import tc.oc.pgm.regions.Region;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static tc.oc.commons.bukkit.util.BlockUtils.encodePos;
+
+/**
+ * Event called for a group of {@link BlockTransformEvent}s with the same cause,
+ * such as all the blocks destroyed by an explosion, or moved by a piston.
+ *
+ * At each priority level, this event is called before the individual events in the group.
+ * The individual events are still called, for listeners that do not handle this event.
+ * Listeners that do handle it should ignore any individual event that is {@link BlockTransformEvent#isBulk()},
+ * and should skip cancelled entries if they would ignore cancelled individual events.
+ *
+ * The positions and materials of the blocks are available as encoded primitives,
+ * see {@link tc.oc.commons.bukkit.util.BlockUtils#encodePos} and {@link MaterialUtils#encodeMaterial}.
+ * Each entry is backed by its individual event, so cancelling an entry cancels that event.
+ */
+public class BulkBlockTransformEvent extends Event implements Physical {
+
+    private final Event cause;
+    private final World world;
+    private final BlockTransformEvent[] events;
+    private final long[] positions;
+    private final int[] oldMaterials;
+    private final int[] newMaterials;
+    private final int minX, minY, minZ, maxX, maxY, maxZ;
+
+    public BulkBlockTransformEvent(Event cause, List<? extends BlockTransformEvent> events) {
+        checkArgument(!events.isEmpty());
+        this.cause = checkNotNull(cause);
+        this.events = events.toArray(new BlockTransformEvent[events.size()]);
+        this.world = this.events[0].getWorld();
+        this.positions = new long[this.events.length];
+        this.oldMaterials = new int[this.events.length];
+        this.newMaterials = new int[this.events.length];
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE,
+            maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+
+        for(int i = 0; i < this.events.length; i++) {
+            final BlockTransformEvent event = this.events[i];
+            checkArgument(event.getCause() == cause);
+            event.bulk = this;
+
+            final BlockState oldState = event.getOldState();
+            final int x = oldState.getX(), y = oldState.getY(), z = oldState.getZ();
+            positions[i] = encodePos(x, y, z);
+            oldMaterials[i] = MaterialUtils.encodeMaterial(oldState);
+            newMaterials[i] = MaterialUtils.encodeMaterial(event.newState);
+
+            minX = Math.min(minX, x); minY = Math.min(minY, y); minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x); maxY = Math.max(maxY, y); maxZ = Math.max(maxZ, z);
+        }
+
+        this.minX = minX; this.minY = minY; this.minZ = minZ;
+        this.maxX = maxX; this.maxY = maxY; this.maxZ = maxZ;
+    }
+
+    public Event getCause() {
+        return cause;
+    }
+
+    @Override
+    public World getWorld() {
+        return world;
+    }
+
+    public int size() {
+        return events.length;
+    }
+
+    /**
+     * The individual events in this group, in the order they are called
+     */
+    public List<BlockTransformEvent> getEvents() {
+        return Collections.unmodifiableList(Arrays.asList(events));
+    }
+
+    public BlockTransformEvent getEvent(int index) {
+        return events[index];
+    }
+
+    /**
+     * Encoded position of the given entry
+     */
+    public long getPosition(int index) {
+        return positions[index];
+    }
+
+    /**
+     * Encoded material of the given entry before the transform
+     */
+    public int getOldMaterial(int index) {
+        return oldMaterials[index];
+    }
+
+    /**
+     * Encoded material of the given entry after the transform, including any replacement from {@link BlockDrops}
+     */
+    public int getNewMaterial(int index) {
+        final BlockDrops drops = events[index].getDrops();
+        return drops == null || drops.replacement == null ? newMaterials[index]
+                                                          : MaterialUtils.encodeMaterial(drops.replacement);
+    }
+
+    public boolean isCancelled(int index) {
+        return events[index].isCancelled();
+    }
+
+    public void setCancelled(int index, boolean cancel) {
+        events[index].setCancelled(cancel);
+    }
+
+    /**
+     * Test if the given region could contain any of the blocks in this group, after expanding
+     * the blocks by the given number of blocks in every direction. This is a conservative test
+     * on the bounds of the region, so it may return true even if the region contains none
+     * of the blocks, but it never returns false if the region contains any of them.
+     */
+    public boolean mayAffect(Region region, int padding) {
+        final Cuboid bounds;
+        try {
+            bounds = region.getBounds();
+        } catch(UnsupportedOperationException e) {
+            return true;
+        }
+
+        if(bounds.isEmpty()) return false;
+
+        return bounds.maximum().getX() >= minX - padding && bounds.minimum().getX() <= maxX + 1 + padding &&
+               bounds.maximum().getY() >= minY - padding && bounds.minimum().getY() <= maxY + 1 + padding &&
+               bounds.maximum().getZ() >= minZ - padding && bounds.minimum().getZ() <= maxZ + 1 + padding;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() +
+               "{size=" + events.length +
+               " min=" + minX + "," + minY + "," + minZ +
+               " max=" + maxX + "," + maxY + "," + maxZ +
+               " cause=" + cause.getEventName() +
+               "}";
+    }
+
+    private static final HandlerList handlers = new HandlerList();
+
+    @Override
+    public HandlerList getHandlers() {
+        return handlers;
+    }
+
+    public static HandlerList getHandlerList() {
+        return handlers;
+    }
+}
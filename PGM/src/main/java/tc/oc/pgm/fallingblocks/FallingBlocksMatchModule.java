@@ -23,6 +23,7 @@ import tc.oc.pgm.match.Match;
 import tc.oc.pgm.match.MatchScope;
 import tc.oc.pgm.match.ParticipantState;
 import tc.oc.pgm.events.BlockTransformEvent;
+import tc.oc.pgm.events.BulkBlockTransformEvent;
 import tc.oc.pgm.events.ParticipantBlockTransformEvent;
 import tc.oc.pgm.match.MatchModule;
 import tc.oc.commons.bukkit.util.Materials;
@@ -293,6 +294,24 @@ public class FallingBlocksMatchModule extends MatchModule implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockChange(BlockTransformEvent event) {
+        if(!event.isBulk()) {
+            disturbChange(event, null);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onBulkBlockChange(BulkBlockTransformEvent event) {
+        // The neighbors of the blocks in a group overlap heavily, and disturbing the same
+        // unchanged block a second time has no effect, so each neighbor is only disturbed once.
+        final TLongSet disturbedNeighbors = new TLongHashSet();
+        for(BlockTransformEvent change : event.getEvents()) {
+            if(!change.isCancelled()) {
+                disturbChange(change, disturbedNeighbors);
+            }
+        }
+    }
+
+    private void disturbChange(BlockTransformEvent event, @Nullable TLongSet disturbedNeighbors) {
         BlockState newState = event.getNewState();
         Block block = newState.getBlock();
         long pos = encodePos(block);
@@ -306,7 +325,10 @@ public class FallingBlocksMatchModule extends MatchModule implements Listener {
         }
 
         for(BlockFace face : NEIGHBORS) {
-            this.disturb(neighborPos(pos, face), block.getRelative(face).getState(), breaker);
+            final long neighbor = neighborPos(pos, face);
+            if(disturbedNeighbors == null || disturbedNeighbors.add(neighbor)) {
+                this.disturb(neighbor, block.getRelative(face).getState(), breaker);
+            }
         }
     }
 }
@@ -1,8 +1,11 @@
 package tc.oc.pgm.filters;
 
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
+import com.google.common.collect.Sets;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import tc.oc.pgm.features.FeatureDefinition;
@@ -72,6 +75,31 @@ public interface Filter extends FeatureDefinition {
      */
     default boolean isDynamic() { return false; }
 
+    /**
+     * Return the kinds of state change that can alter the response of this filter.
+     *
+     * {@link FilterMatchModule} only re-queries a filter when one of these kinds of change
+     * has been signalled, or when the filter itself is invalidated explicitly through
+     * {@link FilterMatchModule#invalidate(Filter, Filterable)}.
+     *
+     * Like {@link #isDynamic()}, this should NOT account for any {@link #dependencies()}.
+     * The default is every kind of change, which is always safe.
+     */
+    default Set<Trigger> triggers() {
+        return Trigger.ALL;
+    }
+
+    /**
+     * Return the kinds of state change that can alter the response of this filter,
+     * or any of its {@link #dependencies()}.
+     */
+    default Set<Trigger> deepTriggers() {
+        final Set<Trigger> triggers = EnumSet.noneOf(Trigger.class);
+        triggers.addAll(triggers());
+        dependencies(Filter.class).forEach(dep -> triggers.addAll(dep.deepTriggers()));
+        return triggers;
+    }
+
     default Predicate<IQuery> respondsWith(QueryResponse response) {
         return q -> query(q) == response;
     }
@@ -178,6 +206,25 @@ public interface Filter extends FeatureDefinition {
         }
     }
 
+    /**
+     * Kinds of state change that can alter the response of a dynamic filter
+     *
+     * @see #triggers()
+     */
+    enum Trigger {
+        MOVEMENT,
+        PARTY,
+        DEATH,
+        MATCH_STATE,
+        GOAL,
+        FLAG,
+        SCORE,
+        RANKINGS;
+
+        public static final Set<Trigger> NONE = Sets.immutableEnumSet(EnumSet.noneOf(Trigger.class));
+        public static final Set<Trigger> ALL = Sets.immutableEnumSet(EnumSet.allOf(Trigger.class));
+    }
+
     default QueryResponse query(Block block) {
         return query(new BlockQuery(block));
     }
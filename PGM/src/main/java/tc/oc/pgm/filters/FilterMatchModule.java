@@ -1,6 +1,8 @@
 package tc.oc.pgm.filters;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -11,22 +13,19 @@ import java.util.logging.Level;
 import javax.inject.Inject;
 
 import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import org.bukkit.event.EventException;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import tc.oc.commons.bukkit.event.CoarsePlayerMoveEvent;
-import tc.oc.commons.core.util.MapUtils;
 import tc.oc.pgm.events.ListenerScope;
 import tc.oc.pgm.events.MatchPlayerDeathEvent;
 import tc.oc.pgm.events.MatchScoreChangeEvent;
 import tc.oc.pgm.events.MatchStateChangeEvent;
 import tc.oc.pgm.events.PlayerChangePartyEvent;
+import tc.oc.pgm.filters.Filter.Trigger;
 import tc.oc.pgm.victory.RankingsChangeEvent;
-import tc.oc.pgm.filters.query.IQuery;
 import tc.oc.pgm.flag.event.FlagStateChangeEvent;
 import tc.oc.pgm.goals.events.GoalCompleteEvent;
 import tc.oc.pgm.match.Match;
@@ -43,13 +42,140 @@ public class FilterMatchModule extends MatchModule implements Listener, FilterDi
         final Set<FilterListener<?>> fall = new HashSet<>();
     }
 
+    /**
+     * Cached responses, and pending invalidations, for a single {@link Filterable}.
+     * Responses are stored in bitsets indexed by filter ID.
+     */
+    private static class FilterableState {
+        final Filterable<?> filterable;
+
+        // Filters that have a cached response, and the responses themselves
+        final BitSet known = new BitSet();
+        final BitSet responses = new BitSet();
+
+        // Kinds of change (as a Trigger bitmask) and IDs of specific filters invalidated since the last check
+        int triggers;
+        final BitSet filters = new BitSet();
+
+        boolean dirty;      // In the dirty list
+        boolean checked;    // Already checked in the current tick
+        boolean moved;      // Moved since last checked, so it must be checked again even in the same tick
+
+        FilterableState(Filterable<?> filterable) {
+            this.filterable = filterable;
+        }
+
+        boolean isAffected(int filterId, int filterTriggers) {
+            return (triggers & filterTriggers) != 0 || filters.get(filterId);
+        }
+    }
+
     private final Table<Filter, Class<? extends Filterable>, ListenerSet> listeners = HashBasedTable.create();
 
-    // Most recent responses for each filter with listeners (used to detect changes)
-    private final Table<Filter, Filterable<?>, Boolean> lastResponses = HashBasedTable.create();
+    // Every filter with listeners, indexed by ID
+    private final List<Filter> filters = new ArrayList<>();
+    private final Map<Filter, Integer> filterIds = new HashMap<>();
+
+    // Kinds of change that can affect each filter with listeners, as bitmasks indexed by filter ID
+    private int[] filterTriggers = new int[0];
+
+    // IDs of filters with listeners, indexed by all of their deep dependencies (including themselves)
+    private final Map<Filter, BitSet> dependentIds = new HashMap<>();
+
+    // Flattened form of the listeners table, rebuilt whenever a listener is registered
+    private Class<?>[] scopes;
+    private int[][] scopeFilterIds;
+    private ListenerSet[][] scopeListeners;
+
+    // Cached responses and pending invalidations for every known filterable
+    private final Map<Filterable<?>, FilterableState> states = new HashMap<>();
 
     // Filterables that need a check in the next tick (cleared every tick)
-    private final Set<Filterable<?>> dirtySet = new HashSet<>();
+    private final List<FilterableState> dirty = new ArrayList<>();
+
+    // Working state for tick(), reused to avoid allocation
+    private final List<FilterableState> checking = new ArrayList<>();
+    private final List<FilterableState> checked = new ArrayList<>();
+    private final BitSet queried = new BitSet();
+    private final BitSet beforeKnown = new BitSet();
+    private final BitSet beforeResponses = new BitSet();
+    private final DispatchBuffer dispatches = new DispatchBuffer();
+    private boolean ticking;
+
+    private final Runnable tickTask = this::tick;
+
+    /**
+     * Pending listener notifications, stored in parallel arrays that are reused between ticks
+     */
+    private class DispatchBuffer {
+        Filterable<?>[] filterables = new Filterable<?>[16];
+        ListenerSet[] listenerSets = new ListenerSet[16];
+        int[] ids = new int[16];
+        boolean[] responses = new boolean[16];
+        int size;
+
+        void add(Filterable<?> filterable, ListenerSet listenerSet, int filterId, boolean response) {
+            if(size == filterables.length) {
+                final int capacity = size * 2;
+                filterables = Arrays.copyOf(filterables, capacity);
+                listenerSets = Arrays.copyOf(listenerSets, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                responses = Arrays.copyOf(responses, capacity);
+            }
+            filterables[size] = filterable;
+            listenerSets[size] = listenerSet;
+            ids[size] = filterId;
+            responses[size] = response;
+            size++;
+        }
+
+        void run() {
+            for(int i = 0; i < size; i++) {
+                final Filterable<?> filterable = filterables[i];
+                final Filter filter = filters.get(ids[i]);
+                final boolean response = responses[i];
+                for(FilterListener<?> listener : response ? listenerSets[i].rise : listenerSets[i].fall) {
+                    dispatch((FilterListener) listener, filter, filterable, response);
+                }
+            }
+            Arrays.fill(filterables, 0, size, null);
+            Arrays.fill(listenerSets, 0, size, null);
+            size = 0;
+        }
+    }
+
+    private static int triggerMask(Set<Trigger> triggers) {
+        int mask = 0;
+        for(Trigger trigger : triggers) {
+            mask |= 1 << trigger.ordinal();
+        }
+        return mask;
+    }
+
+    private int filterId(Filter filter) {
+        final Integer id = filterIds.get(filter);
+        if(id != null) return id;
+
+        final int newId = filters.size();
+        filters.add(filter);
+        filterIds.put(filter, newId);
+
+        filterTriggers = Arrays.copyOf(filterTriggers, newId + 1);
+        filterTriggers[newId] = triggerMask(filter.deepTriggers());
+
+        filter.deepDependencies(Filter.class)
+              .forEach(dep -> dependentIds.computeIfAbsent(dep, d -> new BitSet()).set(newId));
+
+        return newId;
+    }
+
+    private FilterableState state(Filterable<?> filterable) {
+        FilterableState state = states.get(filterable);
+        if(state == null) {
+            states.put(filterable, state = new FilterableState(filterable));
+        }
+        return state;
+    }
 
     private <F extends Filterable<?>> void register(Class<F> scope, Filter filter, boolean response, FilterListener<? super F> listener) {
         if(match.isLoaded()) {
@@ -62,15 +188,45 @@ public class FilterMatchModule extends MatchModule implements Listener, FilterDi
         (response ? listenerSet.rise
                   : listenerSet.fall).add(listener);
 
+        final int filterId = filterId(filter);
+        scopes = null;
+
         match.filterableDescendants(scope)
              .forEach(filterable -> {
-                 final boolean last = lastResponse(filter, filterable);
+                 final boolean last = lastResponse(filterId, filterable);
                  if(last == response) {
                      dispatch(listener, filter, filterable, last);
                  }
              });
     }
 
+    /**
+     * Flatten the listener table into arrays, so checks don't need to iterate over its views
+     */
+    private void compileListeners() {
+        final Map<Class<? extends Filterable>, Map<Filter, ListenerSet>> columns = listeners.columnMap();
+        final int count = columns.size();
+
+        scopes = new Class<?>[count];
+        scopeFilterIds = new int[count][];
+        scopeListeners = new ListenerSet[count][];
+
+        int i = 0;
+        for(Map.Entry<Class<? extends Filterable>, Map<Filter, ListenerSet>> column : columns.entrySet()) {
+            scopes[i] = column.getKey();
+            scopeFilterIds[i] = new int[column.getValue().size()];
+            scopeListeners[i] = new ListenerSet[column.getValue().size()];
+
+            int j = 0;
+            for(Map.Entry<Filter, ListenerSet> entry : column.getValue().entrySet()) {
+                scopeFilterIds[i][j] = filterIds.get(entry.getKey());
+                scopeListeners[i][j] = entry.getValue();
+                j++;
+            }
+            i++;
+        }
+    }
+
     @Override
     public <F extends Filterable<?>> void onChange(Class<F> scope, Filter filter, FilterListener<? super F> listener) {
         logger.fine("onChange scope=" + scope.getSimpleName() + " listener=" + listener + " filter=" + filter);
@@ -105,8 +261,13 @@ public class FilterMatchModule extends MatchModule implements Listener, FilterDi
         onFall((Class) Filterable.class, filter, listener);
     }
 
-    private boolean lastResponse(Filter filter, Filterable<?> filterable) {
-        return MapUtils.computeIfAbsent(lastResponses.row(filter), filterable, filter::response);
+    private boolean lastResponse(int filterId, Filterable<?> filterable) {
+        final FilterableState state = state(filterable);
+        if(!state.known.get(filterId)) {
+            state.responses.set(filterId, filters.get(filterId).response(filterable));
+            state.known.set(filterId);
+        }
+        return state.responses.get(filterId);
     }
 
     private <F extends Filterable<?>> void dispatch(FilterListener<? super F> listener, Filter filter, F filterable, boolean response) {
@@ -119,84 +280,175 @@ public class FilterMatchModule extends MatchModule implements Listener, FilterDi
         listener.filterQueryChanged(filterable, response);
     }
 
-    private <F extends Filterable<?>, Q extends IQuery> void check(F filterable, Q query, List<Runnable> dispatches) {
-        final Map<Filter, Boolean> beforeCache = new HashMap<>();
-        final Map<Filter, Boolean> afterCache = lastResponses.column(filterable);
+    private void check(FilterableState state) {
+        final Filterable<?> filterable = state.filterable;
 
         // For each scope that the given filterable applies to
-        listeners.columnMap().forEach((scope, column) -> {
-            if(scope.isInstance(filterable)) {
-                // For each filter in this scope
-                column.forEach((filter, filterListeners) -> {
-                    final Boolean before;
-                    final boolean after;
-                    if(beforeCache.containsKey(filter)) {
-                        // If the filter has already been checked, we have both responses saved.
-                        before = beforeCache.get(filter);
-                        after = afterCache.get(filter);
+        for(int i = 0; i < scopes.length; i++) {
+            if(!scopes[i].isInstance(filterable)) continue;
+
+            // For each filter in this scope
+            final int[] ids = scopeFilterIds[i];
+            for(int j = 0; j < ids.length; j++) {
+                final int id = ids[j];
+                final boolean hadBefore, before, after;
+
+                if(queried.get(id)) {
+                    // If the filter has already been checked, we have both responses saved.
+                    hadBefore = beforeKnown.get(id);
+                    before = beforeResponses.get(id);
+                    after = state.responses.get(id);
+                } else if(state.known.get(id) && !state.isAffected(id, filterTriggers[id])) {
+                    // If nothing that the filter depends on has changed, its response can't have changed either.
+                    continue;
+                } else {
+                    // The first time a particular filter is checked, move the old response to
+                    // the temporary bitsets and save the new response to the permanent ones.
+                    hadBefore = state.known.get(id);
+                    before = state.responses.get(id);
+                    beforeKnown.set(id, hadBefore);
+                    beforeResponses.set(id, before);
+                    queried.set(id);
+
+                    after = filters.get(id).response(filterable);
+                    state.known.set(id);
+                    state.responses.set(id, after);
+                }
+
+                if(!hadBefore || before != after) {
+                    dispatches.add(filterable, scopeListeners[i][j], id, after);
+                }
+            }
+        }
+
+        queried.clear();
+        state.triggers = 0;
+        state.filters.clear();
+    }
+
+    @Repeatable(scope = MatchScope.LOADED)
+    public void tick() {
+        // Listeners might post another tick, which would be redundant since we loop until
+        // everything is checked, and would clobber the working state. Players that listeners
+        // move are checked again by this loop, see invalidateMovement.
+        if(ticking) return;
+        ticking = true;
+
+        try {
+            if(scopes == null) compileListeners();
+
+            for(;;) {
+                // Collect Filterables that are dirty, and have not already been checked in this tick
+                // unless they have moved since, remove them from the dirty list, and add them to the
+                // checked list.
+                checking.clear();
+                int kept = 0;
+                for(int i = 0; i < dirty.size(); i++) {
+                    final FilterableState state = dirty.get(i);
+                    if(state.checked && !state.moved) {
+                        dirty.set(kept++, state);
                     } else {
-                        // The first time a particular filter is checked, move the old response to
-                        // a local temporary cache and save the new response to the permanent cache.
-                        before = afterCache.get(filter);
-                        beforeCache.put(filter, before);
-                        after = filter.response(query);
-                        afterCache.put(filter, after);
+                        state.dirty = false;
+                        state.moved = false;
+                        if(!state.checked) {
+                            state.checked = true;
+                            checked.add(state);
+                        }
+                        checking.add(state);
                     }
+                }
+                for(int i = dirty.size() - 1; i >= kept; i--) {
+                    dirty.remove(i);
+                }
+                if(checking.isEmpty()) break;
 
-                    if(before == null || before != after) {
-                        dispatches.add(() -> {
-                            (after ? filterListeners.rise
-                                   : filterListeners.fall).forEach(listener -> dispatch((FilterListener<? super F>) listener, filter, filterable, after));
-                        });
-                    }
-                });
+                // Do all the filter checks and collect the notifications in a buffer to dispatch afterward.
+                // This prevents listeners from altering the results of filters for other listeners that
+                // were invalidated at the same time.
+                for(int i = 0; i < checking.size(); i++) {
+                    check(checking.get(i));
+                }
+
+                // The Listeners might invalidate more Filterables, which is why we have to loop around
+                // and empty the dirty list again after this. We keep looping until there is nothing more
+                // we can check in this tick. If they invalidate something that has already been checked
+                // in this tick, it will remain in the dirty list until the next tick, unless it moved.
+                dispatches.run();
+            }
+        } finally {
+            for(int i = 0; i < checked.size(); i++) {
+                checked.get(i).checked = false;
             }
-        });
+            checked.clear();
+            checking.clear();
+            ticking = false;
+        }
     }
 
-    private <F extends Filterable<?>, Q extends IQuery> void check(F filterable, Q query) {
-        final List<Runnable> dispatches = new ArrayList<>();
-        check(filterable, query, dispatches);
-        dispatches.forEach(Runnable::run);
+    private FilterableState markDirty(Filterable<?> filterable) {
+        final FilterableState state = state(filterable);
+        if(!state.dirty) {
+            state.dirty = true;
+            dirty.add(state);
+        }
+        return state;
     }
 
-    @Repeatable(scope = MatchScope.LOADED)
-    public void tick() {
-        final Set<Filterable<?>> checked = new HashSet<>();
-        for(;;) {
-            // Collect Filterables that are dirty, and have not already been checked in this tick
-            final Set<Filterable<?>> checking = ImmutableSet.copyOf(Sets.difference(dirtySet, checked));
-            if(checking.isEmpty()) break;
-
-            // Remove what we are about to check from the dirty set, and add them to the checked set
-            dirtySet.removeAll(checking);
-            checked.addAll(checking);
-
-            // Do all the filter checks and collect the notifications in a list to dispatch afterward.
-            // This prevents listeners from altering the results of filters for other listeners that
-            // were invalidated at the same time.
-            final List<Runnable> dispatches = new ArrayList<>();
-            checking.forEach(f -> check(f, f, dispatches));
-
-            // The Listeners might invalidate more Filterables, which is why we have to loop around
-            // and empty the dirtySet again after this. We keep looping until there is nothing more
-            // we can check in this tick. If they invalidate something that has already been checked
-            // in this tick, it will remain in the dirtySet until the next tick.
-            dispatches.forEach(Runnable::run);
+    private void invalidate(int triggers, Filterable<?> filterable) {
+        final FilterableState state = markDirty(filterable);
+        if((state.triggers | triggers) != state.triggers) {
+            state.triggers |= triggers;
+            filterable.filterableChildren().forEach(child -> invalidate(triggers, child));
         }
     }
 
-    public void invalidate(Filterable<?> filterable) {
-        if(dirtySet.add(filterable)) {
-            filterable.filterableChildren().forEach(this::invalidate);
+    private void invalidate(BitSet ids, Filterable<?> filterable) {
+        final FilterableState state = markDirty(filterable);
+        final int before = state.filters.cardinality();
+        state.filters.or(ids);
+        if(state.filters.cardinality() != before) {
+            filterable.filterableChildren().forEach(child -> invalidate(ids, child));
         }
     }
 
     /**
-     * TODO: optimize using the filter parameter
+     * Re-query the given {@link Filterable}, and all of its descendants, for filters
+     * that can be affected by any of the given kinds of change.
+     */
+    public void invalidate(Set<Trigger> triggers, Filterable<?> filterable) {
+        invalidate(triggerMask(triggers), filterable);
+    }
+
+    public void invalidate(Trigger trigger, Filterable<?> filterable) {
+        invalidate(1 << trigger.ordinal(), filterable);
+    }
+
+    /**
+     * Re-query the given {@link Filterable}, and all of its descendants, for every filter.
+     */
+    public void invalidate(Filterable<?> filterable) {
+        invalidate(Trigger.ALL, filterable);
+    }
+
+    /**
+     * Re-query the given {@link Filterable}, and all of its descendants, for filters that depend
+     * on the given filter. This is how filters signal changes that are not covered by {@link Filter#triggers()}.
      */
     public void invalidate(Filter filter, Filterable<?> filterable) {
-        invalidate(filterable);
+        final BitSet ids = dependentIds.get(filter);
+        if(ids != null) {
+            invalidate(ids, filterable);
+        }
+    }
+
+    /**
+     * Re-query the given {@link Filterable} for filters that can be affected by movement,
+     * in the current tick if one is running, even if it has already been checked in it.
+     * Call {@link #tick} afterward to check it immediately if no tick is running.
+     */
+    void invalidateMovement(Filterable<?> filterable) {
+        invalidate(Trigger.MOVEMENT, filterable);
+        state(filterable).moved = true;
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
@@ -204,71 +456,78 @@ public class FilterMatchModule extends MatchModule implements Listener, FilterDi
         // On movement events, check the player immediately instead of invalidating them.
         // We can't wait until the end of the tick because the player could move several
         // more times by then (i.e. if we received multiple packets from them in the same
-        // tick) which would make region checks highly unreliable.
-        match.player(event.getPlayer()).ifPresent(player -> {
-            invalidate(player);
-            match.getServer().postToMainThread(match.getPlugin(), true, this::tick);
-        });
+        // tick) which would make region checks highly unreliable. If a listener moved them
+        // during a tick, that tick checks them again before it returns.
+        final MatchPlayer player = match.getPlayer(event.getPlayer());
+        if(player != null) {
+            invalidateMovement(player);
+            match.getServer().postToMainThread(match.getPlugin(), true, tickTask);
+        }
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerDeath(MatchPlayerDeathEvent event) {
-        invalidate(event.getVictim());
-        event.onlineKiller().ifPresent(this::invalidate);
+        invalidate(Trigger.DEATH, event.getVictim());
+        event.onlineKiller().ifPresent(killer -> invalidate(Trigger.DEATH, killer));
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPartyChange(PlayerChangePartyEvent event) throws EventException {
         if(event.newParty().isPresent()) {
-            invalidate(event.getPlayer());
+            invalidate(Trigger.PARTY, event.getPlayer());
         } else {
             // Before a player leaves, force all filters false that are not already false.
             // So, all dynamic player filters are effectively wrapped in "___ and online",
             // and listeners don't need to do any cleanup as long as they don't hold on to
             // players that don't match the filter.
-            listeners.columnMap().forEach((scope, column) -> {
-                if(scope.isInstance(event.getPlayer())) {
-                    // For each filter in this scope
-                    column.forEach((filter, filterListeners) -> {
-                        // If player joined very recently, they may not have a cached response yet
-                        final Boolean response = lastResponses.get(filter, event.getPlayer());
-                        if(response != null && response) {
-                            filterListeners.fall.forEach(listener -> dispatch((FilterListener<? super MatchPlayer>) listener, filter, event.getPlayer(), false));
-                        }
-                    });
-                }
-            });
+            final FilterableState state = states.get(event.getPlayer());
+            if(state != null) {
+                listeners.columnMap().forEach((scope, column) -> {
+                    if(scope.isInstance(event.getPlayer())) {
+                        // For each filter in this scope
+                        column.forEach((filter, filterListeners) -> {
+                            // If player joined very recently, they may not have a cached response yet
+                            final int id = filterIds.get(filter);
+                            if(state.known.get(id) && state.responses.get(id)) {
+                                filterListeners.fall.forEach(listener -> dispatch((FilterListener<? super MatchPlayer>) listener, filter, event.getPlayer(), false));
+                            }
+                        });
+                    }
+                });
+            }
 
             event.yield();
 
             // Wait until after the event to remove them, in case they get invalidated during the event.
-            dirtySet.remove(event.getPlayer());
-            lastResponses.columnKeySet().remove(event.getPlayer());
+            final FilterableState removed = states.remove(event.getPlayer());
+            if(removed != null && removed.dirty) {
+                dirty.remove(removed);
+            }
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onMatchStateChange(MatchStateChangeEvent event) {
-        invalidate(match);
+        invalidate(Trigger.MATCH_STATE, match);
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onGoalComplete(GoalCompleteEvent event) {
-        invalidate(match);
+        invalidate(Trigger.GOAL, match);
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onFlagChange(FlagStateChangeEvent event) {
-        invalidate(match);
+        invalidate(Trigger.FLAG, match);
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onScoreChange(MatchScoreChangeEvent event) {
-        invalidate(match);
+        invalidate(Trigger.SCORE, match);
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onRankingsChange(RankingsChangeEvent event) {
-        invalidate(match);
+        invalidate(Trigger.RANKINGS, match);
     }
 }
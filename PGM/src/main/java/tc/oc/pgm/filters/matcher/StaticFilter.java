@@ -1,6 +1,7 @@
 package tc.oc.pgm.filters.matcher;
 
 import java.util.Optional;
+import java.util.Set;
 
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
@@ -24,6 +25,11 @@ public class StaticFilter extends Filter.Impl {
         return response.isPresent();
     }
 
+    @Override
+    public Set<Trigger> triggers() {
+        return Trigger.NONE;
+    }
+
     @Override
     public boolean respondsTo(Class<? extends IQuery> queryType) {
         return response.isPresent();
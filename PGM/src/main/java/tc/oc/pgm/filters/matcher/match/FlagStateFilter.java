@@ -1,7 +1,9 @@
 package tc.oc.pgm.filters.matcher.match;
 
 import java.util.Optional;
+import java.util.Set;
 
+import com.google.common.collect.Sets;
 import tc.oc.pgm.filters.matcher.TypedFilter;
 import tc.oc.pgm.filters.query.IMatchQuery;
 import tc.oc.pgm.flag.FlagDefinition;
@@ -35,6 +37,11 @@ public class FlagStateFilter extends TypedFilter.Impl<IMatchQuery> {
         return true;
     }
 
+    @Override
+    public Set<Trigger> triggers() {
+        return Sets.immutableEnumSet(Trigger.FLAG);
+    }
+
     @Override
     public boolean matches(IMatchQuery query) {
         final State current = query.feature(flag).state();
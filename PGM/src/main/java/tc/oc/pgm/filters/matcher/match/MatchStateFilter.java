@@ -3,7 +3,9 @@ package tc.oc.pgm.filters.matcher.match;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.Set;
 
+import com.google.common.collect.Sets;
 import tc.oc.commons.core.util.EnumSets;
 import tc.oc.pgm.filters.Filter;
 import tc.oc.pgm.filters.matcher.TypedFilter;
@@ -27,6 +29,11 @@ public class MatchStateFilter extends TypedFilter.Impl<IMatchQuery> {
         return true;
     }
 
+    @Override
+    public Set<Trigger> triggers() {
+        return Sets.immutableEnumSet(Trigger.MATCH_STATE);
+    }
+
     @Override
     public boolean matches(IMatchQuery query) {
         return states.contains(query.matchState());
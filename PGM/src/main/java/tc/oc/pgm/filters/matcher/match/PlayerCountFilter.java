@@ -43,6 +43,12 @@ public class PlayerCountFilter extends TypedFilter.Impl<IMatchQuery> implements
         return true;
     }
 
+    @Override
+    public Set<Trigger> triggers() {
+        // The Reactor invalidates this filter explicitly when the count changes
+        return Trigger.NONE;
+    }
+
     @Override
     public boolean matches(IMatchQuery query) {
         return query.feature(this).response();
@@ -88,7 +94,7 @@ public class PlayerCountFilter extends TypedFilter.Impl<IMatchQuery> implements
             }
 
             if(before != response()) {
-                fmm.invalidate(filterable.getMatch());
+                fmm.invalidate(getDefinition(), filterable.getMatch());
             }
         }
     }
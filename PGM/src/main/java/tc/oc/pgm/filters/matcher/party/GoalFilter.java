@@ -1,7 +1,9 @@
 package tc.oc.pgm.filters.matcher.party;
 
 import java.util.Optional;
+import java.util.Set;
 
+import com.google.common.collect.Sets;
 import tc.oc.pgm.filters.query.IMatchQuery;
 import tc.oc.pgm.goals.GoalDefinition;
 import tc.oc.pgm.match.Competitor;
@@ -28,6 +30,11 @@ public class GoalFilter extends CompetitorFilter {
         return true;
     }
 
+    @Override
+    public Set<Trigger> triggers() {
+        return Sets.immutableEnumSet(Trigger.GOAL, Trigger.PARTY);
+    }
+
     public boolean matches(IMatchQuery query, Optional<Competitor> competitor) {
         return goal.getGoal(query.getMatch()).isCompleted(competitor);
     }
@@ -1,6 +1,9 @@
 package tc.oc.pgm.filters.matcher.party;
 
+import java.util.Set;
+
 import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
 import tc.oc.pgm.filters.query.IMatchQuery;
 import tc.oc.pgm.match.Competitor;
 import tc.oc.pgm.score.ScoreMatchModule;
@@ -21,6 +24,11 @@ public class ScoreFilter extends CompetitorFilter {
         return true;
     }
 
+    @Override
+    public Set<Trigger> triggers() {
+        return Sets.immutableEnumSet(Trigger.SCORE, Trigger.PARTY);
+    }
+
     @Override
     public boolean matches(IMatchQuery query, Competitor competitor) {
         return competitor.getMatch()
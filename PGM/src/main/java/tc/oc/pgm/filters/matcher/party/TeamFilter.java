@@ -1,5 +1,8 @@
 package tc.oc.pgm.filters.matcher.party;
 
+import java.util.Set;
+
+import com.google.common.collect.Sets;
 import tc.oc.pgm.filters.matcher.TypedFilter;
 import tc.oc.pgm.filters.query.IPartyQuery;
 import tc.oc.pgm.match.Party;
@@ -21,6 +24,11 @@ public class TeamFilter extends TypedFilter.Impl<IPartyQuery> {
         return true;
     }
 
+    @Override
+    public Set<Trigger> triggers() {
+        return Sets.immutableEnumSet(Trigger.PARTY);
+    }
+
     @Override
     public boolean matches(IPartyQuery query) {
         final Party party = query.getParty();
@@ -1,5 +1,8 @@
 package tc.oc.pgm.filters.matcher.player;
 
+import java.util.Set;
+
+import com.google.common.collect.Sets;
 import tc.oc.pgm.filters.Filter;
 import tc.oc.pgm.filters.matcher.StaticFilter;
 import tc.oc.pgm.filters.matcher.TypedFilter;
@@ -25,6 +28,11 @@ public class ParticipatingFilter extends TypedFilter.Impl<IPartyQuery> {
         return true;
     }
 
+    @Override
+    public Set<Trigger> triggers() {
+        return Sets.immutableEnumSet(Trigger.PARTY, Trigger.MATCH_STATE);
+    }
+
     @Override
     public boolean matches(IPartyQuery query) {
         return query.isParticipating() == participating;
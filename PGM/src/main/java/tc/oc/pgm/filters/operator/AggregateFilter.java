@@ -1,5 +1,7 @@
 package tc.oc.pgm.filters.operator;
 
+import java.util.Set;
+
 import tc.oc.pgm.filters.Filter;
 import tc.oc.pgm.filters.FilterTypeException;
 import tc.oc.pgm.filters.query.IQuery;
@@ -43,4 +45,9 @@ public abstract class AggregateFilter extends MultiFilterFunction {
     public boolean isDynamic() {
         return !filters.isEmpty();
     }
+
+    @Override
+    public Set<Trigger> triggers() {
+        return Trigger.NONE;
+    }
 }
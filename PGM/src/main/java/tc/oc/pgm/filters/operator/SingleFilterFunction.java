@@ -1,5 +1,6 @@
 package tc.oc.pgm.filters.operator;
 
+import java.util.Set;
 import java.util.stream.Stream;
 
 import tc.oc.pgm.filters.Filter;
@@ -42,6 +43,11 @@ public abstract class SingleFilterFunction extends Filter.Impl {
         return true;
     }
 
+    @Override
+    public Set<Trigger> triggers() {
+        return Trigger.NONE;
+    }
+
     @Override
     public String toString() {
         return inspect();
@@ -1,6 +1,7 @@
 package tc.oc.pgm.filters.operator;
 
 import java.util.Optional;
+import java.util.Set;
 
 import tc.oc.pgm.filters.matcher.TypedFilter;
 import tc.oc.pgm.filters.matcher.party.CompetitorFilter;
@@ -47,6 +48,11 @@ public class TeamFilterAdapter extends TypedFilter.Impl<IMatchQuery> {
         return filter.isDynamic();
     }
 
+    @Override
+    public Set<Trigger> triggers() {
+        return filter.deepTriggers();
+    }
+
     @Override
     public boolean matches(IMatchQuery query) {
         return team.isPresent() ? query.module(TeamMatchModule.class)
@@ -1,6 +1,8 @@
 package tc.oc.pgm.filters.operator;
 
+import java.util.EnumSet;
 import java.util.Optional;
+import java.util.Set;
 
 import tc.oc.commons.core.reflect.TypeParameterCache;
 import tc.oc.pgm.filters.Filter;
@@ -39,6 +41,14 @@ public abstract class TransformedFilter<Q extends IQuery, R extends IQuery> exte
         filter.assertRespondsTo(innerQueryType);
     }
 
+    @Override
+    public Set<Trigger> triggers() {
+        // The transformation usually depends on the party of the query
+        final Set<Trigger> triggers = EnumSet.of(Trigger.PARTY);
+        triggers.addAll(filter.deepTriggers());
+        return triggers;
+    }
+
     @Override
     public QueryResponse queryTyped(Q query) {
         return transformQuery(query).map(filter::query)
@@ -63,6 +63,7 @@ import tc.oc.commons.core.reflect.Methods;
 import tc.oc.pgm.PGM;
 import tc.oc.pgm.blockdrops.BlockDropsMatchModule;
 import tc.oc.pgm.events.BlockTransformEvent;
+import tc.oc.pgm.events.BulkBlockTransformEvent;
 import tc.oc.pgm.events.ParticipantBlockTransformEvent;
 import tc.oc.pgm.events.PlayerBlockTransformEvent;
 import tc.oc.pgm.match.Match;
@@ -89,6 +90,7 @@ public class BlockTransformListener implements PluginFacet, Listener {
     private final EntityResolver entityResolver;
 
     private final ListMultimap<Event, BlockTransformEvent> currentEvents = ArrayListMultimap.create();
+    private final Map<Event, BulkBlockTransformEvent> currentBulkEvents = new HashMap<>();
 
     @Inject BlockTransformListener(Loggers loggers, EventBus eventBus, EventRegistry eventRegistry, MatchManager matchFinder, @Proxied BlockResolver blockResolver, @Proxied EntityResolver entityResolver) {
         this.logger = loggers.get(getClass());
@@ -129,6 +131,12 @@ public class BlockTransformListener implements PluginFacet, Listener {
                     // Check for cached events and dispatch them at the current priority level only.
                     // The BTE needs to be dispatched even after it's cancelled, because we DO have
                     // listeners that depend on receiving cancelled events e.g. WoolMatchModule.
+                    // Bulk events are dispatched first, so their handlers can prepare for the individual events.
+                    final BulkBlockTransformEvent bulk = currentBulkEvents.get(event);
+                    if(bulk != null) {
+                        eventBus.callEvent(bulk, priority);
+                    }
+
                     for(BlockTransformEvent bte : currentEvents.get(event)) {
                         eventBus.callEvent(bte, priority);
                     }
@@ -145,6 +153,7 @@ public class BlockTransformListener implements PluginFacet, Listener {
 
     private void finishCauseEvent(Event causeEvent) {
         List<BlockTransformEvent> wrapperEvents = currentEvents.removeAll(causeEvent);
+        currentBulkEvents.remove(causeEvent);
 
         for(BlockTransformEvent bte : wrapperEvents) {
             processCancelMessage(bte);
@@ -167,6 +176,16 @@ public class BlockTransformListener implements PluginFacet, Listener {
         currentEvents.put(event.getCause(), event);
     }
 
+    /**
+     * Group all of the events generated so far for the given cause into a {@link BulkBlockTransformEvent}
+     */
+    private void callBulkEvent(Event cause) {
+        final List<BlockTransformEvent> events = currentEvents.get(cause);
+        if(!events.isEmpty()) {
+            currentBulkEvents.put(cause, new BulkBlockTransformEvent(cause, events));
+        }
+    }
+
     private @Nullable Player getPlayerActor(Event event) {
         if(event instanceof EntityAction) {
             final EntityAction entityAction = (EntityAction) event;
@@ -323,6 +342,8 @@ public class BlockTransformListener implements PluginFacet, Listener {
                 callEvent(event, block.getState(), BlockStateUtils.toAir(block), playerState).setPropagateCancel(false);
             }
         }
+
+        callBulkEvent(event);
     }
 
     private void finishEntityExplode(EntityExplodeEvent causeEvent, Collection<BlockTransformEvent> wrapperEvents) {
@@ -385,6 +406,8 @@ public class BlockTransformListener implements PluginFacet, Listener {
         for(BlockState newState : newStates.values()) {
             this.callEvent(new BlockTransformEvent(event, newState.getBlock().getState(), newState));
         }
+
+        callBulkEvent(event);
     }
 
     private void finishPistonMove(BlockPistonEvent causeEvent, Collection<BlockTransformEvent> wrapperEvents) {
@@ -10,5 +10,10 @@ public interface MapConfiguration {
     Map<String, Boolean> environment();
     boolean autoReload();
     boolean reloadWhenError();
+    boolean watchFiles();
+    boolean cacheDocuments();
+    int contextCacheSize();
+    int contextCacheRotationWindow();
+    int loadThreads();
     List<MapSource> sources();
 }
@@ -0,0 +1,135 @@
+package tc.oc.pgm.map;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.collect.ImmutableSet;
+import tc.oc.commons.core.logging.Loggers;
+
+/**
+ * Decides which {@link MapDefinition}s keep their {@link MapModuleContext} in memory.
+ *
+ * Pinned maps, normally the current map and the next few maps in the rotation, always
+ * keep their contexts. Of the remaining maps, only the most recently used ones do,
+ * up to {@link MapConfiguration#contextCacheSize()}. When a map is evicted, its context
+ * is released, and it will be reparsed the next time it is needed.
+ *
+ * This replaces soft references, which let the garbage collector drop contexts
+ * unpredictably, including the context of the map about to be cycled to.
+ */
+@Singleton
+public class MapContextCache {
+
+    private final Logger logger;
+    private final MapConfiguration configuration;
+
+    // Unpinned maps with a context, in access order
+    private final LinkedHashMap<MapDefinition, Boolean> recent = new LinkedHashMap<>(16, 0.75f, true);
+    private Set<MapDefinition> pinned = ImmutableSet.of();
+
+    private long evictions;
+
+    // While greater than zero, nothing is evicted
+    private int holds;
+
+    @Inject MapContextCache(Loggers loggers, MapConfiguration configuration) {
+        this.logger = loggers.get(getClass());
+        this.configuration = configuration;
+    }
+
+    /**
+     * Called when the given map gets a new context
+     */
+    synchronized void loaded(MapDefinition map) {
+        touch(map);
+    }
+
+    /**
+     * Called when a map is reloaded after its context was evicted
+     */
+    void reloaded(MapDefinition map, long nanos, long previousNanos) {
+        logger.info("Reloaded evicted context of " + map.getName() + " in " + TimeUnit.NANOSECONDS.toMillis(nanos) +
+                    "ms (previous load took " + TimeUnit.NANOSECONDS.toMillis(previousNanos) + "ms)" +
+                    (isPinned(map) ? ", the map is pinned" : ""));
+    }
+
+    /**
+     * Called when the given map's context is accessed
+     */
+    synchronized void touch(MapDefinition map) {
+        if(!pinned.contains(map)) {
+            recent.put(map, true);
+            evictExcess();
+        }
+    }
+
+    /**
+     * Pin the given maps, replacing any previously pinned maps. Maps that are
+     * no longer pinned become the most recently used of the unpinned maps.
+     *
+     * @return the given maps that do not currently have a context, and should be restored
+     */
+    public synchronized Set<MapDefinition> pin(Collection<? extends MapDefinition> maps) {
+        final Set<MapDefinition> previous = pinned;
+        pinned = ImmutableSet.copyOf(maps);
+
+        for(MapDefinition map : previous) {
+            if(!pinned.contains(map) && map.hasContext()) {
+                recent.put(map, true);
+            }
+        }
+
+        final ImmutableSet.Builder<MapDefinition> unloaded = ImmutableSet.builder();
+        for(MapDefinition map : pinned) {
+            recent.remove(map);
+            if(!map.hasContext()) unloaded.add(map);
+        }
+
+        evictExcess();
+        return unloaded.build();
+    }
+
+    /**
+     * Stop evicting contexts until {@link #release} is called. This is used while loading
+     * the map library, so that the maps about to be pinned are not evicted before they are.
+     * Calls can be nested.
+     */
+    public synchronized void hold() {
+        holds++;
+    }
+
+    /**
+     * Undo a call to {@link #hold}, and evict any excess contexts if there are no more holds
+     */
+    public synchronized void release() {
+        if(holds <= 0) throw new IllegalStateException("Not held");
+        if(--holds == 0) evictExcess();
+    }
+
+    public synchronized boolean isPinned(MapDefinition map) {
+        return pinned.contains(map);
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    private void evictExcess() {
+        if(holds > 0) return;
+        final int limit = Math.max(0, configuration.contextCacheSize());
+        for(Iterator<MapDefinition> it = recent.keySet().iterator(); recent.size() > limit && it.hasNext();) {
+            final MapDefinition map = it.next();
+            it.remove();
+            map.evictContext();
+            evictions++;
+            logger.info("Evicted context of " + map.getName() + ", which took " + TimeUnit.NANOSECONDS.toMillis(map.loadNanos()) +
+                        "ms to load (" + evictions + " evictions so far, keeping " + limit + " unpinned contexts)");
+        }
+    }
+}
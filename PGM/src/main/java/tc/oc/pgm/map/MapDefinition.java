@@ -1,17 +1,18 @@
 package tc.oc.pgm.map;
 
 import java.io.IOException;
-import java.lang.ref.SoftReference;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Provider;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
@@ -44,6 +45,8 @@ public class MapDefinition {
     @Inject private Provider<MapPersistentContext> persistentContextProvider;
     @Inject private ExceptionHandler exceptionHandler;
     @Inject private MapInjectionScope mapInjectionScope;
+    @Inject private MapFileWatcher fileWatcher;
+    @Inject private MapContextCache contextCache;
 
     private MapLogger logger;
     @Inject void init(MapLogger.Factory loggerFactory) {
@@ -52,9 +55,23 @@ public class MapDefinition {
 
     private final MapFolder folder;
 
-    protected @Nullable SoftReference<MapModuleContext> context;
+    // Null if the map has never loaded, or the context was evicted from the MapContextCache
+    private volatile @Nullable MapModuleContext context;
     private @Nullable MapPersistentContext persistentContext;
 
+    // Files that the current context was loaded from, and their stamps, which are kept
+    // when the context is evicted, so that changes can still be detected without it
+    private volatile Map<Path, HashCode> loadedFiles = ImmutableMap.of();
+    private final Map<Path, MapFileStamp> loadedFileStamps = new ConcurrentHashMap<>();
+
+    // Time taken by the last successful reload, and whether the context has been evicted since
+    private long loadNanos;
+    private volatile boolean evicted;
+
+    // True if the loaded files are being watched for changes, and dirty is set when they change
+    private volatile boolean watched;
+    private volatile boolean dirty;
+
     protected MapDefinition(MapFolder folder) {
         this.folder = folder;
     }
@@ -81,14 +98,45 @@ public class MapDefinition {
     }
 
     public boolean isLoaded() {
-        return context != null;
+        return persistentContext != null;
     }
 
+    /**
+     * Return the map's context, or empty if the map has been evicted from
+     * the {@link MapContextCache} and needs to be reloaded.
+     */
     public Optional<MapModuleContext> getContext() {
-        if(context == null) {
+        if(!isLoaded()) {
             throw new IllegalStateException("Map is not loaded: " + this);
         }
-        return Optional.ofNullable(context.get());
+        final MapModuleContext context = this.context;
+        if(context != null) contextCache.touch(this);
+        return Optional.ofNullable(context);
+    }
+
+    /**
+     * Does the map have a context in memory? If it is loaded and this returns false,
+     * the context was evicted, and can be restored with {@link #restore}.
+     */
+    public boolean hasContext() {
+        return context != null;
+    }
+
+    /**
+     * Time taken to parse the current or most recently evicted context
+     */
+    long loadNanos() {
+        return loadNanos;
+    }
+
+    /**
+     * Release the context, called by the {@link MapContextCache}
+     */
+    void evictContext() {
+        if(context != null) {
+            context = null;
+            evicted = true;
+        }
     }
 
     public MapPersistentContext getPersistentContext() {
@@ -98,17 +146,34 @@ public class MapDefinition {
         return persistentContext;
     }
 
+    /**
+     * Have any of the map's files changed since it was last loaded? This does not depend on
+     * the context, so a map whose context was evicted only needs a reload if its files changed.
+     */
     public boolean shouldReload() {
-        if(context == null) return true;
+        if(!isLoaded()) return true;
         if(!configuration.autoReload()) return false;
-        MapModuleContext mapContext = context.get();
-        if(mapContext == null) return true;
-        if(mapContext.loadedFiles().isEmpty()) return configuration.reloadWhenError();
+
+        final Map<Path, HashCode> loadedFiles = this.loadedFiles;
+        if(loadedFiles.isEmpty()) return configuration.reloadWhenError();
+
+        // If nothing has changed since the last check, there is no need to look at the files
+        if(watched && !dirty) return false;
+        dirty = false;
 
         try {
-            for(Map.Entry<Path, HashCode> loaded : mapContext.loadedFiles().entrySet()) {
-                HashCode latest = Files.hash(loaded.getKey().toFile(), Hashing.sha256());
+            for(Map.Entry<Path, HashCode> loaded : loadedFiles.entrySet()) {
+                final Path path = loaded.getKey();
+
+                // Only hash files that look like they have changed
+                final MapFileStamp stamp = MapFileStamp.of(path);
+                if(stamp.equals(loadedFileStamps.get(path))) continue;
+
+                HashCode latest = Files.hash(path.toFile(), Hashing.sha256());
                 if(!latest.equals(loaded.getValue())) return true;
+
+                // Same contents, so remember the new stamp to avoid hashing it again
+                loadedFileStamps.put(path, stamp);
             }
 
             return false;
@@ -117,25 +182,81 @@ public class MapDefinition {
         }
     }
 
-    public boolean reload() throws MapNotFoundException {
-        List<? extends ModuleLoadException> errors;
+    /**
+     * Notify this map that one of its files may have changed
+     */
+    void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * The outcome of parsing a map, which does not affect the map until it is passed to {@link #apply}
+     */
+    public static class Parse {
+        private final @Nullable MapModuleContext context;
+        private final @Nullable Throwable exception;
+        private final long nanos;
+
+        private Parse(@Nullable MapModuleContext context, @Nullable Throwable exception, long nanos) {
+            this.context = context;
+            this.exception = exception;
+            this.nanos = nanos;
+        }
 
+        public long nanos() {
+            return nanos;
+        }
+    }
+
+    /**
+     * Parse the map's XML into a new {@link MapModuleContext}, without changing the state of the map.
+     *
+     * This is safe to call from any thread. Each parse happens in its own {@link MapInjectionScope} store,
+     * and module parsing only reads from the server, through the immutable registries and the item factory.
+     * Anything that must happen on the main thread, i.e. watching files, updating the {@link MapContextCache},
+     * handling exceptions, and logging errors, is done by {@link #apply}. Any records logged to the
+     * {@link MapLogger} while parsing should be collected with {@link MapLogger#deferring}.
+     *
+     * @throws MapNotFoundException if the map was not found at its source
+     */
+    public Parse parse() throws MapNotFoundException {
+        final long start = System.nanoTime();
         try {
             final MapModuleContext newContext = mapInjectionScope.withNewStore(this, () -> {
                 final MapModuleContext context = unwrappingExceptions(ModuleLoadException.class, contextProvider);
                 context.load();
                 return context;
             });
+            return new Parse(newContext, null, System.nanoTime() - start);
+        } catch(MapNotFoundException e) {
+            throw e;
+        } catch(Throwable e) {
+            return new Parse(null, e, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Replace the map's context with the result of the given {@link #parse}, if it succeeded,
+     * or log its errors. Must be called on the main thread.
+     */
+    public boolean apply(Parse parse) {
+        List<? extends ModuleLoadException> errors;
+
+        // If the reload fails, the previous files are no longer watched reliably,
+        // e.g. an include may have been added, so fall back to checking them all.
+        this.watched = false;
+
+        try {
+            if(parse.exception != null) throw parse.exception;
+            final MapModuleContext newContext = parse.context;
 
             if(!newContext.hasErrors()) {
-                this.context = new SoftReference<>(newContext);
                 this.persistentContext = newContext.asCurrentScope(persistentContextProvider::get);
+                install(newContext, parse.nanos);
                 return true;
             }
 
             errors = newContext.getErrors();
-        } catch(MapNotFoundException e) {
-            throw e;
         } catch(UnsupportedMapProtocolException e) {
             logger.warning("Skipping map with unsupported proto " + e.getProto());
             errors = ImmutableList.of();
@@ -152,4 +273,47 @@ public class MapDefinition {
 
         return false;
     }
+
+    /**
+     * Restore the context of a map that was evicted from the {@link MapContextCache}, from a {@link #parse}
+     * made after the eviction. Must be called on the main thread.
+     *
+     * If the map was parsed from the same files as its previous context, only the context is replaced.
+     * Anything derived from the persistent context, like the API document, is unaffected. Otherwise,
+     * the files have changed since the eviction, and the parse is passed to {@link #apply} as usual.
+     */
+    public boolean restore(Parse parse) {
+        final MapModuleContext newContext = parse.context;
+        if(isLoaded() && newContext != null && !newContext.hasErrors() && newContext.loadedFiles().equals(loadedFiles)) {
+            install(newContext, parse.nanos);
+            return true;
+        }
+        return apply(parse);
+    }
+
+    private void install(MapModuleContext newContext, long nanos) {
+        this.dirty = false;
+        this.watched = fileWatcher.watch(this, newContext.loadedFiles().keySet());
+        this.loadedFiles = ImmutableMap.copyOf(newContext.loadedFiles());
+        this.loadedFileStamps.clear();
+        this.loadedFileStamps.putAll(newContext.loadedFileStamps());
+        this.context = newContext;
+        contextCache.loaded(this);
+
+        final long previousNanos = loadNanos;
+        loadNanos = nanos;
+        if(evicted) {
+            evicted = false;
+            contextCache.reloaded(this, loadNanos, previousNanos);
+        }
+    }
+
+    /**
+     * Parse and apply the map on the current thread
+     *
+     * @throws MapNotFoundException if the map was not found at its source
+     */
+    public boolean reload() throws MapNotFoundException {
+        return apply(parse());
+    }
 }
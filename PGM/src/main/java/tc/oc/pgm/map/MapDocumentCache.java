@@ -0,0 +1,208 @@
+package tc.oc.pgm.map;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import org.jdom2.Document;
+import tc.oc.commons.core.logging.Loggers;
+
+/**
+ * On-disk cache of preprocessed map documents, i.e. the result of {@link MapFilePreprocessor#readRootDocument},
+ * with all includes and conditionals expanded.
+ *
+ * Each entry is keyed by the path of the root document, and records the content hash of
+ * every file that went into it, and a fingerprint of the configuration that affects
+ * preprocessing. An entry is only used if all of those still match, so changing any
+ * file invalidates it. Files are only hashed if their {@link MapFileStamp} has changed.
+ *
+ * Documents are stored with Java serialization, which JDOM supports, and which preserves
+ * the line numbers used for error messages. Loading one is much faster than parsing XML.
+ * Any entry that cannot be read for any reason is deleted, and the map is parsed normally.
+ */
+@Singleton
+public class MapDocumentCache {
+
+    // Increment this whenever the entry format or the preprocessing logic changes
+    private static final int FORMAT_VERSION = 1;
+
+    public static class Entry {
+        private final Document document;
+        private final Map<Path, HashCode> files;
+        private final Map<Path, MapFileStamp> stamps;
+
+        private Entry(Document document, Map<Path, HashCode> files, Map<Path, MapFileStamp> stamps) {
+            this.document = document;
+            this.files = files;
+            this.stamps = stamps;
+        }
+
+        public Document document() {
+            return document;
+        }
+
+        public Map<Path, HashCode> files() {
+            return files;
+        }
+
+        public Map<Path, MapFileStamp> stamps() {
+            return stamps;
+        }
+    }
+
+    private final Logger logger;
+    private final MapConfiguration configuration;
+    private final Path folder;
+
+    @Inject MapDocumentCache(Loggers loggers, MapConfiguration configuration, @Named("pluginData") Path pluginDataFolder) {
+        this.logger = loggers.get(getClass());
+        this.configuration = configuration;
+        this.folder = pluginDataFolder.resolve("map-cache");
+    }
+
+    private Path entryPath(Path rootFile) {
+        return folder.resolve(Hashing.sha1().hashString(rootFile.toAbsolutePath().toString(), StandardCharsets.UTF_8) + ".bin");
+    }
+
+    /**
+     * Return the cached document for the given root file, if there is a valid entry
+     * for it that was created with the given configuration fingerprint.
+     */
+    public Optional<Entry> load(Path rootFile, String fingerprint) {
+        if(!configuration.cacheDocuments()) return Optional.empty();
+
+        final Path entryPath = entryPath(rootFile);
+        if(!Files.isRegularFile(entryPath)) return Optional.empty();
+
+        try(ObjectInputStream in = new DocumentInputStream(new BufferedInputStream(Files.newInputStream(entryPath)))) {
+            if(in.readInt() != FORMAT_VERSION ||
+               !rootFile.toAbsolutePath().toString().equals(in.readUTF()) ||
+               !fingerprint.equals(in.readUTF())) {
+                return invalidate(entryPath, "different version or configuration");
+            }
+
+            final Map<Path, HashCode> files = new HashMap<>();
+            final Map<Path, MapFileStamp> stamps = new HashMap<>();
+            for(int count = in.readInt(); count > 0; count--) {
+                final Path path = Paths.get(in.readUTF());
+                final MapFileStamp stamp = in.readBoolean() ? MapFileStamp.of(in.readLong(), in.readLong()) : null;
+                final byte[] hash = new byte[in.readInt()];
+                in.readFully(hash);
+                final HashCode expected = HashCode.fromBytes(hash);
+
+                // Only hash the file if its stamp has changed
+                final MapFileStamp current = MapFileStamp.of(path);
+                if(!current.equals(stamp)) {
+                    if(!expected.equals(com.google.common.io.Files.hash(path.toFile(), Hashing.sha256()))) {
+                        return invalidate(entryPath, "changed file " + path);
+                    }
+                }
+
+                files.put(path, expected);
+                stamps.put(path, current);
+            }
+
+            final Document document = (Document) in.readObject();
+            logger.fine(() -> "Loaded cached document for " + rootFile);
+            return Optional.of(new Entry(document, files, stamps));
+
+        } catch(IOException | ClassNotFoundException | ClassCastException e) {
+            return invalidate(entryPath, e.toString());
+        }
+    }
+
+    /**
+     * Store the given preprocessed document for the given root file
+     */
+    public void save(Path rootFile, String fingerprint, Document document, Map<Path, HashCode> files, Map<Path, MapFileStamp> stamps) {
+        if(!configuration.cacheDocuments()) return;
+
+        final Path entryPath = entryPath(rootFile);
+        try {
+            Files.createDirectories(folder);
+            final Path temp = Files.createTempFile(folder, entryPath.getFileName().toString(), ".tmp");
+            try {
+                try(ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeUTF(rootFile.toAbsolutePath().toString());
+                    out.writeUTF(fingerprint);
+
+                    out.writeInt(files.size());
+                    for(Map.Entry<Path, HashCode> file : files.entrySet()) {
+                        out.writeUTF(file.getKey().toAbsolutePath().toString());
+                        final @Nullable MapFileStamp stamp = stamps.get(file.getKey());
+                        out.writeBoolean(stamp != null);
+                        if(stamp != null) {
+                            out.writeLong(stamp.modified());
+                            out.writeLong(stamp.size());
+                        }
+                        final byte[] hash = file.getValue().asBytes();
+                        out.writeInt(hash.length);
+                        out.write(hash);
+                    }
+
+                    out.writeObject(document);
+                }
+                Files.move(temp, entryPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch(IOException e) {
+            logger.warning("Failed to cache document for " + rootFile + ": " + e);
+        }
+    }
+
+    private Optional<Entry> invalidate(Path entryPath, String reason) {
+        logger.fine(() -> "Discarding cached document " + entryPath + " (" + reason + ")");
+        try {
+            Files.deleteIfExists(entryPath);
+        } catch(IOException e) {
+            logger.warning("Failed to delete cached document " + entryPath + ": " + e);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Only allows the classes that can appear in a document to be deserialized
+     */
+    private static class DocumentInputStream extends ObjectInputStream {
+        DocumentInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            final String name = desc.getName();
+            // Check the element type of arrays, primitive element types have a single letter name
+            final String element = name.replaceFirst("^\\[+L?", "").replaceFirst(";$", "");
+            if(!(element.length() == 1 ||
+                 element.startsWith("org.jdom2.") ||
+                 element.startsWith("tc.oc.pgm.xml.") ||
+                 element.startsWith("java.lang.") ||
+                 element.startsWith("java.util."))) {
+                throw new InvalidClassException(name, "Not allowed in a cached map document");
+            }
+            return Class.forName(name, false, MapDocumentCache.class.getClassLoader());
+        }
+    }
+}
@@ -9,7 +9,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Stack;
+import java.util.TreeMap;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -43,23 +45,56 @@ public class MapFilePreprocessor {
     private final Logger logger;
     private final MapConfiguration mapConfiguration;
     private final MapSource source;
+    private final MapDocumentCache documentCache;
     private final Stack<Path> includeStack = new Stack<>();
     private final Map<Path, HashCode> includedFiles = new HashMap<>();
+    private final Map<Path, MapFileStamp> includedFileStamps = new HashMap<>();
 
-    @Inject MapFilePreprocessor(@Assisted MapSource source, Loggers loggers, SAXBuilder builder, MapConfiguration mapConfiguration) {
+    // Set if anything was logged while preprocessing, which would be lost if the result was cached
+    private boolean warned;
+
+    @Inject MapFilePreprocessor(@Assisted MapSource source, Loggers loggers, SAXBuilder builder, MapConfiguration mapConfiguration, MapDocumentCache documentCache) {
         this.source = source;
         this.logger = loggers.get(getClass(), source.getPath().toString());
         this.builder = builder;
         this.mapConfiguration = mapConfiguration;
+        this.documentCache = documentCache;
     }
 
     public Map<Path, HashCode> getIncludedFiles() {
         return includedFiles;
     }
 
+    /**
+     * The stamps of the included files, taken before each file was read
+     */
+    public Map<Path, MapFileStamp> getIncludedFileStamps() {
+        return includedFileStamps;
+    }
+
+    /**
+     * A string that changes whenever the configuration that affects preprocessing changes
+     */
+    private String configurationFingerprint() {
+        return "global-includes=" + source.globalIncludes() +
+               " include-path=" + mapConfiguration.includePaths() +
+               " global-include-files=" + mapConfiguration.globalIncludes() +
+               " environment=" + new TreeMap<>(mapConfiguration.environment());
+    }
+
     public Document readRootDocument(Path file) throws InvalidXMLException {
         checkNotNull(file, "file");
 
+        final String fingerprint = configurationFingerprint();
+        final Optional<MapDocumentCache.Entry> cached = documentCache.load(file, fingerprint);
+        if(cached.isPresent()) {
+            includedFiles.putAll(cached.get().files());
+            includedFileStamps.putAll(cached.get().stamps());
+            final Document result = cached.get().document();
+            result.setBaseURI(source.getPath().relativize(file).toString());
+            return result;
+        }
+
         this.includeStack.clear();
 
         Document result = this.readDocument(file);
@@ -75,6 +110,10 @@ public class MapFilePreprocessor {
             }
         }
 
+        if(!warned) {
+            documentCache.save(file, fingerprint, result, includedFiles, includedFileStamps);
+        }
+
         return result;
     }
 
@@ -82,6 +121,13 @@ public class MapFilePreprocessor {
         final Path relativePath = source.getPath().relativize(absolutePath);
         Document doc;
 
+        try {
+            // Stamp the file before reading it, so that any change made while reading is detected later
+            includedFileStamps.put(absolutePath, MapFileStamp.of(absolutePath));
+        } catch(IOException e) {
+            // Leave it unstamped, and it will always be hashed
+        }
+
         try(HashingInputStream istream = new HashingInputStream(Hashing.sha256(), new FileInputStream(absolutePath.toFile()))) {
             doc = this.builder.build(istream);
             doc.setBaseURI(relativePath.toString());
@@ -148,6 +194,7 @@ public class MapFilePreprocessor {
         Object value = mapConfiguration.environment().get(key);
         if(value == null) {
             logger.warning("Unknown environment variable '" + key + "', using default value: false");
+            warned = true;
             value = false;
         }
         if(!type.isInstance(value)) {
@@ -0,0 +1,55 @@
+package tc.oc.pgm.map;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * The modification time and size of a map file, which can be compared
+ * much more cheaply than the contents of the file.
+ */
+public class MapFileStamp {
+
+    private final long modified;
+    private final long size;
+
+    private MapFileStamp(long modified, long size) {
+        this.modified = modified;
+        this.size = size;
+    }
+
+    static MapFileStamp of(long modified, long size) {
+        return new MapFileStamp(modified, size);
+    }
+
+    long modified() {
+        return modified;
+    }
+
+    long size() {
+        return size;
+    }
+
+    public static MapFileStamp of(Path path) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return new MapFileStamp(attributes.lastModifiedTime().toMillis(), attributes.size());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(!(obj instanceof MapFileStamp)) return false;
+        final MapFileStamp that = (MapFileStamp) obj;
+        return modified == that.modified && size == that.size;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(modified) * 31 + Long.hashCode(size);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{modified=" + modified + " size=" + size + "}";
+    }
+}
@@ -0,0 +1,81 @@
+package tc.oc.pgm.map;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import tc.oc.commons.core.logging.Loggers;
+import tc.oc.file.PathWatcher;
+import tc.oc.file.PathWatcherHandle;
+import tc.oc.file.PathWatcherService;
+
+/**
+ * Watches the files that each map was loaded from, and marks the map
+ * dirty when any of them change, so that {@link MapDefinition#shouldReload()}
+ * only has to examine the files of maps that might have actually changed.
+ */
+@Singleton
+public class MapFileWatcher {
+
+    private final Logger logger;
+    private final MapConfiguration configuration;
+    private final PathWatcherService watcherService;
+
+    private final Map<MapDefinition, List<PathWatcherHandle>> handles = new HashMap<>();
+
+    @Inject MapFileWatcher(Loggers loggers, MapConfiguration configuration, PathWatcherService watcherService) {
+        this.logger = loggers.get(getClass());
+        this.configuration = configuration;
+        this.watcherService = watcherService;
+    }
+
+    /**
+     * Watch the given files for changes, replacing any previous watches for the given map.
+     *
+     * @return true if all of the files are being watched, false if watching
+     *         is disabled, or any of the files could not be watched.
+     */
+    public synchronized boolean watch(MapDefinition map, Collection<Path> files) {
+        unwatch(map);
+        if(!configuration.autoReload() || !configuration.watchFiles() || files.isEmpty()) return false;
+
+        final PathWatcher callback = new PathWatcher() {
+            @Override public void fileCreated(Path path) { map.markDirty(); }
+            @Override public void fileModified(Path path) { map.markDirty(); }
+            @Override public void fileDeleted(Path path) { map.markDirty(); }
+        };
+
+        final List<PathWatcherHandle> mapHandles = new ArrayList<>(files.size());
+        try {
+            for(Path file : files) {
+                mapHandles.add(watcherService.watch(file, MoreExecutors.sameThreadExecutor(), callback));
+            }
+        } catch(IOException e) {
+            logger.log(Level.WARNING, "Failed to watch files of map " + map.getName() + ", falling back to polling", e);
+            mapHandles.forEach(PathWatcherHandle::cancel);
+            return false;
+        }
+
+        handles.put(map, mapHandles);
+        return true;
+    }
+
+    /**
+     * Stop watching the files of the given map
+     */
+    public synchronized void unwatch(MapDefinition map) {
+        final List<PathWatcherHandle> mapHandles = handles.remove(map);
+        if(mapHandles != null) {
+            mapHandles.forEach(PathWatcherHandle::cancel);
+        }
+    }
+}
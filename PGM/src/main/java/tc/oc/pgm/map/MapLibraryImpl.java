@@ -38,15 +38,17 @@ public class MapLibraryImpl implements MapLibrary {
 
     private final SyncExecutor syncExecutor;
     private final MapService mapService;
+    private final MapFileWatcher fileWatcher;
 
     protected final Map<MapId, PGMMap> mapsById = Maps.newHashMap();
     protected final Map<Path, PGMMap> mapsByPath = new HashMap<>();
     protected final SetMultimap<String, PGMMap> mapsByName = HashMultimap.create();
     protected final Logger logger;
 
-    @Inject MapLibraryImpl(Loggers loggers, SyncExecutor syncExecutor, MapService mapService) {
+    @Inject MapLibraryImpl(Loggers loggers, SyncExecutor syncExecutor, MapService mapService, MapFileWatcher fileWatcher) {
         this.syncExecutor = syncExecutor;
         this.mapService = mapService;
+        this.fileWatcher = fileWatcher;
         this.logger = loggers.get(getClass());
     }
 
@@ -89,6 +91,8 @@ public class MapLibraryImpl implements MapLibrary {
         PGMMap map = mapsByPath.remove(path);
         if(map == null) return false;
 
+        fileWatcher.unwatch(map);
+
         mapsById.remove(map.getId());
         mapsByName.remove(map.getName(), map);
         return true;
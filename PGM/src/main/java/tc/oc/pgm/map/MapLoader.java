@@ -1,10 +1,13 @@
 package tc.oc.pgm.map;
 
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 public interface MapLoader {
 
     List<PGMMap> loadNewMaps(Map<Path, PGMMap> loaded, Set<Path> added, Set<Path> updated, Set<Path> removed);
@@ -14,4 +17,18 @@ public interface MapLoader {
      * @throws MapNotFoundException if the map was not found at its source
      */
     boolean loadMap(PGMMap map) throws MapNotFoundException;
+
+    /**
+     * Restore the context of the given map, which was evicted from the {@link MapContextCache}.
+     * This only counts as a reload if the map's files have changed since it was last loaded.
+     * @throws MapNotFoundException if the map was not found at its source
+     */
+    boolean restoreMap(PGMMap map) throws MapNotFoundException;
+
+    /**
+     * Restore the evicted contexts of the given maps, parsing them in the background.
+     * The contexts are restored on the main thread, which is also where the returned future
+     * completes, with true if any of the maps had changed and need to be pushed.
+     */
+    ListenableFuture<Boolean> restoreMaps(Collection<PGMMap> maps);
 }
@@ -2,46 +2,119 @@ package tc.oc.pgm.map;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import tc.oc.commons.core.concurrent.ExecutorUtils;
+import tc.oc.commons.core.concurrent.FutureUtils;
 import tc.oc.commons.core.logging.Loggers;
+import tc.oc.commons.core.plugin.PluginFacet;
+import tc.oc.minecraft.scheduler.SyncExecutor;
 import tc.oc.pgm.development.MapErrorTracker;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 @Singleton
-public class MapLoaderImpl implements MapLoader {
+public class MapLoaderImpl implements MapLoader, PluginFacet {
+
+    private static final int SLOWEST_MAPS_LOGGED = 5;
 
     protected final Logger logger;
     protected final Path serverRoot;
     protected final MapConfiguration config;
     protected final PGMMap.Factory mapFactory;
     protected final MapErrorTracker mapErrorTracker;
+    protected final SyncExecutor syncExecutor;
+
+    // Restores evicted contexts in the background
+    private @Nullable ListeningExecutorService restoreExecutor;
 
-    @Inject MapLoaderImpl(Loggers loggers, @Named("serverRoot") Path serverRoot, MapConfiguration config, PGMMap.Factory mapFactory, MapErrorTracker mapErrorTracker) {
+    @Inject MapLoaderImpl(Loggers loggers, @Named("serverRoot") Path serverRoot, MapConfiguration config, PGMMap.Factory mapFactory, MapErrorTracker mapErrorTracker, SyncExecutor syncExecutor) {
         this.mapErrorTracker = mapErrorTracker;
+        this.syncExecutor = syncExecutor;
         this.logger = loggers.get(getClass());
         this.serverRoot = serverRoot;
         this.config = checkNotNull(config);
         this.mapFactory = mapFactory;
     }
 
+    @Override
+    public void enable() {
+        restoreExecutor = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("PGM Map Restorer").setDaemon(true).build()
+        ));
+    }
+
+    @Override
+    public void disable() {
+        if(restoreExecutor != null) {
+            ExecutorUtils.shutdownImpatiently(restoreExecutor, logger, Duration.ofSeconds(10));
+            restoreExecutor = null;
+        }
+    }
+
     @Override
     public boolean loadMap(PGMMap map) throws MapNotFoundException {
         mapErrorTracker.clearErrors(map);
         return map.reload();
     }
 
+    @Override
+    public boolean restoreMap(PGMMap map) throws MapNotFoundException {
+        mapErrorTracker.clearErrors(map);
+        return map.restore(map.parse());
+    }
+
+    @Override
+    public ListenableFuture<Boolean> restoreMaps(Collection<PGMMap> maps) {
+        final List<MapTask> tasks = maps.stream()
+                                        .map(map -> new MapTask(map.getFolder().getAbsolutePath(), map, false, true))
+                                        .collect(Collectors.toList());
+        if(tasks.isEmpty()) return Futures.immediateFuture(false);
+
+        final ListeningExecutorService executor = restoreExecutor;
+        final ListenableFuture<List<MapTask>> parsed = executor == null ? Futures.immediateFuture(tasks) : executor.submit(() -> {
+            tasks.forEach(MapTask::call);
+            return tasks;
+        });
+
+        return FutureUtils.mapSync(parsed, done -> {
+            // If the executor is not running, parse them here
+            if(executor == null) done.forEach(MapTask::call);
+
+            boolean changed = false;
+            for(MapTask task : done) {
+                task.apply();
+                changed |= task.reloaded && !task.map.isPushed();
+            }
+            return changed;
+        }, syncExecutor);
+    }
+
     @Override
     public List<PGMMap> loadNewMaps(Map<Path, PGMMap> loaded, Set<Path> added, Set<Path> updated, Set<Path> removed) {
         checkArgument(added.isEmpty());
@@ -49,28 +122,17 @@ public class MapLoaderImpl implements MapLoader {
 
         logger.fine("Loading maps...");
 
-        Set<Path> found = new HashSet<>();
-        List<PGMMap> maps = new ArrayList<>();
+        // Find all maps serially, in a deterministic order
+        final Set<Path> found = new HashSet<>();
+        final List<MapTask> tasks = new ArrayList<>();
 
         for(MapSource source : config.sources()) {
             try {
                 for(Path path : source.getMapFolders(logger)) {
-                    try {
-                        found.add(path);
-                        PGMMap map = loaded.get(path);
-                        if(map == null) {
-                            logger.fine("  ADDED " + path);
-                            added.add(path);
-
-                            map = mapFactory.create(new MapFolder(source, path));
-                            if(loadMap(map)) maps.add(map);
-                        } else if(map.shouldReload()) {
-                            logger.fine("  UPDATED " + path);
-                            updated.add(path);
-                            loadMap(map);
-                        }
-                    } catch(MapNotFoundException e) {
-                        // ignore - will be removed below
+                    if(found.add(path)) {
+                        final PGMMap map = loaded.get(path);
+                        tasks.add(map == null ? new MapTask(path, mapFactory.create(new MapFolder(source, path)), true)
+                                              : new MapTask(path, map, false));
                     }
                 }
             } catch(IOException e) {
@@ -78,6 +140,47 @@ public class MapLoaderImpl implements MapLoader {
             }
         }
 
+        // Parse them in parallel
+        final long start = System.nanoTime();
+        final int threads = Math.max(1, Math.min(config.loadThreads(), tasks.size()));
+        if(threads > 1) {
+            final ForkJoinPool pool = new ForkJoinPool(threads, this::newWorkerThread, null, false);
+            try {
+                // Tasks handle their own exceptions, so they always complete normally
+                pool.invokeAll(tasks);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading maps", e);
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            tasks.forEach(MapTask::call);
+        }
+        final long totalNanos = System.nanoTime() - start;
+
+        // Merge the results in the same order they were found
+        final List<PGMMap> maps = new ArrayList<>();
+        final List<MapTask> parsed = new ArrayList<>();
+
+        for(MapTask task : tasks) {
+            task.apply();
+
+            if(task.isNew) {
+                logger.fine("  ADDED " + task.path);
+                added.add(task.path);
+                if(task.result) maps.add(task.map);
+            } else if(task.reloaded) {
+                logger.fine("  UPDATED " + task.path);
+                updated.add(task.path);
+            }
+
+            if(task.reloaded) {
+                logger.fine("  Parsed " + task.map.getName() + " in " + TimeUnit.NANOSECONDS.toMillis(task.nanos) + "ms");
+                parsed.add(task);
+            }
+        }
+
         for(Path path : loaded.keySet()) {
             if(!found.contains(path)) {
                 logger.fine("  REMOVED " + path);
@@ -85,7 +188,106 @@ public class MapLoaderImpl implements MapLoader {
             }
         }
 
+        if(!parsed.isEmpty()) {
+            logParseTimes(parsed, found.size(), threads, totalNanos);
+        }
+
         logger.fine("Found " + found.size() + " maps, " + added.size() + " new, " + removed.size() + " removed");
         return maps;
     }
+
+    /**
+     * Log one line summarizing the time spent parsing, with the slowest maps.
+     * The time for every map is logged at FINE as it is applied.
+     */
+    private void logParseTimes(List<MapTask> parsed, int found, int threads, long wallNanos) {
+        final long parseNanos = parsed.stream().mapToLong(task -> task.nanos).sum();
+        final String slowest = parsed.stream()
+                                     .sorted(Comparator.comparingLong((MapTask task) -> task.nanos).reversed())
+                                     .limit(SLOWEST_MAPS_LOGGED)
+                                     .map(task -> task.map.getName() + " (" + TimeUnit.NANOSECONDS.toMillis(task.nanos) + "ms)")
+                                     .collect(Collectors.joining(", "));
+
+        logger.info("Parsed " + parsed.size() + " of " + found + " maps in " + TimeUnit.NANOSECONDS.toMillis(wallNanos) + "ms" +
+                    " (" + TimeUnit.NANOSECONDS.toMillis(parseNanos) + "ms total) using " + threads + " threads, slowest: " + slowest);
+    }
+
+    private ForkJoinWorkerThread newWorkerThread(ForkJoinPool pool) {
+        final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("PGM Map Loader " + thread.getPoolIndex());
+        // Map parsing may need to load plugin classes
+        thread.setContextClassLoader(getClass().getClassLoader());
+        return thread;
+    }
+
+    /**
+     * Checks and parses a single map, which is safe to do on any thread, see {@link MapDefinition#parse}.
+     * Log records are collected, and published later by {@link #apply} on the calling thread, along
+     * with the result of the parse, in the order the maps were found.
+     *
+     * A restoring task parses a map whose context was evicted, and restores it with {@link MapDefinition#restore},
+     * so it is only treated as a reload if the map's files have changed.
+     */
+    private class MapTask implements Callable<Void> {
+        final Path path;
+        final PGMMap map;
+        final boolean isNew;
+        final boolean restore;
+        final List<MapLogRecord> records = new ArrayList<>();
+
+        @Nullable MapDefinition.Parse parse;
+        @Nullable Throwable exception;
+
+        boolean reloaded;
+        boolean result;
+        long nanos;
+
+        MapTask(Path path, PGMMap map, boolean isNew) {
+            this(path, map, isNew, false);
+        }
+
+        MapTask(Path path, PGMMap map, boolean isNew, boolean restore) {
+            this.path = path;
+            this.map = map;
+            this.isNew = isNew;
+            this.restore = restore;
+        }
+
+        @Override
+        public Void call() {
+            final long start = System.nanoTime();
+            try {
+                MapLogger.deferring(records, () -> {
+                    if(restore ? !map.hasContext() : isNew || map.shouldReload()) {
+                        parse = map.parse();
+                    }
+                    return null;
+                });
+            } catch(MapNotFoundException e) {
+                // ignore - will be removed later
+            } catch(Throwable e) {
+                // Handled on the calling thread, so one broken map cannot stop the others from loading
+                exception = e;
+            }
+            nanos = System.nanoTime() - start;
+            return null;
+        }
+
+        void apply() {
+            // The context may have been restored some other way while this task was parsing it
+            if(restore && map.hasContext()) parse = null;
+
+            if(parse != null || exception != null) {
+                reloaded = true;
+                mapErrorTracker.clearErrors(map);
+            }
+            MapLogger.publish(records);
+
+            if(parse != null) {
+                result = restore ? map.restore(parse) : map.apply(parse);
+            } else if(exception != null) {
+                logger.log(Level.SEVERE, "Exception checking map " + map.getName(), exception);
+            }
+        }
+    }
 }
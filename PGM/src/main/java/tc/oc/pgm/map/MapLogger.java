@@ -1,5 +1,6 @@
 package tc.oc.pgm.map;
 
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
@@ -7,6 +8,7 @@ import javax.inject.Inject;
 
 import com.google.inject.assistedinject.Assisted;
 import tc.oc.commons.bukkit.logging.MapdevLogger;
+import tc.oc.commons.core.util.ThrowingSupplier;
 import tc.oc.pgm.xml.Node;
 
 public class MapLogger extends Logger {
@@ -15,6 +17,37 @@ public class MapLogger extends Logger {
         MapLogger create(MapDefinition map);
     }
 
+    private static final ThreadLocal<List<MapLogRecord>> deferred = new ThreadLocal<>();
+
+    /**
+     * Call the given block, and instead of publishing any records logged to a {@link MapLogger}
+     * on the current thread, add them to the given list. They can be published later through
+     * {@link #publish}. This allows maps to be loaded on other threads, since map errors are
+     * broadcast to players.
+     */
+    public static <T, E extends Throwable> T deferring(List<MapLogRecord> records, ThrowingSupplier<T, E> block) throws E {
+        final List<MapLogRecord> previous = deferred.get();
+        deferred.set(records);
+        try {
+            return block.getThrows();
+        } finally {
+            if(previous == null) {
+                deferred.remove();
+            } else {
+                deferred.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Publish records that were collected by {@link #deferring}, on the current thread
+     */
+    public static void publish(List<MapLogRecord> records) {
+        for(MapLogRecord record : records) {
+            record.getMap().getLogger().log(record);
+        }
+    }
+
     private final MapDefinition map;
 
     @Inject MapLogger(@Assisted MapDefinition map, MapdevLogger mapdevLogger) {
@@ -26,8 +59,14 @@ public class MapLogger extends Logger {
 
     @Override
     public void log(LogRecord record) {
-        super.log(record instanceof MapLogRecord ? record
-                                                 : new MapLogRecord(map, record));
+        final MapLogRecord mapRecord = record instanceof MapLogRecord ? (MapLogRecord) record
+                                                                      : new MapLogRecord(map, record);
+        final List<MapLogRecord> records = deferred.get();
+        if(records != null) {
+            if(isLoggable(record.getLevel())) records.add(mapRecord);
+        } else {
+            super.log(mapRecord);
+        }
     }
 
     public void log(Level level, Node node, String message) {
@@ -117,6 +117,15 @@ public class MapModuleContext extends ModuleContext<MapModule, MapScoped> {
         return preprocessor.getIncludedFiles();
     }
 
+    /**
+     * Modification stamps of the {@link #loadedFiles()}, taken when they were loaded.
+     * {@link MapDefinition} keeps a copy of these, to avoid hashing the files when
+     * checking for changes.
+     */
+    public Map<Path, MapFileStamp> loadedFileStamps() {
+        return preprocessor.getIncludedFileStamps();
+    }
+
     private final Lazy<Range<Integer>> playerLimits = Lazy.from(() -> {
         int min = 0, max = 0;
         for(MapModule module : loadedModules()) {
@@ -81,8 +81,8 @@ public class PGMMap extends MapDefinition {
     }
 
     @Override
-    public boolean reload() throws MapNotFoundException {
-        if(super.reload()) {
+    public boolean apply(Parse parse) {
+        if(super.apply(parse)) {
             this.pushed = false;
             return true;
         }
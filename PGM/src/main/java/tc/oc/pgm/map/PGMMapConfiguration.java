@@ -56,6 +56,32 @@ public class PGMMapConfiguration implements MapConfiguration {
         return config.getBoolean("autoreload.reload-when-error", false);
     }
 
+    @Override
+    public boolean watchFiles() {
+        return config.getBoolean("autoreload.watch", false);
+    }
+
+    @Override
+    public boolean cacheDocuments() {
+        return config.getBoolean("document-cache", true);
+    }
+
+    @Override
+    public int contextCacheSize() {
+        return config.getInt("context-cache.size", 20);
+    }
+
+    @Override
+    public int contextCacheRotationWindow() {
+        return config.getInt("context-cache.rotation-window", 3);
+    }
+
+    @Override
+    public int loadThreads() {
+        final int threads = config.getInt("load-threads", 0);
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
     @Override
     public List<MapSource> sources() {
         logger.fine("Loading map sources...");
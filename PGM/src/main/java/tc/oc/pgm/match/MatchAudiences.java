@@ -4,10 +4,10 @@ import javax.inject.Inject;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import tc.oc.commons.bukkit.chat.BroadcastAudience;
+import tc.oc.commons.bukkit.chat.ComponentRenderContext;
 import tc.oc.commons.bukkit.chat.ConsoleAudience;
-import tc.oc.commons.core.chat.AbstractMultiAudience;
 import tc.oc.commons.core.chat.Audience;
-import tc.oc.commons.core.chat.MultiAudience;
 import tc.oc.pgm.filters.Filter;
 
 /**
@@ -16,15 +16,17 @@ import tc.oc.pgm.filters.Filter;
 public class MatchAudiences {
 
     private final Match match;
+    private final ComponentRenderContext renderer;
     private final Audience participants;
     private final Audience observers;
     private final ImmutableSet<ConsoleAudience> console;
 
-    @Inject MatchAudiences(Match match, ConsoleAudience console) {
+    @Inject MatchAudiences(Match match, ConsoleAudience console, ComponentRenderContext renderer) {
         this.match = match;
+        this.renderer = renderer;
         this.console = ImmutableSet.of(console);
-        this.participants = new MultiAudience(Iterables.concat(this.console, match.getParticipatingPlayers()));
-        this.observers = new MultiAudience(Iterables.concat(this.console, match.getObservingPlayers()));
+        this.participants = new BroadcastAudience(renderer, Iterables.concat(this.console, match.getParticipatingPlayers()));
+        this.observers = new BroadcastAudience(renderer, Iterables.concat(this.console, match.getObservingPlayers()));
     }
 
     public Audience all() {
@@ -40,11 +42,6 @@ public class MatchAudiences {
     }
 
     public Audience filter(Filter filter) {
-        return new AbstractMultiAudience() {
-            @Override
-            protected Iterable<? extends Audience> getAudiences() {
-                return Iterables.concat(console, Iterables.filter(match.getPlayers(), player -> !filter.denies(player)));
-            }
-        };
+        return new BroadcastAudience(renderer, Iterables.concat(console, Iterables.filter(match.getPlayers(), player -> !filter.denies(player))));
     }
 }
@@ -1,6 +1,16 @@
 package tc.oc.pgm.match;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -16,10 +26,10 @@ import org.bukkit.event.EventRegistry;
 import org.bukkit.event.Listener;
 import tc.oc.commons.bukkit.event.BukkitEventHandlerScanner;
 import tc.oc.commons.bukkit.event.EventHandlerInfo;
+import tc.oc.commons.bukkit.event.EventKey;
 import tc.oc.commons.core.exception.ExceptionHandler;
 import tc.oc.commons.core.logging.Loggers;
 import tc.oc.commons.core.util.CacheUtils;
-import tc.oc.commons.core.util.ThrowingConsumer;
 import tc.oc.pgm.events.ListenerScope;
 import tc.oc.pgm.events.MatchEvent;
 
@@ -27,13 +37,19 @@ import tc.oc.pgm.events.MatchEvent;
  * Basically re-implements most of Bukkit's event registration system in order to
  * implement per-match event filtering.
  *
+ * Only one Bukkit handler is registered for each event type and priority level, no matter
+ * how many listeners are handling it. That handler holds the bound handler methods of every
+ * listener, grouped by match, and {@link MatchEvent}s are routed directly to the handlers
+ * of the match they belong to. Other events are dispatched to the handlers of every match.
+ *
+ * The time spent in each handler method is counted, and can be retrieved with {@link #profile()}.
+ *
  * TODO: This could be less hacky, and integrated with the whole targeted event system.
  */
 @Singleton
-public class MatchEventRegistry {
+public class MatchEventRegistry implements Listener {
 
-    // Thrown to silently skip an event
-    private static class SkipEvent extends RuntimeException {}
+    private static final MethodType HANDLER_TYPE = MethodType.methodType(void.class, Event.class);
 
     // Generated during registration, and used (internally) to start listening
     // with an actual match and listener instance
@@ -41,11 +57,6 @@ public class MatchEventRegistry {
         void load(Match match, Listener listener);
     }
 
-    // Used internally to wrap events just before they are passed to a handler method
-    private interface Wrapper {
-        Event wrap(Match match, Event unwrapped);
-    }
-
     private final Logger logger;
     private final EventRegistry eventRegistry;
     private final ExceptionHandler exceptionHandler;
@@ -53,6 +64,11 @@ public class MatchEventRegistry {
 
     private final LoadingCache<Class<? extends Listener>, Loader> loaders;
 
+    // Only accessed from the main thread
+    private final Map<EventKey<? extends Event>, Dispatcher> dispatchers = new HashMap<>();
+    private final Map<Listener, List<Handler>> handlersByListener = new IdentityHashMap<>();
+    private final Map<Method, Profile> profiles = new HashMap<>();
+
     @Inject MatchEventRegistry(Loggers loggers, EventRegistry eventRegistry, ExceptionHandler exceptionHandler, BukkitEventHandlerScanner bukkitScanner, Set<MatchListenerMeta> listeners) {
         this.logger = loggers.get(getClass());
         this.eventRegistry = eventRegistry;
@@ -103,7 +119,81 @@ public class MatchEventRegistry {
      * Stop delivering events to the given listener
      */
     public void stopListening(Match match, Listener listener) {
-        eventRegistry.unregisterListener(listener);
+        final List<Handler> handlers = handlersByListener.remove(listener);
+        if(handlers != null) {
+            for(Handler handler : handlers) {
+                handler.removed = true;
+                handler.profile.instances--;
+                handler.dispatcher.remove(handler);
+            }
+        }
+    }
+
+    /**
+     * Return the number of calls to each registered handler method since the last
+     * {@link #resetProfile()}, and the total time spent in them, most expensive first.
+     */
+    public List<ProfileResult> profile() {
+        final List<ProfileResult> results = new ArrayList<>();
+        for(Profile profile : profiles.values()) {
+            if(profile.calls > 0 || profile.instances > 0) {
+                results.add(new ProfileResult(profile.name, profile.instances, profile.calls, profile.nanos));
+            }
+        }
+        results.sort(Comparator.comparingLong(ProfileResult::nanos).reversed());
+        return results;
+    }
+
+    /**
+     * Reset the call counts and times of all handler methods to zero
+     */
+    public void resetProfile() {
+        for(Profile profile : profiles.values()) {
+            profile.calls = 0;
+            profile.nanos = 0;
+        }
+    }
+
+    public static class ProfileResult {
+        private final String name;
+        private final int instances;
+        private final long calls;
+        private final long nanos;
+
+        ProfileResult(String name, int instances, long calls, long nanos) {
+            this.name = name;
+            this.instances = instances;
+            this.calls = calls;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Name of the handler method, including its class and event type
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Number of listeners currently registered with the method
+         */
+        public int instances() {
+            return instances;
+        }
+
+        /**
+         * Number of times the method was called, across all instances
+         */
+        public long calls() {
+            return calls;
+        }
+
+        /**
+         * Total time spent in the method, across all instances
+         */
+        public long nanos() {
+            return nanos;
+        }
     }
 
     private Loader createLoader(Class<? extends Listener> listener) {
@@ -127,44 +217,175 @@ public class MatchEventRegistry {
 
     private Loader createLoader(EventHandlerInfo<? extends Event> handler, @Nullable MatchScope matchScopeOrNull) {
         final MatchScope matchScope = matchScopeOrNull != null ? matchScopeOrNull : MatchScope.LOADED;
+        final EventKey<? extends Event> key = handler.key();
+
+        if(logger.isLoggable(Level.FINE)) {
+            logger.fine("    " + handler.method().getName() + "(" + key.event().getSimpleName() + ") scope=" + matchScope);
+        }
+
+        final Profile profile = profiles.computeIfAbsent(handler.method(), Profile::new);
+
+        return (match, listener) -> {
+            final Dispatcher dispatcher = dispatchers.computeIfAbsent(key, Dispatcher::new);
+            final Handler bound = new Handler(dispatcher,
+                                              match,
+                                              handler.methodHandle().bindTo(listener).asType(HANDLER_TYPE),
+                                              matchScope,
+                                              handler.ignoreCancelled(),
+                                              profile);
+            dispatcher.add(bound);
+            handlersByListener.computeIfAbsent(listener, l -> new ArrayList<>()).add(bound);
+            profile.instances++;
+        };
+    }
+
+    /**
+     * The single Bukkit handler for one event type and priority level,
+     * which holds the handlers of every listener for that event, grouped by match.
+     */
+    private class Dispatcher {
         final Class<? extends Event> eventClass;
-        final Wrapper wrapper;
+        final boolean matchEvent;
 
-        eventClass = handler.key().event();
+        // Replaced rather than modified, so that handlers can be added or removed while dispatching
+        MatchHandlers[] matches = new MatchHandlers[0];
 
-        if(logger.isLoggable(Level.FINE)) {
-            logger.fine("    " + handler.method().getName() + "(" + eventClass.getSimpleName() + ") scope=" + matchScope);
+        Dispatcher(EventKey<? extends Event> key) {
+            this.eventClass = key.event();
+            this.matchEvent = MatchEvent.class.isAssignableFrom(eventClass);
+
+            Event.register(eventRegistry.bindHandler(new EventHandlerMeta<>(eventClass, key.priority(), false),
+                                                     MatchEventRegistry.this,
+                                                     (listener, event) -> execute(event)));
         }
 
-        if(MatchEvent.class.isAssignableFrom(handler.key().event())) {
-            // Skip MatchEvents if they belong to a different match
-            wrapper = (match, event) -> {
-                if(!match.equals(((MatchEvent) event).getMatch())) throw new SkipEvent();
-                return event;
-            };
-        } else {
-            // Plain old event event, do nothing special
-            // TODO: should we try to filter these too, if possible?
-            wrapper = (match, event) -> event;
+        void add(Handler handler) {
+            for(int i = 0; i < matches.length; i++) {
+                if(matches[i].match == handler.match) {
+                    final MatchHandlers[] newMatches = matches.clone();
+                    newMatches[i] = matches[i].with(handler);
+                    matches = newMatches;
+                    return;
+                }
+            }
+            final MatchHandlers[] newMatches = Arrays.copyOf(matches, matches.length + 1);
+            newMatches[matches.length] = new MatchHandlers(handler.match, new Handler[]{ handler });
+            matches = newMatches;
         }
 
-        return (match, listener) -> {
-            final ThrowingConsumer<Event, Throwable> boundMethod = (ThrowingConsumer<Event, Throwable>) handler.bindTo(listener);
-            Event.register(eventRegistry.bindHandler(
-                new EventHandlerMeta<>(eventClass, handler.priority(), handler.ignoreCancelled()),
-                listener,
-                (l, event) -> {
-                    try {
-                        if(eventClass.isInstance(event) && match.inScope(matchScope)) {
-                            boundMethod.accept(wrapper.wrap(match, event));
-                        }
-                    } catch(SkipEvent ignored) {
-                    } catch(Throwable throwable) {
-                        exceptionHandler.handleException(throwable);
+        void remove(Handler handler) {
+            final List<MatchHandlers> newMatches = new ArrayList<>(matches.length);
+            for(MatchHandlers entry : matches) {
+                if(entry.match != handler.match) {
+                    newMatches.add(entry);
+                } else {
+                    final MatchHandlers without = entry.without(handler);
+                    if(without.handlers.length > 0) newMatches.add(without);
+                }
+            }
+            matches = newMatches.toArray(new MatchHandlers[newMatches.size()]);
+        }
+
+        void execute(Event event) {
+            // Subclasses of the event type may share its handler list
+            if(!eventClass.isInstance(event)) return;
+
+            final MatchHandlers[] matches = this.matches;
+            if(matchEvent) {
+                // Only dispatch to the match that the event belongs to
+                final Match match = ((MatchEvent) event).getMatch();
+                for(MatchHandlers entry : matches) {
+                    if(entry.match == match) {
+                        dispatch(entry, event);
+                        return;
                     }
                 }
-            ));
-        };
+            } else {
+                for(MatchHandlers entry : matches) {
+                    dispatch(entry, event);
+                }
+            }
+        }
+    }
+
+    private void dispatch(MatchHandlers entry, Event event) {
+        for(Handler handler : entry.handlers) {
+            // The handler may have been removed by an earlier handler for the same event
+            if(handler.removed) continue;
+            if(handler.ignoreCancelled && event.isCancelled()) continue;
+            if(!entry.match.inScope(handler.scope)) continue;
+
+            final long start = System.nanoTime();
+            try {
+                handler.handle.invokeExact(event);
+            } catch(Throwable throwable) {
+                exceptionHandler.handleException(throwable);
+            }
+            handler.profile.nanos += System.nanoTime() - start;
+            handler.profile.calls++;
+        }
+    }
+
+    /**
+     * The handlers of one match for a particular event type and priority level, in registration order
+     */
+    private static class MatchHandlers {
+        final Match match;
+        final Handler[] handlers;
+
+        MatchHandlers(Match match, Handler[] handlers) {
+            this.match = match;
+            this.handlers = handlers;
+        }
+
+        MatchHandlers with(Handler handler) {
+            final Handler[] newHandlers = Arrays.copyOf(handlers, handlers.length + 1);
+            newHandlers[handlers.length] = handler;
+            return new MatchHandlers(match, newHandlers);
+        }
+
+        MatchHandlers without(Handler handler) {
+            return new MatchHandlers(match, Arrays.stream(handlers)
+                                                  .filter(h -> h != handler)
+                                                  .toArray(Handler[]::new));
+        }
+    }
+
+    /**
+     * A handler method bound to a listener registered with a particular match
+     */
+    private static class Handler {
+        final Dispatcher dispatcher;
+        final Match match;
+        final MethodHandle handle;
+        final MatchScope scope;
+        final boolean ignoreCancelled;
+        final Profile profile;
+        boolean removed;
+
+        Handler(Dispatcher dispatcher, Match match, MethodHandle handle, MatchScope scope, boolean ignoreCancelled, Profile profile) {
+            this.dispatcher = dispatcher;
+            this.match = match;
+            this.handle = handle;
+            this.scope = scope;
+            this.ignoreCancelled = ignoreCancelled;
+            this.profile = profile;
+        }
+    }
+
+    /**
+     * Call count and total time of a handler method, across all listeners
+     */
+    private static class Profile {
+        final String name;
+        int instances;
+        long calls;
+        long nanos;
+
+        Profile(Method method) {
+            this.name = method.getDeclaringClass().getSimpleName() + "." + method.getName() +
+                        "(" + method.getParameterTypes()[0].getSimpleName() + ")";
+        }
     }
 
     private static MatchScope listenerScope(AnnotatedElement thing, @Nullable MatchScope def) {
@@ -45,10 +45,11 @@ import tc.oc.api.docs.PlayerId;
 import tc.oc.api.docs.User;
 import tc.oc.api.docs.UserId;
 import tc.oc.api.model.IdFactory;
+import tc.oc.commons.bukkit.chat.BroadcastAudience;
+import tc.oc.commons.bukkit.chat.ComponentRenderContext;
 import tc.oc.commons.bukkit.chat.ConsoleAudience;
 import tc.oc.commons.core.chat.Audience;
 import tc.oc.commons.core.chat.ForwardingAudience;
-import tc.oc.commons.core.chat.MultiAudience;
 import tc.oc.commons.core.exception.ExceptionHandler;
 import tc.oc.commons.core.inject.ChildInjectorFactory;
 import tc.oc.commons.core.inject.FacetContext;
@@ -122,6 +123,7 @@ public class MatchImpl implements Match, ForwardingAudience {
     @Inject private World world;
 
     @Inject private ConsoleAudience consoleAudience;
+    @Inject private ComponentRenderContext renderer;
     private Audience audience;
 
     // State management
@@ -194,7 +196,7 @@ public class MatchImpl implements Match, ForwardingAudience {
         id = idFactory.newId();
         url = new URL("http", "localhost:3000", "/matches/" + id);
         loadTime = clock.now();
-        audience = new MultiAudience(Iterables.concat(ImmutableSet.of(consoleAudience), getPlayers()));
+        audience = new BroadcastAudience(renderer, Iterables.concat(ImmutableSet.of(consoleAudience), getPlayers()));
         setState(MatchState.Idle);
     }
 
@@ -944,12 +946,12 @@ public class MatchImpl implements Match, ForwardingAudience {
     @Override
     public void sendMessageExcept(BaseComponent message, MatchPlayer... except) {
         consoleAudience.sendMessage(message);
-        Match.super.sendMessageExcept(message, except);
+        renderer.broadcast(() -> Match.super.sendMessageExcept(message, except));
     }
 
     @Override
     public void sendMessageExcept(BaseComponent message, MatchPlayerState... except) {
         consoleAudience.sendMessage(message);
-        Match.super.sendMessageExcept(message, except);
+        renderer.broadcast(() -> Match.super.sendMessageExcept(message, except));
     }
 }
@@ -157,6 +157,16 @@ public class MatchLoader implements MatchFinder {
         return newMatch;
     }
 
+    /**
+     * Start copying the world of the given map in the background, so that it is
+     * ready the next time a match is loaded on the map. Does nothing if the map
+     * is not loaded.
+     */
+    public void stageMap(PGMMap map) {
+        if(!map.isLoaded()) return;
+        map.getContext().ifPresent(context -> context.asCurrentScope(() -> worldManager.get().stageWorld()));
+    }
+
     /**
      * Try to load a match.  This will take care of copying and loading the
      * new world into Bukkit.  May throw an assortment of exceptions if
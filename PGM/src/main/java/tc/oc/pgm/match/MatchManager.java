@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -15,6 +16,7 @@ import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import com.google.common.util.concurrent.Futures;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.World;
@@ -22,8 +24,12 @@ import org.bukkit.configuration.Configuration;
 import org.bukkit.event.EventBus;
 import tc.oc.api.util.Permissions;
 import tc.oc.commons.core.logging.Loggers;
+import tc.oc.commons.core.util.SystemFutureCallback;
 import tc.oc.pgm.development.MapErrorTracker;
 import tc.oc.pgm.events.SetNextMapEvent;
+import tc.oc.pgm.map.MapConfiguration;
+import tc.oc.pgm.map.MapContextCache;
+import tc.oc.pgm.map.MapDefinition;
 import tc.oc.pgm.map.MapLibrary;
 import tc.oc.pgm.map.MapLoader;
 import tc.oc.pgm.map.MapNotFoundException;
@@ -47,8 +53,13 @@ public class MatchManager implements MatchFinder {
     private final FileRotationProviderFactory fileRotationProviderFactory;
     private final EventBus eventBus;
     private final MatchLoader matchLoader;
+    private final MapConfiguration mapConfiguration;
+    private final MapContextCache mapContextCache;
     private @Nullable RotationManager rotationManager;
 
+    /** Map of the current match, if any */
+    private @Nullable PGMMap currentMap;
+
     /** Custom set next map. */
     private PGMMap nextMap = null;
 
@@ -63,7 +74,9 @@ public class MatchManager implements MatchFinder {
                          MapErrorTracker mapErrorTracker,
                          FileRotationProviderFactory fileRotationProviderFactory,
                          EventBus eventBus,
-                         MatchLoader matchLoader) throws MapNotFoundException {
+                         MatchLoader matchLoader,
+                         MapConfiguration mapConfiguration,
+                         MapContextCache mapContextCache) throws MapNotFoundException {
 
         this.pluginDataFolder = pluginDataFolder;
         this.mapErrorTracker = mapErrorTracker;
@@ -74,6 +87,8 @@ public class MatchManager implements MatchFinder {
         this.mapLoader = mapLoader;
         this.eventBus = eventBus;
         this.matchLoader = matchLoader;
+        this.mapConfiguration = mapConfiguration;
+        this.mapContextCache = mapContextCache;
     }
 
     @Override
@@ -92,22 +107,34 @@ public class MatchManager implements MatchFinder {
         Set<Path> added = new HashSet<>(),
                   updated = new HashSet<>(),
                   removed = new HashSet<>();
-        List<PGMMap> maps = mapLoader.loadNewMaps(mapLibrary.getMapsByPath(), added, updated, removed);
-        mapLibrary.removeMaps(removed);
-        Set<PGMMap> newMaps = mapLibrary.addMaps(maps);
-        mapLibrary.pushDirtyMaps();
+        Set<PGMMap> newMaps;
+
+        // Keep every new context until the upcoming maps are pinned, so they are not parsed twice
+        mapContextCache.hold();
+        try {
+            List<PGMMap> maps = mapLoader.loadNewMaps(mapLibrary.getMapsByPath(), added, updated, removed);
+            mapLibrary.removeMaps(removed);
+            newMaps = mapLibrary.addMaps(maps);
+            mapLibrary.pushDirtyMaps();
+
+            log.info("Loaded " + newMaps.size() + " maps");
 
-        log.info("Loaded " + newMaps.size() + " maps");
+            if(mapLibrary.getMaps().isEmpty()) {
+                throw new MapNotFoundException();
+            }
 
-        if(mapLibrary.getMaps().isEmpty()) {
-            throw new MapNotFoundException();
+            pinUpcomingMaps();
+        } finally {
+            mapContextCache.release();
         }
 
         return newMaps;
     }
 
     public boolean loadRotations() {
-        return getRotationManager().load(mapLibrary.getMaps().iterator().next());
+        final boolean loaded = getRotationManager().load(mapLibrary.getMaps().iterator().next());
+        pinUpcomingMaps();
+        return loaded;
     }
 
     public Set<PGMMap> loadMapsAndRotations() throws MapNotFoundException {
@@ -181,9 +208,38 @@ public class MatchManager implements MatchFinder {
         if(map != nextMap) {
             this.nextMap = map;
             eventBus.callEvent(new SetNextMapEvent(map));
+            pinUpcomingMaps();
+            matchLoader.stageMap(map);
         }
     }
 
+    /**
+     * Keep the contexts of the current map, the next map, and the upcoming rotation maps
+     * in memory, and restore any of them that were evicted in the background, so that they
+     * never have to be parsed in the middle of a cycle.
+     */
+    private void pinUpcomingMaps() {
+        final Set<PGMMap> maps = new LinkedHashSet<>();
+        if(currentMap != null) maps.add(currentMap);
+        maps.add(getNextMap());
+
+        final RotationState rotation = getRotationManager().getRotation();
+        for(int i = 0; i <= mapConfiguration.contextCacheRotationWindow(); i++) {
+            maps.add(rotation.skip(i).getNext());
+        }
+
+        final List<PGMMap> evicted = new ArrayList<>();
+        for(MapDefinition map : mapContextCache.pin(maps)) {
+            evicted.add((PGMMap) map);
+        }
+        if(evicted.isEmpty()) return;
+
+        // Maps that are not found are handled when cycling to them
+        Futures.addCallback(mapLoader.restoreMaps(evicted), SystemFutureCallback.onSuccess(changed -> {
+            if(changed) mapLibrary.pushDirtyMaps();
+        }));
+    }
+
     /**
      * Cycle to the next map in the rotation
      * @param oldMatch          The current match, if any
@@ -243,9 +299,21 @@ public class MatchManager implements MatchFinder {
                 Bukkit.broadcast(ChatColor.GREEN + "XML changes detected, reloading", Permissions.MAPERRORS);
                 mapLoader.loadMap(map);
                 mapLibrary.pushDirtyMaps();
+            } else if(!map.hasContext()) {
+                // Evicted and not restored yet, so restore it now
+                mapLoader.restoreMap(map);
+                if(!map.isPushed()) mapLibrary.pushDirtyMaps();
             }
 
-            return matchLoader.cycleTo(oldMatch, map);
+            final Match match = matchLoader.cycleTo(oldMatch, map);
+            if(match != null) {
+                currentMap = map;
+                pinUpcomingMaps();
+
+                // Get the world for the following match ready while this one is playing
+                matchLoader.stageMap(getNextMap());
+            }
+            return match;
         } catch(MapNotFoundException e) {
             // Maps are sometimes removed, must handle it gracefully
             log.warning("Skipping deleted map " + map.getName());
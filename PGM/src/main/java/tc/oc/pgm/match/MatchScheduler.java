@@ -2,15 +2,19 @@ package tc.oc.pgm.match;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import javax.inject.Inject;
 
 import com.google.common.base.Joiner;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableSet;
-import java.time.Duration;
 import tc.oc.commons.core.exception.ExceptionHandler;
 import tc.oc.commons.core.logging.Loggers;
 import tc.oc.commons.core.reflect.Methods;
@@ -18,18 +22,32 @@ import tc.oc.commons.core.scheduler.Scheduler;
 import tc.oc.commons.core.scheduler.SchedulerBackend;
 import tc.oc.commons.core.scheduler.Task;
 import tc.oc.commons.core.stream.Collectors;
+import tc.oc.commons.core.util.TimeUtils;
 import tc.oc.time.Time;
 import tc.oc.commons.core.util.CacheUtils;
-import tc.oc.commons.core.util.ThrowingRunnable;
 
 /**
  * A scheduler that is active for the duration of a {@link Match}.
+ *
+ * All {@link Repeatable} methods registered with the scheduler are run from a single task,
+ * rather than one task each. The methods are grouped by interval, and every tick, the groups
+ * that are due are run in a flat loop. The time taken by each method is recorded for the last
+ * {@link #PROFILE_TICKS} ticks, and can be retrieved with {@link #profile(int)}.
  */
 public class MatchScheduler extends Scheduler {
 
+    public static final int PROFILE_TICKS = 200;
+
     private final Match match;
     private final MatchScope scope;
-    private final Map<Object, Set<Task>> tasksByInstance = new IdentityHashMap<>();
+    private final ExceptionHandler exceptionHandler;
+
+    // Only accessed from the main thread. Groups and their entries are replaced
+    // rather than modified, so that they can change while they are being run.
+    private final Map<Object, List<Entry>> entriesByInstance = new IdentityHashMap<>();
+    private final Map<RepeatableMethod, Profile> profiles = new IdentityHashMap<>();
+    private Group[] groups = new Group[0];
+    private long currentTick;
 
     @Inject MatchScheduler(Loggers loggers, SchedulerBackend backend, ExceptionHandler exceptionHandler, Match match) {
         this(MatchScope.LOADED, loggers, backend, exceptionHandler, match);
@@ -39,40 +57,223 @@ public class MatchScheduler extends Scheduler {
         super(loggers, backend, exceptionHandler, false);
         this.match = match;
         this.scope = scope;
+        this.exceptionHandler = exceptionHandler;
+
+        register(Task.Parameters.fromTicks(0L, 1L), this::tickRepeatables, null);
     }
 
     void registerRepeatables(final Object object) {
-        tasksByInstance.computeIfAbsent(object, o -> repeatableMethodsByClass
-            .getUnchecked(object.getClass())
-            .stream()
-            .filter(rm -> rm.scope == scope)
-            .map(repeatable -> {
-                MethodHandle handle = repeatable.handle.bindTo(object);
-                if(handle.type().parameterCount() > 0) {
-                    handle = handle.bindTo(match);
-                }
-                final MethodHandle finalHandle = handle;
-                return register(repeatable.parameters, (ThrowingRunnable<?>) finalHandle::invokeExact, null);
-            })
-            .collect(Collectors.toImmutableSet())
-        );
+        entriesByInstance.computeIfAbsent(object, o -> {
+            final List<Entry> entries = repeatableMethodsByClass
+                .getUnchecked(object.getClass())
+                .stream()
+                .filter(rm -> rm.scope == scope)
+                .map(repeatable -> {
+                    MethodHandle handle = repeatable.handle.bindTo(object);
+                    if(handle.type().parameterCount() > 0) {
+                        handle = handle.bindTo(match);
+                    }
+                    return new Entry(handle.asType(MethodType.methodType(void.class)),
+                                     profiles.computeIfAbsent(repeatable, Profile::new));
+                })
+                .collect(Collectors.toImmutableList());
+
+            for(Entry entry : entries) {
+                // Like a repeating task with no delay, the first run is on the next tick
+                add(entry.profile.method.interval, (currentTick + 1) % entry.profile.method.interval, entry);
+                entry.profile.instances++;
+            }
+            return entries;
+        });
     }
 
     void unregisterRepeatables(final Object object) {
-        final Set<Task> set = tasksByInstance.remove(object);
-        if(set != null) {
-            set.forEach(Task::cancel);
+        final List<Entry> entries = entriesByInstance.remove(object);
+        if(entries != null) {
+            for(Entry entry : entries) {
+                entry.cancelled = true;
+                entry.profile.instances--;
+            }
+            removeCancelled();
+        }
+    }
+
+    /**
+     * Return the time spent in each repeatable method over the last given number of ticks
+     * (at most {@link #PROFILE_TICKS}), most expensive first.
+     */
+    public List<ProfileResult> profile(int ticks) {
+        ticks = Math.min(ticks, PROFILE_TICKS);
+        final List<ProfileResult> results = new ArrayList<>();
+        for(Profile profile : profiles.values()) {
+            final long nanos = profile.totalNanos(currentTick, ticks);
+            if(nanos > 0 || profile.instances > 0) {
+                results.add(new ProfileResult(profile.method.name, profile.instances, nanos));
+            }
+        }
+        results.sort(Comparator.comparingLong(ProfileResult::nanos).reversed());
+        return results;
+    }
+
+    public static class ProfileResult {
+        private final String name;
+        private final int instances;
+        private final long nanos;
+
+        ProfileResult(String name, int instances, long nanos) {
+            this.name = name;
+            this.instances = instances;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Name of the repeatable method, including its class
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Number of objects currently registered with the method
+         */
+        public int instances() {
+            return instances;
+        }
+
+        /**
+         * Total time spent in the method, across all instances
+         */
+        public long nanos() {
+            return nanos;
+        }
+    }
+
+    private void tickRepeatables() {
+        final long tick = ++currentTick;
+        for(Group group : groups) {
+            if(tick % group.interval != group.phase) continue;
+
+            for(Entry entry : group.entries) {
+                // The entry may have been unregistered earlier in this tick
+                if(entry.cancelled) continue;
+
+                final long start = System.nanoTime();
+                try {
+                    entry.handle.invokeExact();
+                } catch(Throwable throwable) {
+                    exceptionHandler.handleException(throwable);
+                }
+                entry.profile.record(tick, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void add(long interval, long phase, Entry entry) {
+        for(int i = 0; i < groups.length; i++) {
+            final Group group = groups[i];
+            if(group.interval == interval && group.phase == phase) {
+                final Entry[] entries = Arrays.copyOf(group.entries, group.entries.length + 1);
+                entries[entries.length - 1] = entry;
+                final Group[] newGroups = groups.clone();
+                newGroups[i] = new Group(interval, phase, entries);
+                groups = newGroups;
+                return;
+            }
+        }
+
+        final Group[] newGroups = Arrays.copyOf(groups, groups.length + 1);
+        newGroups[newGroups.length - 1] = new Group(interval, phase, new Entry[]{ entry });
+        Arrays.sort(newGroups, Comparator.comparingLong((Group g) -> g.interval).thenComparingLong(g -> g.phase));
+        groups = newGroups;
+    }
+
+    private void removeCancelled() {
+        final List<Group> newGroups = new ArrayList<>(groups.length);
+        for(Group group : groups) {
+            final Entry[] entries = Arrays.stream(group.entries)
+                                          .filter(entry -> !entry.cancelled)
+                                          .toArray(Entry[]::new);
+            if(entries.length == group.entries.length) {
+                newGroups.add(group);
+            } else if(entries.length > 0) {
+                newGroups.add(new Group(group.interval, group.phase, entries));
+            }
+        }
+        groups = newGroups.toArray(new Group[newGroups.size()]);
+    }
+
+    /**
+     * Repeatables that run on the same ticks
+     */
+    private static class Group {
+        final long interval;
+        final long phase;
+        final Entry[] entries;
+
+        Group(long interval, long phase, Entry[] entries) {
+            this.interval = interval;
+            this.phase = phase;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * A repeatable method bound to a registered object
+     */
+    private static class Entry {
+        final MethodHandle handle;
+        final Profile profile;
+        boolean cancelled;
+
+        Entry(MethodHandle handle, Profile profile) {
+            this.handle = handle;
+            this.profile = profile;
+        }
+    }
+
+    /**
+     * Ring buffer of the time spent in a repeatable method on each recent tick
+     */
+    private static class Profile {
+        final RepeatableMethod method;
+        final long[] ticks = new long[PROFILE_TICKS];
+        final long[] nanos = new long[PROFILE_TICKS];
+        int instances;
+
+        Profile(RepeatableMethod method) {
+            this.method = method;
+        }
+
+        void record(long tick, long elapsed) {
+            final int slot = (int) (tick % PROFILE_TICKS);
+            if(ticks[slot] != tick) {
+                ticks[slot] = tick;
+                nanos[slot] = 0;
+            }
+            nanos[slot] += elapsed;
+        }
+
+        long totalNanos(long now, int count) {
+            long total = 0;
+            for(int slot = 0; slot < PROFILE_TICKS; slot++) {
+                if(ticks[slot] > now - count) {
+                    total += nanos[slot];
+                }
+            }
+            return total;
         }
     }
 
     private static class RepeatableMethod {
+        final String name;
         final MethodHandle handle;
-        final Task.Parameters parameters;
+        final long interval;
         final MatchScope scope;
 
-        RepeatableMethod(MethodHandle handle, Task.Parameters parameters, MatchScope scope) {
+        RepeatableMethod(String name, MethodHandle handle, long interval, MatchScope scope) {
+            this.name = name;
             this.handle = handle;
-            this.parameters = parameters;
+            this.interval = interval;
             this.scope = scope;
         }
     }
@@ -92,8 +293,9 @@ public class MatchScheduler extends Scheduler {
 
                 try {
                     methods.add(new RepeatableMethod(
+                        methodName(method),
                         MethodHandles.publicLookup().unreflect(method),
-                        Task.Parameters.fromDuration(Duration.ZERO, Time.convertTo.duration(annotation.interval())),
+                        Math.max(1, TimeUtils.toTicks(Time.convertTo.duration(annotation.interval()))),
                         annotation.scope()
                     ));
                 } catch(IllegalAccessException e) {
@@ -104,4 +306,8 @@ public class MatchScheduler extends Scheduler {
 
         return methods.build();
     });
+
+    private static String methodName(Method method) {
+        return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    }
 }
@@ -11,6 +11,8 @@ import tc.oc.pgm.filters.Filter;
 import tc.oc.pgm.filters.FilterMatchModule;
 import tc.oc.pgm.match.Match;
 import tc.oc.pgm.match.MatchPlayer;
+import tc.oc.pgm.regions.Region;
+import tc.oc.pgm.regions.RegionOccupancyMatchModule;
 
 @FeatureInfo(name = "portal")
 public interface Portal extends FeatureDefinition {}
@@ -45,12 +47,18 @@ class PortalImpl extends FeatureDefinition.Impl implements Portal {
 
     @Override
     public void load(Match match) {
-        final FilterMatchModule fmm = match.needMatchModule(FilterMatchModule.class);
-        fmm.onRise(MatchPlayer.class, trigger, player -> {
-            if(canUse(player) && !player.facet(PortalPlayerFacet.class).teleport()) {
-                teleportPlayer(player, player.getBukkit().getEntityLocation());
-            }
-        });
+        if(trigger instanceof Region) {
+            // Plain entrance regions are resolved along with every other region on each movement
+            match.needMatchModule(RegionOccupancyMatchModule.class).onEnter((Region) trigger, this::enter);
+        } else {
+            match.needMatchModule(FilterMatchModule.class).onRise(MatchPlayer.class, trigger, this::enter);
+        }
+    }
+
+    private void enter(MatchPlayer player) {
+        if(canUse(player) && !player.facet(PortalPlayerFacet.class).teleport()) {
+            teleportPlayer(player, player.getBukkit().getEntityLocation());
+        }
     }
 
     private void teleportPlayer(final MatchPlayer player, final EntityLocation from) {
@@ -0,0 +1,57 @@
+package tc.oc.pgm.regions;
+
+import java.util.Optional;
+
+import org.bukkit.util.BlockVector;
+
+/**
+ * A {@link Region} that has been compiled by {@link RegionCompiler} into a form
+ * that tests points given as primitive coordinates, and does not allocate any
+ * objects while doing so, except in rare edge cases.
+ *
+ * Compiled regions always respond exactly the same as the region they were
+ * compiled from, but they do not reflect any changes to that region made after
+ * compilation. Like regions, they are safe to use from any thread.
+ */
+public interface CompiledRegion {
+
+    /**
+     * Test if the region contains the given point
+     */
+    boolean contains(double x, double y, double z);
+
+    /**
+     * Test if the region contains the center of the given block
+     */
+    default boolean containsBlock(int x, int y, int z) {
+        return contains(x + 0.5, y + 0.5, z + 0.5);
+    }
+
+    default boolean contains(BlockVector blockPos) {
+        return containsBlock(blockPos.getBlockX(), blockPos.getBlockY(), blockPos.getBlockZ());
+    }
+
+    /**
+     * Test if moving from the center of the first block to the center of the second crosses into the region
+     */
+    default boolean enters(BlockVector from, BlockVector to) {
+        return !contains(from) && contains(to);
+    }
+
+    default boolean enters(Optional<BlockVector> from, BlockVector to) {
+        return from.isPresent() ? enters(from.get(), to)
+                                : contains(to);
+    }
+
+    /**
+     * Test if moving from the center of the first block to the center of the second crosses out of the region
+     */
+    default boolean exits(BlockVector from, BlockVector to) {
+        return contains(from) && !contains(to);
+    }
+
+    default boolean exits(Optional<BlockVector> from, BlockVector to) {
+        return from.isPresent() ? exits(from.get(), to)
+                                : !contains(to);
+    }
+}
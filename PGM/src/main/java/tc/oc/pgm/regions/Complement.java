@@ -6,8 +6,8 @@ import org.bukkit.geometry.Cuboid;
 import org.bukkit.util.Vector;
 
 public class Complement extends Region.Impl {
-    private final @Inspect Region original;
-    private final @Inspect Region subtracted;
+    final @Inspect Region original;
+    final @Inspect Region subtracted;
 
     public Complement(Region original, Region subtracted) {
         this.original = original;
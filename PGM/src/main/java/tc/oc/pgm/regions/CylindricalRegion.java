@@ -9,12 +9,12 @@ import org.bukkit.util.Vector;
 import static com.google.common.base.Preconditions.checkArgument;
 
 public class CylindricalRegion extends Region.Impl {
-    private final @Inspect ImVector center;
-    private final @Inspect double bottom;
-    private final @Inspect double top;
-    private final @Inspect double radius;
+    final @Inspect ImVector center;
+    final @Inspect double bottom;
+    final @Inspect double top;
+    final @Inspect double radius;
 
-    private final double radiusSq;
+    final double radiusSq;
 
     public CylindricalRegion(Vector base, double radius, double top) {
         checkArgument(radius >= 0);
@@ -4,8 +4,8 @@ import org.bukkit.geometry.Cuboid;
 import org.bukkit.util.Vector;
 
 public class HalfspaceRegion extends Region.Impl {
-    private final @Inspect Vector normal; // unit normal
-    private final @Inspect double offset; // parameter of the plane equation
+    final @Inspect Vector normal; // unit normal
+    final @Inspect double offset; // parameter of the plane equation
 
     public HalfspaceRegion(Vector origin, Vector normal) {
         this.normal = new Vector(normal).normalize();
@@ -6,8 +6,8 @@ import javax.annotation.Nullable;
 
 public class MirroredRegion extends TransformedRegion {
     // Reflection plane equation is: v · normal = offset
-    private final @Inspect Vector normal; // unit normal
-    private final @Inspect double offset; // parameter of the plane equation
+    final @Inspect Vector normal; // unit normal
+    final @Inspect double offset; // parameter of the plane equation
 
     /**
      * @param region The region that will be mirrored
@@ -0,0 +1,246 @@
+package tc.oc.pgm.regions;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+import org.bukkit.geometry.Cuboid;
+import org.bukkit.util.Vector;
+
+/**
+ * The part of {@link RegionOccupancyMatchModule} that does not depend on the match,
+ * tracking occupancy for any kind of player object.
+ *
+ * The index divides the world into 16x16 block columns, and lists the regions whose
+ * bounds intersect each one. A movement only tests the regions listed for the column
+ * it ends in, plus any regions too large to index, and the result is compared with the
+ * player's previous bitset to find the transitions. Nothing is allocated for movements
+ * that don't enter or leave any region.
+ *
+ * Listeners can move players, which handles the nested movement completely before
+ * returning. The outer movement then stops notifying anyone, because its transitions
+ * no longer describe where the player is. This can leave a listener notified that a
+ * player left a region, without having been notified that they entered it.
+ */
+class OccupancyTracker<P> {
+
+    private static final int CELL_SHIFT = 4;
+
+    // Regions with bounds spanning more columns than this are tested on every movement
+    private static final int MAX_INDEXED_CELLS = 256;
+
+    private static final int[] NO_REGIONS = new int[0];
+
+    private class RegionState {
+        final int id;
+        final CompiledRegion compiled;
+        final Set<P> occupants = new HashSet<>();
+        final List<Consumer<? super P>> enter = new ArrayList<>();
+        final List<Consumer<? super P>> leave = new ArrayList<>();
+        final List<Consumer<? super P>> inside = new ArrayList<>();
+
+        RegionState(int id, CompiledRegion compiled) {
+            this.id = id;
+            this.compiled = compiled;
+        }
+    }
+
+    // Every region with listeners, indexed by ID
+    private final List<RegionState> regions = new ArrayList<>();
+    private final Map<Region, RegionState> regionStates = new HashMap<>();
+    private final List<Cuboid> bounds = new ArrayList<>();
+
+    // IDs of regions with inside listeners
+    private final BitSet insideListened = new BitSet();
+
+    // Spatial index, rebuilt on the next movement after a region is added
+    private @Nullable Map<Long, int[]> cells;
+    private int[] unindexed = NO_REGIONS;
+
+    // Regions that each player was inside after their last movement.
+    // These bitsets are replaced, never modified, so comparing a player's entry with the
+    // one a movement installed shows whether a listener has moved them since.
+    private final Map<P, BitSet> occupancy = new HashMap<>();
+
+    // Reused by every movement to test the regions at the destination
+    private final BitSet testing = new BitSet();
+
+    private RegionState state(Region region) {
+        final Region def = (Region) region.getDefinition();
+        RegionState state = regionStates.get(def);
+        if(state == null) {
+            state = new RegionState(regions.size(), RegionCompiler.compile(def));
+            regions.add(state);
+            bounds.add(def.getBounds());
+            regionStates.put(def, state);
+            cells = null;
+        }
+        return state;
+    }
+
+    private @Nullable RegionState existingState(Region region) {
+        return regionStates.get((Region) region.getDefinition());
+    }
+
+    boolean isEmpty() {
+        return regions.isEmpty();
+    }
+
+    void onEnter(Region region, Consumer<? super P> listener) {
+        state(region).enter.add(listener);
+    }
+
+    void onLeave(Region region, Consumer<? super P> listener) {
+        state(region).leave.add(listener);
+    }
+
+    void whileInside(Region region, Consumer<? super P> listener) {
+        final RegionState state = state(region);
+        state.inside.add(listener);
+        insideListened.set(state.id);
+    }
+
+    boolean isInside(P player, Region region) {
+        final RegionState state = existingState(region);
+        if(state == null) return false;
+        final BitSet inside = occupancy.get(player);
+        return inside != null && inside.get(state.id);
+    }
+
+    Set<P> occupants(Region region) {
+        final RegionState state = existingState(region);
+        return state == null ? Collections.emptySet()
+                             : Collections.unmodifiableSet(state.occupants);
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xffffffffL);
+    }
+
+    private void buildIndex() {
+        final Map<Long, List<Integer>> lists = new HashMap<>();
+        final List<Integer> large = new ArrayList<>();
+
+        for(int id = 0; id < regions.size(); id++) {
+            final Cuboid box = bounds.get(id);
+            if(box.isEmpty()) continue;
+
+            final Vector min = box.minimum(), max = box.maximum();
+            if(!(Double.isFinite(min.getX()) && Double.isFinite(min.getZ()) &&
+                 Double.isFinite(max.getX()) && Double.isFinite(max.getZ()))) {
+                large.add(id);
+                continue;
+            }
+
+            final int minX = min.getBlockX() >> CELL_SHIFT, minZ = min.getBlockZ() >> CELL_SHIFT;
+            final int maxX = max.getBlockX() >> CELL_SHIFT, maxZ = max.getBlockZ() >> CELL_SHIFT;
+            if((long) (maxX - minX + 1) * (maxZ - minZ + 1) > MAX_INDEXED_CELLS) {
+                large.add(id);
+                continue;
+            }
+
+            for(int x = minX; x <= maxX; x++) {
+                for(int z = minZ; z <= maxZ; z++) {
+                    lists.computeIfAbsent(cellKey(x, z), key -> new ArrayList<>()).add(id);
+                }
+            }
+        }
+
+        cells = new HashMap<>();
+        lists.forEach((key, ids) -> cells.put(key, ids.stream().mapToInt(Integer::intValue).toArray()));
+        unindexed = large.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void test(int[] ids, int x, int y, int z) {
+        for(int id : ids) {
+            if(regions.get(id).compiled.containsBlock(x, y, z)) {
+                testing.set(id);
+            }
+        }
+    }
+
+    /**
+     * Move the given player to the given block, and notify listeners of any transitions
+     */
+    void move(P player, int x, int y, int z) {
+        if(regions.isEmpty()) return;
+        if(cells == null) buildIndex();
+
+        testing.clear();
+        test(unindexed, x, y, z);
+        test(cells.getOrDefault(cellKey(x >> CELL_SHIFT, z >> CELL_SHIFT), NO_REGIONS), x, y, z);
+
+        final BitSet before = occupancy.get(player);
+        final BitSet after;
+        if(before == null ? testing.isEmpty() : before.equals(testing)) {
+            after = before;
+        } else {
+            after = (BitSet) testing.clone();
+            occupancy.put(player, after);
+            if(!dispatchTransitions(player, before, after)) return;
+        }
+
+        if(after != null && after.intersects(insideListened)) {
+            for(int id = after.nextSetBit(0); id >= 0; id = after.nextSetBit(id + 1)) {
+                if(!dispatch(regions.get(id).inside, player, after)) return;
+            }
+        }
+    }
+
+    /**
+     * Remove the given player, notifying listeners of every region they were inside
+     */
+    void remove(P player) {
+        final BitSet before = occupancy.remove(player);
+        if(before != null) {
+            dispatchTransitions(player, before, null);
+        }
+    }
+
+    /**
+     * @return false if a listener moved the player, and the remaining transitions were not dispatched
+     */
+    private boolean dispatchTransitions(P player, @Nullable BitSet before, @Nullable BitSet after) {
+        final BitSet left = before == null ? new BitSet() : (BitSet) before.clone();
+        final BitSet entered = after == null ? new BitSet() : (BitSet) after.clone();
+        if(after != null) left.andNot(after);
+        if(before != null) entered.andNot(before);
+
+        // Update occupants of every region before notifying anyone
+        for(int id = left.nextSetBit(0); id >= 0; id = left.nextSetBit(id + 1)) {
+            regions.get(id).occupants.remove(player);
+        }
+        for(int id = entered.nextSetBit(0); id >= 0; id = entered.nextSetBit(id + 1)) {
+            regions.get(id).occupants.add(player);
+        }
+
+        for(int id = left.nextSetBit(0); id >= 0; id = left.nextSetBit(id + 1)) {
+            if(!dispatch(regions.get(id).leave, player, after)) return false;
+        }
+        for(int id = entered.nextSetBit(0); id >= 0; id = entered.nextSetBit(id + 1)) {
+            if(!dispatch(regions.get(id).enter, player, after)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Notify the given listeners, as long as the player is still where the movement
+     * that produced the given occupancy left them.
+     *
+     * @return false if a listener moved the player, and the rest were not notified
+     */
+    private boolean dispatch(List<Consumer<? super P>> listeners, P player, @Nullable BitSet current) {
+        for(Consumer<? super P> listener : listeners) {
+            if(occupancy.get(player) != current) return false;
+            listener.accept(player);
+        }
+        return true;
+    }
+}
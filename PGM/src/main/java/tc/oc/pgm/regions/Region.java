@@ -3,11 +3,13 @@ package tc.oc.pgm.regions;
 import java.util.Iterator;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Sets;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Block;
@@ -63,6 +65,11 @@ public interface Region extends TypedFilter<ILocationQuery> {
         return true;
     }
 
+    @Override
+    default Set<Trigger> triggers() {
+        return Sets.immutableEnumSet(Trigger.MOVEMENT);
+    }
+
     /**
      * Test if the region contains the given point
      */
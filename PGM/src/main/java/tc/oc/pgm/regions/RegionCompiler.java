@@ -0,0 +1,503 @@
+package tc.oc.pgm.regions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.geometry.Cuboid;
+import org.bukkit.util.NumberConversions;
+import org.bukkit.util.Vector;
+
+/**
+ * Compiles {@link Region} definitions into {@link CompiledRegion}s.
+ *
+ * Region trees are evaluated by passing {@link Vector}s down through every node,
+ * and transformed regions allocate a new vector at each level. The compiled form
+ * tests primitive coordinates instead, and has the following properties:
+ *
+ *  - Feature proxies are resolved once, at compile time
+ *  - Chains of {@link TranslatedRegion}s are folded into a single offset applied by the leaves
+ *  - Nested unions and intersections are flattened, and constant children are folded away
+ *  - Every non-trivial child of a union or intersection is guarded by its bounding box,
+ *    so points well outside of it are rejected without evaluating the child
+ *
+ * Leaves compute their result with the same arithmetic as the region types they replace,
+ * and points lying exactly on the surface of a cuboid are deferred to the cuboid itself,
+ * so compiled regions respond identically to the original regions. The only exception
+ * is that folded translations are summed before they are applied, which can round
+ * differently if the offsets are not exactly representable. Region types that the
+ * compiler does not recognize are wrapped and evaluated the normal way.
+ */
+public final class RegionCompiler {
+
+    private RegionCompiler() {}
+
+    // Bounding box guards are padded by this much, so that rounding
+    // in transformed bounds can never exclude a point that is inside.
+    private static final double GUARD_PADDING = 1e-6;
+
+    public static CompiledRegion compile(Region region) {
+        return guard(compile(region, 0, 0, 0), region, 0, 0, 0);
+    }
+
+    /**
+     * Compile the given region, which will be tested against points offset by -t
+     */
+    private static Node compile(Region region, double tx, double ty, double tz) {
+        final Region def = (Region) region.getDefinition();
+
+        if(def instanceof EmptyRegion) return Constant.FALSE;
+        if(def instanceof EverywhereRegion) return Constant.TRUE;
+
+        if(def instanceof TranslatedRegion) {
+            final TranslatedRegion translated = (TranslatedRegion) def;
+            return compile(translated.region,
+                           tx + translated.offset.getX(),
+                           ty + translated.offset.getY(),
+                           tz + translated.offset.getZ());
+        }
+
+        if(def instanceof CuboidRegion) {
+            final Cuboid bounds = def.getBounds();
+            if(bounds.isEmpty()) return Constant.FALSE;
+            return new CuboidNode(def, bounds, tx, ty, tz);
+        }
+        if(def instanceof SphereRegion) {
+            return new SphereNode((SphereRegion) def, tx, ty, tz);
+        }
+        if(def instanceof CylindricalRegion) {
+            return new CylinderNode((CylindricalRegion) def, tx, ty, tz);
+        }
+        if(def instanceof HalfspaceRegion) {
+            return new HalfspaceNode((HalfspaceRegion) def, tx, ty, tz);
+        }
+        if(def instanceof SectorRegion) {
+            return new SectorNode((SectorRegion) def, tx, ty, tz);
+        }
+        if(def instanceof BlockRegion) {
+            return new BlockNode((BlockRegion) def, tx, ty, tz);
+        }
+        if(def instanceof FiniteBlockRegion) {
+            return new FiniteBlockNode((FiniteBlockRegion) def, tx, ty, tz);
+        }
+        if(def instanceof MirroredRegion) {
+            final MirroredRegion mirrored = (MirroredRegion) def;
+            final Node child = guard(compile(mirrored.region, 0, 0, 0), mirrored.region, 0, 0, 0);
+            if(child instanceof Constant) return child;
+            return new MirrorNode(mirrored, child, tx, ty, tz);
+        }
+
+        if(def instanceof Union) {
+            final List<Node> children = new ArrayList<>();
+            for(Region child : ((Union) def).regions()) {
+                final Node node = compile(child, tx, ty, tz);
+                if(node == Constant.TRUE) return Constant.TRUE;
+                if(node == Constant.FALSE) continue;
+                if(node instanceof AnyNode) {
+                    for(Node grandchild : ((AnyNode) node).children) children.add(grandchild);
+                } else {
+                    children.add(guard(node, child, tx, ty, tz));
+                }
+            }
+            if(children.isEmpty()) return Constant.FALSE;
+            if(children.size() == 1) return children.get(0);
+            return new AnyNode(children);
+        }
+        if(def instanceof Intersection) {
+            final List<Node> children = new ArrayList<>();
+            for(Region child : ((Intersection) def).regions()) {
+                if(!addConjunct(children, child, tx, ty, tz)) return Constant.FALSE;
+            }
+            return all(children);
+        }
+        if(def instanceof Complement) {
+            final Complement complement = (Complement) def;
+            final List<Node> children = new ArrayList<>();
+            if(!addConjunct(children, complement.original, tx, ty, tz)) return Constant.FALSE;
+            final Node subtracted = compile(complement.subtracted, tx, ty, tz);
+            if(subtracted == Constant.TRUE) return Constant.FALSE;
+            if(subtracted != Constant.FALSE) children.add(not(subtracted));
+            return all(children);
+        }
+        if(def instanceof NegativeRegion) {
+            return not(compile(((NegativeRegion) def).region, tx, ty, tz));
+        }
+
+        return new FallbackNode(def, tx, ty, tz);
+    }
+
+    /**
+     * Compile a child of an intersection and append it to the given list.
+     * Return false if the child is empty, and the entire intersection with it.
+     */
+    private static boolean addConjunct(List<Node> children, Region child, double tx, double ty, double tz) {
+        final Node node = compile(child, tx, ty, tz);
+        if(node == Constant.FALSE) return false;
+        if(node == Constant.TRUE) return true;
+        if(node instanceof AllNode) {
+            for(Node grandchild : ((AllNode) node).children) children.add(grandchild);
+        } else {
+            children.add(guard(node, child, tx, ty, tz));
+        }
+        return true;
+    }
+
+    private static Node all(List<Node> children) {
+        if(children.isEmpty()) return Constant.TRUE;
+        if(children.size() == 1) return children.get(0);
+        return new AllNode(children);
+    }
+
+    private static Node not(Node node) {
+        if(node == Constant.TRUE) return Constant.FALSE;
+        if(node == Constant.FALSE) return Constant.TRUE;
+        if(node instanceof NotNode) return ((NotNode) node).child;
+        return new NotNode(node);
+    }
+
+    /**
+     * Wrap the given node in a bounding box test, if it would be worth it
+     */
+    private static Node guard(Node node, Region region, double tx, double ty, double tz) {
+        if(node.isCheap()) return node;
+
+        final Cuboid bounds;
+        try {
+            bounds = region.getBounds();
+        } catch(UnsupportedOperationException e) {
+            return node;
+        }
+
+        if(bounds.isEmpty()) return node;
+
+        final Vector min = bounds.minimum(), max = bounds.maximum();
+        if(Double.isInfinite(min.getX()) && Double.isInfinite(max.getX()) &&
+           Double.isInfinite(min.getY()) && Double.isInfinite(max.getY()) &&
+           Double.isInfinite(min.getZ()) && Double.isInfinite(max.getZ())) {
+            return node;
+        }
+
+        return new GuardNode(node, min, max, tx, ty, tz);
+    }
+
+    private static abstract class Node implements CompiledRegion {
+        /**
+         * True if this node is about as fast to evaluate as a bounding box test
+         */
+        boolean isCheap() {
+            return true;
+        }
+    }
+
+    /**
+     * Base for leaves, which apply the accumulated translation to the point themselves
+     */
+    private static abstract class Leaf extends Node {
+        final double tx, ty, tz;
+
+        Leaf(double tx, double ty, double tz) {
+            this.tx = tx;
+            this.ty = ty;
+            this.tz = tz;
+        }
+
+        @Override
+        public boolean contains(double x, double y, double z) {
+            return containsLocal(x - tx, y - ty, z - tz);
+        }
+
+        abstract boolean containsLocal(double x, double y, double z);
+    }
+
+    private static final class Constant extends Node {
+        static final Constant TRUE = new Constant(true);
+        static final Constant FALSE = new Constant(false);
+
+        final boolean value;
+
+        Constant(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean contains(double x, double y, double z) {
+            return value;
+        }
+    }
+
+    private static final class GuardNode extends Node {
+        final Node child;
+        final double minX, minY, minZ, maxX, maxY, maxZ;
+
+        GuardNode(Node child, Vector min, Vector max, double tx, double ty, double tz) {
+            this.child = child;
+            this.minX = min.getX() + tx - GUARD_PADDING;
+            this.minY = min.getY() + ty - GUARD_PADDING;
+            this.minZ = min.getZ() + tz - GUARD_PADDING;
+            this.maxX = max.getX() + tx + GUARD_PADDING;
+            this.maxY = max.getY() + ty + GUARD_PADDING;
+            this.maxZ = max.getZ() + tz + GUARD_PADDING;
+        }
+
+        @Override
+        public boolean contains(double x, double y, double z) {
+            return x >= minX && x <= maxX &&
+                   y >= minY && y <= maxY &&
+                   z >= minZ && z <= maxZ &&
+                   child.contains(x, y, z);
+        }
+    }
+
+    private static final class AnyNode extends Node {
+        final Node[] children;
+
+        AnyNode(List<Node> children) {
+            this.children = children.toArray(new Node[children.size()]);
+        }
+
+        @Override
+        boolean isCheap() {
+            return false;
+        }
+
+        @Override
+        public boolean contains(double x, double y, double z) {
+            for(Node child : children) {
+                if(child.contains(x, y, z)) return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class AllNode extends Node {
+        final Node[] children;
+
+        AllNode(List<Node> children) {
+            this.children = children.toArray(new Node[children.size()]);
+        }
+
+        @Override
+        boolean isCheap() {
+            return false;
+        }
+
+        @Override
+        public boolean contains(double x, double y, double z) {
+            for(Node child : children) {
+                if(!child.contains(x, y, z)) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class NotNode extends Node {
+        final Node child;
+
+        NotNode(Node child) {
+            this.child = child;
+        }
+
+        @Override
+        boolean isCheap() {
+            return child.isCheap();
+        }
+
+        @Override
+        public boolean contains(double x, double y, double z) {
+            return !child.contains(x, y, z);
+        }
+    }
+
+    private static final class CuboidNode extends Leaf {
+        final Region region;
+        final double minX, minY, minZ, maxX, maxY, maxZ;
+
+        CuboidNode(Region region, Cuboid bounds, double tx, double ty, double tz) {
+            super(tx, ty, tz);
+            this.region = region;
+            this.minX = bounds.minimum().getX();
+            this.minY = bounds.minimum().getY();
+            this.minZ = bounds.minimum().getZ();
+            this.maxX = bounds.maximum().getX();
+            this.maxY = bounds.maximum().getY();
+            this.maxZ = bounds.maximum().getZ();
+        }
+
+        @Override
+        boolean containsLocal(double x, double y, double z) {
+            if(x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) return false;
+            if(x > minX && x < maxX && y > minY && y < maxY && z > minZ && z < maxZ) return true;
+            // On the surface, let the cuboid decide which faces are inclusive
+            return region.contains(new Vector(x, y, z));
+        }
+    }
+
+    private static final class SphereNode extends Leaf {
+        final double cx, cy, cz, radiusSq;
+
+        SphereNode(SphereRegion region, double tx, double ty, double tz) {
+            super(tx, ty, tz);
+            this.cx = region.center.getX();
+            this.cy = region.center.getY();
+            this.cz = region.center.getZ();
+            this.radiusSq = region.radiusSq;
+        }
+
+        @Override
+        boolean containsLocal(double x, double y, double z) {
+            final double dx = cx - x, dy = cy - y, dz = cz - z;
+            return dx * dx + dy * dy + dz * dz <= radiusSq;
+        }
+    }
+
+    private static final class CylinderNode extends Leaf {
+        final double cx, cz, bottom, top, radiusSq;
+
+        CylinderNode(CylindricalRegion region, double tx, double ty, double tz) {
+            super(tx, ty, tz);
+            this.cx = region.center.getX();
+            this.cz = region.center.getZ();
+            this.bottom = region.bottom;
+            this.top = region.top;
+            this.radiusSq = region.radiusSq;
+        }
+
+        @Override
+        boolean containsLocal(double x, double y, double z) {
+            if(y < bottom || y > top) return false;
+            final double dx = cx - x, dz = cz - z;
+            return dx * dx + dz * dz <= radiusSq;
+        }
+    }
+
+    private static final class HalfspaceNode extends Leaf {
+        final double nx, ny, nz, offset;
+
+        HalfspaceNode(HalfspaceRegion region, double tx, double ty, double tz) {
+            super(tx, ty, tz);
+            this.nx = region.normal.getX();
+            this.ny = region.normal.getY();
+            this.nz = region.normal.getZ();
+            this.offset = region.offset;
+        }
+
+        @Override
+        boolean containsLocal(double x, double y, double z) {
+            return nx * x + ny * y + nz * z >= offset;
+        }
+    }
+
+    private static final class SectorNode extends Leaf {
+        final double cx, cz, startAngle, endAngle;
+
+        SectorNode(SectorRegion region, double tx, double ty, double tz) {
+            super(tx, ty, tz);
+            this.cx = region.center.getX();
+            this.cz = region.center.getZ();
+            this.startAngle = region.startAngle;
+            this.endAngle = region.endAngle;
+        }
+
+        @Override
+        boolean containsLocal(double x, double y, double z) {
+            final double dx = x - cx, dz = z - cz;
+            if(dx == 0 && dz == 0) return true;
+
+            double atan2 = Math.atan2(dz, dx);
+            if(atan2 < 0) atan2 += 2 * Math.PI;
+            return startAngle <= atan2 && atan2 <= endAngle;
+        }
+    }
+
+    private static final class BlockNode extends Leaf {
+        final int bx, by, bz;
+
+        BlockNode(BlockRegion region, double tx, double ty, double tz) {
+            super(tx, ty, tz);
+            this.bx = region.location.getBlockX();
+            this.by = region.location.getBlockY();
+            this.bz = region.location.getBlockZ();
+        }
+
+        @Override
+        boolean containsLocal(double x, double y, double z) {
+            return NumberConversions.floor(x) == bx &&
+                   NumberConversions.floor(y) == by &&
+                   NumberConversions.floor(z) == bz;
+        }
+    }
+
+    private static final class FiniteBlockNode extends Leaf {
+        final FiniteBlockRegion region;
+        final double minX, minY, minZ, maxX, maxY, maxZ;
+
+        FiniteBlockNode(FiniteBlockRegion region, double tx, double ty, double tz) {
+            super(tx, ty, tz);
+            this.region = region;
+            final Cuboid bounds = region.getBounds();
+            this.minX = bounds.minimum().getX();
+            this.minY = bounds.minimum().getY();
+            this.minZ = bounds.minimum().getZ();
+            this.maxX = bounds.maximum().getX();
+            this.maxY = bounds.maximum().getY();
+            this.maxZ = bounds.maximum().getZ();
+        }
+
+        @Override
+        boolean isCheap() {
+            return false;
+        }
+
+        @Override
+        boolean containsLocal(double x, double y, double z) {
+            if(x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) return false;
+            return region.contains(new Vector(x, y, z));
+        }
+    }
+
+    private static final class MirrorNode extends Leaf {
+        final Node child;
+        final double nx, ny, nz, offset;
+
+        MirrorNode(MirroredRegion region, Node child, double tx, double ty, double tz) {
+            super(tx, ty, tz);
+            this.child = child;
+            this.nx = region.normal.getX();
+            this.ny = region.normal.getY();
+            this.nz = region.normal.getZ();
+            this.offset = region.offset;
+        }
+
+        @Override
+        boolean isCheap() {
+            return false;
+        }
+
+        @Override
+        boolean containsLocal(double x, double y, double z) {
+            final double d = 2 * (x * nx + y * ny + z * nz - offset);
+            return child.contains(x - nx * d, y - ny * d, z - nz * d);
+        }
+    }
+
+    /**
+     * Region types with no specialized node are evaluated directly
+     */
+    private static final class FallbackNode extends Leaf {
+        final Region region;
+
+        FallbackNode(Region region, double tx, double ty, double tz) {
+            super(tx, ty, tz);
+            this.region = region;
+        }
+
+        @Override
+        boolean isCheap() {
+            return false;
+        }
+
+        @Override
+        boolean containsLocal(double x, double y, double z) {
+            return region.contains(new Vector(x, y, z));
+        }
+    }
+}
@@ -4,9 +4,11 @@ import tc.oc.commons.core.inject.Manifest;
 import tc.oc.pgm.features.FeatureBinder;
 import tc.oc.pgm.map.MapRootParser;
 import tc.oc.pgm.map.inject.MapScoped;
+import tc.oc.pgm.match.inject.MatchBinders;
+import tc.oc.pgm.match.inject.MatchScoped;
 import tc.oc.pgm.xml.parser.ParserBinders;
 
-public class RegionManifest extends Manifest implements ParserBinders {
+public class RegionManifest extends Manifest implements MatchBinders, ParserBinders {
     @Override
     protected void configure() {
         bind(RegionDefinitionParser.class).in(MapScoped.class);
@@ -21,6 +23,11 @@ public class RegionManifest extends Manifest implements ParserBinders {
             .addBinding()
             .to(RegionParser.class)
             .in(MapScoped.class);
+
+        bind(RegionOccupancyMatchModule.class).in(MatchScoped.class);
+        bind(RegionOccupancyService.class).to(RegionOccupancyMatchModule.class);
+        linkOptional(RegionOccupancyMatchModule.class);
+        matchListener(RegionOccupancyMatchModule.class);
     }
 }
 
@@ -0,0 +1,79 @@
+package tc.oc.pgm.regions;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import tc.oc.commons.bukkit.event.CoarsePlayerMoveEvent;
+import tc.oc.pgm.events.ListenerScope;
+import tc.oc.pgm.events.PlayerChangePartyEvent;
+import tc.oc.pgm.match.MatchModule;
+import tc.oc.pgm.match.MatchPlayer;
+import tc.oc.pgm.match.MatchScope;
+
+/**
+ * Implements {@link RegionOccupancyService} with an {@link OccupancyTracker}, which keeps
+ * a spatial index of region bounds and a bitset of occupied regions for each player.
+ * Movements and teleports are resolved at the block the player ends up in.
+ */
+@ListenerScope(MatchScope.LOADED)
+public class RegionOccupancyMatchModule extends MatchModule implements Listener, RegionOccupancyService {
+
+    private final OccupancyTracker<MatchPlayer> tracker = new OccupancyTracker<>();
+
+    @Override
+    public void onEnter(Region region, Consumer<? super MatchPlayer> listener) {
+        tracker.onEnter(region, listener);
+    }
+
+    @Override
+    public void onLeave(Region region, Consumer<? super MatchPlayer> listener) {
+        tracker.onLeave(region, listener);
+    }
+
+    @Override
+    public void whileInside(Region region, Consumer<? super MatchPlayer> listener) {
+        tracker.whileInside(region, listener);
+    }
+
+    @Override
+    public boolean isInside(MatchPlayer player, Region region) {
+        return tracker.isInside(player, region);
+    }
+
+    @Override
+    public Set<MatchPlayer> occupants(Region region) {
+        return tracker.occupants(region);
+    }
+
+    private void handleMove(Player bukkit, Location to) {
+        if(tracker.isEmpty()) return;
+
+        final MatchPlayer player = match.getPlayer(bukkit);
+        if(player == null) return;
+
+        tracker.move(player, to.getBlockX(), to.getBlockY(), to.getBlockZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(final CoarsePlayerMoveEvent event) {
+        handleMove(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(final PlayerTeleportEvent event) {
+        handleMove(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLeave(final PlayerChangePartyEvent event) {
+        if(event.isLeavingMatch()) {
+            tracker.remove(event.getPlayer());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package tc.oc.pgm.regions;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+import tc.oc.pgm.match.MatchPlayer;
+
+/**
+ * Tracks which {@link Region}s each player in the match is standing in, and notifies
+ * listeners when players move in or out of them.
+ *
+ * Every registered region is resolved in a single pass over each player movement,
+ * so features that only care about a few regions don't need their own movement handlers.
+ * Occupancy is tested at the center of the block that the player is standing in,
+ * the same way that regions respond to player filter queries.
+ *
+ * Regions registered while players are already in the match take effect for each
+ * player at their next movement.
+ */
+public interface RegionOccupancyService {
+
+    /**
+     * Register the given listener to be notified whenever a player moves into the given region
+     */
+    void onEnter(Region region, Consumer<? super MatchPlayer> listener);
+
+    /**
+     * Register the given listener to be notified whenever a player moves out of the given region,
+     * or leaves the match while inside it.
+     */
+    void onLeave(Region region, Consumer<? super MatchPlayer> listener);
+
+    /**
+     * Register the given listener to be notified of every player movement that ends inside
+     * the given region, including the one that enters it (after any {@link #onEnter} listeners).
+     */
+    void whileInside(Region region, Consumer<? super MatchPlayer> listener);
+
+    /**
+     * Is the given player inside the given region, as of their last movement?
+     * Always false for regions that have no listeners.
+     */
+    boolean isInside(MatchPlayer player, Region region);
+
+    /**
+     * Players currently inside the given region. The returned set is a live,
+     * unmodifiable view, and is always empty for regions that have no listeners.
+     */
+    Set<MatchPlayer> occupants(Region region);
+}
@@ -7,7 +7,7 @@ import org.bukkit.util.Vector;
  * Region adaptor that applies a translation.
  */
 public class TranslatedRegion extends TransformedRegion {
-    private final @Inspect Vector offset;
+    final @Inspect Vector offset;
 
     public TranslatedRegion(Region region, Vector offset) {
         super(region);
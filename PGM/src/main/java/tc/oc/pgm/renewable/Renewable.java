@@ -22,12 +22,14 @@ import tc.oc.commons.bukkit.util.BlockFaces;
 import tc.oc.commons.bukkit.util.BlockUtils;
 import tc.oc.commons.bukkit.util.BlockVectorSet;
 import tc.oc.commons.bukkit.util.MaterialCounter;
+import tc.oc.commons.bukkit.util.MaterialUtils;
 import tc.oc.commons.bukkit.util.NMSHacks;
 import tc.oc.commons.core.logging.ClassLogger;
 import tc.oc.pgm.events.ListenerScope;
 import tc.oc.pgm.match.Match;
 import tc.oc.pgm.match.MatchPlayer;
 import tc.oc.pgm.events.BlockTransformEvent;
+import tc.oc.pgm.events.BulkBlockTransformEvent;
 import tc.oc.pgm.filters.Filter;
 import tc.oc.pgm.filters.query.BlockQuery;
 import tc.oc.pgm.match.MatchScope;
@@ -103,6 +105,24 @@ public class Renewable implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockChange(BlockTransformEvent event) {
+        if(!event.isBulk()) {
+            handleBlockChange(event);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onBulkBlockChange(BulkBlockTransformEvent event) {
+        // Changes can only affect the pool inside the region, or next to it when growing adjacent
+        if(!event.mayAffect(definition.region, definition.growAdjacent ? 1 : 0)) return;
+
+        for(BlockTransformEvent change : event.getEvents()) {
+            if(!change.isCancelled()) {
+                handleBlockChange(change);
+            }
+        }
+    }
+
+    private void handleBlockChange(BlockTransformEvent event) {
         BlockState oldState = event.getOldState(), newState = event.getNewState();
 
         updateRenewablePool(newState);
@@ -161,11 +181,10 @@ public class Renewable implements Listener {
         if(!isOriginalRenewable(pos)) return true;
 
         // If original and current material are both shuffleable, block is new
-        MaterialData currentMaterial = currentState.getMaterialData();
         if(isOriginalShuffleable(pos) && definition.shuffleableBlocks.query(new BlockQuery(currentState)).isAllowed()) return true;
 
         // If current material matches original, block is new
-        if(currentMaterial.equals(snapshot().getOriginalMaterial(pos))) return true;
+        if(MaterialUtils.encodeMaterial(currentState) == snapshot().getOriginalMaterial(pos.getBlockX(), pos.getBlockY(), pos.getBlockZ())) return true;
 
         // Otherwise, block is not new (can be renewed)
         return false;
@@ -9,9 +9,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Ordering;
 import net.md_5.bungee.api.ChatColor;
@@ -25,6 +27,8 @@ import org.bukkit.scoreboard.Objective;
 import org.bukkit.scoreboard.Scoreboard;
 import org.bukkit.scoreboard.Team;
 import java.time.Duration;
+import tc.oc.analytics.Distribution;
+import tc.oc.analytics.MetricFactory;
 import tc.oc.commons.bukkit.chat.ComponentRenderers;
 import tc.oc.commons.bukkit.chat.NameStyle;
 import tc.oc.commons.bukkit.util.NullCommandSender;
@@ -58,12 +62,22 @@ import tc.oc.pgm.match.Party;
 import tc.oc.pgm.score.ScoreMatchModule;
 import tc.oc.pgm.spawns.events.ParticipantSpawnEvent;
 import tc.oc.pgm.teams.events.TeamRespawnsChangeEvent;
+import tc.oc.pgm.victory.RankingsChangeEvent;
 import tc.oc.pgm.victory.VictoryMatchModule;
 import tc.oc.pgm.wool.MonumentWool;
 import tc.oc.pgm.wool.MonumentWoolFactory;
 
 import static tc.oc.commons.core.util.Nullables.castOrNull;
 
+/**
+ * Renders the sidebar for each party in the match.
+ *
+ * The sidebar is laid out as a list of rows, each of which knows the goals and competitor
+ * that its text depends on. Events that can change which rows are shown, or their order,
+ * cause all sidebars to be laid out again. Events that only change the state of a goal or
+ * competitor cause only the rows depending on them to be rendered again. Either way, the
+ * work is deferred to the end of the tick, and only rows with changed text are sent to clients.
+ */
 @ListenerScope(MatchScope.LOADED)
 public class SidebarMatchModule extends MatchModule implements Listener {
 
@@ -73,11 +87,46 @@ public class SidebarMatchModule extends MatchModule implements Listener {
 
     @Inject private List<MonumentWoolFactory> wools;
 
+    private Distribution rowsRendered;
+    @Inject void initMetrics(MetricFactory metrics) {
+        rowsRendered = metrics.distribution("sidebar.rows_rendered");
+    }
+
     private final String legacyTitle;
 
     protected final Map<Party, Sidebar> sidebars = new HashMap<>();
     protected final Map<Goal, BlinkTask> blinkingGoals = new HashMap<>();
 
+    // Changes since the last render
+    private boolean layoutDirty = true;
+    private final Set<Goal> dirtyGoals = new HashSet<>();
+    private final Set<Competitor> dirtyCompetitors = new HashSet<>();
+
+    /**
+     * A row of a sidebar, and the goals and competitor that its text depends on
+     */
+    private static class Row {
+        static final Row BLANK = new Row(() -> "", ImmutableSet.of(), null);
+
+        final Supplier<String> text;
+        final Set<Goal> goals;
+        final @Nullable Competitor competitor;
+
+        Row(Supplier<String> text, Set<Goal> goals, @Nullable Competitor competitor) {
+            this.text = text;
+            this.goals = goals;
+            this.competitor = competitor;
+        }
+
+        boolean dependsOn(Set<Goal> goals, Set<Competitor> competitors) {
+            if(competitor != null && competitors.contains(competitor)) return true;
+            for(Goal goal : this.goals) {
+                if(goals.contains(goal)) return true;
+            }
+            return false;
+        }
+    }
+
     private class Sidebar {
         private static final String IDENTIFIER = "pgm";
 
@@ -90,6 +139,8 @@ public class SidebarMatchModule extends MatchModule implements Listener {
         protected final Team[] teams = new Team[MAX_ROWS];
         protected final String[] players = new String[MAX_ROWS];
 
+        private List<Row> layout = ImmutableList.of();
+
         private Sidebar(Party party) {
             this.scoreboard = getMatch().needMatchModule(ScoreboardMatchModule.class).getScoreboard(party);
             this.objective = this.scoreboard.registerNewObjective(IDENTIFIER, "dummy");
@@ -117,6 +168,33 @@ public class SidebarMatchModule extends MatchModule implements Listener {
             return this.objective;
         }
 
+        /**
+         * Replace all rows, and render them. Returns the number of rows rendered.
+         */
+        private int setLayout(List<Row> layout) {
+            this.layout = layout;
+            for(int i = 0; i < MAX_ROWS; i++) {
+                setRow(layout.size(), i, i < layout.size() ? layout.get(i).text.get() : null);
+            }
+            return Math.min(layout.size(), MAX_ROWS);
+        }
+
+        /**
+         * Render the rows that depend on any of the given goals or competitors.
+         * Returns the number of rows rendered.
+         */
+        private int renderRows(Set<Goal> goals, Set<Competitor> competitors) {
+            int rendered = 0;
+            for(int i = 0; i < layout.size() && i < MAX_ROWS; i++) {
+                final Row row = layout.get(i);
+                if(row.dependsOn(goals, competitors)) {
+                    setRow(layout.size(), i, row.text.get());
+                    rendered++;
+                }
+            }
+            return rendered;
+        }
+
         private void setRow(int maxScore, int row, @Nullable String text) {
             if(row < 0 || row >= MAX_ROWS) return;
 
@@ -193,13 +271,13 @@ public class SidebarMatchModule extends MatchModule implements Listener {
     public void load() {
         super.load();
         for(Party party : getMatch().getParties()) addSidebar(party);
-        renderSidebarDebounce();
+        invalidateLayout();
     }
 
     @Override
     public void enable() {
         super.enable();
-        renderSidebarDebounce();
+        invalidateLayout();
     }
 
     @Override
@@ -212,44 +290,50 @@ public class SidebarMatchModule extends MatchModule implements Listener {
     @EventHandler
     public void addParty(PartyAddEvent event) {
         addSidebar(event.getParty());
-        renderSidebarDebounce();
+        invalidateLayout();
     }
 
     @EventHandler
     public void removeParty(PartyRemoveEvent event) {
         logger.fine("Removing sidebar for party " + event.getParty());
         sidebars.remove(event.getParty());
-        renderSidebarDebounce();
+        invalidateLayout();
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPartyChange(PlayerPartyChangeEvent event) {
-        renderSidebarDebounce();
+        invalidateLayout();
     }
 
     @EventHandler(priority = EventPriority.LOWEST)
     public void onDeath(MatchPlayerDeathEvent event) {
-        renderSidebarDebounce();
+        invalidateCompetitor(event.getVictim().getCompetitor());
     }
 
     @EventHandler(priority = EventPriority.LOWEST)
     public void onSpawn(ParticipantSpawnEvent event) {
-        renderSidebarDebounce();
+        invalidateCompetitor(event.getPlayer().getCompetitor());
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPartyRename(final PartyRenameEvent event) {
-        renderSidebarDebounce();
+        invalidateLayout();
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void scoreChange(final MatchScoreChangeEvent event) {
-        renderSidebarDebounce();
+        // If this changes the ranking, a RankingsChangeEvent will follow
+        invalidateCompetitor(event.getCompetitor());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void rankingsChange(final RankingsChangeEvent event) {
+        invalidateLayout();
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void goalTouch(final GoalTouchEvent event) {
-        renderSidebarDebounce();
+        invalidateGoal(event.getGoal());
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
@@ -257,37 +341,37 @@ public class SidebarMatchModule extends MatchModule implements Listener {
         if(event.getGoal() instanceof Destroyable && ((Destroyable) event.getGoal()).getShowProgress()) {
             blinkGoal(event.getGoal(), 3, Duration.ofSeconds(1));
         } else {
-            renderSidebarDebounce();
+            invalidateGoal(event.getGoal());
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void goalProximityChange(final GoalProximityChangeEvent event) {
         if(Config.Scoreboard.showProximity()) {
-            renderSidebarDebounce();
+            invalidateGoal(event.getGoal());
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void goalComplete(final GoalCompleteEvent event) {
-        renderSidebarDebounce();
+        invalidateGoal(event.getGoal());
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void goalChange(final FeatureChangeEvent event) {
         if (event.getFeature() instanceof Goal) {
-            renderSidebarDebounce();
+            invalidateLayout();
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void updateRespawnLimit(final TeamRespawnsChangeEvent event) {
-        renderSidebarDebounce();
+        invalidateLayout();
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void resultChange(MatchResultChangeEvent event) {
-        renderSidebarDebounce();
+        invalidateLayout();
     }
 
     private String renderGoal(Goal<?> goal, @Nullable Competitor competitor, Party viewingParty) {
@@ -339,10 +423,90 @@ public class SidebarMatchModule extends MatchModule implements Listener {
         match.getScheduler(MatchScope.LOADED).debounceTask(this::renderSidebar);
     }
 
+    /**
+     * Lay out all sidebars again, at the end of the tick
+     */
+    private void invalidateLayout() {
+        layoutDirty = true;
+        renderSidebarDebounce();
+    }
+
+    /**
+     * Render the rows depending on the given goal again, at the end of the tick
+     */
+    private void invalidateGoal(Goal goal) {
+        if(dirtyGoals.add(goal)) renderSidebarDebounce();
+    }
+
+    /**
+     * Render the rows depending on the given competitor again, at the end of the tick
+     */
+    private void invalidateCompetitor(@Nullable Competitor competitor) {
+        if(competitor != null && dirtyCompetitors.add(competitor)) renderSidebarDebounce();
+    }
+
     private void renderSidebar() {
+        int rendered = 0;
+        if(layoutDirty) {
+            layoutDirty = false;
+            rendered = layoutSidebars();
+        } else if(!dirtyGoals.isEmpty() || !dirtyCompetitors.isEmpty()) {
+            for(Sidebar sidebar : sidebars.values()) {
+                rendered += sidebar.renderRows(dirtyGoals, dirtyCompetitors);
+            }
+        }
+        dirtyGoals.clear();
+        dirtyCompetitors.clear();
+
+        rowsRendered.sample(rendered);
+    }
+
+    private Row goalRow(Goal<?> goal, @Nullable Competitor competitor, Party viewingParty) {
+        return new Row(() -> renderGoal(goal, competitor, viewingParty), ImmutableSet.of(goal), null);
+    }
+
+    private Row nameRow(Competitor competitor) {
+        return new Row(() -> ComponentRenderers.toLegacyText(competitor.getStyledName(NameStyle.GAME), NullCommandSender.INSTANCE),
+                       ImmutableSet.of(), competitor);
+    }
+
+    private Row scoreRow(Competitor competitor, Party viewingParty, boolean hasScores) {
+        return new Row(() -> {
+            String text = hasScores ? renderScore(competitor, viewingParty)
+                                    : renderBlitz(competitor, viewingParty);
+            if(text.length() != 0) text += " ";
+            return text + ComponentRenderers.toLegacyText(competitor.getStyledName(NameStyle.GAME), NullCommandSender.INSTANCE);
+        }, ImmutableSet.of(), competitor);
+    }
+
+    private Row compactWoolRow(Competitor competitor, List<Goal> sortedWools, Party viewingParty) {
+        return new Row(() -> {
+            String woolText = " ";
+            boolean firstWool = true;
+            for(Goal goal : sortedWools) {
+                if(goal instanceof MonumentWool && goal.isVisible()) {
+                    MonumentWool wool = (MonumentWool) goal;
+                    if(!firstWool) {
+                        woolText += "   ";
+                    }
+                    firstWool = false;
+                    woolText += wool.renderSidebarStatusColor(competitor, viewingParty);
+                    woolText += wool.renderSidebarStatusText(competitor, viewingParty);
+                }
+            }
+            return woolText;
+        }, ImmutableSet.copyOf(sortedWools), competitor);
+    }
+
+    /**
+     * Lay out and render every sidebar from scratch. Returns the number of rows rendered.
+     */
+    private int layoutSidebars() {
         final boolean hasScores = hasScores();
         final boolean isBlitz = isBlitz();
+        final boolean isCompactWool = isCompactWool();
         final GoalMatchModule gmm = match.needMatchModule(GoalMatchModule.class);
+        final VictoryMatchModule vmm = match.needMatchModule(VictoryMatchModule.class);
 
         Set<Competitor> competitorsWithGoals = new HashSet<>();
         List<Goal> sharedGoals = new ArrayList<>();
@@ -360,28 +524,45 @@ public class SidebarMatchModule extends MatchModule implements Listener {
             }
         }
 
+        // Orderings shared by all parties
+        final List<Competitor> rankedCompetitors = hasScores || isBlitz ? ImmutableList.copyOf(vmm.rankedCompetitors())
+                                                                        : ImmutableList.of();
+
+        // Participants see competitors in arbitrary order, with their own at the top
+        final List<Competitor> arbitraryCompetitors = new ArrayList<>(competitorsWithGoals);
+        Collections.sort(arbitraryCompetitors, Ordering.arbitrary());
+
+        // Observers see the competitors sorted by closeness to winning
+        final List<Competitor> victoryCompetitors = new ArrayList<>(competitorsWithGoals);
+        Collections.sort(victoryCompetitors, vmm.victoryOrder());
+
+        final Map<Competitor, List<Goal>> sortedWools = new HashMap<>();
+        if(isCompactWool) {
+            for(Competitor competitor : competitorsWithGoals) {
+                List<Goal> wools = new ArrayList<>(gmm.getGoals(competitor));
+                Collections.sort(wools, new Comparator<Goal>() { @Override public int compare(Goal a, Goal b) {
+                        return a.getName().compareToIgnoreCase(b.getName());
+                }});
+                sortedWools.put(competitor, wools);
+            }
+        }
+
+        int rendered = 0;
         for(Map.Entry<Party, Sidebar> entry : this.sidebars.entrySet()) {
             Party viewingParty = entry.getKey();
             Sidebar sidebar = entry.getValue();
 
-            List<String> rows = new ArrayList<>(MAX_ROWS);
+            List<Row> rows = new ArrayList<>(MAX_ROWS);
 
             // Scores/Blitz
             if(hasScores || isBlitz) {
-                for(Competitor competitor : getMatch().needMatchModule(VictoryMatchModule.class).rankedCompetitors()) {
-                    String text;
-                    if(hasScores) {
-                        text = renderScore(competitor, viewingParty);
-                    } else {
-                        text = renderBlitz(competitor, viewingParty);
-                    }
-                    if(text.length() != 0) text += " ";
-                    rows.add(text + ComponentRenderers.toLegacyText(competitor.getStyledName(NameStyle.GAME), NullCommandSender.INSTANCE));
+                for(Competitor competitor : rankedCompetitors) {
+                    rows.add(scoreRow(competitor, viewingParty, hasScores));
                 }
 
                 if(!competitorsWithGoals.isEmpty() || !sharedGoals.isEmpty()) {
                     // Blank row between scores and goals
-                    rows.add("");
+                    rows.add(Row.BLANK);
                 }
             }
 
@@ -390,63 +571,39 @@ public class SidebarMatchModule extends MatchModule implements Listener {
             // Shared goals i.e. not grouped under a specific team
             for(Goal goal : sharedGoals) {
                 firstTeam = false;
-                rows.add(this.renderGoal(goal, null, viewingParty));
+                rows.add(goalRow(goal, null, viewingParty));
             }
 
             // Team-specific goals
-            List<Competitor> sortedCompetitors = new ArrayList<>(competitorsWithGoals);
+            List<Competitor> sortedCompetitors;
             if(viewingParty instanceof Competitor) {
-                // Participants see competitors in arbitrary order, with their own at the top
-                Collections.sort(sortedCompetitors, Ordering.arbitrary());
+                sortedCompetitors = new ArrayList<>(arbitraryCompetitors);
 
                 // Bump viewing party to the top of the list
                 if(sortedCompetitors.remove(viewingParty)) {
                     sortedCompetitors.add(0, (Competitor) viewingParty);
                 }
             } else {
-                // Observers see the competitors sorted by closeness to winning
-                Collections.sort(sortedCompetitors, match.needMatchModule(VictoryMatchModule.class).victoryOrder());
+                sortedCompetitors = victoryCompetitors;
             }
 
             for(Competitor competitor : sortedCompetitors) {
                 if(!firstTeam) {
                     // Add a blank row between teams
-                    rows.add("");
+                    rows.add(Row.BLANK);
                 }
                 firstTeam = false;
 
                 // Add a row for the team name
-                rows.add(ComponentRenderers.toLegacyText(competitor.getStyledName(NameStyle.GAME),
-                                                         NullCommandSender.INSTANCE));
-
-                if(isCompactWool()) {
-                    String woolText = " ";
-                    boolean firstWool = true;
-
-                    List<Goal> sortedWools = new ArrayList<>(gmm.getGoals(competitor));
-                    Collections.sort(sortedWools, new Comparator<Goal>() { @Override public int compare(Goal a, Goal b) {
-                            return a.getName().compareToIgnoreCase(b.getName());
-                    }});
-
-                    for(Goal goal : sortedWools) {
-                        if(goal instanceof MonumentWool && goal.isVisible()) {
-                            MonumentWool wool = (MonumentWool) goal;
-                            if(!firstWool) {
-                                woolText += "   ";
-                            }
-                            firstWool = false;
-                            woolText += wool.renderSidebarStatusColor(competitor, viewingParty);
-                            woolText += wool.renderSidebarStatusText(competitor, viewingParty);
-                        }
-                    }
-
-                    rows.add(woolText);
+                rows.add(nameRow(competitor));
 
+                if(isCompactWool) {
+                    rows.add(compactWoolRow(competitor, sortedWools.get(competitor), viewingParty));
                 } else {
                     // Add a row for each of this team's goals
                     for(Goal goal : gmm.getGoals()) {
                         if(!goal.isShared() && goal.canComplete(competitor) && goal.isVisible()) {
-                            rows.add(this.renderGoal(goal, competitor, viewingParty));
+                            rows.add(goalRow(goal, competitor, viewingParty));
                         }
                     }
                 }
@@ -454,17 +611,12 @@ public class SidebarMatchModule extends MatchModule implements Listener {
 
             // Need at least one row for the sidebar to show
             if(rows.isEmpty()) {
-                rows.add("");
+                rows.add(Row.BLANK);
             }
 
-            for(int i = 0; i < MAX_ROWS; i++) {
-                if(i < rows.size()) {
-                    sidebar.setRow(rows.size(), i, rows.get(i));
-                } else {
-                    sidebar.setRow(rows.size(), i, null);
-                }
-            }
+            rendered += sidebar.setLayout(rows);
         }
+        return rendered;
     }
 
     public void blinkGoal(Goal goal, float rateHz, @Nullable Duration duration) {
@@ -504,7 +656,7 @@ public class SidebarMatchModule extends MatchModule implements Listener {
         public void stop() {
             this.task.cancel();
             SidebarMatchModule.this.blinkingGoals.remove(this.goal);
-            renderSidebarDebounce();
+            invalidateGoal(this.goal);
         }
 
         public boolean isDark() {
@@ -522,7 +674,7 @@ public class SidebarMatchModule extends MatchModule implements Listener {
             }
 
             this.dark = !this.dark;
-            renderSidebarDebounce();
+            invalidateGoal(this.goal);
         }
     }
 }
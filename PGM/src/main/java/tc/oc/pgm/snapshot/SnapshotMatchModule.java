@@ -1,20 +1,16 @@
 package tc.oc.pgm.snapshot;
 
-import java.util.HashMap;
-import java.util.Map;
-
-import org.bukkit.Chunk;
-import org.bukkit.ChunkSnapshot;
-import org.bukkit.Material;
 import org.bukkit.block.BlockState;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.material.MaterialData;
-import org.bukkit.util.BlockVector;
 import org.bukkit.util.Vector;
-import tc.oc.commons.bukkit.util.ChunkVector;
+import tc.oc.commons.bukkit.util.BlockMaterialMap;
+import tc.oc.commons.bukkit.util.BlockUtils;
+import tc.oc.commons.bukkit.util.MaterialUtils;
 import tc.oc.pgm.events.BlockTransformEvent;
+import tc.oc.pgm.events.BulkBlockTransformEvent;
 import tc.oc.pgm.events.ListenerScope;
 import tc.oc.pgm.match.MatchModule;
 import tc.oc.pgm.match.MatchScope;
@@ -24,42 +20,45 @@ import tc.oc.pgm.match.MatchScope;
  * using a copy-on-write strategy. This module does nothing on its own, but
  * other modules can use it to query for the original materials of the map.
  *
+ * Only the original material of each block that has actually changed is stored,
+ * in a primitive map keyed by encoded block position. Any block that is not in
+ * the map still has its original material, so it is read from the world.
+ *
  * The correct functioning of this module depends on EVERY block change firing
  * a {@link BlockTransformEvent}, without exception.
  */
 @ListenerScope(MatchScope.LOADED)
 public class SnapshotMatchModule extends MatchModule implements Listener {
 
-    private final Map<ChunkVector, ChunkSnapshot> chunkSnapshots = new HashMap<>();
+    private static final int ENCODED_AIR = MaterialUtils.encodeMaterial(0, (byte) 0);
 
-    public MaterialData getOriginalMaterial(int x, int y, int z) {
-        if(y < 0 || y >= 256) return new MaterialData(Material.AIR);
+    private final BlockMaterialMap originalMaterials = new BlockMaterialMap();
 
-        ChunkVector chunkVector = ChunkVector.ofBlock(x, y, z);
-        ChunkSnapshot chunkSnapshot = chunkSnapshots.get(chunkVector);
-        if(chunkSnapshot != null) {
-            BlockVector chunkPos = chunkVector.worldToChunk(x, y, z);
-            return new MaterialData(chunkSnapshot.getBlockTypeId(chunkPos.getBlockX(), chunkPos.getBlockY(), chunkPos.getBlockZ()),
-                                    (byte) chunkSnapshot.getBlockData(chunkPos.getBlockX(), chunkPos.getBlockY(), chunkPos.getBlockZ()));
-        } else {
-            return getMatch().getWorld().getBlockAt(x, y, z).getState().getMaterialData();
-        }
+    /**
+     * Return the original material at the given block position, encoded with
+     * {@link MaterialUtils#encodeMaterial(int, byte)}. Positions outside the
+     * vertical bounds of the world are always air.
+     */
+    public int getOriginalMaterial(int x, int y, int z) {
+        if(y < 0 || y >= 256) return ENCODED_AIR;
+
+        final int encoded = originalMaterials.getEncoded(x, y, z);
+        if(encoded != BlockMaterialMap.NO_VALUE) return encoded;
+
+        return MaterialUtils.encodeMaterial(getMatch().getWorld().getBlockAt(x, y, z));
     }
 
     public MaterialData getOriginalMaterial(Vector pos) {
-        return getOriginalMaterial(pos.getBlockX(), pos.getBlockY(), pos.getBlockZ());
+        return MaterialUtils.decodeMaterial(getOriginalMaterial(pos.getBlockX(), pos.getBlockY(), pos.getBlockZ()));
     }
 
     public BlockState getOriginalBlock(int x, int y, int z) {
-        BlockState state = getMatch().getWorld().getBlockAt(x, y, z).getState();
+        final BlockState state = getMatch().getWorld().getBlockAt(x, y, z).getState();
         if(y < 0 || y >= 256) return state;
 
-        ChunkVector chunkVector = ChunkVector.ofBlock(x, y, z);
-        ChunkSnapshot chunkSnapshot = chunkSnapshots.get(chunkVector);
-        if(chunkSnapshot != null) {
-            BlockVector chunkPos = chunkVector.worldToChunk(x, y, z);
-            state.setMaterialData(new MaterialData(chunkSnapshot.getBlockTypeId(chunkPos.getBlockX(), chunkPos.getBlockY(), chunkPos.getBlockZ()),
-                                                   (byte) chunkSnapshot.getBlockData(chunkPos.getBlockX(), chunkPos.getBlockY(), chunkPos.getBlockZ())));
+        final int encoded = originalMaterials.getEncoded(x, y, z);
+        if(encoded != BlockMaterialMap.NO_VALUE) {
+            state.setMaterialData(MaterialUtils.decodeMaterial(encoded));
         }
         return state;
     }
@@ -71,13 +70,30 @@ public class SnapshotMatchModule extends MatchModule implements Listener {
     // Listen on lowest priority so that the original block is available to other handlers of this event
     @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
     public void onBlockChange(BlockTransformEvent event) {
-        Chunk chunk = event.getOldState().getChunk();
-        ChunkVector chunkVector = ChunkVector.of(chunk);
-        if(!chunkSnapshots.containsKey(chunkVector)) {
-            logger.fine("Copying chunk at " + chunkVector);
-            ChunkSnapshot chunkSnapshot = chunk.getChunkSnapshot();
-            chunkSnapshot.updateBlock(event.getOldState()); // ChunkSnapshot is very likely to have the post-event state already, so we have to correct it
-            chunkSnapshots.put(chunkVector, chunkSnapshot);
+        if(event.isBulk()) return;
+
+        final BlockState oldState = event.getOldState();
+        if(oldState.getY() < 0 || oldState.getY() >= 256) return;
+
+        // Only the first change to a block has its original material as the old state
+        if(!originalMaterials.containsKey(oldState.getX(), oldState.getY(), oldState.getZ())) {
+            originalMaterials.putEncoded(oldState.getX(), oldState.getY(), oldState.getZ(),
+                                         MaterialUtils.encodeMaterial(oldState));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onBulkBlockChange(BulkBlockTransformEvent event) {
+        for(int i = 0; i < event.size(); i++) {
+            if(event.isCancelled(i)) continue;
+
+            final long pos = event.getPosition(i);
+            final int y = BlockUtils.decodeY(pos);
+            if(y < 0 || y >= 256) continue;
+
+            if(!originalMaterials.containsKey(pos)) {
+                originalMaterials.putEncoded(pos, event.getOldMaterial(i));
+            }
         }
     }
 }
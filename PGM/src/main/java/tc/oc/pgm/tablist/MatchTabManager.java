@@ -29,9 +29,17 @@ import tc.oc.pgm.teams.events.TeamResizeEvent;
 
 import javax.annotation.Nullable;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class MatchTabManager extends TabManager implements Listener {
-    public static final long RENDER_DELAY = 1;
+    /**
+     * Renders are delayed long enough that they take no more than this much time per tick,
+     * on average, based on the duration of the last render. Bursts of changes on a busy
+     * server are coalesced into fewer renders, while small servers still render every tick.
+     */
+    private static final long RENDER_BUDGET_NANOS = TimeUnit.MICROSECONDS.toNanos(2500);
+    private static final long MIN_RENDER_DELAY = 1;
+    private static final long MAX_RENDER_DELAY = 20;
 
     private final Map<Team, TeamTabEntry> teamEntries = new DefaultMapAdapter<>(new TeamTabEntry.Factory(), true);
     private final Map<Match, MapTabEntry> mapEntries = new DefaultMapAdapter<>(new MapTabEntry.Factory(), true);
@@ -57,6 +65,11 @@ public class MatchTabManager extends TabManager implements Listener {
         HandlerList.unregisterAll(this);
     }
 
+    private long renderDelay() {
+        final long ticks = (getLastRenderNanos() + RENDER_BUDGET_NANOS - 1) / RENDER_BUDGET_NANOS;
+        return Math.max(MIN_RENDER_DELAY, Math.min(MAX_RENDER_DELAY, ticks));
+    }
+
     @Override
     protected void invalidate() {
         super.invalidate();
@@ -68,7 +81,7 @@ public class MatchTabManager extends TabManager implements Listener {
                     MatchTabManager.this.render();
                 }
             };
-            this.renderTask = this.getPlugin().getServer().getScheduler().runTaskLater(this.getPlugin(), render, RENDER_DELAY);
+            this.renderTask = this.getPlugin().getServer().getScheduler().runTaskLater(this.getPlugin(), render, renderDelay());
         }
     }
 
@@ -20,8 +20,9 @@ public class TerrainManifest extends HybridManifest implements MapBinders, Match
             .to(WorldManagerImpl.class)
             .in(MapScoped.class);
 
-        new PluginFacetBinder(binder())
-            .register(DisableKeepSpawnInMemoryListener.class);
+        final PluginFacetBinder facets = new PluginFacetBinder(binder());
+        facets.register(DisableKeepSpawnInMemoryListener.class);
+        facets.register(WorldStager.class);
 
         bind(BlockPhysicsListener.class).in(MatchScoped.class);
         matchListener(BlockPhysicsListener.class);
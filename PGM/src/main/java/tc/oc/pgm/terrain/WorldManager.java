@@ -18,6 +18,12 @@ public interface WorldManager {
      */
     World createWorld(String worldName) throws ModuleLoadException, IOException;
 
+    /**
+     * Start preparing the files for this map's world in the background,
+     * so that a later call to {@link #createWorld} completes faster.
+     */
+    void stageWorld();
+
     /**
      * Unload the given world
      */
@@ -25,6 +31,7 @@ public interface WorldManager {
 
     /**
      * Destroy the given world, optionally copying it to the given archive location first.
+     * This may complete asynchronously, after the method returns.
      */
     void destroyWorld(String worldName, @Nullable File archive);
 }
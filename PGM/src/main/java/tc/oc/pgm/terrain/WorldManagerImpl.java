@@ -11,12 +11,9 @@ import javax.inject.Inject;
 import org.bukkit.Server;
 import org.bukkit.World;
 import org.bukkit.WorldCreator;
-import tc.oc.commons.core.FileUtils;
 import tc.oc.pgm.map.MapInfo;
 import tc.oc.pgm.module.ModuleLoadException;
 
-import static com.google.common.base.Preconditions.checkState;
-
 /**
  * Provides handy methods to load, save, and archive match worlds.
  */
@@ -26,51 +23,20 @@ public class WorldManagerImpl implements WorldManager {
     private final MapInfo mapInfo;
     private final TerrainOptions terrainOptions;
     private final Set<WorldConfigurator> worldConfigurators;
+    private final WorldStager worldStager;
 
-    @Inject private WorldManagerImpl(Server server, MapInfo mapInfo, TerrainOptions terrainOptions, Set<WorldConfigurator> worldConfigurators) {
+    @Inject private WorldManagerImpl(Server server, MapInfo mapInfo, TerrainOptions terrainOptions, Set<WorldConfigurator> worldConfigurators, WorldStager worldStager) {
         this.server = server;
         this.mapInfo = mapInfo;
         this.terrainOptions = terrainOptions;
         this.worldConfigurators = worldConfigurators;
+        this.worldStager = worldStager;
     }
 
     private File worldFolder(String worldName) {
         return new File(server.getWorldContainer(), worldName);
     }
 
-    private void destroy(String worldName) throws IOException {
-        final File folder = worldFolder(worldName);
-        if(folder.exists()) {
-            FileUtils.delete(folder);
-        }
-    }
-
-    private void copyDirs(File source, File dest, String... names) throws IOException {
-        for(String name : names) {
-            final File dir = new File(source, name);
-            if(dir.isDirectory()) {
-                FileUtils.copy(dir, new File(dest, name));
-            }
-        }
-    }
-
-    private void copy(File source, String worldName) throws IOException {
-        final File folder = worldFolder(worldName);
-
-        // only copy level.dat, region/, and data/
-        if(!folder.mkdir()) {
-            throw new IOException("Failed to create temporary world folder " + folder);
-        }
-
-        FileUtils.copy(new File(source, "level.dat"), new File(folder, "level.dat"));
-        copyDirs(source, folder, "region", "data", "structures");
-    }
-
-    private void importDestructive(File source, String worldName) throws IOException {
-        destroy(worldName);
-        copy(source, worldName);
-    }
-
     private WorldCreator worldCreator(String worldName) {
         final WorldCreator creator = server.detectWorld(worldName);
         return creator != null ? creator : new WorldCreator(worldName);
@@ -82,21 +48,26 @@ public class WorldManagerImpl implements WorldManager {
             throw new IllegalStateException("Can't create a world because there is no default world to derive it from");
         }
 
-        try {
-            importDestructive(terrainOptions.worldFolder().toFile(), worldName);
-        } catch(FileNotFoundException e) {
-            // If files are missing, just inform the mapmaker.
-            // Other IOExceptions are considered internal errors.
-            throw new ModuleLoadException(e.getMessage()); // Don't set the cause, it's redundant
+        final File folder = worldFolder(worldName);
+        if(!worldStager.adopt(terrainOptions.worldFolder(), folder)) {
+            try {
+                worldStager.copy(terrainOptions.worldFolder(), folder);
+            } catch(FileNotFoundException e) {
+                // If files are missing, just inform the mapmaker.
+                // Other IOExceptions are considered internal errors.
+                throw new ModuleLoadException(e.getMessage()); // Don't set the cause, it's redundant
+            }
         }
 
         final WorldCreator creator = worldCreator(worldName);
         worldConfigurators.forEach(wc -> wc.configureWorld(creator));
 
+        final long start = System.nanoTime();
         final World world = server.createWorld(creator);
         if(world == null) {
             throw new IllegalStateException("Failed to create world (Server.createWorld returned null)");
         }
+        worldStager.record(WorldStager.Phase.LOAD, start, worldName);
 
         world.setAutoSave(false);
         world.setKeepSpawnInMemory(false);
@@ -106,33 +77,20 @@ public class WorldManagerImpl implements WorldManager {
         return world;
     }
 
+    @Override
+    public void stageWorld() {
+        worldStager.stage(terrainOptions.worldFolder());
+    }
+
     @Override
     public void unloadWorld(World world) {
+        final long start = System.nanoTime();
         this.server.unloadWorld(world, true);
+        worldStager.record(WorldStager.Phase.UNLOAD, start, world.getName());
     }
 
     @Override
     public void destroyWorld(String worldName, @Nullable File archive) {
-        File folder = worldFolder(worldName);
-        if(!folder.exists()) return;
-
-        if(archive != null) {
-            cleanWorldDirectory(folder);
-            checkState(folder.renameTo(archive));
-        } else {
-            FileUtils.delete(folder);
-        }
-    }
-
-    /**
-     * Cleans the world directory of generated files.  Currently it deletes:
-     * - session.lock
-     * - uid.dat
-     *
-     * @param dir File pointing to the world directory.
-     */
-    private void cleanWorldDirectory(File dir) {
-        new File(dir, "session.lock").delete();
-        new File(dir, "uid.dat").delete();
+        worldStager.destroy(worldFolder(worldName), archive);
     }
 }
@@ -0,0 +1,435 @@
+package tc.oc.pgm.terrain;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.bukkit.Server;
+import tc.oc.commons.core.FileUtils;
+import tc.oc.commons.core.concurrent.ExecutorUtils;
+import tc.oc.commons.core.logging.Loggers;
+import tc.oc.commons.core.plugin.PluginFacet;
+import tc.oc.pgm.Config;
+import tc.oc.pgm.map.MapFileStamp;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Moves the slow file operations of a cycle off the main thread.
+ *
+ * When the next map is known, its world can be staged, which copies the world
+ * files into a temporary folder in the background. When the match is loaded,
+ * {@link WorldManagerImpl} adopts the staged folder with a simple rename, and
+ * only falls back to copying the files itself if nothing was staged.
+ *
+ * Region files are cloned with reflinks where the filesystem supports it, so
+ * that the copy shares its unmodified blocks with the map's master copy. Where
+ * it does not, they are copied in full, and this is logged once.
+ *
+ * Old worlds are archived or deleted in the background as well.
+ *
+ * The duration of each phase is logged, and the most recent ones can be
+ * retrieved through {@link #describeTimings()}.
+ */
+@Singleton
+public class WorldStager implements PluginFacet {
+
+    public enum Phase {
+        STAGE,      // Copying a world in the background
+        ADOPT,      // Waiting for a staged world and moving it into place
+        COPY,       // Copying a world synchronously, because none was staged
+        LOAD,       // Creating the world on the server
+        UNLOAD,     // Unloading the world from the server
+        DESTROY     // Archiving or deleting a world folder
+    }
+
+    private static final String STAGING_PREFIX = "staging-";
+
+    // Folders copied from the source world, along with level.dat
+    private static final String[] WORLD_FOLDERS = {"region", "data", "structures"};
+
+    private final Logger logger;
+    private final Server server;
+    private final Map<Phase, Long> timings = new EnumMap<>(Phase.class);
+
+    // Only accessed from the main thread
+    private final Map<Path, Staged> staged = new HashMap<>();
+    private int nextStagingId;
+
+    private @Nullable ExecutorService executor;
+
+    // Whether region files can be cloned copy-on-write, or null if not known yet
+    private volatile @Nullable Boolean reflinkSupported;
+
+    private class Staged {
+        final Path source;
+        final File folder;
+        final Future<?> future;
+
+        // Stamps of every source file, taken before they were copied
+        volatile @Nullable Map<Path, MapFileStamp> sourceStamps;
+
+        Staged(Path source, File folder) {
+            this.source = source;
+            this.folder = folder;
+            this.future = executor.submit(() -> {
+                final long start = System.nanoTime();
+                sourceStamps = stampWorld(source.toFile());
+                copyWorld(source.toFile(), folder);
+                record(Phase.STAGE, start, folder.getName());
+                return null;
+            });
+        }
+
+        boolean isStale() {
+            try {
+                return sourceStamps == null || !sourceStamps.equals(stampWorld(source.toFile()));
+            } catch(IOException e) {
+                return true;
+            }
+        }
+    }
+
+    @Inject WorldStager(Loggers loggers, Server server) {
+        this.logger = loggers.get(getClass());
+        this.server = server;
+    }
+
+    @Override
+    public void enable() {
+        executor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("PGM World IO").setDaemon(true).build()
+        );
+
+        // Clean up after any previous crash
+        final File[] leftovers = server.getWorldContainer().listFiles((dir, name) -> name.startsWith(STAGING_PREFIX));
+        if(leftovers != null) {
+            for(File folder : leftovers) {
+                destroy(folder, null);
+            }
+        }
+    }
+
+    @Override
+    public void disable() {
+        for(Staged staged : this.staged.values()) {
+            staged.future.cancel(true);
+        }
+
+        if(executor != null) {
+            executor.shutdown();
+            ExecutorUtils.awaitTermination(executor, logger, Duration.ofSeconds(30), "Patient");
+            executor = null;
+        }
+
+        for(Staged staged : this.staged.values()) {
+            FileUtils.delete(staged.folder);
+        }
+        this.staged.clear();
+    }
+
+    /**
+     * Start copying the world at the given path in the background, unless it is already staged.
+     * Any other staged worlds are discarded.
+     */
+    public void stage(Path source) {
+        if(executor == null || !Config.Worlds.stageNext()) return;
+
+        for(Iterator<Staged> it = staged.values().iterator(); it.hasNext();) {
+            final Staged other = it.next();
+            if(!other.source.equals(source)) {
+                it.remove();
+                discard(other);
+            }
+        }
+
+        if(!staged.containsKey(source)) {
+            final File folder = new File(server.getWorldContainer(), STAGING_PREFIX + nextStagingId++);
+            staged.put(source, new Staged(source, folder));
+        }
+    }
+
+    /**
+     * If the world at the given path has been staged, move it to the given folder and return true.
+     * If the world was not staged, or staging failed, return false. If staging is still in progress,
+     * this method waits up to {@link Config.Worlds#stageWait()} for it to finish, and then gives up
+     * and returns false.
+     */
+    boolean adopt(Path source, File dest) {
+        final Staged staged = this.staged.remove(source);
+        if(staged == null) return false;
+
+        final long start = System.nanoTime();
+        try {
+            staged.future.get(Config.Worlds.stageWait().toMillis(), TimeUnit.MILLISECONDS);
+        } catch(TimeoutException e) {
+            logger.warning("Staging world from " + source + " did not finish in time, copying it instead");
+            discard(staged);
+            return false;
+        } catch(InterruptedException | ExecutionException e) {
+            logger.log(Level.WARNING, "Failed to stage world from " + source + ", copying it instead", e);
+            discard(staged);
+            return false;
+        }
+
+        if(staged.isStale()) {
+            logger.info("World at " + source + " changed after it was staged, copying it instead");
+            discard(staged);
+            return false;
+        }
+
+        if(dest.exists()) {
+            FileUtils.delete(dest);
+        }
+        if(!staged.folder.renameTo(dest)) {
+            logger.warning("Failed to move staged world " + staged.folder + " to " + dest + ", copying it instead");
+            discard(staged);
+            return false;
+        }
+
+        record(Phase.ADOPT, start, dest.getName());
+        return true;
+    }
+
+    /**
+     * Copy the world at the given path to the given folder, on the calling thread
+     */
+    void copy(Path source, File dest) throws IOException {
+        final long start = System.nanoTime();
+        if(dest.exists()) {
+            FileUtils.delete(dest);
+        }
+        copyWorld(source.toFile(), dest);
+        record(Phase.COPY, start, dest.getName());
+    }
+
+    /**
+     * Archive the given world folder to the given location, or delete it if no archive is given.
+     * This happens in the background, unless disabled in the config or the server is shutting down.
+     */
+    void destroy(File folder, @Nullable File archive) {
+        if(executor != null && Config.Worlds.asyncDestroy()) {
+            try {
+                executor.execute(() -> destroyNow(folder, archive));
+                return;
+            } catch(RejectedExecutionException ignored) {
+                // Shutting down, do it synchronously
+            }
+        }
+        destroyNow(folder, archive);
+    }
+
+    /**
+     * Record the duration of a phase that started at the given {@link System#nanoTime()}
+     */
+    void record(Phase phase, long start, String worldName) {
+        final long nanos = System.nanoTime() - start;
+        synchronized(timings) {
+            timings.put(phase, nanos);
+        }
+        logger.info(phase.name().toLowerCase() + " " + worldName + " took " + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms");
+    }
+
+    /**
+     * Return a description of the most recent duration of each phase, for debugging
+     */
+    public String describeTimings() {
+        final StringBuilder text = new StringBuilder();
+        synchronized(timings) {
+            for(Phase phase : Phase.values()) {
+                if(text.length() > 0) text.append(", ");
+                text.append(phase.name().toLowerCase()).append('=');
+                final Long nanos = timings.get(phase);
+                text.append(nanos == null ? "n/a" : TimeUnit.NANOSECONDS.toMillis(nanos) + "ms");
+            }
+        }
+        return text.toString();
+    }
+
+    private void discard(Staged staged) {
+        staged.future.cancel(true);
+        // Runs after the copy task on the same thread, so it will not race with it
+        destroy(staged.folder, null);
+    }
+
+    private void destroyNow(File folder, @Nullable File archive) {
+        if(!folder.exists()) return;
+
+        final long start = System.nanoTime();
+        try {
+            if(archive != null) {
+                cleanWorldDirectory(folder);
+                checkState(folder.renameTo(archive));
+            } else {
+                FileUtils.delete(folder);
+            }
+            record(Phase.DESTROY, start, folder.getName());
+        } catch(RuntimeException e) {
+            logger.log(Level.SEVERE, "Failed to destroy world folder " + folder, e);
+        }
+    }
+
+    private static File levelFile(File worldFolder) {
+        return new File(worldFolder, "level.dat");
+    }
+
+    /**
+     * Return the stamps of every file copied from the given world,
+     * which change if any file is modified, added, or removed.
+     */
+    private static Map<Path, MapFileStamp> stampWorld(File worldFolder) throws IOException {
+        final Map<Path, MapFileStamp> stamps = new HashMap<>();
+        final Path level = levelFile(worldFolder).toPath();
+        stamps.put(level, MapFileStamp.of(level));
+
+        for(String name : WORLD_FOLDERS) {
+            final Path dir = new File(worldFolder, name).toPath();
+            if(!Files.isDirectory(dir)) continue;
+
+            try(Stream<Path> files = Files.walk(dir)) {
+                for(Iterator<Path> it = files.filter(Files::isRegularFile).iterator(); it.hasNext();) {
+                    final Path file = it.next();
+                    stamps.put(file, MapFileStamp.of(file));
+                }
+            }
+        }
+        return stamps;
+    }
+
+    private void copyWorld(File source, File dest) throws IOException {
+        // only copy level.dat, region/, and data/
+        if(!dest.mkdir()) {
+            throw new IOException("Failed to create temporary world folder " + dest);
+        }
+
+        FileUtils.copy(levelFile(source), levelFile(dest));
+        for(String name : WORLD_FOLDERS) {
+            final File dir = new File(source, name);
+            if(dir.isDirectory()) {
+                if(name.equals("region")) {
+                    cloneRegions(dir, new File(dest, name));
+                } else {
+                    FileUtils.copy(dir, new File(dest, name));
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy a region folder, sharing the file contents with the source through
+     * reflinks if possible. A reflinked file shares its blocks with the source until
+     * either one is written to, at which point the filesystem copies only the blocks
+     * that changed. Region files are mostly unmodified during a match, so this makes
+     * the copy nearly free, both in time and space, on filesystems that support it
+     * (e.g. btrfs, XFS). On other filesystems, the files are copied normally.
+     *
+     * Plain hard links are not an option, because the server writes chunks into its
+     * open region files, which would modify the source files through the link.
+     */
+    private void cloneRegions(File source, File dest) throws IOException {
+        if(Config.Worlds.reflinkRegions() && !Boolean.FALSE.equals(reflinkSupported)) {
+            String error;
+            try {
+                error = reflink(source, dest);
+            } catch(InterruptedIOException e) {
+                throw e;
+            } catch(IOException e) {
+                error = e.toString();
+            }
+
+            if(error == null) {
+                reflinkSupported = true;
+                return;
+            }
+
+            if(reflinkSupported == null) {
+                // The first clone is the probe, because only a clone between the actual
+                // source and destination shows whether those filesystems support it.
+                logger.info("Region files cannot be cloned copy-on-write from " + source + " to " + dest.getParent() +
+                            ", so they will be copied in full for every match: " + error);
+                reflinkSupported = false;
+            } else {
+                logger.warning("Failed to reflink region files from " + source + ", copying them instead: " + error);
+            }
+
+            if(dest.exists()) {
+                FileUtils.delete(dest);
+            }
+        }
+
+        FileUtils.copy(source, dest);
+    }
+
+    /**
+     * Clone the given file or folder with GNU cp, using reflinks only. This fails on filesystems
+     * without copy-on-write support, instead of quietly copying every byte like --reflink=auto.
+     * Return null if cp succeeded, or its output if it failed.
+     *
+     * If the thread is interrupted, cp is killed before this method throws,
+     * so it is never left writing to a folder that is about to be deleted.
+     *
+     * @throws IOException if cp could not be started
+     */
+    private static @Nullable String reflink(File source, File dest) throws IOException {
+        // Output goes to a file, so there is no pipe to drain and waitFor() is the only blocking call
+        final File output = File.createTempFile("pgm-cp", ".log");
+        try {
+            final Process process = new ProcessBuilder("cp", "-R", "--reflink=always", source.getPath(), dest.getPath())
+                .redirectErrorStream(true)
+                .redirectOutput(output)
+                .start();
+
+            try {
+                if(process.waitFor() == 0) return null;
+            } catch(InterruptedException e) {
+                process.destroyForcibly();
+                for(;;) {
+                    try {
+                        process.waitFor();
+                        break;
+                    } catch(InterruptedException ignored) {}
+                }
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while cloning " + source);
+            }
+
+            return new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8).trim();
+        } finally {
+            output.delete();
+        }
+    }
+
+    /**
+     * Cleans the world directory of generated files.  Currently it deletes:
+     * - session.lock
+     * - uid.dat
+     *
+     * @param dir File pointing to the world directory.
+     */
+    private static void cleanWorldDirectory(File dir) {
+        new File(dir, "session.lock").delete();
+        new File(dir, "uid.dat").delete();
+    }
+}
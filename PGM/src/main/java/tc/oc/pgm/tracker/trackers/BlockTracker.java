@@ -21,6 +21,7 @@ import org.bukkit.event.block.BlockPistonExtendEvent;
 import org.bukkit.event.block.BlockPistonRetractEvent;
 import tc.oc.commons.core.logging.Loggers;
 import tc.oc.pgm.events.BlockTransformEvent;
+import tc.oc.pgm.events.BulkBlockTransformEvent;
 import tc.oc.pgm.events.ListenerScope;
 import tc.oc.pgm.match.MatchScope;
 import tc.oc.pgm.match.ParticipantState;
@@ -105,6 +106,23 @@ public class BlockTracker implements BlockResolver, Listener {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onTransform(BlockTransformEvent event) {
+        if(!event.isBulk()) {
+            handleTransform(event);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onBulkTransform(BulkBlockTransformEvent event) {
+        if(blocks.isEmpty()) return;
+
+        for(BlockTransformEvent change : event.getEvents()) {
+            if(!change.isCancelled()) {
+                handleTransform(change);
+            }
+        }
+    }
+
+    private void handleTransform(BlockTransformEvent event) {
         if(event.getCause() instanceof BlockPistonEvent) return;
 
         Block block = event.getOldState().getBlock();
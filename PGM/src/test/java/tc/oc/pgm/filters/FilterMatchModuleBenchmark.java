@@ -0,0 +1,81 @@
+package tc.oc.pgm.filters;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import tc.oc.pgm.filters.Filter.Trigger;
+import tc.oc.pgm.filters.FilterMatchModuleTest.TestFilter;
+import tc.oc.pgm.filters.FilterMatchModuleTest.TestFilterable;
+import tc.oc.pgm.match.Match;
+
+/**
+ * Measures {@link FilterMatchModule#tick()} for a match with 100 filterables and 200
+ * listened filters, as they would be after every player moves. Half of the filters
+ * respond to movement, and the rest respond to other triggers, so they are skipped.
+ * Also measures the same invalidation of every filter, for comparison.
+ *
+ * Run the main method with the test classpath. This is not a unit test,
+ * because its results are only meaningful on an otherwise idle machine.
+ */
+public class FilterMatchModuleBenchmark {
+
+    private static final int FILTERABLES = 100;
+    private static final int FILTERS = 200;
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 10000;
+
+    public static void main(String[] args) {
+        final List<Filterable<?>> children = new ArrayList<>();
+        final boolean[] loaded = new boolean[1];
+        final Match match = FilterMatchModuleTest.stubMatch(children, loaded);
+        final FilterMatchModule fmm = FilterMatchModuleTest.module(match);
+
+        final List<TestFilterable> filterables = new ArrayList<>();
+        for(int i = 0; i < FILTERABLES; i++) {
+            final TestFilterable filterable = new TestFilterable(match, "filterable" + i);
+            filterables.add(filterable);
+            children.add(filterable);
+        }
+
+        final int[] dispatched = new int[1];
+        final List<TestFilter> filters = new ArrayList<>();
+        for(int i = 0; i < FILTERS; i++) {
+            final TestFilter filter = new TestFilter(i % 2 == 0 ? EnumSet.of(Trigger.MOVEMENT)
+                                                                : EnumSet.of(Trigger.GOAL, Trigger.SCORE));
+            filters.add(filter);
+            fmm.onChange(TestFilterable.class, filter, (filterable, response) -> dispatched[0]++);
+        }
+        loaded[0] = true;
+
+        for(int i = 0; i < WARMUP; i++) {
+            tick(fmm, filters, filterables, i, EnumSet.of(Trigger.MOVEMENT));
+            tick(fmm, filters, filterables, i, Trigger.ALL);
+        }
+
+        long start = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; i++) tick(fmm, filters, filterables, i, EnumSet.of(Trigger.MOVEMENT));
+        final long movementNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; i++) tick(fmm, filters, filterables, i, Trigger.ALL);
+        final long allNanos = System.nanoTime() - start;
+
+        System.out.println("Movement invalidation: " + movementNanos / ITERATIONS + " ns/tick");
+        System.out.println("Full invalidation:     " + allNanos / ITERATIONS + " ns/tick");
+        System.out.println("(" + dispatched[0] + " dispatches)");
+    }
+
+    private static void tick(FilterMatchModule fmm, List<TestFilter> filters, List<TestFilterable> filterables, int iteration, Set<Trigger> triggers) {
+        // Flip one filterable's response to one filter, so some listeners are notified
+        final TestFilter filter = filters.get(iteration % filters.size());
+        final TestFilterable filterable = filterables.get(iteration % filterables.size());
+        if(!filter.allowed.remove(filterable)) filter.allowed.add(filterable);
+
+        for(TestFilterable each : filterables) {
+            fmm.invalidate(triggers, each);
+        }
+        fmm.tick();
+    }
+}
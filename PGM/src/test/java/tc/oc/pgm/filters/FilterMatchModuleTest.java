@@ -0,0 +1,297 @@
+package tc.oc.pgm.filters;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import tc.oc.pgm.filters.Filter.Trigger;
+import tc.oc.pgm.filters.matcher.TypedFilter;
+import tc.oc.pgm.filters.operator.AllFilter;
+import tc.oc.pgm.filters.query.IMatchQuery;
+import tc.oc.pgm.match.Match;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks which filters {@link FilterMatchModule} re-queries after each kind of
+ * invalidation, and which listeners it notifies, using a stub {@link Match}
+ * that contains a fixed list of {@link Filterable}s.
+ */
+@RunWith(JUnit4.class)
+public class FilterMatchModuleTest {
+
+    /**
+     * Allows a mutable set of filterables, and counts how many times it is queried
+     */
+    static class TestFilter extends TypedFilter.Impl<IMatchQuery> {
+        final Set<Trigger> triggers;
+        final Set<IMatchQuery> allowed = new HashSet<>();
+        int queries;
+
+        TestFilter(Set<Trigger> triggers) {
+            this.triggers = triggers;
+        }
+
+        @Override
+        public Set<Trigger> triggers() {
+            return triggers;
+        }
+
+        @Override
+        public boolean matches(IMatchQuery query) {
+            queries++;
+            return allowed.contains(query);
+        }
+    }
+
+    static class TestFilterable implements Filterable<IMatchQuery> {
+        final Match match;
+        final String name;
+
+        TestFilterable(Match match, String name) {
+            this.match = match;
+            this.name = name;
+        }
+
+        @Override
+        public Match getMatch() {
+            return match;
+        }
+
+        @Override
+        public Optional<? extends Filterable<? super IMatchQuery>> filterableParent() {
+            return Optional.of(match);
+        }
+
+        @Override
+        public Stream<? extends Filterable<? extends IMatchQuery>> filterableChildren() {
+            return Stream.empty();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Create a {@link Match} that only supports what {@link FilterMatchModule} needs from it,
+     * with the given filterables as its children.
+     */
+    static Match stubMatch(List<Filterable<?>> children, boolean[] loaded) {
+        final Match[] match = new Match[1];
+        match[0] = (Match) Proxy.newProxyInstance(Match.class.getClassLoader(), new Class<?>[]{ Match.class }, (proxy, method, args) -> {
+            switch(method.getName()) {
+                case "isLoaded": return loaded[0];
+                case "getMatch": return proxy;
+                case "getLogger": return Logger.getLogger(FilterMatchModuleTest.class.getName());
+                case "filterableChildren": return children.stream();
+                case "filterableDescendants":
+                    final Class<?> type = (Class<?>) args[0];
+                    return Stream.concat(Stream.of(proxy), children.stream()).filter(type::isInstance);
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                case "toString": return "match";
+            }
+            throw new UnsupportedOperationException(method.toString());
+        });
+        return match[0];
+    }
+
+    static FilterMatchModule module(Match stub) {
+        return new FilterMatchModule() {{
+            this.match = stub;
+            this.logger = stub.getLogger();
+        }};
+    }
+
+    final List<Filterable<?>> children = new ArrayList<>();
+    final boolean[] loaded = new boolean[1];
+    Match match;
+    TestFilterable alice, bob;
+    FilterMatchModule fmm;
+    final List<String> events = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        match = stubMatch(children, loaded);
+        alice = new TestFilterable(match, "alice");
+        bob = new TestFilterable(match, "bob");
+        children.add(alice);
+        children.add(bob);
+        fmm = module(match);
+    }
+
+    private void listen(Filter filter) {
+        fmm.onChange(TestFilterable.class, filter, (filterable, response) -> events.add(filterable + "=" + response));
+    }
+
+    private void assertEvents(String... expected) {
+        assertEquals(Arrays.asList(expected), events);
+        events.clear();
+    }
+
+    @Test
+    public void testRegistrationDispatchesCurrentResponse() {
+        final TestFilter filter = new TestFilter(EnumSet.of(Trigger.GOAL));
+        filter.allowed.add(alice);
+        listen(filter);
+        assertTrue(events.contains("alice=true"));
+        assertTrue(events.contains("bob=false"));
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    public void testOnlyMatchingTriggersRequery() {
+        final TestFilter filter = new TestFilter(EnumSet.of(Trigger.GOAL));
+        listen(filter);
+        events.clear();
+        loaded[0] = true;
+
+        filter.allowed.add(alice);
+        fmm.invalidate(Trigger.MOVEMENT, alice);
+        fmm.tick();
+        assertEvents();
+
+        fmm.invalidate(Trigger.GOAL, alice);
+        fmm.tick();
+        assertEvents("alice=true");
+
+        filter.allowed.remove(alice);
+        fmm.invalidate(EnumSet.of(Trigger.PARTY, Trigger.GOAL), alice);
+        fmm.tick();
+        assertEvents("alice=false");
+    }
+
+    @Test
+    public void testUnchangedResponseIsNotDispatched() {
+        final TestFilter filter = new TestFilter(Trigger.ALL);
+        listen(filter);
+        events.clear();
+        loaded[0] = true;
+
+        final int queries = filter.queries;
+        fmm.invalidate(alice);
+        fmm.tick();
+        assertEvents();
+        assertEquals(queries + 1, filter.queries);
+    }
+
+    @Test
+    public void testMatchInvalidationReachesChildren() {
+        final TestFilter filter = new TestFilter(EnumSet.of(Trigger.SCORE));
+        listen(filter);
+        events.clear();
+        loaded[0] = true;
+
+        filter.allowed.add(alice);
+        filter.allowed.add(bob);
+        fmm.invalidate(Trigger.SCORE, match);
+        fmm.tick();
+        assertEquals(2, events.size());
+        assertTrue(events.contains("alice=true"));
+        assertTrue(events.contains("bob=true"));
+    }
+
+    @Test
+    public void testFilterInvalidationReachesDependents() {
+        final TestFilter a = new TestFilter(Trigger.NONE);
+        final TestFilter b = new TestFilter(Trigger.NONE);
+        final TestFilter unrelated = new TestFilter(Trigger.NONE);
+        b.allowed.add(alice);
+        b.allowed.add(bob);
+        listen(AllFilter.of(a, b));
+        listen(unrelated);
+        events.clear();
+        loaded[0] = true;
+
+        a.allowed.add(bob);
+        unrelated.allowed.add(bob);
+        final int unrelatedQueries = unrelated.queries;
+        fmm.invalidate(a, bob);
+        fmm.tick();
+        assertEvents("bob=true");
+        assertEquals(unrelatedQueries, unrelated.queries);
+
+        // The invalidation was consumed by the tick
+        a.allowed.remove(bob);
+        fmm.tick();
+        assertEvents();
+    }
+
+    @Test
+    public void testListenerInvalidationsAreCheckedInSameTick() {
+        final TestFilter first = new TestFilter(EnumSet.of(Trigger.GOAL));
+        final TestFilter second = new TestFilter(EnumSet.of(Trigger.FLAG));
+        fmm.onRise(TestFilterable.class, first, filterable -> {
+            events.add("first " + filterable);
+            second.allowed.add(bob);
+            fmm.invalidate(Trigger.FLAG, bob);
+        });
+        fmm.onRise(TestFilterable.class, second, filterable -> events.add("second " + filterable));
+        loaded[0] = true;
+
+        first.allowed.add(alice);
+        fmm.invalidate(Trigger.GOAL, alice);
+        fmm.tick();
+        assertEvents("first alice", "second bob");
+    }
+
+    @Test
+    public void testRecheckOfCheckedFilterableWaitsForNextTick() {
+        final TestFilter filter = new TestFilter(EnumSet.of(Trigger.GOAL));
+        fmm.onChange(TestFilterable.class, filter, (filterable, response) -> {
+            events.add(filterable + "=" + response);
+            if(response) {
+                filter.allowed.remove(filterable);
+                fmm.invalidate(Trigger.GOAL, filterable);
+            }
+        });
+        events.clear();
+        loaded[0] = true;
+
+        filter.allowed.add(alice);
+        fmm.invalidate(Trigger.GOAL, alice);
+        fmm.tick();
+        assertEvents("alice=true");
+
+        fmm.tick();
+        assertEvents("alice=false");
+    }
+
+    @Test
+    public void testMovedFilterableIsRecheckedInSameTick() {
+        final TestFilter first = new TestFilter(EnumSet.of(Trigger.GOAL));
+        final TestFilter region = new TestFilter(EnumSet.of(Trigger.MOVEMENT));
+        fmm.onRise(TestFilterable.class, first, filterable -> {
+            events.add("first " + filterable);
+            // Teleport bob, after he was checked in this tick
+            region.allowed.add(bob);
+            fmm.invalidateMovement(bob);
+        });
+        fmm.onChange(TestFilterable.class, region, (filterable, response) -> events.add(filterable + "=" + response));
+        events.clear();
+        loaded[0] = true;
+
+        first.allowed.add(alice);
+        fmm.invalidate(Trigger.GOAL, alice);
+        fmm.invalidate(Trigger.MOVEMENT, bob);
+        fmm.tick();
+        assertEvents("first alice", "bob=true");
+
+        fmm.tick();
+        assertEvents();
+    }
+}
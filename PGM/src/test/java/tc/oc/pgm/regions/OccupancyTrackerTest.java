@@ -0,0 +1,94 @@
+package tc.oc.pgm.regions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bukkit.util.Vector;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the transitions that {@link OccupancyTracker} dispatches, using strings for players,
+ * including when a listener moves the player somewhere else, as a portal does.
+ */
+@RunWith(JUnit4.class)
+public class OccupancyTrackerTest {
+
+    private static final Region PORTAL = new CuboidRegion(new Vector(0, 0, 0), new Vector(10, 10, 10));
+    private static final Region POINT = new CuboidRegion(new Vector(5, 0, 5), new Vector(15, 10, 15));
+    private static final Region EXIT = new CuboidRegion(new Vector(100, 0, 100), new Vector(110, 10, 110));
+
+    final OccupancyTracker<String> tracker = new OccupancyTracker<>();
+    final List<String> events = new ArrayList<>();
+
+    private void record(Region region, String name) {
+        tracker.onEnter(region, player -> events.add(player + " entered " + name));
+        tracker.onLeave(region, player -> events.add(player + " left " + name));
+        tracker.whileInside(region, player -> events.add(player + " inside " + name));
+    }
+
+    private void assertEvents(String... expected) {
+        assertEquals(Arrays.asList(expected), events);
+        events.clear();
+    }
+
+    @Test
+    public void testTransitions() {
+        record(PORTAL, "portal");
+        record(EXIT, "exit");
+
+        tracker.move("alice", 50, 5, 50);
+        assertEvents();
+
+        tracker.move("alice", 2, 5, 2);
+        assertEvents("alice entered portal", "alice inside portal");
+        assertTrue(tracker.isInside("alice", PORTAL));
+
+        tracker.move("alice", 3, 5, 3);
+        assertEvents("alice inside portal");
+
+        tracker.move("alice", 105, 5, 105);
+        assertEvents("alice left portal", "alice entered exit", "alice inside exit");
+        assertEquals(Collections.emptySet(), tracker.occupants(PORTAL));
+
+        tracker.remove("alice");
+        assertEvents("alice left exit");
+        assertEquals(Collections.emptySet(), tracker.occupants(EXIT));
+    }
+
+    @Test
+    public void testTeleportFromEnterListener() {
+        tracker.onEnter(PORTAL, player -> {
+            events.add(player + " entered portal");
+            tracker.move(player, 105, 5, 105);
+        });
+        tracker.onEnter(PORTAL, player -> events.add(player + " entered portal again"));
+        tracker.whileInside(PORTAL, player -> events.add(player + " inside portal"));
+        record(EXIT, "exit");
+
+        // Tracks players the way a control point does, adding them while inside
+        final Set<String> onPoint = new HashSet<>();
+        tracker.whileInside(POINT, onPoint::add);
+        tracker.onLeave(POINT, onPoint::remove);
+
+        tracker.move("alice", 7, 5, 7);
+
+        // The listeners after the teleport see the new location only
+        assertEvents("alice entered portal", "alice entered exit", "alice inside exit");
+
+        assertFalse(tracker.isInside("alice", PORTAL));
+        assertFalse(tracker.isInside("alice", POINT));
+        assertTrue(tracker.isInside("alice", EXIT));
+        assertEquals(Collections.emptySet(), tracker.occupants(PORTAL));
+        assertEquals(Collections.emptySet(), tracker.occupants(POINT));
+        assertEquals(Collections.singleton("alice"), tracker.occupants(EXIT));
+        assertEquals(Collections.emptySet(), onPoint);
+    }
+}
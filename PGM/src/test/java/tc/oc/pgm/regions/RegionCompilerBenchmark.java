@@ -0,0 +1,162 @@
+package tc.oc.pgm.regions;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.bukkit.util.BlockVector;
+import org.bukkit.util.Vector;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.input.SAXBuilder;
+import tc.oc.pgm.utils.XMLUtils;
+import tc.oc.pgm.xml.BoundedJDOMFactory;
+import tc.oc.pgm.xml.BoundedSAXHandler;
+import tc.oc.pgm.xml.InvalidXMLException;
+
+/**
+ * Compares testing block positions against the regions of a real map layout, with the
+ * regions themselves and with the {@link CompiledRegion}s compiled from them. Every position
+ * is tested against every region, as a movement is by the filters and occupancy tracking
+ * of a map that uses all of them.
+ *
+ * The regions are read from region-benchmark.xml, the regions section of a mirrored
+ * capture-the-wool map. {@link RegionParser} needs a map context to resolve references,
+ * so {@link FixtureReader} parses the shapes with {@link RegionDefinitionParser}, and
+ * assembles the compound regions the same way the parser does.
+ *
+ * Run the main method with the test classpath. This is not a unit test,
+ * because its results are only meaningful on an otherwise idle machine.
+ */
+public class RegionCompilerBenchmark {
+
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 100;
+    private static final int POSITIONS = 10_000;
+
+    /**
+     * Reads the named regions of a map's regions section, in the order they are defined
+     */
+    static class FixtureReader {
+        final RegionDefinitionParser shapes = new RegionDefinitionParser();
+        final Map<String, Region> named = new LinkedHashMap<>();
+
+        Map<String, Region> read(Element regions) throws InvalidXMLException {
+            for(Element el : regions.getChildren()) {
+                named.put(XMLUtils.getRequiredAttribute(el, "id").getValue(), parse(el));
+            }
+            return named;
+        }
+
+        Region reference(Element el, String id) throws InvalidXMLException {
+            final Region region = named.get(id);
+            if(region == null) {
+                throw new InvalidXMLException("Unknown region '" + id + "'", el);
+            }
+            return region;
+        }
+
+        List<Region> children(Element el) throws InvalidXMLException {
+            final List<Region> children = new ArrayList<>();
+            for(Element child : el.getChildren()) {
+                children.add(parse(child));
+            }
+            return children;
+        }
+
+        Region referenceAndChildren(Element el) throws InvalidXMLException {
+            final List<Region> regions = new ArrayList<>();
+            final String id = el.getAttributeValue("region");
+            if(id != null) regions.add(reference(el, id));
+            regions.addAll(children(el));
+            return Union.of(regions);
+        }
+
+        Region parse(Element el) throws InvalidXMLException {
+            switch(el.getName()) {
+                case "region":
+                    return el.getChildren().isEmpty() ? reference(el, el.getAttributeValue("id"))
+                                                      : Union.of(children(el));
+                case "union":
+                    return new Union(children(el));
+                case "intersect":
+                    return new Intersection(children(el));
+                case "complement":
+                    final List<Region> regions = children(el);
+                    return new Complement(regions.get(0), Union.of(regions.subList(1, regions.size())));
+                case "negative":
+                    return new NegativeRegion(referenceAndChildren(el));
+                case "translate":
+                    return new TranslatedRegion(referenceAndChildren(el),
+                                                XMLUtils.parseVector(XMLUtils.getRequiredAttribute(el, "offset")));
+                case "mirror":
+                    return new MirroredRegion(referenceAndChildren(el),
+                                              XMLUtils.parseVector(el.getAttribute("origin"), new Vector()),
+                                              XMLUtils.parseVector(XMLUtils.getRequiredAttribute(el, "normal")));
+                default:
+                    return shapes.parseElement(el);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Document document = new SAXBuilder(null, BoundedSAXHandler::new, new BoundedJDOMFactory())
+            .build(RegionCompilerBenchmark.class.getResource("region-benchmark.xml"));
+        final Map<String, Region> named = new FixtureReader().read(document.getRootElement().getChild("regions"));
+
+        final Region[] regions = named.values().toArray(new Region[named.size()]);
+        final CompiledRegion[] compiled = new CompiledRegion[regions.length];
+        for(int i = 0; i < regions.length; i++) {
+            compiled[i] = RegionCompiler.compile(regions[i]);
+        }
+
+        // Mostly inside the playable area, with some positions beyond its edges
+        final Random random = new Random(0);
+        final BlockVector[] positions = new BlockVector[POSITIONS];
+        for(int i = 0; i < POSITIONS; i++) {
+            positions[i] = new BlockVector(random.nextInt(260) - 130, random.nextInt(110) - 5, random.nextInt(140) - 70);
+        }
+
+        for(int i = 0; i < WARMUP; i++) {
+            original(regions, positions);
+            compiled(compiled, positions);
+        }
+
+        int inside = 0;
+        long start = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; i++) inside += original(regions, positions);
+        final long originalNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; i++) inside += compiled(compiled, positions);
+        final long compiledNanos = System.nanoTime() - start;
+
+        final long tests = (long) ITERATIONS * POSITIONS * regions.length;
+        System.out.println(regions.length + " regions, " + POSITIONS + " positions");
+        System.out.println("Region:         " + originalNanos / tests + " ns/test");
+        System.out.println("CompiledRegion: " + compiledNanos / tests + " ns/test");
+        System.out.println("(" + inside + " inside)");
+    }
+
+    private static int original(Region[] regions, BlockVector[] positions) {
+        int inside = 0;
+        for(BlockVector pos : positions) {
+            for(Region region : regions) {
+                if(region.contains(pos)) inside++;
+            }
+        }
+        return inside;
+    }
+
+    private static int compiled(CompiledRegion[] regions, BlockVector[] positions) {
+        int inside = 0;
+        for(BlockVector pos : positions) {
+            for(CompiledRegion region : regions) {
+                if(region.containsBlock(pos.getBlockX(), pos.getBlockY(), pos.getBlockZ())) inside++;
+            }
+        }
+        return inside;
+    }
+}
@@ -0,0 +1,125 @@
+package tc.oc.pgm.regions;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import org.bukkit.util.BlockVector;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that every kind of region responds the same after being compiled,
+ * at every block in a volume that covers all of them, and at points on a
+ * quarter-block grid, which includes points exactly on cuboid faces.
+ */
+@RunWith(JUnit4.class)
+public class RegionCompilerTest {
+
+    private static final int RANGE = 12;
+
+    private static Vector v(double x, double y, double z) {
+        return new Vector(x, y, z);
+    }
+
+    private static final Region CUBOID = new CuboidRegion(v(-3, -2, -4), v(5, 6, 2));
+    private static final Region SPHERE = new SphereRegion(v(1, 0, -1), 4.5);
+    private static final Region CYLINDER = new CylindricalRegion(v(-2, -3, 2), 3.5, 5);
+    private static final Region HALFSPACE = new HalfspaceRegion(v(0, 1, 0), v(1, 1, 0));
+
+    private void assertCompiledMatches(String name, Region region) {
+        final CompiledRegion compiled = RegionCompiler.compile(region);
+
+        for(int x = -RANGE; x <= RANGE; x++) {
+            for(int y = -RANGE; y <= RANGE; y++) {
+                for(int z = -RANGE; z <= RANGE; z++) {
+                    final BlockVector block = new BlockVector(x, y, z);
+                    assertEquals(name + " at block " + block,
+                                 region.contains(block),
+                                 compiled.containsBlock(x, y, z));
+                    assertEquals(name + " at block " + block,
+                                 region.contains(block),
+                                 compiled.contains(block));
+                }
+            }
+        }
+
+        for(double x = -RANGE / 2; x <= RANGE / 2; x += 0.25) {
+            for(double y = -RANGE / 2; y <= RANGE / 2; y += 0.25) {
+                for(double z = -RANGE / 2; z <= RANGE / 2; z += 0.25) {
+                    assertEquals(name + " at point " + x + "," + y + "," + z,
+                                 region.contains(v(x, y, z)),
+                                 compiled.contains(x, y, z));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPrimitives() {
+        assertCompiledMatches("cuboid", CUBOID);
+        assertCompiledMatches("flat cuboid", new CuboidRegion(v(-3, 1, -3), v(3, 1, 3)));
+        assertCompiledMatches("unbounded cuboid", new CuboidRegion(v(Double.NEGATIVE_INFINITY, 0, -2), v(3, Double.POSITIVE_INFINITY, 2)));
+        assertCompiledMatches("sphere", SPHERE);
+        assertCompiledMatches("cylinder", CYLINDER);
+        assertCompiledMatches("halfspace", HALFSPACE);
+        assertCompiledMatches("sector", new SectorRegion(0.5, -1.5, Math.PI / 4, Math.PI * 5 / 4));
+        assertCompiledMatches("block", new BlockRegion(v(2, 3, -4)));
+        assertCompiledMatches("point", new PointRegion(v(1.5, 2.5, 3.5)));
+        assertCompiledMatches("empty", EmptyRegion.INSTANCE);
+        assertCompiledMatches("everywhere", EverywhereRegion.INSTANCE);
+    }
+
+    @Test
+    public void testLegacyCuboid() {
+        // Legacy maps extend cuboids by one block on their maximum side, see FiniteBlockRegion.Factory
+        final Region legacy = new CuboidRegion(CUBOID.getBounds().minimum(), CUBOID.getBounds().maximum().plus(1, 1, 1));
+        assertCompiledMatches("legacy cuboid", legacy);
+        assertCompiledMatches("legacy blocks", new FiniteBlockRegion(legacy.blockPositions().filter(pos -> (pos.getBlockX() + pos.getBlockZ()) % 3 != 0)
+                                                                            .collect(Collectors.toList())));
+    }
+
+    @Test
+    public void testFiniteBlocks() {
+        assertCompiledMatches("finite blocks", new FiniteBlockRegion(Arrays.asList(new BlockVector(0, 0, 0),
+                                                                                   new BlockVector(1, 0, 0),
+                                                                                   new BlockVector(-5, 4, 7),
+                                                                                   new BlockVector(3, -2, -6))));
+    }
+
+    @Test
+    public void testComplement() {
+        assertCompiledMatches("complement", new Complement(CUBOID, SPHERE));
+        assertCompiledMatches("complement of everywhere", new Complement(CUBOID, EverywhereRegion.INSTANCE));
+        assertCompiledMatches("complement of empty", new Complement(CYLINDER, EmptyRegion.INSTANCE));
+        assertCompiledMatches("negative", new NegativeRegion(SPHERE));
+    }
+
+    @Test
+    public void testMirrored() {
+        assertCompiledMatches("mirrored x", new MirroredRegion(CUBOID, v(1, 0, 0), v(1, 0, 0)));
+        assertCompiledMatches("mirrored diagonal", new MirroredRegion(SPHERE, v(0, 0, 0), v(1, 0, 1)));
+        assertCompiledMatches("mirrored complement", new MirroredRegion(new Complement(CUBOID, CYLINDER), v(0, 2, 0), v(0, 1, 0)));
+    }
+
+    @Test
+    public void testTranslated() {
+        assertCompiledMatches("translated", new TranslatedRegion(CUBOID, v(0.5, 2, -3)));
+        assertCompiledMatches("translated twice", new TranslatedRegion(new TranslatedRegion(SPHERE, v(1, -2, 0)), v(-3, 0.5, 2)));
+        assertCompiledMatches("translated mirror", new TranslatedRegion(new MirroredRegion(CYLINDER, v(0, 0, 1), v(0, 0, 1)), v(2, 1, 0)));
+    }
+
+    @Test
+    public void testCompounds() {
+        assertCompiledMatches("union", new Union(Arrays.asList(CUBOID, SPHERE, CYLINDER)));
+        assertCompiledMatches("intersection", new Intersection(CUBOID, HALFSPACE));
+        assertCompiledMatches("nested", new Union(Arrays.asList(
+            new TranslatedRegion(new Complement(CUBOID, SPHERE), v(2, 0, -1)),
+            new MirroredRegion(new Intersection(CYLINDER, HALFSPACE, new Union(Arrays.asList(SPHERE, EmptyRegion.INSTANCE))), v(0, 0, 0), v(0, 0, 1)),
+            new Intersection(EverywhereRegion.INSTANCE, new NegativeRegion(new Union(Arrays.asList(CUBOID, CYLINDER))))
+        )));
+    }
+}
@@ -0,0 +1,41 @@
+package tc.oc.commons.bukkit.chat;
+
+import javax.annotation.Nullable;
+
+import net.md_5.bungee.api.chat.BaseComponent;
+import tc.oc.commons.core.chat.Audience;
+import tc.oc.commons.core.chat.MultiAudience;
+
+/**
+ * A {@link MultiAudience} that sends each component through {@link ComponentRenderContext#broadcast},
+ * so it is only rendered once for each group of members that would see the same thing.
+ */
+public class BroadcastAudience extends MultiAudience {
+
+    private final ComponentRenderContext renderer;
+
+    public BroadcastAudience(ComponentRenderContext renderer, Iterable<? extends Audience> audiences) {
+        super(audiences);
+        this.renderer = renderer;
+    }
+
+    @Override
+    public void sendMessage(BaseComponent message) {
+        renderer.broadcast(() -> super.sendMessage(message));
+    }
+
+    @Override
+    public void sendWarning(BaseComponent message, boolean audible) {
+        renderer.broadcast(() -> super.sendWarning(message, audible));
+    }
+
+    @Override
+    public void sendHotbarMessage(BaseComponent message) {
+        renderer.broadcast(() -> super.sendHotbarMessage(message));
+    }
+
+    @Override
+    public void showTitle(@Nullable BaseComponent title, @Nullable BaseComponent subtitle, int inTicks, int stayTicks, int outTicks) {
+        renderer.broadcast(() -> super.showTitle(title, subtitle, inTicks, stayTicks, outTicks));
+    }
+}
@@ -5,11 +5,36 @@ import org.bukkit.command.CommandSender;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 public interface ComponentRenderContext {
 
     BaseComponent render(BaseComponent original, CommandSender viewer);
 
+    /**
+     * Return some property of the viewer that affects how a component is rendered.
+     *
+     * Renderers that get everything they need from the viewer through this method
+     * can have their output shared by all viewers with the same properties.
+     *
+     * @see ComponentRenderer#tracksViewerInputs
+     * @see #broadcast
+     */
+    default <V> V viewerInput(CommandSender viewer, Function<? super CommandSender, ? extends V> input) {
+        return input.apply(viewer);
+    }
+
+    /**
+     * Run the given code, which sends the same component instances to many viewers.
+     * While it runs, each component is rendered only once for each distinct combination
+     * of {@link #viewerInput}s, and the result is reused for every viewer with the same inputs.
+     *
+     * Components must not be modified while they are being broadcast.
+     */
+    default void broadcast(Runnable send) {
+        send.run();
+    }
+
     default BaseComponent[] render(BaseComponent[] originals, CommandSender viewer) {
         if(originals == null) return null;
 
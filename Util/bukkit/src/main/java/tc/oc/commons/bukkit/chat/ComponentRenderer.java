@@ -18,4 +18,14 @@ public interface ComponentRenderer<T extends BaseComponent> {
      * @return            rendered component
      */
     BaseComponent render(ComponentRenderContext context, T original, CommandSender viewer);
+
+    /**
+     * Does this renderer get everything it uses from the viewer through
+     * {@link ComponentRenderContext#viewerInput}? If so, a render can be shared
+     * by viewers with the same inputs. Otherwise, the component will always be
+     * rendered separately for each viewer.
+     */
+    default boolean tracksViewerInputs() {
+        return false;
+    }
 }
@@ -1,5 +1,12 @@
 package tc.oc.commons.bukkit.chat;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -15,6 +22,12 @@ import org.bukkit.command.CommandSender;
 @Singleton
 public class ComponentRendererRegistry implements ComponentRenderContext {
 
+    /**
+     * Max number of different renders of one component to keep during a broadcast,
+     * after which it is rendered separately for each remaining viewer.
+     */
+    private static final int MAX_SHARED_RENDERS = 16;
+
     private final Injector injector;
 
     private final LoadingCache<Class<? extends BaseComponent>, ComponentRenderer> renderers = CacheBuilder.newBuilder().build(new CacheLoader<Class<? extends BaseComponent>, ComponentRenderer>() {
@@ -32,6 +45,9 @@ public class ComponentRendererRegistry implements ComponentRenderContext {
         }
     });
 
+    // Shared renders of each component instance in the current broadcast, on each thread
+    private final ThreadLocal<Map<BaseComponent, SharedRender>> broadcast = new ThreadLocal<>();
+
     @Inject ComponentRendererRegistry(Injector injector) {
         this.injector = injector;
     }
@@ -42,15 +58,143 @@ public class ComponentRendererRegistry implements ComponentRenderContext {
 
     @Override
     public BaseComponent render(BaseComponent component, CommandSender viewer) {
+        final Map<BaseComponent, SharedRender> shared = broadcast.get();
+        if(shared != null) {
+            return shared.computeIfAbsent(component, SharedRender::new).render(viewer);
+        }
+        return render(this, component, viewer);
+    }
+
+    private BaseComponent render(ComponentRenderContext context, BaseComponent component, CommandSender viewer) {
         if(component instanceof RenderableComponent) {
-            return ((RenderableComponent) component).render(this, viewer);
+            return ((RenderableComponent) component).render(context, viewer);
         }
 
         ComponentRenderer renderer = getRenderer(component);
         if(renderer != null) {
-            return renderer.render(this, component, viewer);
+            return renderer.render(context, component, viewer);
         }
 
         return component;
     }
+
+    private boolean tracksViewerInputs(BaseComponent component) {
+        if(component instanceof RenderableComponent) return false;
+        final ComponentRenderer renderer = getRenderer(component);
+        return renderer == null || renderer.tracksViewerInputs();
+    }
+
+    @Override
+    public void broadcast(Runnable send) {
+        if(broadcast.get() != null) {
+            // Already broadcasting
+            send.run();
+            return;
+        }
+
+        broadcast.set(new IdentityHashMap<>());
+        try {
+            send.run();
+        } finally {
+            broadcast.remove();
+        }
+    }
+
+    /**
+     * A viewer input consulted during a render, and the value it returned
+     */
+    private static class Input {
+        final Function<? super CommandSender, ?> function;
+        final @Nullable Object value;
+
+        Input(Function<? super CommandSender, ?> function, @Nullable Object value) {
+            this.function = function;
+            this.value = value;
+        }
+
+        boolean matches(CommandSender viewer) {
+            return Objects.equals(value, function.apply(viewer));
+        }
+    }
+
+    /**
+     * A rendered component, and the viewer inputs it was rendered from.
+     * Since rendering is determined by its inputs, any viewer that matches
+     * all of them would get an identical render.
+     */
+    private static class Render {
+        final List<Input> inputs;
+        final BaseComponent rendered;
+
+        Render(List<Input> inputs, BaseComponent rendered) {
+            this.inputs = inputs;
+            this.rendered = rendered;
+        }
+
+        boolean matches(CommandSender viewer) {
+            for(Input input : inputs) {
+                if(!input.matches(viewer)) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Context for one render of a broadcast component, that records the viewer
+     * inputs used by the renderers, or notices if any renderer does not track them.
+     */
+    private class RecordingContext implements ComponentRenderContext {
+        final List<Input> inputs = new ArrayList<>();
+        boolean shareable = true;
+
+        @Override
+        public BaseComponent render(BaseComponent component, CommandSender viewer) {
+            if(shareable && !tracksViewerInputs(component)) {
+                shareable = false;
+            }
+            return ComponentRendererRegistry.this.render(this, component, viewer);
+        }
+
+        @Override
+        public <V> V viewerInput(CommandSender viewer, Function<? super CommandSender, ? extends V> input) {
+            final V value = input.apply(viewer);
+            if(shareable) {
+                inputs.add(new Input(input, value));
+            }
+            return value;
+        }
+    }
+
+    /**
+     * All renders of one component during a broadcast
+     */
+    private class SharedRender {
+        final BaseComponent original;
+        final List<Render> renders = new ArrayList<>();
+        boolean shareable = true;
+
+        SharedRender(BaseComponent original) {
+            this.original = original;
+        }
+
+        BaseComponent render(CommandSender viewer) {
+            if(shareable) {
+                for(Render render : renders) {
+                    if(render.matches(viewer)) return render.rendered;
+                }
+
+                if(renders.size() < MAX_SHARED_RENDERS) {
+                    final RecordingContext context = new RecordingContext();
+                    final BaseComponent rendered = context.render(original, viewer);
+                    if(context.shareable) {
+                        renders.add(new Render(context.inputs, rendered));
+                    } else {
+                        shareable = false;
+                    }
+                    return rendered;
+                }
+            }
+            return ComponentRendererRegistry.this.render(ComponentRendererRegistry.this, original, viewer);
+        }
+    }
 }
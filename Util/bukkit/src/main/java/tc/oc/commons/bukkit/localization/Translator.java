@@ -7,6 +7,7 @@ import java.util.Optional;
 import javax.annotation.Nullable;
 
 import org.bukkit.command.CommandSender;
+import tc.oc.commons.core.localization.TranslationFormat;
 
 /**
  * Knows how to translate keys into text for specific viewers
@@ -46,6 +47,12 @@ public interface Translator {
      */
     String t(String format, String key, @Nullable CommandSender viewer, Object... arguments);
 
+    /**
+     * Return the compiled, thread-safe format for the given key in the given locale,
+     * or empty if the locale does not contain the key.
+     */
+    Optional<TranslationFormat> format(String key, Locale locale);
+
     Optional<MessageFormat> pattern(String key);
 
     Optional<MessageFormat> pattern(String key, Locale locale);
@@ -100,6 +100,18 @@ public class BlockUtils {
         return to;
     }
 
+    public static int decodeX(long encoded) {
+        return (int) unpack(encoded, 0);
+    }
+
+    public static int decodeY(long encoded) {
+        return (int) unpack(encoded, SHIFT);
+    }
+
+    public static int decodeZ(long encoded) {
+        return (int) unpack(encoded, SHIFT + SHIFT);
+    }
+
     public static BlockVector decodePos(long encoded) {
         return new BlockVector(
             unpack(encoded, 0),
@@ -9,6 +9,7 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
@@ -27,6 +28,7 @@ import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.HoverEvent;
 import net.md_5.bungee.api.chat.TextComponent;
 import net.md_5.bungee.api.chat.TranslatableComponent;
+import tc.oc.commons.core.localization.TranslationFormat;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -117,6 +119,19 @@ public abstract class Components {
         return parts.toArray(new BaseComponent[parts.size()]);
     }
 
+    /**
+     * Render the given {@link TranslationFormat} to component form, using the given arguments.
+     * The result is the same as {@link #format(MessageFormat, List)}, but the text between
+     * the arguments is taken from the compiled format, rather than formatting the message.
+     */
+    public static BaseComponent[] format(TranslationFormat format, List<BaseComponent> arguments) {
+        if(format.isComplex()) {
+            return format(format.toMessageFormat(), arguments);
+        }
+        final List<BaseComponent> parts = format.splice(arguments == null ? Collections.<BaseComponent>emptyList() : arguments, TextComponent::new);
+        return parts.toArray(new BaseComponent[parts.size()]);
+    }
+
     /**
      * Recursively compare the given components for equality
      */
@@ -0,0 +1,169 @@
+package tc.oc.commons.core.localization;
+
+import java.text.AttributedCharacterIterator;
+import java.text.DateFormat;
+import java.text.Format;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * An immutable, precompiled {@link MessageFormat}, split into literal text segments
+ * and the argument slots between them. Unlike a {@link MessageFormat}, it can be
+ * shared by any number of threads, and formatting does not need to parse anything.
+ *
+ * Only plain placeholders like "{0}" are compiled. If the pattern contains any
+ * placeholders with a format type e.g. "{0,number}", the format is "complex", and
+ * every format call works on a private copy of the original {@link MessageFormat}.
+ */
+public final class TranslationFormat {
+
+    private static final int NULL_LENGTH = String.valueOf((Object) null).length();
+
+    private final MessageFormat prototype;
+    private final boolean complex;
+    private final String[] literals;    // One more than the number of slots
+    private final int[] slots;
+
+    private TranslationFormat(MessageFormat prototype, boolean complex, String[] literals, int[] slots) {
+        this.prototype = prototype;
+        this.complex = complex;
+        this.literals = literals;
+        this.slots = slots;
+    }
+
+    /**
+     * Compile the given {@link MessageFormat}, which must not be modified afterward
+     */
+    public static TranslationFormat compile(MessageFormat format) {
+        for(Format sub : format.getFormats()) {
+            if(sub != null) {
+                return new TranslationFormat(format, true, new String[0], new int[0]);
+            }
+        }
+
+        // Format with placeholder arguments, and find where they appear in the result
+        final Object[] dummies = new Object[format.getFormatsByArgumentIndex().length];
+        final String text = format.format(dummies, new StringBuffer(), null).toString();
+        final AttributedCharacterIterator iter = format.formatToCharacterIterator(dummies);
+
+        final List<String> literals = new ArrayList<>();
+        final List<Integer> slots = new ArrayList<>();
+        final StringBuilder literal = new StringBuilder();
+        while(iter.getIndex() < iter.getEndIndex()) {
+            final int end = iter.getRunLimit();
+            final Integer index = (Integer) iter.getAttribute(MessageFormat.Field.ARGUMENT);
+            if(index == null) {
+                literal.append(text, iter.getIndex(), end);
+            } else {
+                // Adjacent repeats of the same argument are merged into one run of "null"s
+                for(int n = (end - iter.getIndex()) / NULL_LENGTH; n > 0; n--) {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    slots.add(index);
+                }
+            }
+            iter.setIndex(end);
+        }
+        literals.add(literal.toString());
+
+        return new TranslationFormat(format,
+                                     false,
+                                     literals.toArray(new String[literals.size()]),
+                                     slots.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public Locale locale() {
+        return prototype.getLocale();
+    }
+
+    /**
+     * Does this format contain any placeholders with a format type,
+     * which are handled by a {@link MessageFormat} instead of being compiled?
+     */
+    public boolean isComplex() {
+        return complex;
+    }
+
+    /**
+     * Return a new {@link MessageFormat} equivalent to this format,
+     * which the caller is free to use or modify.
+     */
+    public MessageFormat toMessageFormat() {
+        return (MessageFormat) prototype.clone();
+    }
+
+    /**
+     * Format the given arguments, with the same result as {@link MessageFormat#format(Object)}
+     */
+    public String format(Object... arguments) {
+        if(complex) {
+            return toMessageFormat().format(arguments);
+        }
+
+        final StringBuilder sb = new StringBuilder(literals[0]);
+        for(int i = 0; i < slots.length; i++) {
+            final int slot = slots[i];
+            if(arguments == null || slot >= arguments.length) {
+                sb.append('{').append(slot).append('}');
+            } else {
+                sb.append(formatArgument(arguments[slot]));
+            }
+            sb.append(literals[i + 1]);
+        }
+        return sb.toString();
+    }
+
+    private String formatArgument(Object argument) {
+        // Same defaults as MessageFormat
+        if(argument instanceof Number) {
+            return NumberFormat.getInstance(locale()).format(argument);
+        } else if(argument instanceof Date) {
+            return DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale()).format(argument);
+        } else {
+            return String.valueOf(argument);
+        }
+    }
+
+    /**
+     * Splice the given arguments into this format, converting the non-empty literal
+     * segments between them with the given function. This is used to build structured
+     * messages e.g. component trees, that include the arguments directly.
+     *
+     * @throws IllegalStateException if this format {@link #isComplex}
+     */
+    public <T> List<T> splice(List<? extends T> arguments, Function<? super String, ? extends T> literal) {
+        if(complex) {
+            throw new IllegalStateException("Cannot splice a complex format");
+        }
+
+        final List<T> parts = new ArrayList<>(slots.length * 2 + 1);
+        final StringBuilder text = new StringBuilder(literals[0]);
+        for(int i = 0; i < slots.length; i++) {
+            final int slot = slots[i];
+            if(slot < arguments.size()) {
+                if(text.length() > 0) {
+                    parts.add(literal.apply(text.toString()));
+                    text.setLength(0);
+                }
+                parts.add(arguments.get(slot));
+            } else {
+                text.append('{').append(slot).append('}');
+            }
+            text.append(literals[i + 1]);
+        }
+        if(text.length() > 0 || parts.isEmpty()) {
+            parts.add(literal.apply(text.toString()));
+        }
+        return parts;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{locale=" + locale() + ", pattern=" + prototype.toPattern() + "}";
+    }
+}
@@ -0,0 +1,45 @@
+package tc.oc.commons.localization;
+
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.junit.Test;
+import tc.oc.commons.core.localization.TranslationFormat;
+
+import static org.junit.Assert.*;
+
+public class TranslationFormatTest {
+
+    void assertSameAsMessageFormat(String pattern, Object... arguments) {
+        final MessageFormat message = new MessageFormat(pattern, Locale.GERMANY);
+        assertEquals(message.format(arguments), TranslationFormat.compile(message).format(arguments));
+    }
+
+    @Test public void formatMatchesMessageFormat() throws Exception {
+        assertSameAsMessageFormat("no arguments");
+        assertSameAsMessageFormat("{0} was shot by {1} from {4} blocks", "A", "B", null, null, 12.5);
+        assertSameAsMessageFormat("{1} before {0}", "A", "B");
+        assertSameAsMessageFormat("{0}{0} repeated", "A");
+        assertSameAsMessageFormat("it''s {0}", "quoted");
+        assertSameAsMessageFormat("{0} missing {1}", "A");
+        assertSameAsMessageFormat("{0,number,#.#} complex", 1.25);
+    }
+
+    @Test public void complexFormatIsNotCompiled() throws Exception {
+        assertFalse(TranslationFormat.compile(new MessageFormat("{0}")).isComplex());
+        assertTrue(TranslationFormat.compile(new MessageFormat("{0,number}")).isComplex());
+    }
+
+    @Test public void spliceArguments() throws Exception {
+        final TranslationFormat format = TranslationFormat.compile(new MessageFormat("{0} hit {1}!"));
+        assertEquals(Arrays.asList("A", "< hit >", "B", "<!>"),
+                     format.splice(Arrays.asList("A", "B"), text -> "<" + text + ">"));
+    }
+
+    @Test public void spliceMissingArgument() throws Exception {
+        final TranslationFormat format = TranslationFormat.compile(new MessageFormat("{0} and {1}"));
+        assertEquals(Arrays.asList("A", "< and {1}>"),
+                     format.splice(Arrays.asList("A"), text -> "<" + text + ">"));
+    }
+}